@@ -0,0 +1,158 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import net.sf.antcontrib.cpptasks.gcc.ElfFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Computes the ABI stamp of a shared library: a digest of its SONAME,
+ * version definitions and exported dynamic symbols.  A program linked
+ * against the library only needs to be relinked when the stamp changes,
+ * not every time the library is rebuilt.
+ */
+final class AbiStamp {
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * Stamp of a library at a given size and time.
+     */
+    private static final class Entry {
+        private final long length;
+        private final long lastModified;
+        private final String stamp;
+
+        private Entry(long length, long lastModified, String stamp) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.stamp = stamp;
+        }
+    }
+
+    private static final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private AbiStamp() {
+    }
+
+    /**
+     * Determines if a file name looks like a shared library, for example
+     * libfoo.so or libfoo.so.1.2.
+     *
+     * @param name file name
+     * @return true if a shared library name
+     */
+    public static boolean isSharedLibraryName(String name) {
+        return name.endsWith(".so") || name.indexOf(".so.") > 0;
+    }
+
+    /**
+     * Gets the ABI stamp of a shared library.
+     *
+     * @param library library file
+     * @return stamp in hexadecimal, null if the file is not an ELF shared
+     * library or can't be read
+     */
+    public static String get(File library) {
+        String path;
+        try {
+            path = CUtil.getCanonicalPath(library);
+        } catch (IOException ex) {
+            path = library.getAbsolutePath();
+        }
+        long length = library.length();
+        long lastModified = library.lastModified();
+        synchronized (cache) {
+            Entry entry = cache.get(path);
+            if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+                return entry.stamp;
+            }
+        }
+        String stamp;
+        try {
+            stamp = compute(library);
+        } catch (IOException ex) {
+            stamp = null;
+        }
+        synchronized (cache) {
+            cache.put(path, new Entry(length, lastModified, stamp));
+        }
+        return stamp;
+    }
+
+    /**
+     * Computes the ABI stamp without using the cache.
+     *
+     * @param library library file
+     * @return stamp in hexadecimal, null if not an ELF shared library
+     * @throws IOException if unable to read the library
+     */
+    static String compute(File library) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(library, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < 64 || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!ElfFile.isElf(buffer)) {
+                return null;
+            }
+            ElfFile elf = new ElfFile(buffer);
+            if (elf.getType() != ElfFile.ET_DYN) {
+                return null;
+            }
+            //
+            //   symbol table order depends on hashing and the order
+            //      of the objects, only the set of symbols matters
+            //
+            String[] symbols = elf.getExportedSymbols();
+            Arrays.sort(symbols);
+            MessageDigest digest = FileDigestCache.createMessageDigest();
+            String soname = elf.getSoname();
+            update(digest, "soname " + (soname != null ? soname : ""));
+            for (String version : elf.getVersionDefinitions()) {
+                update(digest, "version " + version);
+            }
+            for (String symbol : symbols) {
+                update(digest, "symbol " + symbol);
+            }
+            return FileDigestCache.toHex(digest.digest());
+        } finally {
+            file.close();
+        }
+    }
+
+    private static void update(MessageDigest digest, String line) throws IOException {
+        digest.update(line.getBytes("UTF-8"));
+        digest.update((byte) '\n');
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Hashtable;
+import java.util.Map;
+
+/**
+ * <p>
+ * Keeps histories and dependency tables loaded by one build for the
+ * next build in the same JVM.
+ * </p>
+ * <p>
+ * Only enabled in a build server.  A table is reused if the files it
+ * was loaded from are unchanged since the end of the previous build,
+ * otherwise it is loaded again.  Reused tables are revalidated against
+ * the files they describe.
+ * </p>
+ */
+final class BuildStateCache {
+    /**
+     * A loaded table and the state of its files.
+     */
+    private static final class Entry {
+        private final Object table;
+        private final File[] files;
+        private long[] stamps;
+
+        private Entry(Object table, File[] files) {
+            this.table = table;
+            this.files = files;
+        }
+
+        private long[] stat() {
+            long[] current = new long[files.length * 2];
+            for (int i = 0; i < files.length; i++) {
+                current[2 * i] = files[i].lastModified();
+                current[2 * i + 1] = files[i].length();
+            }
+            return current;
+        }
+
+        private boolean isUnchanged() {
+            if (stamps == null) {
+                return false;
+            }
+            long[] current = stat();
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] != stamps[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static boolean enabled;
+    private static final Hashtable<String, Entry> dependencyTables = new Hashtable<String, Entry>();
+    private static final Hashtable<String, Entry> histories = new Hashtable<String, Entry>();
+
+    private BuildStateCache() {
+    }
+
+    /**
+     * Enables or disables the cache, discarding all cached tables.
+     *
+     * @param enable true to keep tables between builds
+     */
+    static synchronized void setEnabled(boolean enable) {
+        enabled = enable;
+        dependencyTables.clear();
+        histories.clear();
+    }
+
+    private static String getKey(File dir) {
+        try {
+            return dir.getCanonicalPath();
+        } catch (IOException ex) {
+            return dir.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Gets the cached dependency table of an object directory.
+     *
+     * @param objDir object directory
+     * @return revalidated table or null if not cached or changed on disk
+     */
+    static synchronized DependencyTable getDependencyTable(File objDir) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = dependencyTables.get(getKey(objDir));
+        if (entry == null || !entry.isUnchanged()) {
+            return null;
+        }
+        DependencyTable table = (DependencyTable) entry.table;
+        table.revalidate();
+        return table;
+    }
+
+    /**
+     * Caches a newly loaded dependency table.
+     *
+     * @param objDir object directory
+     * @param table  dependency table
+     */
+    static synchronized void putDependencyTable(File objDir, DependencyTable table) {
+        if (enabled) {
+            dependencyTables.put(getKey(objDir), new Entry(table, new File[]{
+                    new File(objDir, "dependencies.bin"),
+                    new File(objDir, "dependencies.log"),
+                    new File(objDir, "dependencies.xml")}));
+        }
+    }
+
+    /**
+     * Gets the cached history of a directory.
+     *
+     * @param dir directory containing history.xml
+     * @return revalidated history or null if not cached or changed on disk
+     */
+    static synchronized TargetHistoryTable getHistory(File dir) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = histories.get(getKey(dir));
+        if (entry == null || !entry.isUnchanged()) {
+            return null;
+        }
+        TargetHistoryTable history = (TargetHistoryTable) entry.table;
+        history.revalidate();
+        return history;
+    }
+
+    /**
+     * Caches a newly loaded history.
+     *
+     * @param dir     directory containing history.xml
+     * @param history history
+     */
+    static synchronized void putHistory(File dir, TargetHistoryTable history) {
+        if (enabled) {
+            histories.put(getKey(dir), new Entry(history, new File[]{new File(dir, "history.xml")}));
+        }
+    }
+
+    /**
+     * Records the state of the files of all cached tables at the end
+     * of a build.  Tables are only reused if their files still have
+     * this state.
+     */
+    static synchronized void buildFinished() {
+        CUtil.clearCanonicalPaths();
+        for (Map.Entry<String, Entry> entry : dependencyTables.entrySet()) {
+            entry.getValue().stamps = entry.getValue().stat();
+        }
+        for (Map.Entry<String, Entry> entry : histories.entrySet()) {
+            entry.getValue().stamps = entry.getValue().stat();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.Resource;
+import org.apache.tools.ant.types.ResourceCollection;
+import org.apache.tools.ant.types.resources.FileProvider;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.Vector;
+
+import static net.sf.antcontrib.cpptasks.CUtil.getRelativePath;
+
+/**
+ * Reports the object files, and optionally the linked outputs, that would
+ * be rebuilt by &lt;cc&gt; if the specified files changed.
+ * <p>
+ * The answer is computed from the dependency information and history
+ * recorded in the object directory by an earlier &lt;cc&gt; run, no
+ * source is parsed.  Files that were never compiled in that object
+ * directory are not reported.
+ * </p>
+ * <pre>
+ * &lt;ccimpact objdir="build/obj" linkdir="build/bin" property="affected"&gt;
+ *     &lt;fileset dir="include" includes="core.h"/&gt;
+ * &lt;/ccimpact&gt;
+ * </pre>
+ */
+public final class CCImpactTask extends Task {
+    /**
+     * Changed files.
+     */
+    private final Vector<ResourceCollection> changed = new Vector<ResourceCollection>();
+
+    /**
+     * Directory containing the history of the linked outputs, may be null.
+     */
+    private File linkDir;
+
+    /**
+     * Object directory of the &lt;cc&gt; task.
+     */
+    private File objDir;
+
+    /**
+     * File to receive the affected files, one per line, may be null.
+     */
+    private File outFile;
+
+    /**
+     * Property to receive the affected files, may be null.
+     */
+    private String property;
+
+    /**
+     * Separator used in the property value.
+     */
+    private String separator = ",";
+
+    /**
+     * Property to receive the affected sources, may be null.
+     */
+    private String sourcesProperty;
+
+    /**
+     * Constructor.
+     */
+    public CCImpactTask() {
+    }
+
+    /**
+     * Adds a collection of changed files, for example a fileset,
+     * filelist or path.
+     *
+     * @param files changed files
+     */
+    public void add(ResourceCollection files) {
+        if (files == null) {
+            throw new NullPointerException("files");
+        }
+        changed.addElement(files);
+    }
+
+    /**
+     * Sets the directory containing the history.xml of linked outputs.
+     * If specified, outputs linked from affected object files are also
+     * reported.
+     *
+     * @param dir link output directory
+     */
+    public void setLinkdir(File dir) {
+        linkDir = dir;
+    }
+
+    /**
+     * Sets the object directory used by the &lt;cc&gt; task.
+     *
+     * @param dir object directory
+     */
+    public void setObjdir(File dir) {
+        if (dir == null) {
+            throw new NullPointerException("dir");
+        }
+        objDir = dir;
+    }
+
+    /**
+     * Sets a file to receive the affected object files and outputs,
+     * one per line.
+     *
+     * @param file output file
+     */
+    public void setOutfile(File file) {
+        outFile = file;
+    }
+
+    /**
+     * Sets the name of a property to receive the affected object files
+     * and outputs.
+     *
+     * @param property property name
+     */
+    public void setProperty(String property) {
+        this.property = property;
+    }
+
+    /**
+     * Sets the separator used between file names in properties,
+     * default is ",".
+     *
+     * @param separator separator
+     */
+    public void setSeparator(String separator) {
+        if (separator == null) {
+            throw new NullPointerException("separator");
+        }
+        this.separator = separator;
+    }
+
+    /**
+     * Sets the name of a property to receive the affected source files.
+     *
+     * @param property property name
+     */
+    public void setSourcesProperty(String property) {
+        sourcesProperty = property;
+    }
+
+    /**
+     * Gets the changed files.
+     *
+     * @return changed files
+     */
+    private File[] getChangedFiles() {
+        Vector<File> files = new Vector<File>();
+        for (ResourceCollection collection : changed) {
+            for (Resource resource : collection) {
+                FileProvider provider = resource.as(FileProvider.class);
+                if (provider == null) {
+                    throw new BuildException("Only file resources are supported, found "
+                            + resource.toString());
+                }
+                files.addElement(provider.getFile());
+            }
+        }
+        return files.toArray(new File[0]);
+    }
+
+    /**
+     * Loads the history of a directory.
+     *
+     * @param dir directory containing history.xml
+     * @return history or null if the directory has no history
+     */
+    private TargetHistoryTable loadHistory(File dir) {
+        if (!new File(dir, "history.xml").exists()) {
+            return null;
+        }
+        return new TargetHistoryTable(this, dir);
+    }
+
+    /**
+     * Gets the outputs recorded in a history that were built
+     * from any of the specified relative source names.
+     *
+     * @param history history, may be null
+     * @param dir     directory containing the history
+     * @param sources relative names of sources
+     * @return outputs
+     */
+    private static Vector<File> getOutputs(TargetHistoryTable history, File dir,
+                                           Set<String> sources) {
+        Vector<File> outputs = new Vector<File>();
+        if (history != null) {
+            Enumeration<TargetHistory> targets = history.elements();
+            while (targets.hasMoreElements()) {
+                TargetHistory target = targets.nextElement();
+                for (SourceHistory source : target.getSources()) {
+                    if (sources.contains(source.getRelativePath())) {
+                        outputs.addElement(new File(dir, target.getOutput()));
+                        break;
+                    }
+                }
+            }
+        }
+        return outputs;
+    }
+
+    public void execute() throws BuildException {
+        if (objDir == null) {
+            throw new BuildException("objdir attribute must be specified", getLocation());
+        }
+        if (!objDir.isDirectory()) {
+            throw new BuildException("Object directory " + objDir + " does not exist",
+                    getLocation());
+        }
+        if (linkDir != null && !linkDir.isDirectory()) {
+            throw new BuildException("Link directory " + linkDir + " does not exist",
+                    getLocation());
+        }
+        DependencyTable dependencyTable = new DependencyTable(objDir);
+        try {
+            dependencyTable.load();
+        } catch (Exception ex) {
+            throw new BuildException("Problem reading dependency information: "
+                    + ex.toString(), ex, getLocation());
+        }
+        String[] affected = dependencyTable.getAffectedSources(getChangedFiles());
+        Set<String> affectedSources = new HashSet<String>();
+        for (String source : affected) {
+            affectedSources.add(source);
+        }
+        TargetHistoryTable objHistory = loadHistory(objDir);
+        Vector<File> objects = getOutputs(objHistory, objDir, affectedSources);
+        //
+        //   report each source at most once and only if
+        //      it was compiled in this object directory
+        //
+        Set<File> sourceFiles = new LinkedHashSet<File>();
+        if (sourcesProperty != null && objHistory != null) {
+            Enumeration<TargetHistory> targets = objHistory.elements();
+            while (targets.hasMoreElements()) {
+                for (SourceHistory source : targets.nextElement().getSources()) {
+                    if (affectedSources.contains(source.getRelativePath())) {
+                        sourceFiles.add(new File(source.getAbsolutePath(objDir)));
+                    }
+                }
+            }
+        }
+        Vector<File> results = new Vector<File>(objects);
+        if (linkDir != null && !objects.isEmpty()) {
+            String linkDirPath;
+            try {
+                linkDirPath = linkDir.getCanonicalPath();
+            } catch (IOException ex) {
+                linkDirPath = linkDir.toString();
+            }
+            Set<String> objectNames = new HashSet<String>();
+            for (File object : objects) {
+                objectNames.add(getRelativePath(linkDirPath, object));
+            }
+            results.addAll(getOutputs(loadHistory(linkDir), linkDir, objectNames));
+        }
+        log(affected.length + " affected files, " + results.size() + " outputs to rebuild",
+                Project.MSG_VERBOSE);
+        if (property != null) {
+            getProject().setNewProperty(property, join(results));
+        }
+        if (sourcesProperty != null) {
+            getProject().setNewProperty(sourcesProperty, join(sourceFiles));
+        }
+        if (outFile != null) {
+            try {
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(outFile), "UTF-8"));
+                try {
+                    for (File result : results) {
+                        writer.write(result.toString());
+                        writer.newLine();
+                    }
+                } finally {
+                    writer.close();
+                }
+            } catch (IOException ex) {
+                throw new BuildException("Unable to write " + outFile, ex, getLocation());
+            }
+        }
+        if (property == null && sourcesProperty == null && outFile == null) {
+            for (File result : results) {
+                log(result.toString());
+            }
+        }
+    }
+
+    private String join(Iterable<File> files) {
+        StringBuilder buf = new StringBuilder();
+        for (File file : files) {
+            if (buf.length() > 0) {
+                buf.append(separator);
+            }
+            buf.append(file.toString());
+        }
+        return buf.toString();
+    }
+}
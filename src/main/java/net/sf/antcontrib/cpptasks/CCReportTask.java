@@ -0,0 +1,409 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * <p>
+ * Reports the cost of the headers used by the sources compiled by
+ * &lt;cc&gt; to help decide which headers to split or precompile.
+ * </p>
+ * <p>
+ * The report is computed from the dependency information and history
+ * recorded in the object directory.  For each header it lists
+ * </p>
+ * <ul>
+ * <li>fan-in - the number of compiled sources that include the header,
+ * directly or indirectly</li>
+ * <li>bytes - the size of the header and the headers it includes</li>
+ * <li>total bytes - bytes multiplied by fan-in, the amount of text the
+ * header adds to the build</li>
+ * <li>time - compile time attributed to the header, each source's
+ * recorded compile time is shared between the source and its headers
+ * in proportion to their size.  Reported only if &lt;cc&gt; recorded
+ * compile times.</li>
+ * </ul>
+ * <p>
+ * Headers are ranked by attributed time if compile times are known,
+ * otherwise by total bytes.
+ * </p>
+ * <pre>
+ * &lt;ccreport objdir="build/obj" format="csv" outfile="build/headers.csv"/&gt;
+ * </pre>
+ */
+public final class CCReportTask extends Task {
+    /**
+     * Cost of one header.
+     */
+    private static final class HeaderCost {
+        private final String header;
+        private final long bytes;
+        private int fanIn;
+        private double time;
+
+        private HeaderCost(String header, long bytes) {
+            this.header = header;
+            this.bytes = bytes;
+        }
+
+        private long getTotalBytes() {
+            return bytes * fanIn;
+        }
+    }
+
+    /**
+     * Output format.
+     */
+    private ReportFormatEnum format = new ReportFormatEnum();
+
+    /**
+     * Maximum number of headers to report, 0 for all.
+     */
+    private int limit;
+
+    /**
+     * Object directory of the &lt;cc&gt; task.
+     */
+    private File objDir;
+
+    /**
+     * File to receive the report, may be null to log the report.
+     */
+    private File outFile;
+
+    /**
+     * Constructor.
+     */
+    public CCReportTask() {
+    }
+
+    /**
+     * Sets the output format, "text" (default), "csv" or "json".
+     *
+     * @param format output format
+     */
+    public void setFormat(ReportFormatEnum format) {
+        if (format == null) {
+            throw new NullPointerException("format");
+        }
+        this.format = format;
+    }
+
+    /**
+     * Sets the maximum number of headers to report, default is 0 for all.
+     *
+     * @param limit maximum number of headers
+     */
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Sets the object directory used by the &lt;cc&gt; task.
+     *
+     * @param dir object directory
+     */
+    public void setObjdir(File dir) {
+        if (dir == null) {
+            throw new NullPointerException("dir");
+        }
+        objDir = dir;
+    }
+
+    /**
+     * Sets the file to receive the report.  If not specified,
+     * the report is logged.
+     *
+     * @param file output file
+     */
+    public void setOutfile(File file) {
+        outFile = file;
+    }
+
+    public void execute() throws BuildException {
+        if (objDir == null) {
+            throw new BuildException("objdir attribute must be specified", getLocation());
+        }
+        if (!objDir.isDirectory()) {
+            throw new BuildException("Object directory " + objDir + " does not exist",
+                    getLocation());
+        }
+        DependencyTable dependencyTable = new DependencyTable(objDir);
+        try {
+            dependencyTable.load();
+        } catch (Exception ex) {
+            throw new BuildException("Problem reading dependency information: "
+                    + ex.toString(), ex, getLocation());
+        }
+        Map<String, Long> compileTimes = getCompileTimes();
+        Vector<DependencyInfo> units = getTranslationUnits(dependencyTable, compileTimes.keySet());
+        HeaderCost[] costs = computeCosts(dependencyTable, units, compileTimes);
+        boolean timed = false;
+        for (HeaderCost cost : costs) {
+            timed |= cost.time > 0;
+        }
+        final boolean byTime = timed;
+        Arrays.sort(costs, new Comparator<HeaderCost>() {
+            public int compare(HeaderCost o1, HeaderCost o2) {
+                if (byTime && o1.time != o2.time) {
+                    return o1.time > o2.time ? -1 : 1;
+                }
+                if (o1.getTotalBytes() != o2.getTotalBytes()) {
+                    return o1.getTotalBytes() > o2.getTotalBytes() ? -1 : 1;
+                }
+                return o1.header.compareTo(o2.header);
+            }
+        });
+        if (limit > 0 && costs.length > limit) {
+            costs = Arrays.copyOf(costs, limit);
+        }
+        try {
+            if (outFile == null) {
+                StringWriter writer = new StringWriter();
+                writeReport(writer, units.size(), costs, timed);
+                log(writer.toString().trim());
+            } else {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(outFile), "UTF-8"));
+                try {
+                    writeReport(writer, units.size(), costs, timed);
+                } finally {
+                    writer.close();
+                }
+            }
+        } catch (IOException ex) {
+            throw new BuildException("Unable to write " + outFile, ex, getLocation());
+        }
+    }
+
+    /**
+     * Gets the recorded compile times of the sources compiled
+     * in the object directory.
+     *
+     * @return milliseconds, -1 if not recorded, keyed by relative source name
+     */
+    private Map<String, Long> getCompileTimes() {
+        Map<String, Long> compileTimes = new LinkedHashMap<String, Long>();
+        if (new File(objDir, "history.xml").exists()) {
+            TargetHistoryTable history = new TargetHistoryTable(this, objDir);
+            Enumeration<TargetHistory> targets = history.elements();
+            while (targets.hasMoreElements()) {
+                TargetHistory target = targets.nextElement();
+                for (SourceHistory source : target.getSources()) {
+                    Long previous = compileTimes.get(source.getRelativePath());
+                    long time = target.getCompileTime();
+                    if (previous != null && previous.longValue() >= 0) {
+                        time = time < 0 ? previous.longValue() : time + previous.longValue();
+                    }
+                    compileTimes.put(source.getRelativePath(), time);
+                }
+            }
+        }
+        return compileTimes;
+    }
+
+    /**
+     * Gets the dependency information of the compiled sources.  Without a
+     * history, every source that is not included by another is assumed
+     * to be compiled.
+     *
+     * @param dependencyTable dependency information
+     * @param compiled        relative names of sources in the history
+     * @return dependency info, one for each compiled source
+     */
+    private static Vector<DependencyInfo> getTranslationUnits(DependencyTable dependencyTable,
+                                                              Set<String> compiled) {
+        Vector<DependencyInfo> units = new Vector<DependencyInfo>();
+        Set<String> included = new HashSet<String>();
+        if (compiled.isEmpty()) {
+            Enumeration<DependencyInfo[]> all = dependencyTable.elements();
+            while (all.hasMoreElements()) {
+                for (DependencyInfo dependInfo : all.nextElement()) {
+                    included.addAll(Arrays.asList(dependInfo.getIncludes()));
+                }
+            }
+        }
+        Enumeration<DependencyInfo[]> all = dependencyTable.elements();
+        while (all.hasMoreElements()) {
+            DependencyInfo[] dependInfos = all.nextElement();
+            String source = dependInfos[0].getSource();
+            if (compiled.isEmpty() ? !included.contains(source) : compiled.contains(source)) {
+                units.addElement(dependInfos[0]);
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Gets the headers reached from a file, the file itself excluded.
+     *
+     * @param dependencyTable dependency information
+     * @param dependInfo      dependency info of the file
+     * @return relative names of headers
+     */
+    private static Set<String> getClosure(DependencyTable dependencyTable,
+                                          DependencyInfo dependInfo) {
+        Set<String> closure = new LinkedHashSet<String>();
+        Vector<String> pending = new Vector<String>(Arrays.asList(dependInfo.getIncludes()));
+        while (!pending.isEmpty()) {
+            String include = pending.remove(pending.size() - 1);
+            if (!include.equals(dependInfo.getSource()) && closure.add(include)) {
+                DependencyInfo includeInfo = dependencyTable.getDependencyInfo(include,
+                        dependInfo.getIncludePathIdentifier());
+                if (includeInfo != null) {
+                    pending.addAll(Arrays.asList(includeInfo.getIncludes()));
+                }
+            }
+        }
+        return closure;
+    }
+
+    private HeaderCost[] computeCosts(DependencyTable dependencyTable,
+                                      Vector<DependencyInfo> units, Map<String, Long> compileTimes) {
+        Map<String, Long> sizes = new HashMap<String, Long>();
+        Map<String, HeaderCost> costs = new LinkedHashMap<String, HeaderCost>();
+        for (DependencyInfo unit : units) {
+            Set<String> closure = getClosure(dependencyTable, unit);
+            long unitBytes = getSize(sizes, unit.getSource());
+            for (String header : closure) {
+                unitBytes += getSize(sizes, header);
+            }
+            Long compileTime = compileTimes.get(unit.getSource());
+            for (String header : closure) {
+                HeaderCost cost = costs.get(header);
+                if (cost == null) {
+                    //
+                    //   the headers a header includes are known only
+                    //      if the header was parsed
+                    //
+                    long bytes = getSize(sizes, header);
+                    DependencyInfo headerInfo = dependencyTable.getDependencyInfo(header,
+                            unit.getIncludePathIdentifier());
+                    if (headerInfo != null) {
+                        for (String nested : getClosure(dependencyTable, headerInfo)) {
+                            bytes += getSize(sizes, nested);
+                        }
+                    }
+                    cost = new HeaderCost(header, bytes);
+                    costs.put(header, cost);
+                }
+                cost.fanIn++;
+                if (compileTime != null && compileTime.longValue() > 0 && unitBytes > 0) {
+                    cost.time += compileTime.longValue() * (double) cost.bytes / unitBytes;
+                }
+            }
+        }
+        return costs.values().toArray(new HeaderCost[0]);
+    }
+
+    private long getSize(Map<String, Long> sizes, String relativeName) {
+        Long size = sizes.get(relativeName);
+        if (size == null) {
+            File file = new File(relativeName);
+            if (!file.isAbsolute()) {
+                file = new File(objDir, relativeName);
+            }
+            size = file.length();
+            sizes.put(relativeName, size);
+        }
+        return size.longValue();
+    }
+
+    private void writeReport(Writer writer, int unitCount, HeaderCost[] costs,
+                             boolean timed) throws IOException {
+        String value = format.getValue();
+        if ("csv".equals(value)) {
+            writer.write("header,fanin,bytes,totalbytes,time\n");
+            for (HeaderCost cost : costs) {
+                writer.write(csvEncode(cost.header));
+                writer.write("," + cost.fanIn + "," + cost.bytes + "," + cost.getTotalBytes() + ",");
+                if (timed) {
+                    writer.write(Long.toString(Math.round(cost.time)));
+                }
+                writer.write("\n");
+            }
+        } else if ("json".equals(value)) {
+            writer.write("{\"translationUnits\": " + unitCount + ", \"headers\": [");
+            for (int i = 0; i < costs.length; i++) {
+                HeaderCost cost = costs[i];
+                writer.write(i == 0 ? "\n" : ",\n");
+                writer.write("  {\"header\": " + jsonEncode(cost.header)
+                        + ", \"fanIn\": " + cost.fanIn
+                        + ", \"bytes\": " + cost.bytes
+                        + ", \"totalBytes\": " + cost.getTotalBytes());
+                if (timed) {
+                    writer.write(", \"time\": " + Math.round(cost.time));
+                }
+                writer.write("}");
+            }
+            writer.write("\n]}\n");
+        } else {
+            writer.write(unitCount + " compiled sources, " + costs.length + " headers reported\n");
+            writer.write(String.format("%8s %12s %14s %10s  %s%n", "fan-in", "bytes",
+                    "total bytes", timed ? "time (ms)" : "", "header"));
+            for (HeaderCost cost : costs) {
+                writer.write(String.format("%8d %12d %14d %10s  %s%n", cost.fanIn, cost.bytes,
+                        cost.getTotalBytes(), timed ? Long.toString(Math.round(cost.time)) : "",
+                        cost.header));
+            }
+        }
+    }
+
+    private static String csvEncode(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonEncode(String value) {
+        StringBuilder buf = new StringBuilder(value.length() + 2);
+        buf.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                buf.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                buf.append(String.format("\\u%04x", (int) ch));
+            } else {
+                buf.append(ch);
+            }
+        }
+        buf.append('"');
+        return buf.toString();
+    }
+}
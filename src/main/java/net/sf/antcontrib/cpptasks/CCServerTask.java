@@ -0,0 +1,375 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.Task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Hashtable;
+import java.util.Map;
+
+/**
+ * <p>
+ * Runs a build server for &lt;cc&gt; tasks that specify the server
+ * attribute.
+ * </p>
+ * <p>
+ * The server accepts connections on the loopback interface only and
+ * requires the token it writes to the token file, readable only by its
+ * owner.  Each request recreates the &lt;cc&gt; task from its definition
+ * in a new project, runs it and streams the log back to the client.
+ * Histories and dependency information are kept in memory between
+ * requests, as are the results of compiler probes.
+ * </p>
+ * <pre>
+ * &lt;ccserver port="7483"/&gt;
+ * </pre>
+ */
+public final class CCServerTask extends Task {
+    /**
+     * Identifies a build request ("CPTS").
+     */
+    static final int MAGIC = 0x43505453;
+
+    /**
+     * Protocol version, requests with any other version are refused.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Length of the token, sent as a fixed-length field so nothing is
+     * allocated from a length chosen by an unauthenticated client.
+     */
+    static final int TOKEN_LENGTH = 32;
+
+    /**
+     * Response record types.
+     */
+    static final int LOG = 1;
+    static final int PROPERTY = 2;
+    static final int SUCCESS = 3;
+    static final int FAILURE = 4;
+
+    /**
+     * Port used if none is specified.
+     */
+    static final int DEFAULT_PORT = 7483;
+
+    /**
+     * Milliseconds to wait for a client to send its request.
+     */
+    static final int DEFAULT_TIMEOUT = 10000;
+
+    /**
+     * Forwards log messages of a build to the client.
+     */
+    private static final class RemoteLogger implements BuildListener {
+        private final DataOutputStream output;
+        private boolean broken;
+
+        private RemoteLogger(DataOutputStream output) {
+            this.output = output;
+        }
+
+        public void buildStarted(BuildEvent event) {
+        }
+
+        public void buildFinished(BuildEvent event) {
+        }
+
+        public void targetStarted(BuildEvent event) {
+        }
+
+        public void targetFinished(BuildEvent event) {
+        }
+
+        public void taskStarted(BuildEvent event) {
+        }
+
+        public void taskFinished(BuildEvent event) {
+        }
+
+        public synchronized void messageLogged(BuildEvent event) {
+            if (!broken) {
+                try {
+                    output.writeByte(LOG);
+                    output.writeInt(event.getPriority());
+                    TaskDefinition.writeString(output, event.getMessage());
+                    output.flush();
+                } catch (IOException ex) {
+                    //
+                    //   client went away, finish the build anyway
+                    //
+                    broken = true;
+                }
+            }
+        }
+    }
+
+    private int maxBuilds;
+    private int port = DEFAULT_PORT;
+    private int timeout = DEFAULT_TIMEOUT;
+    private File tokenFile;
+
+    /**
+     * Constructor.
+     */
+    public CCServerTask() {
+    }
+
+    /**
+     * Gets the token file used if none is specified.
+     *
+     * @return ~/.cpptasks/server.token
+     */
+    static File getDefaultTokenFile() {
+        return new File(new File(System.getProperty("user.home"), ".cpptasks"), "server.token");
+    }
+
+    /**
+     * Reads the token written by a server.
+     *
+     * @param tokenFile token file
+     * @return token, null if the file does not exist or is unreadable
+     */
+    static String readToken(File tokenFile) {
+        if (!tokenFile.exists()) {
+            return null;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(tokenFile));
+            try {
+                String token = reader.readLine();
+                if (token != null) {
+                    token = token.trim();
+                }
+                return token;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Sets the number of builds after which the server stops,
+     * default is 0 for no limit.
+     *
+     * @param maxBuilds number of builds
+     */
+    public void setMaxbuilds(int maxBuilds) {
+        this.maxBuilds = maxBuilds;
+    }
+
+    /**
+     * Sets the loopback port to listen on, default is 7483.
+     * Zero selects any free port.
+     *
+     * @param port port
+     */
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Sets the milliseconds to wait for a client to send its request,
+     * default is 10000.  A client that sends nothing would otherwise
+     * block the server for all other clients.
+     *
+     * @param timeout timeout in milliseconds
+     */
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Sets the file the access token is written to,
+     * default is .cpptasks/server.token in the user's home directory.
+     *
+     * @param tokenFile token file
+     */
+    public void setTokenfile(File tokenFile) {
+        this.tokenFile = tokenFile;
+    }
+
+    private static String createToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        return FileDigestCache.toHex(bytes);
+    }
+
+    private static void writeToken(File file, String token) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+        Writer writer = new FileWriter(file);
+        try {
+            //
+            //   restrict access before the token is written
+            //
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(false, false);
+            file.setWritable(true, true);
+            writer.write(token);
+            writer.write('\n');
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void execute() throws BuildException {
+        File effectiveTokenFile = tokenFile;
+        if (effectiveTokenFile == null) {
+            effectiveTokenFile = getDefaultTokenFile();
+        }
+        ServerSocket serverSocket;
+        try {
+            serverSocket = new ServerSocket(port, 50, InetAddress.getByName("127.0.0.1"));
+        } catch (IOException ex) {
+            throw new BuildException("Unable to listen on port " + port + ": " + ex.toString(),
+                    ex, getLocation());
+        }
+        BuildStateCache.setEnabled(true);
+        try {
+            String token = createToken();
+            writeToken(effectiveTokenFile, token);
+            log("Build server listening on port " + serverSocket.getLocalPort());
+            int builds = 0;
+            while (maxBuilds <= 0 || builds < maxBuilds) {
+                Socket socket = serverSocket.accept();
+                try {
+                    socket.setSoTimeout(timeout);
+                    if (serve(socket, token)) {
+                        builds++;
+                    }
+                } catch (IOException ex) {
+                    log("Error serving build request: " + ex.toString(), Project.MSG_WARN);
+                } finally {
+                    socket.close();
+                }
+            }
+        } catch (IOException ex) {
+            throw new BuildException(ex, getLocation());
+        } finally {
+            BuildStateCache.setEnabled(false);
+            effectiveTokenFile.delete();
+            try {
+                serverSocket.close();
+            } catch (IOException ex) {
+            }
+        }
+    }
+
+    /**
+     * Reads a request and runs the build.
+     *
+     * @param socket connection
+     * @param token  expected token
+     * @return true if a build was run
+     * @throws IOException if unable to communicate with the client
+     */
+    private boolean serve(Socket socket, String token) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            fail(output, "Unsupported build request");
+            return false;
+        }
+        byte[] received = new byte[TOKEN_LENGTH];
+        input.readFully(received);
+        if (!MessageDigest.isEqual(token.getBytes("US-ASCII"), received)) {
+            fail(output, "Build request with invalid token refused");
+            return false;
+        }
+        String baseDir = TaskDefinition.readString(input);
+        int propertyCount = input.readInt();
+        Hashtable<String, String> properties = new Hashtable<String, String>();
+        for (int i = 0; i < propertyCount; i++) {
+            String key = TaskDefinition.readString(input);
+            properties.put(key, TaskDefinition.readString(input));
+        }
+        TaskDefinition definition = TaskDefinition.read(input);
+        if (!new File(baseDir).isDirectory()) {
+            fail(output, "Base directory " + baseDir + " does not exist");
+            return false;
+        }
+
+        Project project = new Project();
+        project.init();
+        project.setBaseDir(new File(baseDir));
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            project.setUserProperty(property.getKey(), property.getValue());
+        }
+        project.addTaskDefinition("cc", CCTask.class);
+        RemoteLogger logger = new RemoteLogger(output);
+        project.addBuildListener(logger);
+        Hashtable<String, Object> before = project.getProperties();
+        Target target = new Target();
+        target.setName("");
+        target.setProject(project);
+        try {
+            definition.toElement(project, target).perform();
+            synchronized (logger) {
+                for (Map.Entry<String, Object> property : project.getProperties().entrySet()) {
+                    if (!property.getValue().equals(before.get(property.getKey()))) {
+                        output.writeByte(PROPERTY);
+                        TaskDefinition.writeString(output, property.getKey());
+                        TaskDefinition.writeString(output, String.valueOf(property.getValue()));
+                    }
+                }
+                output.writeByte(SUCCESS);
+                output.flush();
+            }
+        } catch (BuildException ex) {
+            synchronized (logger) {
+                fail(output, ex.getMessage());
+            }
+        } finally {
+            project.removeBuildListener(logger);
+            BuildStateCache.buildFinished();
+        }
+        return true;
+    }
+
+    private static void fail(DataOutputStream output, String message) throws IOException {
+        output.writeByte(FAILURE);
+        TaskDefinition.writeString(output, String.valueOf(message));
+        output.flush();
+    }
+}
@@ -16,13 +16,16 @@
  */
 package net.sf.antcontrib.cpptasks;
 
+import net.sf.antcontrib.cpptasks.compiler.CommandLineLinkerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.CompilerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.compiler.Linker;
 import net.sf.antcontrib.cpptasks.compiler.LinkerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.Processor;
 import net.sf.antcontrib.cpptasks.compiler.ProcessorConfiguration;
+import net.sf.antcontrib.cpptasks.compiler.ProgressMonitor;
 import net.sf.antcontrib.cpptasks.ide.ProjectDef;
+import net.sf.antcontrib.cpptasks.parser.FortranParser;
 import net.sf.antcontrib.cpptasks.types.CompilerArgument;
 import net.sf.antcontrib.cpptasks.types.ConditionalFileSet;
 import net.sf.antcontrib.cpptasks.types.DefineSet;
@@ -36,12 +39,22 @@ import org.apache.tools.ant.Project;
 import org.apache.tools.ant.Task;
 import org.apache.tools.ant.types.Environment;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 /**
@@ -225,6 +238,7 @@ public class CCTask extends Task {
     private final Vector<DistributerDef> distributers = new Vector<DistributerDef>();
     private final Vector<VersionInfo> versionInfos = new Vector<VersionInfo>();
     private final Vector<ProjectDef> projects = new Vector<ProjectDef>();
+    private final Vector<OutputDef> outputs = new Vector<OutputDef>();
     private boolean projectsOnly = false;
 
 
@@ -253,6 +267,11 @@ public class CCTask extends Task {
      * </p>
      */
     private int dependencyDepth = -1;
+    /**
+     * Dependency information for the object directory,
+     * loaded on first use during execute.
+     */
+    private DependencyTable dependencyTable;
     /**
      * Content that appears in &lt;cc&gt; as well as in &lt;linker&gt; is maintained by a
      * captive CompilerDef instance
@@ -272,6 +291,52 @@ public class CCTask extends Task {
      * files as possible before throwing a BuildException
      */
     private boolean relentless;
+    /**
+     * Address of a build server, "host:port" or "port", may be null.
+     */
+    private String server;
+    /**
+     * Token file of the build server, null for the default.
+     */
+    private File serverTokenFile;
+    /**
+     * Method used to decide whether object files are up to date,
+     * null for timestamps.
+     */
+    private UpToDateEnum upToDate;
+    /**
+     * If true, the task keeps running and rebuilds as files change.
+     */
+    private boolean watch;
+    /**
+     * Milliseconds between checks for changed files in watch mode.
+     */
+    private long watchInterval = 500;
+    /**
+     * History of the linked output, kept between builds in watch mode.
+     */
+    private TargetHistoryTable linkHistory;
+    /**
+     * Grouping of object files pre-linked with ld -r, null if disabled.
+     */
+    private String partialLink;
+    /**
+     * Number of concurrent partial links.
+     */
+    private int partialLinkThreads = Runtime.getRuntime().availableProcessors();
+    /**
+     * Number of threads reading file time stamps.
+     */
+    private int scanThreads = 1;
+    /**
+     * If true, compiling starts while dependency analysis continues.
+     */
+    private boolean pipeline;
+    /**
+     * If true, rebuilt outputs identical to the previous
+     * ones keep their modification time.
+     */
+    private boolean restat;
 
     public CCTask() {
     }
@@ -327,6 +392,21 @@ public class CCTask extends Task {
         mLinkers.addElement(linker);
     }
 
+    /**
+     * Adds an output linked from the objects compiled by the task
+     * in addition to the output file of the task.  If the output is a
+     * shared library, the objects are compiled as for a shared library.
+     *
+     * @param output output definition
+     */
+    public void addConfiguredOutput(OutputDef output) {
+        if (output == null) {
+            throw new NullPointerException("output");
+        }
+        output.setProject(getProject());
+        outputs.addElement(output);
+    }
+
     /**
      * Adds a linker command-line arg. Argument will be inherited by all nested
      * linker elements that do not have inherit="false".
@@ -428,6 +508,382 @@ public class CCTask extends Task {
         projectsOnly = value;
     }
 
+    /**
+     * Passes notifications to a monitor while holding a lock
+     * shared with the dependency analysis.
+     */
+    private static final class SynchronizedProgressMonitor implements ProgressMonitor {
+        private final ProgressMonitor monitor;
+        private final Object lock;
+
+        private SynchronizedProgressMonitor(ProgressMonitor monitor, Object lock) {
+            this.monitor = monitor;
+            this.lock = lock;
+        }
+
+        public void finish(ProcessorConfiguration config, boolean normal) {
+            synchronized (lock) {
+                monitor.finish(config, normal);
+            }
+        }
+
+        public void progress(String[] sources) {
+            synchronized (lock) {
+                monitor.progress(sources);
+            }
+        }
+
+        public void start(ProcessorConfiguration config) {
+            synchronized (lock) {
+                monitor.start(config);
+            }
+        }
+    }
+
+    /**
+     * Compiles the targets known to be out of date
+     * while the dependency analysis of the others runs.
+     */
+    private final class PipelineCompiler extends Thread {
+        private final Hashtable<String, TargetInfo> targets;
+        private final ProgressMonitor monitor;
+        private BuildException exception;
+
+        private PipelineCompiler(Hashtable<String, TargetInfo> targets, ProgressMonitor monitor) {
+            super("cpptasks-compile");
+            this.targets = targets;
+            this.monitor = monitor;
+        }
+
+        public void run() {
+            try {
+                exception = compileBatches(getCompileBatches(targets), monitor);
+            } catch (RuntimeException ex) {
+                exception = new BuildException(ex);
+            }
+        }
+
+        /**
+         * Waits for the compiles to complete.
+         *
+         * @return first compile failure or null
+         */
+        private BuildException finish() {
+            boolean interrupted = false;
+            while (isAlive()) {
+                try {
+                    join();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return exception;
+        }
+    }
+
+    /**
+     * Files and targets collected from the task's filesets,
+     * kept between builds in watch mode.
+     */
+    private static final class BuildInputs {
+        private final LinkerConfiguration linkerConfig;
+        private final Vector<File> objectFiles;
+        private final Vector<File> sysObjectFiles;
+        private final Hashtable<String, TargetInfo> targets;
+
+        private BuildInputs(LinkerConfiguration linkerConfig, Vector<File> objectFiles,
+                            Vector<File> sysObjectFiles, Hashtable<String, TargetInfo> targets) {
+            this.linkerConfig = linkerConfig;
+            this.objectFiles = objectFiles;
+            this.sysObjectFiles = sysObjectFiles;
+            this.targets = targets;
+        }
+
+        /**
+         * Creates inputs with fresh targets, since the rebuild
+         * flag of a target can not be reset.
+         *
+         * @return inputs for the next build
+         */
+        private BuildInputs renew() {
+            Hashtable<String, TargetInfo> renewed = new Hashtable<String, TargetInfo>();
+            for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
+                TargetInfo target = entry.getValue();
+                renewed.put(entry.getKey(), new TargetInfo(target.getConfiguration(),
+                        target.getSources(), target.getSysSources(), target.getOutput(),
+                        target.getConfiguration().getRebuild()));
+            }
+            return new BuildInputs(linkerConfig, objectFiles, sysObjectFiles, renewed);
+        }
+    }
+
+    /**
+     * Determines the linker configuration and collects the explicit object
+     * files, libraries and the files that we know how to compile.
+     *
+     * @param versionInfo version info, may be null
+     * @return build inputs
+     */
+    private BuildInputs collectBuildInputs(VersionInfo versionInfo) {
+        //
+        //  determine the eventual linker configuration
+        //      (may be null) and collect any explicit
+        //          object files or libraries
+        Vector<File> objectFiles = new Vector<File>();
+        Vector<File> sysObjectFiles = new Vector<File>();
+        LinkerConfiguration linkerConfig = collectExplicitObjectFiles(objectFiles, sysObjectFiles,
+                versionInfo);
+
+        //
+        //   Assemble hashtable of all files
+        //       that we know how to compile (keyed by output file name)
+        //
+        Hashtable<String, TargetInfo> targets = getTargets(linkerConfig, objectFiles, versionInfo,
+                mOutfile);
+        return new BuildInputs(linkerConfig, objectFiles, sysObjectFiles, targets);
+    }
+
+    /**
+     * Gets the link target.
+     *
+     * @param inputs      build inputs
+     * @param versionInfo version info, may be null
+     * @return link target or null if the output file is not specified
+     */
+    private TargetInfo getLinkTarget(BuildInputs inputs, VersionInfo versionInfo) {
+        //
+        //   if output file is not specified,
+        //      then skip link step
+        //
+        if (mOutfile == null) {
+            return null;
+        }
+        //
+        //   copied since the outputs of the compile targets are added
+        //
+        return getLinkTarget(inputs.linkerConfig, new Vector<File>(inputs.objectFiles),
+                new Vector<File>(inputs.sysObjectFiles), inputs.targets, versionInfo);
+    }
+
+    /**
+     * Selects the targets that need to be checked after files changed:
+     * those with a changed or affected source, new targets and targets
+     * that must be rebuilt anyway.
+     *
+     * @param objHistory object file history
+     * @param targets    Hashtable of String, TargetInfo
+     * @param affected   relative names of changed and affected files
+     * @return targets to check
+     */
+    private Hashtable<String, TargetInfo> getAffectedTargets(TargetHistoryTable objHistory,
+                                                             Hashtable<String, TargetInfo> targets,
+                                                             Set<String> affected) {
+        String objDirPath;
+        try {
+            objDirPath = CUtil.getCanonicalPath(mObjdir);
+        } catch (IOException ex) {
+            objDirPath = mObjdir.toString();
+        }
+        Hashtable<String, TargetInfo> affectedTargets = new Hashtable<String, TargetInfo>();
+        for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
+            TargetInfo target = entry.getValue();
+            boolean check = target.getRebuild()
+                    || objHistory.get(target.getConfiguration().toString(),
+                    target.getOutput().getName()) == null;
+            for (File source : target.getSources()) {
+                if (check) {
+                    break;
+                }
+                check = affected.contains(CUtil.getRelativePath(objDirPath, source));
+            }
+            if (check) {
+                affectedTargets.put(entry.getKey(), target);
+            }
+        }
+        return affectedTargets;
+    }
+
+    /**
+     * Adds the sources, the files they include and the inputs of the
+     * link that are not built by this task to a watcher.
+     *
+     * @param watcher    file watcher
+     * @param inputs     build inputs
+     * @param linkTarget link target, may be null
+     */
+    private void addWatchedFiles(FileWatcher watcher, BuildInputs inputs, TargetInfo linkTarget) {
+        Set<File> outputs = new HashSet<File>();
+        for (TargetInfo target : inputs.targets.values()) {
+            outputs.add(target.getOutput());
+            for (File source : target.getSources()) {
+                watcher.addFile(source);
+                File dir = source.getAbsoluteFile().getParentFile();
+                if (dir != null) {
+                    watcher.addDirectory(dir);
+                }
+            }
+        }
+        for (String include : getDependencyTable().getIncludedFiles()) {
+            File includeFile = new File(include);
+            if (!includeFile.isAbsolute()) {
+                includeFile = new File(mObjdir, include);
+            }
+            watcher.addFile(includeFile);
+        }
+        if (linkTarget != null) {
+            for (File linkSource : linkTarget.getAllSources()) {
+                if (!outputs.contains(linkSource)) {
+                    watcher.addFile(linkSource);
+                }
+            }
+        }
+    }
+
+    /**
+     * Watches for changed files and rebuilds the affected targets
+     * until the thread is interrupted.
+     *
+     * @param objHistory  object file history
+     * @param versionInfo version info, may be null
+     * @param inputs      build inputs of the initial build
+     * @param linkTarget  link target of the initial build, may be null
+     */
+    private void watch(TargetHistoryTable objHistory, VersionInfo versionInfo,
+                       BuildInputs inputs, TargetInfo linkTarget) {
+        FileWatcher watcher = new FileWatcher();
+        addWatchedFiles(watcher, inputs, linkTarget);
+        log("Watching " + watcher.size() + " files for changes");
+        while (true) {
+            try {
+                Thread.sleep(watchInterval);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            Vector<File> changed = watcher.poll();
+            if (changed.isEmpty() && !watcher.getDirectoriesChanged()) {
+                continue;
+            }
+            FileSnapshot.begin(scanThreads);
+            try {
+                //
+                //   filesets are only scanned again
+                //      if files were added or removed
+                if (watcher.getDirectoriesChanged()) {
+                    inputs = collectBuildInputs(versionInfo);
+                } else {
+                    inputs = inputs.renew();
+                }
+                DependencyTable table = getDependencyTable();
+                File[] changedFiles = changed.toArray(new File[0]);
+                Set<String> affected = new HashSet<String>(
+                        Arrays.asList(table.getAffectedSources(changedFiles)));
+                table.invalidate(changedFiles);
+                log(changed.size() + " files changed", Project.MSG_VERBOSE);
+                linkTarget = getLinkTarget(inputs, versionInfo);
+                build(objHistory, versionInfo, inputs.targets, linkTarget, affected);
+            } catch (BuildException ex) {
+                log(ex.getMessage(), Project.MSG_ERR);
+            } finally {
+                FileSnapshot.end();
+            }
+            addWatchedFiles(watcher, inputs, linkTarget);
+        }
+    }
+
+    /**
+     * Compares the digest of the inputs of each target that is not forced
+     * to be rebuilt with the digest recorded in the history.
+     *
+     * @param objHistory   object file history
+     * @param targets      Hashtable of String, TargetInfo
+     * @param digests      digest cache
+     * @param inputDigests receives the computed digests keyed by output name
+     * @return targets that could not be verified by digest
+     */
+    private Hashtable<String, TargetInfo> checkDigests(TargetHistoryTable objHistory,
+                                                       Hashtable<String, TargetInfo> targets,
+                                                       FileDigestCache digests,
+                                                       Hashtable<String, String> inputDigests) {
+        Hashtable<String, TargetInfo> unverified = new Hashtable<String, TargetInfo>();
+        DependencyTable dependencyTable = getDependencyTable();
+        for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
+            TargetInfo target = entry.getValue();
+            TargetHistory history = null;
+            String digest = null;
+            if (!target.getRebuild()) {
+                history = objHistory.get(target.getConfiguration().toString(),
+                        target.getOutput().getName());
+                if (history != null) {
+                    digest = dependencyTable.getInputDigest(this, target, digests);
+                }
+            }
+            if (digest == null) {
+                unverified.put(entry.getKey(), target);
+            } else {
+                inputDigests.put(target.getOutput().getName(), digest);
+                if (!digest.equals(history.getDigest())) {
+                    //
+                    //   if no digest was recorded by an earlier build
+                    //      fall back to timestamps
+                    if (history.getDigest() != null) {
+                        target.mustRebuild();
+                    }
+                    unverified.put(entry.getKey(), target);
+                }
+            }
+        }
+        return unverified;
+    }
+
+    /**
+     * Records the digest of the inputs of targets that were compiled
+     * or found up to date in the object file history.
+     *
+     * @param objHistory      object file history
+     * @param targets         Hashtable of String, TargetInfo
+     * @param digests         digest cache
+     * @param inputDigests    digests computed before compilation
+     * @param previousHistory history entries before compilation
+     */
+    private void recordDigests(TargetHistoryTable objHistory,
+                               Hashtable<String, TargetInfo> targets,
+                               FileDigestCache digests,
+                               Hashtable<String, String> inputDigests,
+                               Hashtable<String, TargetHistory> previousHistory) {
+        DependencyTable dependencyTable = getDependencyTable();
+        for (TargetInfo target : targets.values()) {
+            String configId = target.getConfiguration().toString();
+            String outputName = target.getOutput().getName();
+            TargetHistory history = objHistory.get(configId, outputName);
+            if (history == null) {
+                continue;
+            }
+            String digest = null;
+            if (target.getRebuild()) {
+                //
+                //   only if compiled successfully, which replaced the entry
+                //
+                if (history != previousHistory.get(outputName)) {
+                    digest = dependencyTable.getInputDigest(this, target, digests);
+                }
+            } else {
+                digest = inputDigests.get(outputName);
+            }
+            if (digest != null) {
+                objHistory.setDigest(configId, outputName, digest);
+            }
+        }
+        try {
+            digests.commit();
+        } catch (IOException ex) {
+            log("Error writing digests.bin: " + ex.toString());
+        }
+    }
+
     /**
      * Checks all targets that are not forced to be rebuilt or are missing
      * object files to be checked for modified include files
@@ -451,20 +907,23 @@ public class CCTask extends Task {
         //
         if (potentialTargets > 0) {
             log("Starting dependency analysis for " + potentialTargets + " files.");
-            DependencyTable dependencyTable = new DependencyTable(mObjdir);
-            try {
-                dependencyTable.load();
-            } catch (Exception ex) {
-                log("Problem reading dependencies.xml: " + ex.toString());
-            }
+            DependencyTable dependencyTable = getDependencyTable();
+            //
+            //   the table is shared with compiles started early
+            //      by the pipeline
+            //
             for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
                 TargetInfo target = entry.getValue();
-                if (!target.getRebuild()
-                        && dependencyTable.needsRebuild(this, target, dependencyDepth)) {
-                    target.mustRebuild();
+                synchronized (dependencyTable) {
+                    if (!target.getRebuild()
+                            && dependencyTable.needsRebuild(this, target, dependencyDepth)) {
+                        target.mustRebuild();
+                    }
                 }
             }
-            dependencyTable.commit(this);
+            synchronized (dependencyTable) {
+                dependencyTable.commit(this);
+            }
         }
         //
         //   count files being rebuilt now
@@ -487,18 +946,40 @@ public class CCTask extends Task {
     protected LinkerConfiguration collectExplicitObjectFiles(Vector<File> objectFiles,
                                                              Vector<File> sysObjectFiles,
                                                              VersionInfo versionInfo) {
+        return collectExplicitObjectFiles(linkType, mLinkers, mOutfile, objectFiles,
+                sysObjectFiles, versionInfo);
+    }
+
+    /**
+     * Determines the linker configuration for a link type and collects
+     * the object files and libraries of the linker definitions.
+     *
+     * @param linkType       link type
+     * @param linkers        nested linker definitions
+     * @param outfile        output file, library paths are relative to its directory
+     * @param objectFiles    receives the object files and libraries
+     * @param sysObjectFiles receives the system libraries
+     * @param versionInfo    version info, may be null
+     * @return linker configuration
+     */
+    private LinkerConfiguration collectExplicitObjectFiles(LinkType linkType,
+                                                           Vector<LinkerDef> linkers,
+                                                           File outfile,
+                                                           Vector<File> objectFiles,
+                                                           Vector<File> sysObjectFiles,
+                                                           VersionInfo versionInfo) {
         //
         //    find the first eligible linker
         //
         //
-        ProcessorConfiguration linkerConfig = null;
+        LinkerConfiguration linkerConfig = null;
         LinkerDef selectedLinkerDef = null;
         Linker selectedLinker = null;
         Hashtable<String, File> sysLibraries = new Hashtable<String, File>();
         TargetDef targetPlatform = getTargetPlatform();
         FileVisitor objCollector = null;
         FileVisitor sysLibraryCollector = null;
-        for (LinkerDef currentLinkerDef : mLinkers) {
+        for (LinkerDef currentLinkerDef : linkers) {
              if (currentLinkerDef.isActive()) {
                 selectedLinkerDef = currentLinkerDef;
                 selectedLinker = currentLinkerDef.getProcessor().getLinker(linkType);
@@ -507,7 +988,7 @@ public class CCTask extends Task {
                 //      produce the specified link type
                 if (selectedLinker != null) {
                     linkerConfig = currentLinkerDef.createConfiguration(this,
-                            linkType, linkerDef, targetPlatform, versionInfo);
+                            linkType, linkerDef, targetPlatform, versionInfo, outfile);
                     if (linkerConfig != null) {
                         //
                         //   create collectors for object files
@@ -534,7 +1015,7 @@ public class CCTask extends Task {
         }
         if (linkerConfig == null) {
             linkerConfig = linkerDef.createConfiguration(this, linkType, null, targetPlatform,
-                    versionInfo);
+                    versionInfo, outfile);
             selectedLinker = linkerDef.getProcessor().getLinker(linkType);
             objCollector = new ObjectFileCollector(selectedLinker, objectFiles);
             sysLibraryCollector = new SystemLibraryCollector(selectedLinker, sysLibraries);
@@ -566,7 +1047,7 @@ public class CCTask extends Task {
         for (Map.Entry<String, File> entry : sysLibraries.entrySet()) {
             sysObjectFiles.addElement(entry.getValue());
         }
-        return (LinkerConfiguration) linkerConfig;
+        return linkerConfig;
     }
 
     /**
@@ -615,12 +1096,159 @@ public class CCTask extends Task {
         return compilerDef.createSysIncludePath();
     }
 
+    /**
+     * Gets the dependency information for the object directory,
+     * loading it on first call.
+     *
+     * @return DependencyTable
+     */
+    private DependencyTable getDependencyTable() {
+        if (dependencyTable == null) {
+            dependencyTable = BuildStateCache.getDependencyTable(mObjdir);
+            if (dependencyTable == null) {
+                dependencyTable = new DependencyTable(mObjdir);
+                try {
+                    dependencyTable.load();
+                } catch (Exception ex) {
+                    log("Problem reading dependency information: " + ex.toString());
+                }
+                BuildStateCache.putDependencyTable(mObjdir, dependencyTable);
+            }
+        }
+        return dependencyTable;
+    }
+
+    /**
+     * Gets the history of a directory, reusing the history
+     * kept by a build server if it is still current.
+     *
+     * @param dir directory containing history.xml
+     * @return history
+     */
+    private TargetHistoryTable loadHistory(File dir) {
+        TargetHistoryTable history = BuildStateCache.getHistory(dir);
+        if (history == null) {
+            history = new TargetHistoryTable(this, dir);
+            BuildStateCache.putHistory(dir, history);
+        }
+        return history;
+    }
+
+    /**
+     * Sends the build to the build server.
+     *
+     * @return true if the server ran the build, false if the
+     *         build should run in this process
+     * @throws BuildException if the build failed on the server
+     */
+    private boolean executeOnServer() throws BuildException {
+        String host = "127.0.0.1";
+        int port;
+        try {
+            int colon = server.lastIndexOf(':');
+            if (colon >= 0) {
+                host = server.substring(0, colon);
+                port = Integer.parseInt(server.substring(colon + 1));
+            } else {
+                port = Integer.parseInt(server);
+            }
+        } catch (NumberFormatException ex) {
+            throw new BuildException("Invalid server address " + server, getLocation());
+        }
+        File tokenFile = serverTokenFile;
+        if (tokenFile == null) {
+            tokenFile = CCServerTask.getDefaultTokenFile();
+        }
+        String token = CCServerTask.readToken(tokenFile);
+        if (token == null || token.length() != CCServerTask.TOKEN_LENGTH) {
+            log("No build server token in " + tokenFile + ", building locally",
+                    Project.MSG_VERBOSE);
+            return false;
+        }
+        TaskDefinition definition = TaskDefinition.fromWrapper(getProject(),
+                getRuntimeConfigurableWrapper(), "cc", "server", "servertokenfile");
+        //
+        //   references can't be resolved in the server's project
+        //
+        if (definition.hasReferences()) {
+            log("Task uses references, building locally", Project.MSG_VERBOSE);
+            return false;
+        }
+        Socket socket = new Socket();
+        try {
+            try {
+                socket.connect(new InetSocketAddress(host, port), 1000);
+            } catch (IOException ex) {
+                log("Build server " + server + " not available, building locally",
+                        Project.MSG_VERBOSE);
+                return false;
+            }
+            DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            output.writeInt(CCServerTask.MAGIC);
+            output.writeInt(CCServerTask.VERSION);
+            output.write(token.getBytes("US-ASCII"));
+            TaskDefinition.writeString(output, getProject().getBaseDir().getAbsolutePath());
+            Hashtable<String, Object> properties = getProject().getProperties();
+            output.writeInt(properties.size());
+            for (Map.Entry<String, Object> property : properties.entrySet()) {
+                TaskDefinition.writeString(output, property.getKey());
+                TaskDefinition.writeString(output, String.valueOf(property.getValue()));
+            }
+            definition.write(output);
+            output.flush();
+            DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            while (true) {
+                int type = input.readByte();
+                if (type == CCServerTask.LOG) {
+                    int priority = input.readInt();
+                    log(TaskDefinition.readString(input), priority);
+                } else if (type == CCServerTask.PROPERTY) {
+                    String key = TaskDefinition.readString(input);
+                    getProject().setProperty(key, TaskDefinition.readString(input));
+                } else if (type == CCServerTask.SUCCESS) {
+                    return true;
+                } else if (type == CCServerTask.FAILURE) {
+                    throw new BuildException(TaskDefinition.readString(input), getLocation());
+                } else {
+                    throw new BuildException("Unexpected response from build server",
+                            getLocation());
+                }
+            }
+        } catch (IOException ex) {
+            throw new BuildException("Lost connection to build server: " + ex.toString(),
+                    ex, getLocation());
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+            }
+        }
+    }
+
     /**
      * Executes the task. Compiles the given files.
      *
      * @throws BuildException if something goes wrong with the build
      */
     public void execute() throws BuildException {
+        if (server != null && executeOnServer()) {
+            return;
+        }
+        //
+        //   files are scanned and checked once until
+        //      the build starts compiling
+        //
+        FileSnapshot.begin(scanThreads);
+        try {
+            executeLocally();
+        } finally {
+            FileSnapshot.end();
+        }
+    }
+
+    private void executeLocally() throws BuildException {
         //
         //   if link type allowed objdir to be defaulted
         //      provide it from outfile
@@ -633,139 +1261,372 @@ public class CCTask extends Task {
         }
 
         //
-        //   if the object directory does not exist
+        //   if the object directory does not exist
+        //
+        if (!mObjdir.exists()) {
+            throw new BuildException("Object directory does not exist");
+        }
+        TargetHistoryTable objHistory = loadHistory(mObjdir);
+        dependencyTable = null;
+
+        //
+        //   get the first active version info
+        //
+        VersionInfo versionInfo = null;
+        for (VersionInfo vInfo : versionInfos) {
+            if (vInfo.merge().isActive()) {
+                versionInfo = vInfo;
+                break;
+            }
+        }
+        linkHistory = null;
+        BuildInputs inputs = collectBuildInputs(versionInfo);
+        Hashtable<String, TargetInfo> targets = inputs.targets;
+        TargetInfo linkTarget = getLinkTarget(inputs, versionInfo);
+
+        if (projects.size() > 0) {
+            ArrayList<File> files = new ArrayList<File>();
+            ProjectFileCollector matcher = new ProjectFileCollector(files);
+            for (CompilerDef currentCompilerDef : mCompilers) {
+                 if (currentCompilerDef.isActive() && currentCompilerDef.hasFileSets()) {
+                    currentCompilerDef.visitFiles(matcher);
+                }
+            }
+            compilerDef.visitFiles(matcher);
+
+            for (ProjectDef projectDef : projects) {
+                if (projectDef.isActive()) {
+                    projectDef.execute(this, files, targets, linkTarget);
+                }
+            }
+        }
+        if (projectsOnly) {
+            return;
+        }
+        build(objHistory, versionInfo, targets, linkTarget, null);
+        if (watch) {
+            watch(objHistory, versionInfo, inputs, linkTarget);
+        }
+    }
+
+    /**
+     * Groups targets needing to be rebuilt by configuration,
+     * precompiled header generation first.
+     *
+     * @param targets targets
+     * @return groups of targets sharing a configuration
+     */
+    private static List<Vector<TargetInfo>> getCompileBatches(Hashtable<String, TargetInfo> targets) {
+        Hashtable<ProcessorConfiguration, Vector<TargetInfo>> targetsByConfig
+                = getTargetsToBuildByConfiguration(targets);
+        //
+        //    build array containing Vectors with precompiled generation
+        //       steps going first
+        //
+        List<Vector<TargetInfo>> targetVectorsList = new ArrayList<Vector<TargetInfo>>();
+        for (Map.Entry<ProcessorConfiguration, Vector<TargetInfo>> entry : targetsByConfig.entrySet()) {
+            Vector<TargetInfo> targetsForConfig = entry.getValue();
+            //
+            //    get the configuration from the first entry
+            //
+            CompilerConfiguration config = (CompilerConfiguration)
+                    (targetsForConfig.elementAt(0)).getConfiguration();
+            if (config.isPrecompileGeneration()) {
+                targetVectorsList.add(targetsForConfig);
+            }
+        }
+        for (Map.Entry<ProcessorConfiguration, Vector<TargetInfo>> entry : targetsByConfig.entrySet()) {
+            Vector<TargetInfo> targetsForConfig = entry.getValue();
+            boolean found = false;
+            for (Vector<TargetInfo> targetVectors : targetVectorsList) {
+                if (targetVectors == targetsForConfig) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                targetVectorsList.add(targetsForConfig);
+            }
+        }
+        return targetVectorsList;
+    }
+
+    /**
+     * Records the digest of a rebuilt output and, if it is identical to
+     * the previous output, restores the previous modification time so
+     * that nothing depending on the output is rebuilt.
+     *
+     * @param history  history containing the entry of the rebuilt output
+     * @param target   rebuilt target
+     * @param previous history entry before the rebuild, may be null
+     * @return true if the output is unchanged
+     */
+    private boolean restatOutput(TargetHistoryTable history, TargetInfo target,
+                                 TargetHistory previous) {
+        File output = target.getOutput();
+        String configId = target.getConfiguration().getIdentifier();
+        TargetHistory current = history.get(configId, output.getName());
+        //
+        //   no entry if the output was not rebuilt
+        //
+        if (current == null || current.getOutputLastModified() != output.lastModified()) {
+            return false;
+        }
+        String digest;
+        try {
+            digest = FileDigestCache.computeDigest(output);
+        } catch (IOException ex) {
+            log("Unable to read " + output + ": " + ex.getMessage(), Project.MSG_VERBOSE);
+            return false;
+        }
+        long lastModified = current.getOutputLastModified();
+        if (previous != null && digest.equals(previous.getOutputDigest())
+                && previous.getOutputLastModified() < lastModified
+                && output.setLastModified(previous.getOutputLastModified())) {
+            history.setOutputDigest(configId, output.getName(), digest, output.lastModified(),
+                    lastModified);
+            return true;
+        }
+        history.setOutputDigest(configId, output.getName(), digest, lastModified, lastModified);
+        return false;
+    }
+
+    /**
+     * Compiles groups of targets sharing a configuration.
+     *
+     * @param batches groups of targets
+     * @param monitor progress monitor
+     * @return first compile failure or null
+     */
+    private BuildException compileBatches(List<Vector<TargetInfo>> batches, ProgressMonitor monitor) {
+        BuildException compileException = null;
+        for (Vector<TargetInfo> targetsForConfig : batches) {
+            //
+            //    get the targets for this configuration
+            //    get the configuration from the first entry
+            //
+            CompilerConfiguration config = (CompilerConfiguration)
+                    (targetsForConfig.elementAt(0)).getConfiguration();
+            //
+            //    prepare the list of source files
+            //
+            //    a source with several outputs, for example an object file
+            //       and its split debug information, is compiled once
+            //
+            Vector<String> sourceFiles = new Vector<String>();
+            Set<String> seen = new HashSet<String>();
+            for (TargetInfo targetInfo : targetsForConfig) {
+                String sourceFile = targetInfo.getSources()[0].toString();
+                if (seen.add(sourceFile)) {
+                    sourceFiles.addElement(sourceFile);
+                }
+            }
+            try {
+                config.compile(this, mObjdir, sourceFiles.toArray(new String[0]), relentless, monitor);
+            } catch (BuildException ex) {
+                if (compileException == null) {
+                    compileException = ex;
+                }
+                if (!relentless) {
+                    break;
+                }
+            }
+        }
+        return compileException;
+    }
+
+    /**
+     * Gets the targets that the pipeline may compile before the
+     * dependency analysis is complete: those already marked for rebuild.
+     * FORTRAN sources wait for the modules they use and nothing is
+     * compiled early if precompiled headers are generated.
+     *
+     * @param targets Hashtable of String, TargetInfo
+     * @return targets to compile early
+     */
+    static Hashtable<String, TargetInfo> getPipelineTargets(
+            Hashtable<String, TargetInfo> targets) {
+        Hashtable<String, TargetInfo> early = new Hashtable<String, TargetInfo>();
+        for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
+            TargetInfo target = entry.getValue();
+            ProcessorConfiguration config = target.getConfiguration();
+            if (!(config instanceof CompilerConfiguration)
+                    || ((CompilerConfiguration) config).isPrecompileGeneration()) {
+                return new Hashtable<String, TargetInfo>();
+            }
+            if (target.getRebuild()
+                    && !FortranParser.isFortranSource(target.getSources()[0].getName())) {
+                early.put(entry.getKey(), target);
+            }
+        }
+        return early;
+    }
+
+    /**
+     * Marks targets for rebuild if a module they use was rewritten
+     * while compiling the targets at lower levels.  Compilers such as
+     * gfortran leave a module file untouched if the module interface
+     * did not change.
+     *
+     * @param moduleGraph  module dependencies of the targets
+     * @param levelTargets targets of the level about to be compiled
+     * @return number of targets marked
+     */
+    private int markModuleUsers(ModuleGraph moduleGraph, Hashtable<String, TargetInfo> levelTargets) {
+        int marked = 0;
+        for (TargetInfo target : levelTargets.values()) {
+            if (target.getRebuild()) {
+                continue;
+            }
+            long outputLastModified = target.getOutput().lastModified();
+            for (Map.Entry<String, TargetInfo> entry : moduleGraph.getProviders(target).entrySet()) {
+                if (entry.getValue().getRebuild()) {
+                    File moduleFile = new File(mObjdir,
+                            FortranParser.getModuleFileName(entry.getKey()));
+                    if (!moduleFile.exists() || moduleFile.lastModified() > outputLastModified) {
+                        target.mustRebuild();
+                        marked++;
+                        break;
+                    }
+                }
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * Compiles the targets that are out of date and links the output
+     * if necessary.
+     *
+     * @param objHistory  object file history
+     * @param versionInfo version info, may be null
+     * @param targets     Hashtable of String, TargetInfo
+     * @param linkTarget  link target, may be null
+     * @param affected    relative names of changed files and the files that
+     *                    depend on them, null to check all targets
+     * @throws BuildException if something goes wrong with the build
+     */
+    private void build(TargetHistoryTable objHistory, VersionInfo versionInfo,
+                       Hashtable<String, TargetInfo> targets, TargetInfo linkTarget,
+                       Set<String> affected) throws BuildException {
+        if (affected != null) {
+            targets = getAffectedTargets(objHistory, targets, affected);
+        }
+        //
+        //     mark targets that don't have a history record or
+        //        whose source last modification time is not
+        //        the same as the history to be rebuilt
         //
-        if (!mObjdir.exists()) {
-            throw new BuildException("Object directory does not exist");
+        //
+        //     with hash checking, targets whose inputs have the
+        //        recorded digest need no further checks
+        //
+        FileDigestCache digests = null;
+        Hashtable<String, String> inputDigests = new Hashtable<String, String>();
+        Hashtable<String, TargetInfo> unverified = targets;
+        if (upToDate != null && upToDate.isHash()) {
+            digests = new FileDigestCache(new File(mObjdir, "digests.bin"));
+            digests.load();
+            unverified = checkDigests(objHistory, targets, digests, inputDigests);
         }
-        TargetHistoryTable objHistory = new TargetHistoryTable(this, mObjdir);
-
+        objHistory.markForRebuild(unverified);
         //
-        //   get the first active version info
+        //    history entries are replaced as targets are compiled
         //
-        VersionInfo versionInfo = null;
-        for (VersionInfo vInfo : versionInfos) {
-            if (vInfo.merge().isActive()) {
-                versionInfo = vInfo;
-                break;
+        Hashtable<String, TargetHistory> previousHistory = new Hashtable<String, TargetHistory>();
+        if (digests != null || restat) {
+            for (TargetInfo target : targets.values()) {
+                TargetHistory history = objHistory.get(target.getConfiguration().toString(),
+                        target.getOutput().getName());
+                if (history != null) {
+                    previousHistory.put(target.getOutput().getName(), history);
+                }
             }
         }
         //
-        //  determine the eventual linker configuration
-        //      (may be null) and collect any explicit
-        //          object files or libraries
-        Vector<File> objectFiles = new Vector<File>();
-        Vector<File> sysObjectFiles = new Vector<File>();
-        LinkerConfiguration linkerConfig = collectExplicitObjectFiles(objectFiles, sysObjectFiles,
-                versionInfo);
-
-        //
-        //   Assemble hashtable of all files
-        //       that we know how to compile (keyed by output file name)
+        //    dependency files written by the compiler
+        //       are recorded as each command completes
         //
-        Hashtable<String, TargetInfo> targets = getTargets(linkerConfig, objectFiles, versionInfo,
-                mOutfile);
-        TargetInfo linkTarget = null;
+        CCTaskProgressMonitor monitor = new CCTaskProgressMonitor(objHistory, versionInfo,
+                getDependencyTable(), mObjdir);
         //
-        //   if output file is not specified,
-        //      then skip link step
+        //    with a pipeline, targets already known to be out of date
+        //       are compiled while include files are checked
         //
-        if (mOutfile != null) {
-            linkTarget = getLinkTarget(linkerConfig, objectFiles, sysObjectFiles, targets,
-                    versionInfo);
-        }
-
-        if (projects.size() > 0) {
-            ArrayList<File> files = new ArrayList<File>();
-            ProjectFileCollector matcher = new ProjectFileCollector(files);
-            for (CompilerDef currentCompilerDef : mCompilers) {
-                 if (currentCompilerDef.isActive() && currentCompilerDef.hasFileSets()) {
-                    currentCompilerDef.visitFiles(matcher);
-                }
-            }
-            compilerDef.visitFiles(matcher);
-
-            for (ProjectDef projectDef : projects) {
-                if (projectDef.isActive()) {
-                    projectDef.execute(this, files, targets, linkTarget);
-                }
+        PipelineCompiler pipelineCompiler = null;
+        Hashtable<String, TargetInfo> earlyTargets = new Hashtable<String, TargetInfo>();
+        if (pipeline) {
+            earlyTargets = getPipelineTargets(targets);
+            if (!earlyTargets.isEmpty()) {
+                log("Compiling " + earlyTargets.size() + " files during dependency analysis.",
+                        Project.MSG_VERBOSE);
+                pipelineCompiler = new PipelineCompiler(earlyTargets,
+                        new SynchronizedProgressMonitor(monitor, getDependencyTable()));
+                pipelineCompiler.start();
             }
         }
-        if (projectsOnly) {
-            return;
-        }
         //
-        //     mark targets that don't have a history record or
-        //        whose source last modification time is not
-        //        the same as the history to be rebuilt
+        //      check for changed include files
         //
-        objHistory.markForRebuild(targets);
-        CCTaskProgressMonitor monitor = new CCTaskProgressMonitor(objHistory, versionInfo);
+        int rebuildCount;
+        try {
+            rebuildCount = checkForChangedIncludeFiles(unverified);
+        } finally {
+            if (pipelineCompiler != null) {
+                pipelineCompiler.finish();
+            }
+        }
         //
-        //      check for changed include files
+        //    compiling and linking change the files
         //
-        int rebuildCount = checkForChangedIncludeFiles(targets);
+        FileSnapshot.end();
         if (rebuildCount > 0) {
             BuildException compileException = null;
+            if (pipelineCompiler != null) {
+                compileException = pipelineCompiler.finish();
+            }
             //
-            //    compile all targets with getRebuild() == true
-            //
-            Hashtable<ProcessorConfiguration, Vector<TargetInfo>> targetsByConfig
-                    = getTargetsToBuildByConfiguration(targets);
-            //
-            //    build array containing Vectors with precompiled generation
-            //       steps going first
+            //    compile all targets with getRebuild() == true,
+            //       FORTRAN sources after those defining the modules they use
             //
-            List<Vector<TargetInfo>> targetVectorsList = new ArrayList<Vector<TargetInfo>>();
-            for (Map.Entry<ProcessorConfiguration, Vector<TargetInfo>> entry : targetsByConfig.entrySet()) {
-                Vector<TargetInfo> targetsForConfig = entry.getValue();
-                //
-                //    get the configuration from the first entry
-                //
-                CompilerConfiguration config = (CompilerConfiguration)
-                        (targetsForConfig.elementAt(0)).getConfiguration();
-                if (config.isPrecompileGeneration()) {
-                    targetVectorsList.add(targetsForConfig);
+            ModuleGraph moduleGraph = new ModuleGraph(this, getDependencyTable(), targets.values());
+            for (int level = 0; level <= moduleGraph.getMaxLevel(); level++) {
+                if (compileException != null && !relentless) {
+                    break;
                 }
-            }
-            for (Map.Entry<ProcessorConfiguration, Vector<TargetInfo>> entry : targetsByConfig.entrySet()) {
-                Vector<TargetInfo> targetsForConfig = entry.getValue();
-                boolean found = false;
-                for (Vector<TargetInfo> targetVectors : targetVectorsList) {
-                    if (targetVectors == targetsForConfig) {
-                        found = true;
-                        break;
+                Hashtable<String, TargetInfo> levelTargets = new Hashtable<String, TargetInfo>();
+                for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
+                    if (moduleGraph.getLevel(entry.getValue()) == level
+                            && !earlyTargets.containsKey(entry.getKey())) {
+                        levelTargets.put(entry.getKey(), entry.getValue());
                     }
                 }
-                if (!found) {
-                    targetVectorsList.add(targetsForConfig);
+                if (level > 0) {
+                    int moduleTargets = markModuleUsers(moduleGraph, levelTargets);
+                    if (moduleTargets > 0) {
+                        log(moduleTargets + " files to be recompiled for changed modules.");
+                    }
                 }
-            }
-            for (Vector<TargetInfo> targetsForConfig : targetVectorsList) {
-                //
-                //    get the targets for this configuration
-                //    get the configuration from the first entry
-                //
-                CompilerConfiguration config = (CompilerConfiguration)
-                        (targetsForConfig.elementAt(0)).getConfiguration();
-                //
-                //    prepare the list of source files
-                //
-                String[] sourceFiles = new String[targetsForConfig.size()];
-                int index = 0;
-                for (TargetInfo targetInfo : targetsForConfig) {
-                    sourceFiles[index++] = targetInfo.getSources()[0].toString();
+                BuildException levelException = compileBatches(getCompileBatches(levelTargets),
+                        monitor);
+                if (compileException == null) {
+                    compileException = levelException;
                 }
-                try {
-                    config.compile(this, mObjdir, sourceFiles, relentless, monitor);
-                } catch (BuildException ex) {
-                    if (compileException == null) {
-                        compileException = ex;
-                    }
-                    if (!relentless) {
-                        break;
+            }
+            if (restat) {
+                int unchanged = 0;
+                for (TargetInfo target : targets.values()) {
+                    if (target.getRebuild() && restatOutput(objHistory, target,
+                            previousHistory.get(target.getOutput().getName()))) {
+                        unchanged++;
                     }
                 }
+                if (unchanged > 0) {
+                    log(unchanged + " recompiled files are unchanged.");
+                }
+            }
+            if (digests != null) {
+                recordDigests(objHistory, targets, digests, inputDigests, previousHistory);
             }
             //
             //   save the details of the object file compilation
@@ -776,6 +1637,7 @@ public class CCTask extends Task {
             } catch (IOException ex) {
                 this.log("Error writing history.xml: " + ex.toString());
             }
+            getDependencyTable().commit(this);
             //
             //  if we threw a compile exception and
             //     didn't throw it at the time because
@@ -791,6 +1653,15 @@ public class CCTask extends Task {
                     return;
                 }
             }
+        } else if (digests != null) {
+            recordDigests(objHistory, targets, digests, inputDigests,
+                    new Hashtable<String, TargetHistory>());
+            try {
+                objHistory.commit();
+            } catch (IOException ex) {
+                this.log("Error writing history.xml: " + ex.toString());
+            }
+            getDependencyTable().commit(this);
         }
         //
         //    if the dependency tree was not fully
@@ -798,53 +1669,282 @@ public class CCTask extends Task {
         //      since we really didn't do what we
         //      should have done
         //
-        if (dependencyDepth >= 0) {
+        if (dependencyDepth >= 0 && affected == null) {
             throw new BuildException("All files at depth " + dependencyDepth
                     + " from changes successfully compiled.\n"
                     + "Remove or change dependencyDepth to -1 to perform full compilation.");
         }
         //
-        //   if no link target then
-        //       commit the history for the object files
-        //           and leave the task
+        //   link the output file of the task and the
+        //      nested outputs, if any
+        //
+        Vector<LinkJob> jobs = new Vector<LinkJob>();
         if (linkTarget != null) {
             //
             //    get the history for the link target (may be the same
             //        as the object history)
-            TargetHistoryTable linkHistory = getLinkHistory(objHistory);
-            //
-            //    see if it needs to be rebuilt
-            //
-            linkHistory.markForRebuild(linkTarget);
+            if (linkHistory == null) {
+                linkHistory = getLinkHistory(objHistory);
+            }
             //
-            //    if it needs to be rebuilt, rebuild it
+            //    pre-link groups of objects
             //
-            File output = linkTarget.getOutput();
-            if (linkTarget.getRebuild()) {
-                log("Starting link");
-                LinkerConfiguration linkConfig =
-                        (LinkerConfiguration) linkTarget.getConfiguration();
+            if (partialLink != null && !linkType.isStaticLibrary()) {
+                PartialLinker partialLinker = new PartialLinker(this, mObjdir, partialLink,
+                        partialLinkThreads);
                 if (failOnError) {
-                    linkConfig.link(this, linkTarget);
+                    linkTarget = partialLinker.link(objHistory, linkTarget, targets);
                 } else {
                     try {
-                        linkConfig.link(this, linkTarget);
+                        linkTarget = partialLinker.link(objHistory, linkTarget, targets);
                     } catch (BuildException ex) {
                         log(ex.getMessage(), Project.MSG_ERR);
                         return;
                     }
                 }
-                if (outputFileProperty != null) {
-                    getProject().setProperty(outputFileProperty, output.getAbsolutePath());
+            }
+            jobs.addElement(new LinkJob(null, mOutfile, linkHistory, outputFileProperty,
+                    linkTarget));
+        }
+        //
+        //   outputs in the same directory share its history
+        //
+        Hashtable<File, TargetHistoryTable> linkHistories = new Hashtable<File, TargetHistoryTable>();
+        linkHistories.put(mObjdir.getAbsoluteFile(), objHistory);
+        if (linkTarget != null) {
+            linkHistories.put(mOutfile.getAbsoluteFile().getParentFile(), linkHistory);
+        }
+        for (OutputDef output : outputs) {
+            if (output.isActive()) {
+                File outputDir = output.getOutfile().getAbsoluteFile().getParentFile();
+                TargetHistoryTable outputHistory = linkHistories.get(outputDir);
+                if (outputHistory == null) {
+                    outputHistory = loadHistory(outputDir);
+                    linkHistories.put(outputDir, outputHistory);
+                }
+                jobs.addElement(new LinkJob(output, output.getOutfile(), outputHistory,
+                        output.getOutputFileProperty(),
+                        getOutputLinkTarget(output, targets, versionInfo)));
+            }
+        }
+        link(jobs, targets, versionInfo);
+    }
+
+    /**
+     * The link of the output file of the task or of a nested output.
+     */
+    private static final class LinkJob {
+        private final OutputDef output;
+        private final File outfile;
+        private final TargetHistoryTable history;
+        private final String outputFileProperty;
+        private TargetInfo target;
+        private TargetHistory previousLink;
+        private final Set<LinkJob> dependencies = new HashSet<LinkJob>();
+
+        private LinkJob(OutputDef output, File outfile, TargetHistoryTable history,
+                        String outputFileProperty, TargetInfo target) {
+            this.output = output;
+            this.outfile = outfile;
+            this.history = history;
+            this.outputFileProperty = outputFileProperty;
+            this.target = target;
+        }
+
+        /**
+         * Finds the links whose output is an input of this link,
+         * either as a file or as a library name.
+         *
+         * @param jobs all links of the task
+         */
+        private void findDependencies(Vector<LinkJob> jobs) {
+            Set<File> inputs = new HashSet<File>();
+            for (File source : target.getAllSources()) {
+                inputs.add(source.getAbsoluteFile());
+            }
+            Set<String> libraryNames = new HashSet<String>();
+            ProcessorConfiguration config = target.getConfiguration();
+            if (config instanceof CommandLineLinkerConfiguration) {
+                libraryNames.addAll(Arrays.asList(
+                        ((CommandLineLinkerConfiguration) config).getLibraryNames()));
+            }
+            for (LinkJob job : jobs) {
+                if (job != this && (inputs.contains(job.target.getOutput().getAbsoluteFile())
+                        || libraryNames.contains(job.outfile.getName()))) {
+                    dependencies.add(job);
+                }
+            }
+        }
+    }
+
+    /**
+     * Links a target in a separate thread.
+     */
+    private final class LinkThread extends Thread {
+        private final TargetInfo target;
+        private BuildException exception;
+
+        private LinkThread(TargetInfo target) {
+            super("cpptasks-link");
+            this.target = target;
+        }
+
+        public void run() {
+            try {
+                ((LinkerConfiguration) target.getConfiguration()).link(CCTask.this, target);
+            } catch (BuildException ex) {
+                exception = ex;
+            } catch (RuntimeException ex) {
+                exception = new BuildException(ex);
+            }
+        }
+
+        /**
+         * Waits for the link to complete.
+         *
+         * @return link failure or null
+         */
+        private BuildException finish() {
+            boolean interrupted = false;
+            while (isAlive()) {
+                try {
+                    join();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return exception;
+        }
+    }
+
+    /**
+     * Gets the link target of a nested output.
+     *
+     * @param output      output definition
+     * @param targets     compile targets of the task
+     * @param versionInfo version info, may be null
+     * @return link target
+     */
+    private TargetInfo getOutputLinkTarget(OutputDef output, Hashtable<String, TargetInfo> targets,
+                                           VersionInfo versionInfo) {
+        Vector<LinkerDef> linkers = output.getLinkers();
+        if (linkers.isEmpty()) {
+            linkers = mLinkers;
+        }
+        Vector<File> objectFiles = new Vector<File>();
+        Vector<File> sysObjectFiles = new Vector<File>();
+        LinkerConfiguration linkerConfig = collectExplicitObjectFiles(output.getLinkType(linkType),
+                linkers, output.getOutfile(), objectFiles, sysObjectFiles, versionInfo);
+        Hashtable<String, TargetInfo> selected = new Hashtable<String, TargetInfo>();
+        for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
+            if (output.isIncluded(entry.getValue().getOutput().getName())) {
+                selected.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return getLinkTarget(linkerConfig, objectFiles, sysObjectFiles, selected, versionInfo,
+                output.getOutfile());
+    }
+
+    /**
+     * Links the outputs that need to be rebuilt.  Links are run in rounds,
+     * all links whose inputs are ready run concurrently.
+     *
+     * @param jobs        links of the task
+     * @param targets     compile targets of the task
+     * @param versionInfo version info, may be null
+     * @throws BuildException if a link fails
+     */
+    private void link(Vector<LinkJob> jobs, Hashtable<String, TargetInfo> targets,
+                      VersionInfo versionInfo) throws BuildException {
+        for (LinkJob job : jobs) {
+            job.findDependencies(jobs);
+        }
+        Vector<LinkJob> pending = new Vector<LinkJob>(jobs);
+        while (!pending.isEmpty()) {
+            Vector<LinkJob> ready = new Vector<LinkJob>();
+            for (LinkJob job : pending) {
+                if (Collections.disjoint(job.dependencies, pending)) {
+                    ready.addElement(job);
+                }
+            }
+            if (ready.isEmpty()) {
+                throw new BuildException("Outputs are linked with each other", getLocation());
+            }
+            pending.removeAll(ready);
+            //
+            //    see which need to be rebuilt
+            //
+            Hashtable<LinkJob, LinkThread> threads = new Hashtable<LinkJob, LinkThread>();
+            for (LinkJob job : ready) {
+                //
+                //   libraries linked in an earlier round
+                //      may not have existed before
+                //
+                if (job.output != null && !job.dependencies.isEmpty()) {
+                    job.target = getOutputLinkTarget(job.output, targets, versionInfo);
+                }
+                job.history.markForRebuild(job.target);
+                if (job.target.getRebuild()) {
+                    if (job.output == null) {
+                        log("Starting link");
+                    } else {
+                        log("Starting link of " + job.target.getOutput().getName());
+                    }
+                    job.previousLink = job.history.get(
+                            job.target.getConfiguration().getIdentifier(),
+                            job.target.getOutput().getName());
+                    threads.put(job, new LinkThread(job.target));
+                }
+            }
+            //
+            //    a single link runs on this thread
+            //
+            if (threads.size() == 1) {
+                threads.values().iterator().next().run();
+            } else {
+                for (LinkThread thread : threads.values()) {
+                    thread.start();
+                }
+            }
+            BuildException linkException = null;
+            for (LinkJob job : ready) {
+                File output = job.target.getOutput();
+                LinkThread thread = threads.get(job);
+                if (thread != null) {
+                    BuildException exception = thread.finish();
+                    if (exception != null) {
+                        if (linkException == null) {
+                            linkException = exception;
+                        }
+                        continue;
+                    }
+                    job.history.update(job.target);
+                    if (restat && restatOutput(job.history, job.target, job.previousLink)) {
+                        log(output.getName() + " is unchanged.");
+                    }
+                }
+                if (job.outputFileProperty != null) {
+                    getProject().setProperty(job.outputFileProperty, output.getAbsolutePath());
                 }
-                linkHistory.update(linkTarget);
+                //
+                //   also keeps the times of rebuilt shared
+                //      libraries whose ABI is unchanged
+                //
                 try {
-                    linkHistory.commit();
+                    job.history.commit();
                 } catch (IOException ex) {
                     log("Error writing link history.xml: " + ex.toString());
                 }
-            } else if (outputFileProperty != null) {
-                getProject().setProperty(outputFileProperty, output.getAbsolutePath());
+            }
+            if (linkException != null) {
+                if (failOnError) {
+                    throw linkException;
+                }
+                log(linkException.getMessage(), Project.MSG_ERR);
+                return;
             }
         }
     }
@@ -867,13 +1967,21 @@ public class CCTask extends Task {
         if (mObjdir.equals(outputFileDir)) {
             return objHistory;
         }
-        return new TargetHistoryTable(this, outputFileDir);
+        return loadHistory(outputFileDir);
     }
 
     protected TargetInfo getLinkTarget(LinkerConfiguration linkerConfig,
                                        Vector<File> objectFiles, Vector<File> sysObjectFiles,
                                        Hashtable<String, TargetInfo> compileTargets,
                                        VersionInfo versionInfo) {
+        return getLinkTarget(linkerConfig, objectFiles, sysObjectFiles, compileTargets,
+                versionInfo, mOutfile);
+    }
+
+    private TargetInfo getLinkTarget(LinkerConfiguration linkerConfig,
+                                     Vector<File> objectFiles, Vector<File> sysObjectFiles,
+                                     Hashtable<String, TargetInfo> compileTargets,
+                                     VersionInfo versionInfo, File outfile) {
         //
         //  walk the compile phase targets and
         //     add those sources that have already been
@@ -891,9 +1999,9 @@ public class CCTask extends Task {
                 objectFiles.addElement(file);
             }
         }
-        String[] fullNames = linkerConfig.getOutputFileNames(mOutfile.getName(), versionInfo);
+        String[] fullNames = linkerConfig.getOutputFileNames(outfile.getName(), versionInfo);
         return new TargetInfo(linkerConfig, objectFiles.toArray(new File[0]),
-                sysObjectFiles.toArray(new File[0]), new File(mOutfile.getParent(), fullNames[0]),
+                sysObjectFiles.toArray(new File[0]), new File(outfile.getParent(), fullNames[0]),
                 linkerConfig.getRebuild());
     }
 
@@ -909,6 +2017,29 @@ public class CCTask extends Task {
         return null;
     }
 
+    /**
+     * Gets the link type the sources are compiled for.  The objects are
+     * compiled once for all outputs, so if a nested output is a shared
+     * library or plugin they are compiled as for that output, for example
+     * position independent, and can still be linked into the others.
+     *
+     * @return link type of the task or of a shared nested output
+     */
+    LinkType getCompileLinkType() {
+        if (linkType.isSharedLibrary()) {
+            return linkType;
+        }
+        for (OutputDef output : outputs) {
+            if (output.isActive()) {
+                LinkType outputLinkType = output.getLinkType(linkType);
+                if (outputLinkType.isSharedLibrary()) {
+                    return outputLinkType;
+                }
+            }
+        }
+        return linkType;
+    }
+
     /**
      * This method collects a Hashtable, keyed by output file name, of
      * TargetInfo's for every source file that is specified in the filesets of
@@ -920,6 +2051,7 @@ public class CCTask extends Task {
                                                      VersionInfo versionInfo, File outputFile) {
         Hashtable<String, TargetInfo> targets = new Hashtable<String, TargetInfo>(1000);
         TargetDef targetPlatform = getTargetPlatform();
+        LinkType compileLinkType = getCompileLinkType();
         //
         //   find active (specialized) compilers
         //
@@ -927,7 +2059,7 @@ public class CCTask extends Task {
         for (CompilerDef currentCompilerDef : mCompilers) {
             if (currentCompilerDef.isActive()) {
                 ProcessorConfiguration config = currentCompilerDef.createConfiguration(this,
-                        linkType, compilerDef, targetPlatform, versionInfo);
+                        compileLinkType, compilerDef, targetPlatform, versionInfo);
                 //
                 //   see if this processor had a precompile child element
                 //
@@ -993,7 +2125,7 @@ public class CCTask extends Task {
         //    add fallback compiler at the end
         //
         ProcessorConfiguration config = compilerDef.createConfiguration(this,
-                linkType, null, targetPlatform, versionInfo);
+                compileLinkType, null, targetPlatform, versionInfo);
         biddingProcessors.addElement(config);
         ProcessorConfiguration[] bidders = biddingProcessors.toArray(new ProcessorConfiguration[0]);
         //
@@ -1045,6 +2177,26 @@ public class CCTask extends Task {
         linkerDef.setDebug(debug);
     }
 
+    /**
+     * Sets the link-time optimization mode of the compiler and linker.
+     *
+     * @param lto none, full or thin
+     */
+    public void setLto(LtoEnum lto) {
+        compilerDef.setLto(lto);
+        linkerDef.setLto(lto);
+    }
+
+    /**
+     * Enables or disables writing debug info to separate .dwo files.
+     *
+     * @param splitDwarf boolean
+     */
+    public void setSplitDwarf(boolean splitDwarf) {
+        compilerDef.setSplitDwarf(splitDwarf);
+        linkerDef.setSplitDwarf(splitDwarf);
+    }
+
     /**
      * Gets debug state.
      *
@@ -1374,6 +2526,148 @@ public class CCTask extends Task {
         this.relentless = relentless;
     }
 
+    /**
+     * If true, the digest of each compiled or linked output is recorded
+     * in the history and an output rebuilt with identical contents gets
+     * its previous modification time back, so that links and other tasks
+     * depending on it are skipped.  Default is false.
+     *
+     * @param restat if true, check rebuilt outputs for changes
+     */
+    public void setRestat(boolean restat) {
+        this.restat = restat;
+    }
+
+    /**
+     * Sets the method used to decide whether object files are up to date.
+     * <p>
+     * With "hash", a digest of the contents of each source and its includes
+     * is recorded in history.xml and an object file whose inputs have the
+     * recorded digest is not rebuilt, even if their modification times
+     * changed.  Digests are cached in digests.bin in the object directory
+     * and files are only read again when their size or modification time
+     * changes.
+     * </p>
+     *
+     * @param upToDate "timestamp" (default) or "hash"
+     */
+    public void setUptodate(UpToDateEnum upToDate) {
+        this.upToDate = upToDate;
+    }
+
+    /**
+     * If set to true, the task does not complete after the build but
+     * watches the sources, the files they include and the libraries
+     * and rebuilds the affected object files and the output as soon as
+     * any of them changes.  History and dependency information are
+     * kept in memory between builds.  Compile and link errors are
+     * logged and the task continues watching until the build is
+     * interrupted.
+     *
+     * @param watch if true, watch for changes
+     */
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
+
+    /**
+     * Sets the number of milliseconds between checks for changed files
+     * in watch mode, default is 500.
+     *
+     * @param interval interval in milliseconds
+     */
+    public void setWatchInterval(long interval) {
+        if (interval <= 0) {
+            throw new BuildException("watchinterval must be positive");
+        }
+        watchInterval = interval;
+    }
+
+    /**
+     * If true, sources already known to be out of date are compiled
+     * while the include files of the others are checked, default is false.
+     *
+     * @param pipeline if true, overlap compiling and dependency analysis
+     */
+    public void setPipeline(boolean pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Enables pre-linking groups of object files into relocatable objects
+     * with the linker, for example gcc -r -nostdlib, before the final link.
+     * Groups are linked in parallel and only relinked when one of their
+     * objects changes, so that the final link of a program with many
+     * objects reads few files.  Only supported by GCC and ld.
+     *
+     * @param partialLink "directory" to group the objects by source
+     *                    directory or the number of objects per group
+     */
+    public void setPartialLink(String partialLink) {
+        if (!"directory".equals(partialLink)) {
+            int size;
+            try {
+                size = Integer.parseInt(partialLink);
+            } catch (NumberFormatException ex) {
+                throw new BuildException("partiallink must be \"directory\" or a number of objects");
+            }
+            if (size < 2) {
+                throw new BuildException("partiallink must group at least 2 objects");
+            }
+        }
+        this.partialLink = partialLink;
+    }
+
+    /**
+     * Sets the number of concurrent partial links, default is the
+     * number of processors.
+     *
+     * @param threads number of threads
+     */
+    public void setPartialLinkThreads(int threads) {
+        if (threads < 1) {
+            throw new BuildException("partiallinkthreads must be at least 1");
+        }
+        partialLinkThreads = threads;
+    }
+
+    /**
+     * Sets the number of threads reading the time stamps of the source
+     * files when the filesets are scanned, default is 1.  More threads
+     * may help when sources are on a network file system.
+     *
+     * @param threads number of threads
+     */
+    public void setScanThreads(int threads) {
+        if (threads < 1) {
+            throw new BuildException("scanthreads must be at least 1");
+        }
+        scanThreads = threads;
+    }
+
+    /**
+     * Sets the address of a build server started with &lt;ccserver&gt;,
+     * either "host:port" or just the port on the local host.  The build
+     * is sent to the server which keeps history, dependency information
+     * and compiler probes in memory between builds.  If no server is
+     * running or the task uses references, the build runs locally.
+     *
+     * @param server server address
+     */
+    public void setServer(String server) {
+        this.server = server;
+    }
+
+    /**
+     * Sets the token file written by the build server, default is
+     * .cpptasks/server.token in the user's home directory.
+     *
+     * @param tokenFile token file
+     */
+    public void setServerTokenFile(File tokenFile) {
+        serverTokenFile = tokenFile;
+    }
+
     /**
      * Sets the type of runtime library, possible values "dynamic", "static".
      *
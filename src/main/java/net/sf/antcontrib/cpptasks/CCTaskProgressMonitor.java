@@ -16,20 +16,45 @@
  */
 package net.sf.antcontrib.cpptasks;
 
+import net.sf.antcontrib.cpptasks.compiler.CompilerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.ProcessorConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.ProgressMonitor;
 
+import java.io.File;
 import java.io.IOException;
 
 public class CCTaskProgressMonitor implements ProgressMonitor {
     private ProcessorConfiguration config;
+    private final DependencyTable dependencyTable;
     private final TargetHistoryTable history;
     private final VersionInfo versionInfo;
     private long lastCommit = -1;
+    private final File objDir;
+    /**
+     * Time the current command started.
+     */
+    private long commandStartTime;
+    private long startTime;
 
     public CCTaskProgressMonitor(TargetHistoryTable history, VersionInfo versionInfo) {
+        this(history, versionInfo, null, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param history         object history
+     * @param versionInfo     version info, may be null
+     * @param dependencyTable receives dependency files written
+     *                        by the compiler, may be null
+     * @param objDir          directory containing object and dependency files
+     */
+    public CCTaskProgressMonitor(TargetHistoryTable history, VersionInfo versionInfo,
+                                 DependencyTable dependencyTable, File objDir) {
         this.history = history;
         this.versionInfo = versionInfo;
+        this.dependencyTable = dependencyTable;
+        this.objDir = objDir;
     }
 
     public void finish(ProcessorConfiguration config, boolean normal) {
@@ -44,8 +69,25 @@ public class CCTaskProgressMonitor implements ProgressMonitor {
     }
 
     public void progress(String[] sources) {
-        history.update(config, sources, versionInfo);
         long current = System.currentTimeMillis();
+        history.update(config, sources, versionInfo);
+        if (config instanceof CompilerConfiguration && sources.length > 0) {
+            //
+            //   sources compiled by one command share its time
+            //
+            long compileTime = (current - commandStartTime) / sources.length;
+            for (String source : sources) {
+                for (String output : config.getOutputFileNames(source, versionInfo)) {
+                    history.setCompileTime(config.getIdentifier(), output, compileTime);
+                }
+            }
+        }
+        commandStartTime = current;
+        if (dependencyTable != null && config instanceof CompilerConfiguration) {
+            for (String source : sources) {
+                ingestDependencyFiles((CompilerConfiguration) config, source);
+            }
+        }
         if ((current - lastCommit) > 120000) {
             try {
                 history.commit();
@@ -60,5 +102,31 @@ public class CCTaskProgressMonitor implements ProgressMonitor {
             lastCommit = System.currentTimeMillis();
         }
         this.config = config;
+        startTime = System.currentTimeMillis();
+        commandStartTime = startTime;
+    }
+
+    /**
+     * Records any make-style dependency file written while
+     * compiling the source.
+     *
+     * @param compiler compiler configuration
+     * @param source   source file name
+     */
+    private void ingestDependencyFiles(CompilerConfiguration compiler, String source) {
+        for (String output : compiler.getOutputFileNames(source, versionInfo)) {
+            int lastDot = output.lastIndexOf('.');
+            if (lastDot > 0) {
+                File dependFile = new File(objDir, output.substring(0, lastDot) + ".d");
+                //
+                //   ignore files left over from earlier builds,
+                //      allowing for coarse file system time stamps
+                //
+                long dependLastModified = dependFile.lastModified();
+                if (dependLastModified != 0 && dependLastModified + 2000 >= startTime) {
+                    dependencyTable.ingestDependencyFile(compiler, new File(source), dependFile);
+                }
+            }
+        }
     }
 }
@@ -25,7 +25,9 @@ import org.apache.tools.ant.types.Environment;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.Vector;
 
@@ -39,6 +41,28 @@ public class CUtil {
     public static final String STANDARD_EXCUSE
             = "Not an actual task, but looks like one for documentation purposes";
 
+    /**
+     * Name of the operating system, read once.
+     */
+    private static final String OS_NAME = System.getProperty("os.name");
+
+    /**
+     * Maximum number of cached canonical paths.
+     */
+    private static final int MAX_CANONICAL_PATHS = 100000;
+
+    /**
+     * Canonical paths keyed by absolute path, least recently used first.
+     */
+    private static final Map<String, String> canonicalPaths
+            = new LinkedHashMap<String, String>(1024, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_CANONICAL_PATHS;
+        }
+    };
+
     /**
      * A class that splits a white-space, comma-separated list into a String
      * array. Used for task attributes.
@@ -152,7 +176,7 @@ public class CUtil {
      */
     public static File[] getPathFromEnvironment(String envVariable, String delim) {
         // OS/4000 does not support the env command.
-        if (System.getProperty("os.name").equals("OS/400")) {
+        if ("OS/400".equals(OS_NAME)) {
             return new File[]{};
         }
         String match = envVariable.concat("=");
@@ -169,6 +193,40 @@ public class CUtil {
         return new File[0];
     }
 
+    /**
+     * Discards the cached canonical paths, for example after a build
+     * when the JVM is kept for later builds and links may have changed.
+     */
+    public static void clearCanonicalPaths() {
+        synchronized (canonicalPaths) {
+            canonicalPaths.clear();
+        }
+    }
+
+    /**
+     * Returns the canonical path of a file.  Results are cached for
+     * the life of the JVM or until clearCanonicalPaths is called, so
+     * changes to symbolic links are not noticed.
+     *
+     * @param file file
+     * @return canonical path
+     * @throws IOException if the canonical path can not be determined
+     */
+    public static String getCanonicalPath(final File file) throws IOException {
+        String absolutePath = file.getAbsolutePath();
+        String canonicalPath;
+        synchronized (canonicalPaths) {
+            canonicalPath = canonicalPaths.get(absolutePath);
+        }
+        if (canonicalPath == null) {
+            canonicalPath = file.getCanonicalPath();
+            synchronized (canonicalPaths) {
+                canonicalPaths.put(absolutePath, canonicalPath);
+            }
+        }
+        return canonicalPath;
+    }
+
     /**
      * Returns a relative path for the targetFile relative to the base
      * directory.
@@ -191,10 +249,10 @@ public class CUtil {
             //   get canonical name of target
             //
             String canonicalTarget;
-            if (System.getProperty("os.name").equals("OS/400")) {
+            if ("OS/400".equals(OS_NAME)) {
                 canonicalTarget = targetFile.getPath();
             } else {
-                canonicalTarget = targetFile.getCanonicalPath();
+                canonicalTarget = getCanonicalPath(targetFile);
             }
             if (canonicalBase.startsWith(canonicalTarget + File.separatorChar)) {
                 canonicalTarget = canonicalTarget + File.separator;
@@ -340,7 +398,7 @@ public class CUtil {
             task.log(Commandline.toString(cmdline), Project.MSG_VERBOSE);
             Execute exe = new Execute(new LogStreamHandler(task,
                     Project.MSG_INFO, Project.MSG_ERR));
-            if (System.getProperty("os.name").equals("OS/390")) {
+            if ("OS/390".equals(OS_NAME)) {
                 exe.setVMLauncher(false);
             }
             exe.setAntRun(task.getProject());
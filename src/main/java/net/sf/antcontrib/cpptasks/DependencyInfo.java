@@ -32,14 +32,41 @@ public final class DependencyInfo {
      * </p>
      */
     private long compositeLastModified;
+
+    /**
+     * True if includes were reported by the compiler
+     * and contain every file read during compilation.
+     */
+    private final boolean compilerGenerated;
     private final String includePathIdentifier;
     private final String[] includes;
+    /**
+     * FORTRAN modules defined by the source.
+     */
+    private final String[] modules;
     private final String source;
     private final long sourceLastModified;
     private final String[] sysIncludes;
+    /**
+     * FORTRAN modules used by the source.
+     */
+    private final String[] uses;
 
     public DependencyInfo(String includePathIdentifier, String source, long sourceLastModified,
                           Vector<String> includes, Vector<String> sysIncludes) {
+        this(includePathIdentifier, source, sourceLastModified, includes, sysIncludes, false);
+    }
+
+    public DependencyInfo(String includePathIdentifier, String source, long sourceLastModified,
+                          Vector<String> includes, Vector<String> sysIncludes,
+                          boolean compilerGenerated) {
+        this(includePathIdentifier, source, sourceLastModified, includes, sysIncludes,
+                compilerGenerated, null, null);
+    }
+
+    public DependencyInfo(String includePathIdentifier, String source, long sourceLastModified,
+                          Vector<String> includes, Vector<String> sysIncludes,
+                          boolean compilerGenerated, String[] modules, String[] uses) {
         if (source == null) {
             throw new NullPointerException("source");
         }
@@ -57,6 +84,17 @@ public final class DependencyInfo {
             compositeLastModified = Long.MIN_VALUE;
         }
         this.sysIncludes = sysIncludes.toArray(new String[0]);
+        this.compilerGenerated = compilerGenerated;
+        if (modules == null) {
+            this.modules = new String[0];
+        } else {
+            this.modules = modules.clone();
+        }
+        if (uses == null) {
+            this.uses = new String[0];
+        } else {
+            this.uses = uses.clone();
+        }
     }
 
     /**
@@ -78,6 +116,26 @@ public final class DependencyInfo {
         return includes.clone();
     }
 
+    /**
+     * Indicates whether the includes were reported by the compiler.
+     * If so, includes is the complete list of files read
+     * during compilation and does not need to be walked.
+     *
+     * @return true if generated by the compiler
+     */
+    public boolean isCompilerGenerated() {
+        return compilerGenerated;
+    }
+
+    /**
+     * Gets the FORTRAN modules and submodules defined by the source.
+     *
+     * @return module names, empty if none
+     */
+    public String[] getModules() {
+        return modules.clone();
+    }
+
     public String getSource() {
         return source;
     }
@@ -90,6 +148,15 @@ public final class DependencyInfo {
         return sysIncludes.clone();
     }
 
+    /**
+     * Gets the FORTRAN modules used by the source.
+     *
+     * @return module names, empty if none
+     */
+    public String[] getUses() {
+        return uses.clone();
+    }
+
     public void setCompositeLastModified(long lastMod) {
         compositeLastModified = lastMod;
     }
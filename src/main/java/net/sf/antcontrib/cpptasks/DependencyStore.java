@@ -0,0 +1,667 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * <p>
+ * Binary, memory mapped representation of dependencies.xml.
+ * </p>
+ * <p>
+ * The file consists of a header, a string table, an index sorted by the
+ * hash code of the source name, the dependency records and a reverse index
+ * sorted by the hash code of the included file.  Only the header is read
+ * when the store is opened, strings and records are decoded when a specific
+ * source is requested and the files including a given file are found
+ * without decoding any record.
+ * </p>
+ * <pre>
+ * header:  magic, version, string count, string table offset,
+ *          entry count, index offset, reverse count, reverse offset
+ * strings: offset of each string, then length prefixed UTF-8 bytes
+ * index:   source hash, source string, include path string, record offset
+ * records: last modified, flags, include count, includes,
+ *          sysinclude count, sysincludes and, if flagged,
+ *          module count, modules, use count, uses
+ * reverse: include hash, include string, dependents offset
+ * dependents: count, index entry of each including source
+ * </pre>
+ * <p>
+ * Records changed since the store was written are appended to a log
+ * which is replayed when the store is loaded.  Later log records
+ * replace earlier ones and entries in the store.
+ * </p>
+ */
+final class DependencyStore {
+    /**
+     * Identifies the file as a dependency store ("CPTD").
+     */
+    static final int MAGIC = 0x43505444;
+
+    /**
+     * Format version, files with any other version are ignored.
+     */
+    static final int VERSION = 4;
+
+    /**
+     * Record flag set if the includes were reported by the compiler.
+     */
+    private static final int COMPILER_GENERATED = 1;
+
+    /**
+     * Record flag set if FORTRAN modules or uses follow the sysincludes.
+     */
+    private static final int HAS_MODULES = 2;
+
+    /**
+     * Identifies the file as a dependency log ("CPTL").
+     */
+    static final int LOG_MAGIC = 0x4350544C;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int REVERSE_ENTRY_SIZE = 12;
+
+    private ByteBuffer buffer;
+    private final int entryCount;
+    private final int indexOffset;
+    private final int reverseCount;
+    private final int reverseOffset;
+    private final int stringCount;
+    private final int stringTableOffset;
+    private String[] strings;
+
+    /**
+     * Opens and maps an existing store.
+     *
+     * @param file store file
+     * @throws IOException if the file can not be read or is not a
+     *                     dependency store of the current version
+     */
+    DependencyStore(File file) throws IOException {
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            FileChannel channel = stream.getChannel();
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer = mapped;
+        } finally {
+            //
+            //   the mapping remains valid after the channel is closed
+            stream.close();
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file.toString() + " is not a dependency store");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException(file.toString() + " has unsupported version "
+                    + buffer.getInt(4));
+        }
+        stringCount = buffer.getInt(8);
+        stringTableOffset = buffer.getInt(12);
+        entryCount = buffer.getInt(16);
+        indexOffset = buffer.getInt(20);
+        reverseCount = buffer.getInt(24);
+        reverseOffset = buffer.getInt(28);
+        if (stringCount < 0 || entryCount < 0 || reverseCount < 0
+                || stringTableOffset + 4L * stringCount > buffer.capacity()
+                || indexOffset + (long) INDEX_ENTRY_SIZE * entryCount > buffer.capacity()
+                || reverseOffset + (long) REVERSE_ENTRY_SIZE * reverseCount > buffer.capacity()) {
+            throw new IOException(file.toString() + " is truncated");
+        }
+        strings = new String[stringCount];
+    }
+
+    /**
+     * Drops the mapped buffer.  The store can't be used afterwards and
+     * the mapping is released once the buffer is no longer reachable.
+     */
+    void close() {
+        buffer = null;
+        strings = null;
+    }
+
+    /**
+     * Number of dependency records in the store.
+     *
+     * @return record count
+     */
+    int size() {
+        return entryCount;
+    }
+
+    /**
+     * Locates and decodes the record for a source and include path.
+     *
+     * @param source                source name relative to the base directory
+     * @param includePathIdentifier include path identifier
+     * @return dependency info or null if not in the store
+     */
+    DependencyInfo get(String source, String includePathIdentifier) {
+        int hash = source.hashCode();
+        int low = 0;
+        int high = entryCount - 1;
+        //
+        //   binary search for any entry with a matching hash
+        //
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midHash = buffer.getInt(indexOffset + mid * INDEX_ENTRY_SIZE);
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                //
+                //   back up to the first entry with the same hash
+                //      then compare the actual strings
+                while (mid > 0 && buffer.getInt(indexOffset + (mid - 1) * INDEX_ENTRY_SIZE) == hash) {
+                    mid--;
+                }
+                for (int i = mid; i < entryCount
+                        && buffer.getInt(indexOffset + i * INDEX_ENTRY_SIZE) == hash; i++) {
+                    int entryOffset = indexOffset + i * INDEX_ENTRY_SIZE;
+                    if (source.equals(getString(buffer.getInt(entryOffset + 4)))
+                            && includePathIdentifier.equals(getString(buffer.getInt(entryOffset + 8)))) {
+                        return decode(i);
+                    }
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decodes every record in the store.
+     *
+     * @return list of dependency info
+     */
+    List<DependencyInfo> getAll() {
+        List<DependencyInfo> all = new ArrayList<DependencyInfo>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            all.add(decode(i));
+        }
+        return all;
+    }
+
+    /**
+     * Finds the entries whose record lists a file as an include
+     * or system include.
+     *
+     * @param include included file name as recorded
+     * @return index entries, empty if none
+     */
+    int[] getDependents(String include) {
+        int hash = include.hashCode();
+        int low = 0;
+        int high = reverseCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midHash = buffer.getInt(reverseOffset + mid * REVERSE_ENTRY_SIZE);
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                while (mid > 0 && buffer.getInt(reverseOffset + (mid - 1) * REVERSE_ENTRY_SIZE) == hash) {
+                    mid--;
+                }
+                for (int i = mid; i < reverseCount
+                        && buffer.getInt(reverseOffset + i * REVERSE_ENTRY_SIZE) == hash; i++) {
+                    int reverseEntryOffset = reverseOffset + i * REVERSE_ENTRY_SIZE;
+                    if (include.equals(getString(buffer.getInt(reverseEntryOffset + 4)))) {
+                        return getDependentEntries(buffer.getInt(reverseEntryOffset + 8));
+                    }
+                }
+                break;
+            }
+        }
+        return new int[0];
+    }
+
+    private int[] getDependentEntries(int offset) {
+        int[] entries = new int[buffer.getInt(offset)];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = buffer.getInt(offset + 4 + 4 * i);
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the names of all files listed as includes by any record.
+     *
+     * @return included file names
+     */
+    List<String> getIncludedFiles() {
+        List<String> includes = new ArrayList<String>(reverseCount);
+        for (int i = 0; i < reverseCount; i++) {
+            includes.add(getString(buffer.getInt(reverseOffset + i * REVERSE_ENTRY_SIZE + 4)));
+        }
+        return includes;
+    }
+
+    /**
+     * Gets the source of an index entry without decoding its record.
+     *
+     * @param entry index entry
+     * @return source name relative to the base directory
+     */
+    String getSource(int entry) {
+        return getString(buffer.getInt(indexOffset + entry * INDEX_ENTRY_SIZE + 4));
+    }
+
+    /**
+     * Gets the include path identifier of an index entry
+     * without decoding its record.
+     *
+     * @param entry index entry
+     * @return include path identifier
+     */
+    String getIncludePathIdentifier(int entry) {
+        return getString(buffer.getInt(indexOffset + entry * INDEX_ENTRY_SIZE + 8));
+    }
+
+    private DependencyInfo decode(int entry) {
+        int entryOffset = indexOffset + entry * INDEX_ENTRY_SIZE;
+        String source = getString(buffer.getInt(entryOffset + 4));
+        String includePathIdentifier = getString(buffer.getInt(entryOffset + 8));
+        int offset = buffer.getInt(entryOffset + 12);
+        long sourceLastModified = buffer.getLong(offset);
+        offset += 8;
+        int flags = buffer.getInt(offset);
+        offset += 4;
+        int includeCount = buffer.getInt(offset);
+        offset += 4;
+        Vector<String> includes = new Vector<String>(includeCount);
+        for (int i = 0; i < includeCount; i++) {
+            includes.addElement(getString(buffer.getInt(offset)));
+            offset += 4;
+        }
+        int sysIncludeCount = buffer.getInt(offset);
+        offset += 4;
+        Vector<String> sysIncludes = new Vector<String>(sysIncludeCount);
+        for (int i = 0; i < sysIncludeCount; i++) {
+            sysIncludes.addElement(getString(buffer.getInt(offset)));
+            offset += 4;
+        }
+        String[] modules = null;
+        String[] uses = null;
+        if ((flags & HAS_MODULES) != 0) {
+            modules = new String[buffer.getInt(offset)];
+            offset += 4;
+            for (int i = 0; i < modules.length; i++) {
+                modules[i] = getString(buffer.getInt(offset));
+                offset += 4;
+            }
+            uses = new String[buffer.getInt(offset)];
+            offset += 4;
+            for (int i = 0; i < uses.length; i++) {
+                uses[i] = getString(buffer.getInt(offset));
+                offset += 4;
+            }
+        }
+        return new DependencyInfo(includePathIdentifier, source, sourceLastModified,
+                includes, sysIncludes, (flags & COMPILER_GENERATED) != 0, modules, uses);
+    }
+
+    private static int getFlags(DependencyInfo dependInfo) {
+        int flags = 0;
+        if (dependInfo.isCompilerGenerated()) {
+            flags |= COMPILER_GENERATED;
+        }
+        if (dependInfo.getModules().length > 0 || dependInfo.getUses().length > 0) {
+            flags |= HAS_MODULES;
+        }
+        return flags;
+    }
+
+    private static int getRecordLength(DependencyInfo dependInfo) {
+        int length = 20 + 4 * (dependInfo.getIncludes().length
+                + dependInfo.getSysIncludes().length);
+        if ((getFlags(dependInfo) & HAS_MODULES) != 0) {
+            length += 8 + 4 * (dependInfo.getModules().length + dependInfo.getUses().length);
+        }
+        return length;
+    }
+
+    private String getString(int index) {
+        String value = strings[index];
+        if (value == null) {
+            int offset = buffer.getInt(stringTableOffset + 4 * index);
+            int length = buffer.getInt(offset);
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(offset + 4 + i);
+            }
+            try {
+                value = new String(bytes, "UTF-8");
+            } catch (UnsupportedEncodingException ex) {
+                value = new String(bytes);
+            }
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Writes a new store containing the specified dependency info.
+     *
+     * @param file         destination file
+     * @param dependencies dependency info to be written
+     * @throws IOException if unable to write file
+     */
+    static void write(File file, Collection<DependencyInfo> dependencies) throws IOException {
+        DependencyInfo[] sorted = dependencies.toArray(new DependencyInfo[0]);
+        Arrays.sort(sorted, new Comparator<DependencyInfo>() {
+            public int compare(DependencyInfo o1, DependencyInfo o2) {
+                int h1 = o1.getSource().hashCode();
+                int h2 = o2.getSource().hashCode();
+                return h1 < h2 ? -1 : (h1 == h2 ? 0 : 1);
+            }
+        });
+        //
+        //   assign string table indexes
+        //
+        Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+        List<byte[]> stringBytes = new ArrayList<byte[]>();
+        int recordsLength = 0;
+        for (DependencyInfo dependInfo : sorted) {
+            addString(dependInfo.getSource(), stringIndexes, stringBytes);
+            addString(dependInfo.getIncludePathIdentifier(), stringIndexes, stringBytes);
+            String[] includes = dependInfo.getIncludes();
+            for (String include : includes) {
+                addString(include, stringIndexes, stringBytes);
+            }
+            String[] sysIncludes = dependInfo.getSysIncludes();
+            for (String sysInclude : sysIncludes) {
+                addString(sysInclude, stringIndexes, stringBytes);
+            }
+            for (String module : dependInfo.getModules()) {
+                addString(module, stringIndexes, stringBytes);
+            }
+            for (String use : dependInfo.getUses()) {
+                addString(use, stringIndexes, stringBytes);
+            }
+            recordsLength += getRecordLength(dependInfo);
+        }
+        int stringTableOffset = HEADER_SIZE;
+        int stringDataOffset = stringTableOffset + 4 * stringBytes.size();
+        int stringDataLength = 0;
+        for (byte[] bytes : stringBytes) {
+            stringDataLength += 4 + bytes.length;
+        }
+        //
+        //   entries listing each include, in the order of the index
+        //
+        Map<String, List<Integer>> dependents = new HashMap<String, List<Integer>>();
+        int dependentsLength = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            dependentsLength += addDependent(dependents, sorted[i].getIncludes(), i);
+            dependentsLength += addDependent(dependents, sorted[i].getSysIncludes(), i);
+        }
+        String[] reverse = dependents.keySet().toArray(new String[0]);
+        Arrays.sort(reverse, new Comparator<String>() {
+            public int compare(String o1, String o2) {
+                int h1 = o1.hashCode();
+                int h2 = o2.hashCode();
+                return h1 < h2 ? -1 : (h1 == h2 ? 0 : 1);
+            }
+        });
+        int indexOffset = stringDataOffset + stringDataLength;
+        int recordsOffset = indexOffset + INDEX_ENTRY_SIZE * sorted.length;
+        long reverseOffset = (long) recordsOffset + recordsLength;
+        long dependentsOffset = reverseOffset + (long) REVERSE_ENTRY_SIZE * reverse.length;
+        if (dependentsOffset + 4L * (reverse.length + dependentsLength) > Integer.MAX_VALUE) {
+            throw new IOException("Dependency information exceeds maximum store size");
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(stringBytes.size());
+            out.writeInt(stringTableOffset);
+            out.writeInt(sorted.length);
+            out.writeInt(indexOffset);
+            out.writeInt(reverse.length);
+            out.writeInt((int) reverseOffset);
+            int offset = stringDataOffset;
+            for (byte[] bytes : stringBytes) {
+                out.writeInt(offset);
+                offset += 4 + bytes.length;
+            }
+            for (byte[] bytes : stringBytes) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            offset = recordsOffset;
+            for (DependencyInfo dependInfo : sorted) {
+                out.writeInt(dependInfo.getSource().hashCode());
+                out.writeInt(stringIndexes.get(dependInfo.getSource()));
+                out.writeInt(stringIndexes.get(dependInfo.getIncludePathIdentifier()));
+                out.writeInt(offset);
+                offset += getRecordLength(dependInfo);
+            }
+            for (DependencyInfo dependInfo : sorted) {
+                out.writeLong(dependInfo.getSourceLastModified());
+                int flags = getFlags(dependInfo);
+                out.writeInt(flags);
+                String[] includes = dependInfo.getIncludes();
+                out.writeInt(includes.length);
+                for (String include : includes) {
+                    out.writeInt(stringIndexes.get(include));
+                }
+                String[] sysIncludes = dependInfo.getSysIncludes();
+                out.writeInt(sysIncludes.length);
+                for (String sysInclude : sysIncludes) {
+                    out.writeInt(stringIndexes.get(sysInclude));
+                }
+                if ((flags & HAS_MODULES) != 0) {
+                    String[] modules = dependInfo.getModules();
+                    out.writeInt(modules.length);
+                    for (String module : modules) {
+                        out.writeInt(stringIndexes.get(module));
+                    }
+                    String[] uses = dependInfo.getUses();
+                    out.writeInt(uses.length);
+                    for (String use : uses) {
+                        out.writeInt(stringIndexes.get(use));
+                    }
+                }
+            }
+            offset = (int) dependentsOffset;
+            for (String include : reverse) {
+                out.writeInt(include.hashCode());
+                out.writeInt(stringIndexes.get(include));
+                out.writeInt(offset);
+                offset += 4 + 4 * dependents.get(include).size();
+            }
+            for (String include : reverse) {
+                List<Integer> entries = dependents.get(include);
+                out.writeInt(entries.size());
+                for (Integer entry : entries) {
+                    out.writeInt(entry);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static int addDependent(Map<String, List<Integer>> dependents, String[] includes,
+                                    int entry) {
+        int added = 0;
+        for (String include : includes) {
+            List<Integer> entries = dependents.get(include);
+            if (entries == null) {
+                entries = new ArrayList<Integer>();
+                dependents.put(include, entries);
+            }
+            //
+            //   a file listed twice by the same record is only added once
+            //
+            if (entries.isEmpty() || entries.get(entries.size() - 1) != entry) {
+                entries.add(entry);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private static void addString(String value, Map<String, Integer> stringIndexes,
+                                  List<byte[]> stringBytes) throws UnsupportedEncodingException {
+        if (!stringIndexes.containsKey(value)) {
+            stringIndexes.put(value, stringBytes.size());
+            stringBytes.add(value.getBytes("UTF-8"));
+        }
+    }
+
+    /**
+     * Appends dependency info to a log, creating the log if necessary.
+     *
+     * @param logFile      log file
+     * @param dependencies changed dependency info
+     * @throws IOException if unable to write file
+     */
+    static void appendLog(File logFile, Collection<DependencyInfo> dependencies) throws IOException {
+        boolean newLog = logFile.length() == 0;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(logFile, true)));
+        try {
+            if (newLog) {
+                out.writeInt(LOG_MAGIC);
+                out.writeInt(VERSION);
+            }
+            for (DependencyInfo dependInfo : dependencies) {
+                out.writeUTF(dependInfo.getSource());
+                out.writeUTF(dependInfo.getIncludePathIdentifier());
+                out.writeLong(dependInfo.getSourceLastModified());
+                int flags = getFlags(dependInfo);
+                out.writeInt(flags);
+                String[] includes = dependInfo.getIncludes();
+                out.writeInt(includes.length);
+                for (String include : includes) {
+                    out.writeUTF(include);
+                }
+                String[] sysIncludes = dependInfo.getSysIncludes();
+                out.writeInt(sysIncludes.length);
+                for (String sysInclude : sysIncludes) {
+                    out.writeUTF(sysInclude);
+                }
+                if ((flags & HAS_MODULES) != 0) {
+                    String[] modules = dependInfo.getModules();
+                    out.writeInt(modules.length);
+                    for (String module : modules) {
+                        out.writeUTF(module);
+                    }
+                    String[] uses = dependInfo.getUses();
+                    out.writeInt(uses.length);
+                    for (String use : uses) {
+                        out.writeUTF(use);
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads the records of a log in the order they were written.
+     *
+     * @param logFile      log file
+     * @param dependencies receives dependency info
+     * @return false if the log ended with an incomplete record
+     * @throws IOException if unable to read file or the file is not
+     *                     a log of the current version
+     */
+    static boolean readLog(File logFile, List<DependencyInfo> dependencies) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(logFile)));
+        try {
+            if (in.readInt() != LOG_MAGIC || in.readInt() != VERSION) {
+                throw new IOException(logFile.toString() + " is not a dependency log");
+            }
+            for (;;) {
+                String source;
+                try {
+                    source = in.readUTF();
+                } catch (EOFException ex) {
+                    return true;
+                }
+                try {
+                    String includePathIdentifier = in.readUTF();
+                    long sourceLastModified = in.readLong();
+                    int flags = in.readInt();
+                    int includeCount = in.readInt();
+                    Vector<String> includes = new Vector<String>(includeCount);
+                    for (int i = 0; i < includeCount; i++) {
+                        includes.addElement(in.readUTF());
+                    }
+                    int sysIncludeCount = in.readInt();
+                    Vector<String> sysIncludes = new Vector<String>(sysIncludeCount);
+                    for (int i = 0; i < sysIncludeCount; i++) {
+                        sysIncludes.addElement(in.readUTF());
+                    }
+                    String[] modules = null;
+                    String[] uses = null;
+                    if ((flags & HAS_MODULES) != 0) {
+                        modules = new String[in.readInt()];
+                        for (int i = 0; i < modules.length; i++) {
+                            modules[i] = in.readUTF();
+                        }
+                        uses = new String[in.readInt()];
+                        for (int i = 0; i < uses.length; i++) {
+                            uses[i] = in.readUTF();
+                        }
+                    }
+                    dependencies.add(new DependencyInfo(includePathIdentifier, source,
+                            sourceLastModified, includes, sysIncludes,
+                            (flags & COMPILER_GENERATED) != 0, modules, uses));
+                } catch (EOFException ex) {
+                    //
+                    //   interrupted while appending
+                    return false;
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
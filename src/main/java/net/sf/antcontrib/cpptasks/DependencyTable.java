@@ -17,6 +17,8 @@
 package net.sf.antcontrib.cpptasks;
 
 import net.sf.antcontrib.cpptasks.compiler.CompilerConfiguration;
+import net.sf.antcontrib.cpptasks.parser.FortranParser;
+import net.sf.antcontrib.cpptasks.parser.MakeDependParser;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 import org.xml.sax.Attributes;
@@ -26,17 +28,28 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
+import static net.sf.antcontrib.cpptasks.CUtil.getCanonicalPath;
 import static net.sf.antcontrib.cpptasks.CUtil.getRelativePath;
 import static net.sf.antcontrib.cpptasks.CUtil.isSignificantlyAfter;
 import static net.sf.antcontrib.cpptasks.CUtil.isSignificantlyBefore;
@@ -53,11 +66,14 @@ public final class DependencyTable {
     private class DependencyTableHandler extends DefaultHandler {
         private final File baseDir;
         private final DependencyTable dependencyTable;
+        private boolean compilerGenerated;
         private String includePath;
         private final Vector<String> includes;
+        private final Vector<String> modules;
         private String source;
         private long sourceLastModified;
         private final Vector<String> sysIncludes;
+        private final Vector<String> uses;
 
         /**
          * Constructor
@@ -70,6 +86,8 @@ public final class DependencyTable {
             this.baseDir = baseDir;
             includes = new Vector<String>();
             sysIncludes = new Vector<String>();
+            modules = new Vector<String>();
+            uses = new Vector<String>();
             source = null;
         }
 
@@ -87,17 +105,18 @@ public final class DependencyTable {
                     //
                     //   if the file exists and the time stamp is right
                     //       preserve the dependency info
-                    if (existingFile.exists()) {
+                    if (FileSnapshot.exists(existingFile)) {
                         //
                         //   would have expected exact matches
                         //       but was seeing some unexpected difference by
                         //       a few tens of milliseconds, as long
                         //       as the times are within a second
-                        long existingLastModified = existingFile.lastModified();
+                        long existingLastModified = FileSnapshot.lastModified(existingFile);
                         if (!isSignificantlyAfter(existingLastModified, sourceLastModified)
                                 && !isSignificantlyBefore(existingLastModified, sourceLastModified)) {
                             DependencyInfo dependInfo = new DependencyInfo(includePath, source,
-                                    sourceLastModified, includes, sysIncludes);
+                                    sourceLastModified, includes, sysIncludes, compilerGenerated,
+                                    modules.toArray(new String[0]), uses.toArray(new String[0]));
                             dependencyTable.putDependencyInfo(source, dependInfo);
                         }
                     }
@@ -128,6 +147,10 @@ public final class DependencyTable {
             } else {
                 if (qName.equals("sysinclude")) {
                     sysIncludes.addElement(atts.getValue("file"));
+                } else if (qName.equals("module")) {
+                    modules.addElement(atts.getValue("name"));
+                } else if (qName.equals("use")) {
+                    uses.addElement(atts.getValue("name"));
                 } else {
                     //
                     //    if source then
@@ -137,8 +160,11 @@ public final class DependencyTable {
                     if (qName.equals("source")) {
                         source = atts.getValue("file");
                         sourceLastModified = Long.parseLong(atts.getValue("lastModified"), 16);
+                        compilerGenerated = "true".equals(atts.getValue("generated"));
                         includes.setSize(0);
                         sysIncludes.setSize(0);
+                        modules.setSize(0);
+                        uses.setSize(0);
                     } else {
                         if (qName.equals("includePath")) {
                             includePath = atts.getValue("signature");
@@ -246,6 +272,12 @@ public final class DependencyTable {
         }
     }
 
+    /**
+     * Minimum size of dependencies.log before it is merged
+     * into dependencies.bin.
+     */
+    private static final long COMPACTION_THRESHOLD = 64 * 1024;
+
     private final File baseDir;
     private String baseDirPath;
 
@@ -255,17 +287,55 @@ public final class DependencyTable {
     private final Hashtable<String, DependencyInfo[]> dependencies = new Hashtable<String, DependencyInfo[]>();
 
     /**
-     * The file the cache was loaded from.
+     * The binary file the cache is loaded from.
      */
     private final File dependenciesFile;
 
+    /**
+     * Dependencies.xml as written by earlier versions, imported if no
+     * binary file is available.
+     */
+    private final File dependenciesXmlFile;
+
+    /**
+     * Log of records changed since dependencies.bin was written.
+     */
+    private final File dependenciesLogFile;
+
     /**
      * Flag indicating whether the cache should be written back to file.
      */
     private boolean dirty;
 
     /**
-     * Creates a target history table from dependencies.xml in the project
+     * Flag indicating that the next commit must rewrite dependencies.bin
+     * instead of appending to the log.
+     */
+    private boolean compact;
+
+    /**
+     * Dependency info added or replaced since the last commit
+     * keyed by include path identifier and source.
+     */
+    private final Map<String, DependencyInfo> changed = new LinkedHashMap<String, DependencyInfo>();
+
+    /**
+     * Mapped binary store, entries are decoded on demand.
+     * Null if no store was loaded or if all entries have been decoded.
+     */
+    private DependencyStore store;
+
+    /**
+     * Relative names of the files that directly include a file according
+     * to the entries in memory, keyed by the relative name of the included
+     * file.  Entries still in the mapped store are found through the
+     * reverse index of the store.  Built on first query, discarded when
+     * entries change.
+     */
+    private Hashtable<String, Set<String>> reverseIndex;
+
+    /**
+     * Creates a target history table from dependencies.bin in the project
      * directory, if it exists. Otherwise, initializes the dependencies empty.
      *
      * @param baseDir output directory for task
@@ -276,14 +346,17 @@ public final class DependencyTable {
         }
         this.baseDir = baseDir;
         try {
-            baseDirPath = baseDir.getCanonicalPath();
+            baseDirPath = getCanonicalPath(baseDir);
         } catch (IOException ex) {
             baseDirPath = baseDir.toString();
         }
         dirty = false;
+        compact = true;
         //
         //   load any existing dependencies from file
-        dependenciesFile = new File(baseDir, "dependencies.xml");
+        dependenciesFile = new File(baseDir, "dependencies.bin");
+        dependenciesLogFile = new File(baseDir, "dependencies.log");
+        dependenciesXmlFile = new File(baseDir, "dependencies.xml");
     }
 
     public void commit(CCTask task) {
@@ -292,44 +365,51 @@ public final class DependencyTable {
         //
         if (dirty) {
             //
-            //   walk through dependencies to get vector of include paths
-            // identifiers
-            //
-            Vector<String> includePaths = getIncludePaths();
+            //   append the changed records to the log
+            //      until the log grows to half the size of the store
             //
+            if (!compact && dependenciesFile.exists()) {
+                long threshold = Math.max(COMPACTION_THRESHOLD, dependenciesFile.length() / 2);
+                if (dependenciesLogFile.length() < threshold) {
+                    try {
+                        DependencyStore.appendLog(dependenciesLogFile, changed.values());
+                        changed.clear();
+                        dirty = false;
+                        return;
+                    } catch (IOException ex) {
+                        task.log("Error writing " + dependenciesLogFile.toString() + ":" + ex.toString());
+                    }
+                }
+            }
             //
-            //   write dependency file
+            //   all entries must be in memory before
+            //       the mapped file can be replaced
             //
+            loadAll();
+            File tempFile = getPendingFile();
             try {
-                FileOutputStream outStream = new FileOutputStream(dependenciesFile);
-                OutputStreamWriter streamWriter;
-                //
-                //    Early VM's may not have UTF-8 support
-                //       fallback to default code page which
-                //           "should" be okay unless there are
-                //            non ASCII file names
-                String encodingName = "UTF-8";
-                try {
-                    streamWriter = new OutputStreamWriter(outStream, "UTF-8");
-                } catch (UnsupportedEncodingException ex) {
-                    streamWriter = new OutputStreamWriter(outStream);
-                    encodingName = streamWriter.getEncoding();
-                }
-                BufferedWriter writer = new BufferedWriter(streamWriter);
-                writer.write("<?xml version='1.0' encoding='");
-                writer.write(encodingName);
-                writer.write("'?>\n");
-                writer.write("<dependencies>\n");
-                StringBuilder buf = new StringBuilder();
-                for (String path : includePaths) {
-                    writeIncludePathDependencies(path, writer, buf);
-                }
-                writer.write("</dependencies>\n");
-                writer.close();
-                dirty = false;
+                DependencyStore.write(tempFile, allDependencyInfos());
             } catch (IOException ex) {
-                task.log("Error writing " + dependenciesFile.toString() + ":" + ex.toString());
+                tempFile.delete();
+                task.log("Error writing " + tempFile.toString() + ":" + ex.toString());
+                return;
+            }
+            //
+            //   if the store can't be replaced now the new file is kept
+            //      and the rename is retried by the next load or commit
+            //
+            compact = true;
+            if (dependenciesLogFile.exists() && !dependenciesLogFile.delete()) {
+                task.log("Unable to delete " + dependenciesLogFile.toString(), Project.MSG_VERBOSE);
+                return;
+            }
+            if (!replace(tempFile, dependenciesFile)) {
+                task.log("Unable to rename " + tempFile.toString() + ", will retry", Project.MSG_VERBOSE);
+                return;
             }
+            changed.clear();
+            dirty = false;
+            compact = false;
         }
     }
 
@@ -339,9 +419,61 @@ public final class DependencyTable {
      * @return an Enumeration of arrays of DependencyInfo
      */
     public Enumeration<DependencyInfo[]> elements() {
+        loadAll();
         return dependencies.elements();
     }
 
+    /**
+     * Writes the dependency information in the XML format
+     * used by earlier versions.
+     *
+     * @param xmlFile destination file
+     * @throws IOException if unable to write file
+     */
+    public void exportXml(File xmlFile) throws IOException {
+        loadAll();
+        //
+        //   group dependency info by include path identifier
+        //
+        Map<String, Vector<DependencyInfo>> includePaths = new LinkedHashMap<String, Vector<DependencyInfo>>();
+        for (DependencyInfo dependInfo : allDependencyInfos()) {
+            Vector<DependencyInfo> group = includePaths.get(dependInfo.getIncludePathIdentifier());
+            if (group == null) {
+                group = new Vector<DependencyInfo>();
+                includePaths.put(dependInfo.getIncludePathIdentifier(), group);
+            }
+            group.addElement(dependInfo);
+        }
+        FileOutputStream outStream = new FileOutputStream(xmlFile);
+        OutputStreamWriter streamWriter;
+        //
+        //    Early VM's may not have UTF-8 support
+        //       fallback to default code page which
+        //           "should" be okay unless there are
+        //            non ASCII file names
+        String encodingName = "UTF-8";
+        try {
+            streamWriter = new OutputStreamWriter(outStream, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            streamWriter = new OutputStreamWriter(outStream);
+            encodingName = streamWriter.getEncoding();
+        }
+        BufferedWriter writer = new BufferedWriter(streamWriter);
+        try {
+            writer.write("<?xml version='1.0' encoding='");
+            writer.write(encodingName);
+            writer.write("'?>\n");
+            writer.write("<dependencies>\n");
+            StringBuilder buf = new StringBuilder();
+            for (Map.Entry<String, Vector<DependencyInfo>> entry : includePaths.entrySet()) {
+                writeIncludePathDependencies(entry.getKey(), entry.getValue(), writer, buf);
+            }
+            writer.write("</dependencies>\n");
+        } finally {
+            writer.close();
+        }
+    }
+
     /**
      * This method returns a DependencyInfo for the specific source file and
      * include path identifier
@@ -360,38 +492,242 @@ public final class DependencyTable {
                 }
             }
         }
+        //
+        //   decode from the mapped store on first request,
+        //       only then check that the source is unchanged
+        //
+        if (store != null) {
+            DependencyInfo dependInfo = store.get(sourceRelativeName, includePathIdentifier);
+            if (dependInfo != null && isCurrent(dependInfo)) {
+                addDependencyInfo(sourceRelativeName, dependInfo);
+                return dependInfo;
+            }
+        }
         return null;
     }
 
-    private Vector<String> getIncludePaths() {
-        Vector<String> includePaths = new Vector<String>();
-        for (Map.Entry<String, DependencyInfo[]> dependInfos: dependencies.entrySet()) {
-            for (DependencyInfo dependInfo : dependInfos.getValue()) {
-                boolean matchesExisting = false;
-                final String dependIncludePath = dependInfo.getIncludePathIdentifier();
-                for (String includePath : includePaths) {
-                    if (dependIncludePath.equals(includePath)) {
-                        matchesExisting = true;
-                        break;
-                    }
+    /**
+     * Gets the files whose recorded dependency information lists
+     * the specified file as an include.
+     *
+     * @param includeRelativeName file name relative to the base directory
+     * @return relative names of the including files, empty if none
+     */
+    public String[] getDependents(String includeRelativeName) {
+        return getDependentSet(includeRelativeName).toArray(new String[0]);
+    }
+
+    /**
+     * Gets the changed files and every file that includes one of them,
+     * directly or through other includes.  Only the recorded dependency
+     * information is consulted, no file is parsed.
+     *
+     * @param changedFiles changed files
+     * @return relative names of the changed and affected files
+     */
+    public String[] getAffectedSources(File[] changedFiles) {
+        Set<String> affected = new LinkedHashSet<String>();
+        Vector<String> pending = new Vector<String>();
+        for (File changedFile : changedFiles) {
+            String relative = getRelativePath(baseDirPath, changedFile);
+            if (affected.add(relative)) {
+                pending.addElement(relative);
+            }
+        }
+        while (!pending.isEmpty()) {
+            for (String dependent : getDependentSet(pending.remove(pending.size() - 1))) {
+                if (affected.add(dependent)) {
+                    pending.addElement(dependent);
                 }
-                if (!matchesExisting) {
-                    includePaths.addElement(dependIncludePath);
+            }
+        }
+        return affected.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the names of all files recorded as includes.
+     *
+     * @return relative names of included files
+     */
+    public String[] getIncludedFiles() {
+        Set<String> includes = new LinkedHashSet<String>(getReverseIndex().keySet());
+        if (store != null) {
+            for (String include : store.getIncludedFiles()) {
+                if (!includes.contains(include) && !getDependentSet(include).isEmpty()) {
+                    includes.add(include);
+                }
+            }
+        }
+        return includes.toArray(new String[0]);
+    }
+
+    /**
+     * Discards the dependency information of changed files and all
+     * memoized composite times, so they are determined again when
+     * next needed.
+     *
+     * @param changedFiles changed files
+     */
+    public void invalidate(File[] changedFiles) {
+        for (File changedFile : changedFiles) {
+            dependencies.remove(getRelativePath(baseDirPath, changedFile));
+        }
+        resetCompositeLastModified();
+    }
+
+    /**
+     * Discards the dependency information of sources that were modified
+     * or deleted since it was recorded and all memoized composite times.
+     * Used when a loaded table is kept for a later build.
+     */
+    public void revalidate() {
+        Vector<String> stale = new Vector<String>();
+        for (Map.Entry<String, DependencyInfo[]> entry : dependencies.entrySet()) {
+            for (DependencyInfo dependInfo : entry.getValue()) {
+                if (!isCurrent(dependInfo)) {
+                    stale.addElement(entry.getKey());
+                    break;
                 }
             }
         }
-        return includePaths;
+        for (String source : stale) {
+            dependencies.remove(source);
+        }
+        resetCompositeLastModified();
+    }
+
+    private void resetCompositeLastModified() {
+        for (DependencyInfo[] dependInfos : dependencies.values()) {
+            for (DependencyInfo dependInfo : dependInfos) {
+                dependInfo.setCompositeLastModified(Long.MIN_VALUE);
+            }
+        }
+        reverseIndex = null;
+    }
+
+    /**
+     * Reads dependency information in the XML format used by
+     * earlier versions.  Entries for sources that no longer exist
+     * or have been modified are discarded.
+     *
+     * @param xmlFile file to read
+     * @throws IOException if unable to read file
+     * @throws ParserConfigurationException if unable to create parser
+     * @throws SAXException if file is not well-formed
+     */
+    public void importXml(File xmlFile) throws IOException, ParserConfigurationException,
+            SAXException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setValidating(false);
+        SAXParser parser = factory.newSAXParser();
+        parser.parse(xmlFile, new DependencyTableHandler(this, baseDir));
+    }
+
+    /**
+     * Records the dependencies reported by the compiler in a make-style
+     * dependency file.  The source will not be parsed on subsequent builds
+     * and only the time stamps of the listed files will be checked.
+     *
+     * @param compiler   compiler configuration used for the source
+     * @param source     compiled source file
+     * @param dependFile dependency file written by the compiler
+     * @return true if the dependency file could be read
+     */
+    public boolean ingestDependencyFile(CompilerConfiguration compiler, File source,
+                                        File dependFile) {
+        MakeDependParser parser = new MakeDependParser();
+        try {
+            Reader reader = new BufferedReader(new FileReader(dependFile));
+            try {
+                parser.parse(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+        if (parser.getPrerequisites().length == 0) {
+            return false;
+        }
+        File parentDir = dependFile.getParentFile();
+        Vector<String> includes = new Vector<String>();
+        for (String include : parser.getIncludes()) {
+            File includeFile = new File(include);
+            if (!includeFile.isAbsolute()) {
+                includeFile = new File(parentDir, include);
+            }
+            includes.addElement(getRelativePath(baseDirPath, includeFile));
+        }
+        String relativeSource = getRelativePath(baseDirPath, source);
+        long sourceLastModified = FileSnapshot.lastModified(source);
+        //
+        //   the dependency file does not name modules,
+        //      keep those found when the source was parsed
+        //
+        String[] modules = null;
+        String[] uses = null;
+        DependencyInfo parsed = getDependencyInfo(relativeSource, compiler.getIncludePathIdentifier());
+        if (parsed != null
+                && !isSignificantlyBefore(parsed.getSourceLastModified(), sourceLastModified)) {
+            modules = parsed.getModules();
+            uses = parsed.getUses();
+        }
+        DependencyInfo dependInfo = new DependencyInfo(compiler.getIncludePathIdentifier(),
+                relativeSource, sourceLastModified, includes, new Vector<String>(), true,
+                modules, uses);
+        putDependencyInfo(relativeSource, dependInfo);
+        return true;
     }
 
     public void load() throws IOException, ParserConfigurationException,
             SAXException {
         dependencies.clear();
-        if (dependenciesFile.exists()) {
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            factory.setValidating(false);
-            SAXParser parser = factory.newSAXParser();
-            parser.parse(dependenciesFile, new DependencyTableHandler(this, baseDir));
-            dirty = false;
+        changed.clear();
+        closeStore();
+        reverseIndex = null;
+        dirty = false;
+        compact = true;
+        //
+        //   a store written by an earlier commit that could not be
+        //      renamed at the time replaces the current one
+        //
+        File pendingFile = getPendingFile();
+        if (pendingFile.exists()) {
+            if ((dependenciesLogFile.exists() && !dependenciesLogFile.delete())
+                    || !replace(pendingFile, dependenciesFile)) {
+                dirty = true;
+            }
+        }
+        //
+        //   dependencies.xml is only used if there is no binary file
+        //      or it was written by an earlier version after the
+        //      binary file
+        //
+        if (dependenciesFile.exists()
+                && (!dependenciesXmlFile.exists()
+                || dependenciesXmlFile.lastModified() <= dependenciesFile.lastModified())) {
+            try {
+                store = new DependencyStore(dependenciesFile);
+                compact = false;
+                if (dependenciesLogFile.exists()) {
+                    replayLog();
+                }
+                return;
+            } catch (IOException ex) {
+                //
+                //   unreadable or from a different version,
+                //      rewrite on next commit
+                dirty = true;
+                if (!dependenciesXmlFile.exists()) {
+                    throw ex;
+                }
+            }
+        }
+        if (dependenciesXmlFile.exists()) {
+            importXml(dependenciesXmlFile);
+            //
+            //   force binary file to be written
+            dirty = true;
         }
     }
 
@@ -417,22 +753,23 @@ public final class DependencyTable {
         CompilerConfiguration compiler = (CompilerConfiguration) target.getConfiguration();
         String includePathIdentifier = compiler.getIncludePathIdentifier();
         File[] sources = target.getSources();
-        DependencyInfo[] dependInfos = new DependencyInfo[sources.length];
-        long outputLastModified = target.getOutput().lastModified();
         //
-        //   try to solve problem using existing dependency info
-        //      (not parsing any new files)
+        //   an output found unchanged by restat is as recent
+        //      as the last time it was built
+        //
+        long outputLastModified = Math.max(FileSnapshot.lastModified(target.getOutput()),
+                target.getVerifiedLastModified());
+        //
+        //   a limited depth walks the include tree as far as requested,
+        //      otherwise composite times are computed once for the
+        //      whole include graph and shared between targets
         //
-        DependencyInfo[] stack = new DependencyInfo[50];
-        boolean rebuildOnStackExhaustion = true;
+        DependencyInfo[] stack = null;
+        TimestampChecker checker = null;
         if (dependencyDepth >= 0) {
-            if (dependencyDepth < 50) {
-                stack = new DependencyInfo[dependencyDepth];
-            }
-            rebuildOnStackExhaustion = false;
+            stack = new DependencyInfo[Math.min(dependencyDepth, 50)];
+            checker = new TimestampChecker(outputLastModified, false);
         }
-        TimestampChecker checker = new TimestampChecker(outputLastModified,
-                rebuildOnStackExhaustion);
         for (File source : sources) {
             String relative = getRelativePath(baseDirPath, source);
             DependencyInfo dependInfo = getDependencyInfo(relative, includePathIdentifier);
@@ -440,14 +777,294 @@ public final class DependencyTable {
                 task.log("Parsing " + relative, Project.MSG_VERBOSE);
                 dependInfo = parseIncludes(task, compiler, source);
             }
-            walkDependencies(task, dependInfo, compiler, stack, checker);
-            if (checker.getMustRebuild()) {
-                return true;
+            //
+            //   a module file rewritten since the output was built
+            //
+            for (String use : dependInfo.getUses()) {
+                File moduleFile = new File(baseDir, FortranParser.getModuleFileName(use));
+                if (isSignificantlyAfter(FileSnapshot.lastModified(moduleFile), outputLastModified)) {
+                    return true;
+                }
+            }
+            //
+            //   the compiler reported every file that was read,
+            //      only need to check their time stamps
+            //
+            if (dependInfo.isCompilerGenerated()) {
+                if (isGeneratedOutOfDate(dependInfo, outputLastModified)) {
+                    return true;
+                }
+                continue;
+            }
+            if (checker == null) {
+                if (isSignificantlyAfter(getCompositeLastModified(task, compiler, dependInfo),
+                        outputLastModified)) {
+                    return true;
+                }
+            } else {
+                walkDependencies(task, dependInfo, compiler, stack, checker);
+                if (checker.getMustRebuild()) {
+                    return true;
+                }
             }
         }
         return false;
     }
 
+    /**
+     * Position of a file in the traversal of the include graph.
+     */
+    private static final class GraphNode {
+        private final DependencyInfo dependInfo;
+        private final int index;
+        private int lowLink;
+        private boolean onStack;
+        private DependencyInfo[] children;
+        private int nextChild;
+        /**
+         * Latest time of the file and the components reached so far.
+         */
+        private long compositeLastModified;
+
+        private GraphNode(DependencyInfo dependInfo, int index) {
+            this.dependInfo = dependInfo;
+            this.index = index;
+            this.lowLink = index;
+            this.onStack = true;
+        }
+    }
+
+    /**
+     * <p>
+     * Gets the latest modification time of a file and everything it
+     * includes, directly or indirectly.
+     * </p>
+     * <p>
+     * The include graph is traversed iteratively and its strongly connected
+     * components (files that include each other) are identified with
+     * Tarjan's algorithm.  All files of a component share one composite
+     * time, which is memoized in the DependencyInfo so later targets
+     * that include the same headers do not traverse them again.
+     * Missing dependency information is parsed as it is reached.
+     * </p>
+     *
+     * @param task       task for logging
+     * @param compiler   compiler configuration
+     * @param dependInfo dependency info of the file
+     * @return composite last modified time
+     */
+    private long getCompositeLastModified(CCTask task, CompilerConfiguration compiler,
+                                          DependencyInfo dependInfo) {
+        if (dependInfo.getCompositeLastModified() != Long.MIN_VALUE) {
+            return dependInfo.getCompositeLastModified();
+        }
+        Map<DependencyInfo, GraphNode> nodes = new IdentityHashMap<DependencyInfo, GraphNode>();
+        Vector<GraphNode> componentStack = new Vector<GraphNode>();
+        Vector<GraphNode> path = new Vector<GraphNode>();
+        path.addElement(enterNode(task, compiler, dependInfo, nodes, componentStack));
+        while (!path.isEmpty()) {
+            GraphNode node = path.lastElement();
+            if (node.nextChild < node.children.length) {
+                DependencyInfo child = node.children[node.nextChild++];
+                long childCompositeLastModified = child.getCompositeLastModified();
+                if (childCompositeLastModified != Long.MIN_VALUE) {
+                    //
+                    //   completed earlier, in this or a previous traversal
+                    //
+                    if (childCompositeLastModified > node.compositeLastModified) {
+                        node.compositeLastModified = childCompositeLastModified;
+                    }
+                    continue;
+                }
+                GraphNode childNode = nodes.get(child);
+                if (childNode == null) {
+                    path.addElement(enterNode(task, compiler, child, nodes, componentStack));
+                } else if (childNode.onStack && childNode.index < node.lowLink) {
+                    node.lowLink = childNode.index;
+                }
+                continue;
+            }
+            path.removeElementAt(path.size() - 1);
+            if (node.lowLink == node.index) {
+                //
+                //   root of a component, every file on the stack above it
+                //      is a member and has contributed to its time
+                //
+                GraphNode member;
+                do {
+                    member = componentStack.remove(componentStack.size() - 1);
+                    member.onStack = false;
+                    member.dependInfo.setCompositeLastModified(node.compositeLastModified);
+                } while (member != node);
+            }
+            if (!path.isEmpty()) {
+                GraphNode parent = path.lastElement();
+                if (node.lowLink < parent.lowLink) {
+                    parent.lowLink = node.lowLink;
+                }
+                if (node.compositeLastModified > parent.compositeLastModified) {
+                    parent.compositeLastModified = node.compositeLastModified;
+                }
+            }
+        }
+        return dependInfo.getCompositeLastModified();
+    }
+
+    /**
+     * Creates the traversal state for a newly reached file and locates
+     * the dependency info of its includes, parsing them if necessary.
+     *
+     * @param task           task for logging
+     * @param compiler       compiler configuration
+     * @param dependInfo     dependency info of the file
+     * @param nodes          traversal state by dependency info
+     * @param componentStack files of incomplete components
+     * @return traversal state
+     */
+    private GraphNode enterNode(CCTask task, CompilerConfiguration compiler,
+                                DependencyInfo dependInfo, Map<DependencyInfo, GraphNode> nodes,
+                                Vector<GraphNode> componentStack) {
+        GraphNode node = new GraphNode(dependInfo, nodes.size());
+        nodes.put(dependInfo, node);
+        componentStack.addElement(node);
+        if (dependInfo.isCompilerGenerated()) {
+            //
+            //   the compiler reported every file read,
+            //       no need to look further
+            //
+            node.children = new DependencyInfo[0];
+            node.compositeLastModified = getGeneratedLastModified(dependInfo);
+            return node;
+        }
+        node.compositeLastModified = dependInfo.getSourceLastModified();
+        node.children = getIncludeInfos(task, compiler, dependInfo);
+        return node;
+    }
+
+    /**
+     * Locates the dependency info of the includes of a file,
+     * parsing them if necessary.
+     *
+     * @param task       task for logging
+     * @param compiler   compiler configuration
+     * @param dependInfo dependency info of the file
+     * @return dependency info of each include
+     */
+    private DependencyInfo[] getIncludeInfos(CCTask task, CompilerConfiguration compiler,
+                                             DependencyInfo dependInfo) {
+        String[] includes = dependInfo.getIncludes();
+        String includePathIdentifier = compiler.getIncludePathIdentifier();
+        DependencyInfo[] includeInfos = new DependencyInfo[includes.length];
+        for (int i = 0; i < includes.length; i++) {
+            DependencyInfo includeInfo = getDependencyInfo(includes[i], includePathIdentifier);
+            if (includeInfo == null) {
+                task.log("Parsing " + includes[i], Project.MSG_VERBOSE);
+                //
+                //   If the include filepath is relative
+                //      then anchor it the base directory
+                File src = new File(includes[i]);
+                if (!src.isAbsolute()) {
+                    src = new File(baseDir, includes[i]);
+                }
+                includeInfo = parseIncludes(task, compiler, src);
+            }
+            includeInfos[i] = includeInfo;
+        }
+        return includeInfos;
+    }
+
+    /**
+     * <p>
+     * Computes a digest over the contents of the sources of a target
+     * and all of their includes.
+     * </p>
+     * <p>
+     * Includes are determined from the recorded dependency information,
+     * missing or outdated entries are parsed.  The include graph is
+     * traversed with a work list, so its depth is not limited.
+     * </p>
+     *
+     * @param task    task for logging
+     * @param target  target
+     * @param digests digest cache
+     * @return hexadecimal digest, null if a file could not be read
+     */
+    public String getInputDigest(CCTask task, TargetInfo target, FileDigestCache digests) {
+        CompilerConfiguration compiler = (CompilerConfiguration) target.getConfiguration();
+        String includePathIdentifier = compiler.getIncludePathIdentifier();
+        Set<String> visited = new HashSet<String>();
+        Vector<DependencyInfo> pending = new Vector<DependencyInfo>();
+        for (File source : target.getSources()) {
+            String relative = getRelativePath(baseDirPath, source);
+            DependencyInfo dependInfo = getDependencyInfo(relative, includePathIdentifier);
+            if (dependInfo == null) {
+                task.log("Parsing " + relative, Project.MSG_VERBOSE);
+                dependInfo = parseIncludes(task, compiler, source);
+            }
+            pending.addElement(dependInfo);
+        }
+        while (!pending.isEmpty()) {
+            DependencyInfo dependInfo = pending.remove(pending.size() - 1);
+            if (!visited.add(dependInfo.getSource())) {
+                continue;
+            }
+            //
+            //   the compiler already reported every file read
+            //
+            if (dependInfo.isCompilerGenerated()) {
+                visited.addAll(Arrays.asList(dependInfo.getIncludes()));
+                continue;
+            }
+            pending.addAll(Arrays.asList(getIncludeInfos(task, compiler, dependInfo)));
+        }
+        //
+        //   sorted so the digest does not depend on traversal order
+        //
+        String[] files = visited.toArray(new String[0]);
+        Arrays.sort(files);
+        MessageDigest messageDigest = FileDigestCache.createMessageDigest();
+        try {
+            for (String file : files) {
+                File inputFile = new File(file);
+                if (!inputFile.isAbsolute()) {
+                    inputFile = new File(baseDir, file);
+                }
+                String digest = digests.getDigest(inputFile);
+                messageDigest.update(file.getBytes("UTF-8"));
+                messageDigest.update((byte) 0);
+                if (digest != null) {
+                    messageDigest.update(digest.getBytes("UTF-8"));
+                }
+                messageDigest.update((byte) '\n');
+            }
+        } catch (IOException ex) {
+            task.log("Unable to compute digest: " + ex.toString(), Project.MSG_VERBOSE);
+            return null;
+        }
+        return FileDigestCache.toHex(messageDigest.digest());
+    }
+
+    /**
+     * Gets the dependency information for a source, parsing the
+     * source if there is no current information.
+     *
+     * @param task     task for any diagnostic output
+     * @param compiler compiler configuration used for the source
+     * @param source   source file
+     * @return DependencyInfo
+     */
+    public DependencyInfo getDependencyInfo(CCTask task, CompilerConfiguration compiler,
+                                            File source) {
+        String relative = getRelativePath(baseDirPath, source);
+        DependencyInfo dependInfo = getDependencyInfo(relative,
+                compiler.getIncludePathIdentifier());
+        if (dependInfo == null) {
+            task.log("Parsing " + relative, Project.MSG_VERBOSE);
+            dependInfo = parseIncludes(task, compiler, source);
+        }
+        return dependInfo;
+    }
+
     public DependencyInfo parseIncludes(CCTask task,
                                         CompilerConfiguration compiler, File source) {
         DependencyInfo dependInfo = compiler.parseIncludes(task, baseDir, source);
@@ -457,11 +1074,17 @@ public final class DependencyTable {
     }
 
     private void putDependencyInfo(String key, DependencyInfo dependInfo) {
+        addDependencyInfo(key, dependInfo);
+        changed.put(dependInfo.getIncludePathIdentifier() + '\n' + key, dependInfo);
+        dirty = true;
+    }
+
+    private void addDependencyInfo(String key, DependencyInfo dependInfo) {
+        reverseIndex = null;
         //
         //   optimistic, add new value
         //
         DependencyInfo[] old = dependencies.put(key, new DependencyInfo[]{dependInfo});
-        dirty = true;
         //
         //   something was already there
         //
@@ -488,6 +1111,248 @@ public final class DependencyTable {
         }
     }
 
+    private Vector<DependencyInfo> allDependencyInfos() {
+        Vector<DependencyInfo> all = new Vector<DependencyInfo>(dependencies.size());
+        for (DependencyInfo[] dependInfos : dependencies.values()) {
+            for (DependencyInfo dependInfo : dependInfos) {
+                all.addElement(dependInfo);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Determines if the source or any file reported by the
+     * compiler is missing or newer than the output.
+     *
+     * @param dependInfo         compiler generated dependency info
+     * @param outputLastModified time stamp of output
+     * @return true if output needs to be rebuilt
+     */
+    private boolean isGeneratedOutOfDate(DependencyInfo dependInfo, long outputLastModified) {
+        return isSignificantlyAfter(getGeneratedLastModified(dependInfo), outputLastModified);
+    }
+
+    /**
+     * Gets the latest modification time of the source and the files
+     * reported by the compiler.
+     *
+     * @param dependInfo compiler generated dependency info
+     * @return latest time, Long.MAX_VALUE if a reported file is missing
+     */
+    private long getGeneratedLastModified(DependencyInfo dependInfo) {
+        long lastModified = dependInfo.getSourceLastModified();
+        for (String include : dependInfo.getIncludes()) {
+            File includeFile = new File(include);
+            if (!includeFile.isAbsolute()) {
+                includeFile = new File(baseDir, include);
+            }
+            long includeLastModified = FileSnapshot.lastModified(includeFile);
+            if (includeLastModified == 0) {
+                return Long.MAX_VALUE;
+            }
+            if (includeLastModified > lastModified) {
+                lastModified = includeLastModified;
+            }
+        }
+        return lastModified;
+    }
+
+    /**
+     * Determines if the source file exists and has the
+     * time stamp recorded in the dependency info.
+     *
+     * @param dependInfo dependency info
+     * @return true if recorded information is still valid
+     */
+    private boolean isCurrent(DependencyInfo dependInfo) {
+        File existingFile = new File(dependInfo.getSource());
+        if (!existingFile.isAbsolute()) {
+            existingFile = new File(baseDir, dependInfo.getSource());
+        }
+        //
+        //   would have expected exact matches
+        //       but was seeing some unexpected difference by
+        //       a few tens of milliseconds, as long
+        //       as the times are within a second
+        long existingLastModified = FileSnapshot.lastModified(existingFile);
+        return existingLastModified != 0
+                && !isSignificantlyAfter(existingLastModified, dependInfo.getSourceLastModified())
+                && !isSignificantlyBefore(existingLastModified, dependInfo.getSourceLastModified());
+    }
+
+    /**
+     * Determines if an entry for the same source and include path
+     * identifier has already been decoded or replaced.
+     *
+     * @param dependInfo dependency info from the mapped store
+     * @return true if an entry is present in memory
+     */
+    private boolean isLoaded(DependencyInfo dependInfo) {
+        return isLoaded(dependInfo.getSource(), dependInfo.getIncludePathIdentifier());
+    }
+
+    private boolean isLoaded(String source, String includePathIdentifier) {
+        DependencyInfo[] dependInfos = dependencies.get(source);
+        if (dependInfos != null) {
+            for (DependencyInfo existing : dependInfos) {
+                if (existing.getIncludePathIdentifier().equals(includePathIdentifier)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the files that directly include a file.  Entries in memory
+     * take precedence over those of the mapped store, which are found
+     * through its reverse index without decoding any record.  Entries
+     * are not validated against the file system.
+     *
+     * @param includeRelativeName included file name relative to the base directory
+     * @return relative names of the including files
+     */
+    private Set<String> getDependentSet(String includeRelativeName) {
+        Set<String> dependents = new LinkedHashSet<String>();
+        if (store != null) {
+            for (int entry : store.getDependents(includeRelativeName)) {
+                String source = store.getSource(entry);
+                if (!isLoaded(source, store.getIncludePathIdentifier(entry))) {
+                    dependents.add(source);
+                }
+            }
+        }
+        Set<String> loaded = getReverseIndex().get(includeRelativeName);
+        if (loaded != null) {
+            dependents.addAll(loaded);
+        }
+        return dependents;
+    }
+
+    /**
+     * Gets the reverse index of the entries in memory.
+     *
+     * @return relative names of including files keyed by included file
+     */
+    private Hashtable<String, Set<String>> getReverseIndex() {
+        if (reverseIndex == null) {
+            Hashtable<String, Set<String>> index = new Hashtable<String, Set<String>>();
+            for (DependencyInfo dependInfo : allDependencyInfos()) {
+                addReverseEntries(index, dependInfo);
+            }
+            reverseIndex = index;
+        }
+        return reverseIndex;
+    }
+
+    private static void addReverseEntries(Hashtable<String, Set<String>> index,
+                                          DependencyInfo dependInfo) {
+        String source = dependInfo.getSource();
+        for (String include : dependInfo.getIncludes()) {
+            addReverseEntry(index, include, source);
+        }
+        for (String include : dependInfo.getSysIncludes()) {
+            addReverseEntry(index, include, source);
+        }
+    }
+
+    private static void addReverseEntry(Hashtable<String, Set<String>> index,
+                                        String include, String source) {
+        Set<String> dependents = index.get(include);
+        if (dependents == null) {
+            dependents = new LinkedHashSet<String>();
+            index.put(include, dependents);
+        }
+        dependents.add(source);
+    }
+
+    /**
+     * Decodes all remaining entries of the mapped store
+     * and releases the store.
+     */
+    private void loadAll() {
+        if (store != null) {
+            for (DependencyInfo dependInfo : store.getAll()) {
+                //
+                //  entries already decoded or replaced take precedence
+                //
+                if (!isLoaded(dependInfo) && isCurrent(dependInfo)) {
+                    addDependencyInfo(dependInfo.getSource(), dependInfo);
+                }
+            }
+            closeStore();
+        }
+    }
+
+    /**
+     * Releases the mapped store.
+     */
+    private void closeStore() {
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+    }
+
+    /**
+     * Gets the file a new store is written to before it replaces
+     * dependencies.bin.
+     *
+     * @return temporary store file
+     */
+    private File getPendingFile() {
+        return new File(baseDir, "dependencies.bin.tmp");
+    }
+
+    /**
+     * Applies the records of dependencies.log to the loaded store.
+     */
+    private void replayLog() {
+        Vector<DependencyInfo> logged = new Vector<DependencyInfo>();
+        try {
+            if (!DependencyStore.readLog(dependenciesLogFile, logged)) {
+                //
+                //   partial record at end of log,
+                //      rewrite on next commit
+                compact = true;
+                dirty = true;
+            }
+        } catch (IOException ex) {
+            compact = true;
+            dirty = true;
+        }
+        //
+        //   later records replace earlier ones
+        //
+        Map<String, DependencyInfo> latest = new LinkedHashMap<String, DependencyInfo>();
+        for (DependencyInfo dependInfo : logged) {
+            latest.put(dependInfo.getIncludePathIdentifier() + '\n' + dependInfo.getSource(), dependInfo);
+        }
+        for (DependencyInfo dependInfo : latest.values()) {
+            if (isCurrent(dependInfo)) {
+                addDependencyInfo(dependInfo.getSource(), dependInfo);
+            }
+        }
+    }
+
+    /**
+     * Replaces the destination file by the source file.
+     *
+     * @param source newly written file
+     * @param dest   file to be replaced
+     * @return true if successful
+     */
+    private static boolean replace(File source, File dest) {
+        if (source.renameTo(dest)) {
+            return true;
+        }
+        //
+        //   some platforms will not rename over an existing file
+        //
+        return dest.delete() && source.renameTo(dest);
+    }
+
     public void walkDependencies(CCTask task, DependencyInfo dependInfo,
                                  CompilerConfiguration compiler, DependencyInfo[] stack,
                                  DependencyVisitor visitor) throws BuildException {
@@ -580,6 +1445,9 @@ public final class DependencyTable {
         buf.append(xmlAttribEncode(dependInfo.getSource()));
         buf.append("\" lastModified=\"");
         buf.append(Long.toHexString(dependInfo.getSourceLastModified()));
+        if (dependInfo.isCompilerGenerated()) {
+            buf.append("\" generated=\"true");
+        }
         buf.append("\">\n");
         writer.write(buf.toString());
         for (String include : includes) {
@@ -596,10 +1464,25 @@ public final class DependencyTable {
             buf.append("\"/>\n");
             writer.write(buf.toString());
         }
+        for (String module : dependInfo.getModules()) {
+            buf.setLength(0);
+            buf.append("         <module name=\"");
+            buf.append(xmlAttribEncode(module));
+            buf.append("\"/>\n");
+            writer.write(buf.toString());
+        }
+        for (String use : dependInfo.getUses()) {
+            buf.setLength(0);
+            buf.append("         <use name=\"");
+            buf.append(xmlAttribEncode(use));
+            buf.append("\"/>\n");
+            writer.write(buf.toString());
+        }
         writer.write("      </source>\n");
     }
 
     private void writeIncludePathDependencies(String includePathIdentifier,
+                                              Vector<DependencyInfo> dependInfos,
                                               BufferedWriter writer, StringBuilder buf) throws IOException {
         //
         //  include path element
@@ -609,15 +1492,8 @@ public final class DependencyTable {
         buf.append(xmlAttribEncode(includePathIdentifier));
         buf.append("\">\n");
         writer.write(buf.toString());
-        for (Map.Entry<String, DependencyInfo[]> entry : dependencies.entrySet()) {
-            for (DependencyInfo dependInfo : entry.getValue()) {
-                //
-                //   if this is for the same include path
-                //      then output the info
-                if (dependInfo.getIncludePathIdentifier().equals(includePathIdentifier)) {
-                    writeDependencyInfo(writer, buf, dependInfo);
-                }
-            }
+        for (DependencyInfo dependInfo : dependInfos) {
+            writeDependencyInfo(writer, buf, dependInfo);
         }
         writer.write("   </includePath>\n");
     }
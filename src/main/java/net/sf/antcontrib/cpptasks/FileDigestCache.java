@@ -0,0 +1,245 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Hashtable;
+import java.util.Map;
+
+/**
+ * <p>
+ * Cache of content digests keyed by file path.
+ * </p>
+ * <p>
+ * A digest is reused as long as the size and modification time of the
+ * file are unchanged, so a file is only read when its stat information
+ * differs from the time it was hashed.  Files modified within the
+ * timestamp resolution of the time they were hashed are not cached since a
+ * later change could go unnoticed.
+ * </p>
+ */
+public final class FileDigestCache {
+    /**
+     * Identifies the file as a digest cache ("CPTH").
+     */
+    private static final int MAGIC = 0x43505448;
+
+    /**
+     * Format version, files with any other version are ignored.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Digest algorithm, only used to detect changes.
+     */
+    private static final String ALGORITHM = "MD5";
+
+    /**
+     * Modification times closer than this to the time of hashing
+     * are not trusted.
+     */
+    private static final long RACY_INTERVAL = 2000;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Stat information and digest of a file.
+     */
+    private static final class Entry {
+        private final long length;
+        private final long lastModified;
+        private final String digest;
+
+        private Entry(long length, long lastModified, String digest) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+    }
+
+    private final File cacheFile;
+    private final Hashtable<String, Entry> entries = new Hashtable<String, Entry>();
+    private boolean dirty;
+
+    /**
+     * Creates an empty cache persisted in the specified file.
+     *
+     * @param cacheFile file used by load and commit
+     */
+    public FileDigestCache(File cacheFile) {
+        if (cacheFile == null) {
+            throw new NullPointerException("cacheFile");
+        }
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Reads the cache file if it exists.  A damaged file
+     * or one of a different version is ignored.
+     */
+    public void load() {
+        entries.clear();
+        dirty = false;
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(cacheFile)));
+            try {
+                if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                    dirty = true;
+                    return;
+                }
+                int count = input.readInt();
+                for (int i = 0; i < count; i++) {
+                    String path = input.readUTF();
+                    long length = input.readLong();
+                    long lastModified = input.readLong();
+                    String digest = input.readUTF();
+                    entries.put(path, new Entry(length, lastModified, digest));
+                }
+            } finally {
+                input.close();
+            }
+        } catch (IOException ex) {
+            entries.clear();
+            dirty = true;
+        }
+    }
+
+    /**
+     * Writes the cache file if any digest was added or replaced.
+     *
+     * @throws IOException if unable to write file
+     */
+    public void commit() throws IOException {
+        if (dirty) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(cacheFile)));
+            try {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    output.writeLong(entry.getValue().length);
+                    output.writeLong(entry.getValue().lastModified);
+                    output.writeUTF(entry.getValue().digest);
+                }
+            } finally {
+                output.close();
+            }
+            dirty = false;
+        }
+    }
+
+    /**
+     * Gets the digest of the contents of a file, reading the file
+     * only if it has changed since it was last hashed.
+     *
+     * @param file file
+     * @return hexadecimal digest, null if the file does not exist
+     * @throws IOException if unable to read the file
+     */
+    public String getDigest(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        if (lastModified == 0 && !file.exists()) {
+            return null;
+        }
+        long length = file.length();
+        Entry entry = entries.get(path);
+        if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+            return entry.digest;
+        }
+        long now = System.currentTimeMillis();
+        String digest = computeDigest(file);
+        //
+        //   a file modified again within the same timestamp
+        //      could keep size and time, don't remember it
+        //
+        if (lastModified < now - RACY_INTERVAL) {
+            entries.put(path, new Entry(length, lastModified, digest));
+            dirty = true;
+        } else if (entry != null) {
+            entries.remove(path);
+            dirty = true;
+        }
+        return digest;
+    }
+
+    /**
+     * Creates a message digest using the algorithm used by the cache.
+     *
+     * @return message digest
+     */
+    public static MessageDigest createMessageDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ALGORITHM + " is not available", ex);
+        }
+    }
+
+    /**
+     * Formats a digest as hexadecimal.
+     *
+     * @param digest digest bytes
+     * @return hexadecimal string
+     */
+    public static String toHex(byte[] digest) {
+        char[] chars = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            chars[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+            chars[2 * i + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Computes the digest of a file without using the cache.
+     *
+     * @param file file
+     * @return digest in hexadecimal
+     * @throws IOException if unable to read the file
+     */
+    static String computeDigest(File file) throws IOException {
+        MessageDigest messageDigest = createMessageDigest();
+        byte[] buf = new byte[8192];
+        InputStream input = new FileInputStream(file);
+        try {
+            int count;
+            while ((count = input.read(buf)) > 0) {
+                messageDigest.update(buf, 0, count);
+            }
+        } finally {
+            input.close();
+        }
+        return toHex(messageDigest.digest());
+    }
+}
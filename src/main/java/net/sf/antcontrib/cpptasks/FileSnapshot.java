@@ -0,0 +1,214 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+
+import java.io.File;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * File system state recorded while a build decides what to compile.
+ * </p>
+ * <p>
+ * The filesets of a build are visited more than once and the same files
+ * are checked for existence and modification time by the target, history
+ * and dependency checks.  While a snapshot is active on the current thread
+ * each fileset is scanned only once and the time stamp of each file is
+ * read only once.  The snapshot must be ended before anything is compiled
+ * or linked, later checks see the file system again.
+ * </p>
+ * <p>
+ * With more than one thread the time stamps of the scanned files are read
+ * in parallel, which helps on network file systems.
+ * </p>
+ */
+final class FileSnapshot {
+    /**
+     * Files included by a fileset.
+     */
+    static final class Scan {
+        private final File baseDir;
+        private final String[] includedFiles;
+
+        private Scan(File baseDir, String[] includedFiles) {
+            this.baseDir = baseDir;
+            this.includedFiles = includedFiles;
+        }
+
+        File getBaseDir() {
+            return baseDir;
+        }
+
+        String[] getIncludedFiles() {
+            return includedFiles.clone();
+        }
+    }
+
+    private static final ThreadLocal<FileSnapshot> current = new ThreadLocal<FileSnapshot>();
+
+    private final Map<File, Long> lastModified = new ConcurrentHashMap<File, Long>();
+    private final Map<File, Boolean> existence = new ConcurrentHashMap<File, Boolean>();
+    private final Map<FileSet, Scan> scans = new IdentityHashMap<FileSet, Scan>();
+    private final int threads;
+
+    private FileSnapshot(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Starts a snapshot on the current thread, replacing any previous one.
+     *
+     * @param threads number of threads reading time stamps, at least 1
+     */
+    static void begin(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads");
+        }
+        current.set(new FileSnapshot(threads));
+    }
+
+    /**
+     * Ends the snapshot of the current thread if any.
+     */
+    static void end() {
+        current.remove();
+    }
+
+    /**
+     * Determines if a snapshot is active on the current thread.
+     *
+     * @return true if active
+     */
+    static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Determines if a file exists.
+     *
+     * @param file file
+     * @return true if the file exists
+     */
+    static boolean exists(File file) {
+        FileSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            return file.exists();
+        }
+        if (snapshot.stat(file) != 0) {
+            return true;
+        }
+        //
+        //   a time stamp of 0 is legal, but rare enough
+        //      to ask the file system separately
+        //
+        Boolean exists = snapshot.existence.get(file);
+        if (exists == null) {
+            exists = file.exists();
+            snapshot.existence.put(file, exists);
+        }
+        return exists;
+    }
+
+    /**
+     * Gets the modification time of a file.
+     *
+     * @param file file
+     * @return modification time, 0 if the file does not exist
+     */
+    static long lastModified(File file) {
+        FileSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            return file.lastModified();
+        }
+        return snapshot.stat(file);
+    }
+
+    /**
+     * Gets the files included by a fileset.
+     *
+     * @param fileSet fileset
+     * @param project project
+     * @return base directory and included files
+     */
+    static Scan scan(FileSet fileSet, Project project) {
+        FileSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            DirectoryScanner scanner = fileSet.getDirectoryScanner(project);
+            return new Scan(scanner.getBasedir(), scanner.getIncludedFiles());
+        }
+        Scan scan = snapshot.scans.get(fileSet);
+        if (scan == null) {
+            DirectoryScanner scanner = fileSet.getDirectoryScanner(project);
+            scan = new Scan(scanner.getBasedir(), scanner.getIncludedFiles());
+            snapshot.prefetch(scan);
+            snapshot.scans.put(fileSet, scan);
+        }
+        return scan;
+    }
+
+    private long stat(File file) {
+        Long time = lastModified.get(file);
+        if (time == null) {
+            time = file.lastModified();
+            lastModified.put(file, time);
+        }
+        return time;
+    }
+
+    /**
+     * Reads the time stamps of the scanned files.
+     *
+     * @param scan scanned files
+     */
+    private void prefetch(final Scan scan) {
+        final String[] names = scan.includedFiles;
+        if (threads < 2) {
+            return;
+        }
+        int count = Math.min(threads, names.length);
+        final AtomicInteger next = new AtomicInteger();
+        Runnable reader = new Runnable() {
+            public void run() {
+                for (int i = next.getAndIncrement(); i < names.length; i = next.getAndIncrement()) {
+                    File file = new File(scan.baseDir, names[i]);
+                    lastModified.put(file, file.lastModified());
+                }
+            }
+        };
+        Thread[] readers = new Thread[Math.max(count - 1, 0)];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(reader, "cpptasks-stat-" + i);
+            readers[i].setDaemon(true);
+            readers[i].start();
+        }
+        reader.run();
+        try {
+            for (Thread thread : readers) {
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
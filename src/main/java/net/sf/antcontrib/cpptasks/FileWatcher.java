@@ -0,0 +1,123 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import java.io.File;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * <p>
+ * Detects changes to a set of files by comparing their modification
+ * time and size with the values seen at the previous poll.
+ * </p>
+ * <p>
+ * Directories are watched for added or removed entries, which change
+ * the modification time of the directory.
+ * </p>
+ */
+final class FileWatcher {
+    /**
+     * Last modified time and length of watched files, keyed by file.
+     */
+    private final Hashtable<File, long[]> files = new Hashtable<File, long[]>();
+
+    /**
+     * Last modified time of watched directories, keyed by directory.
+     */
+    private final Hashtable<File, Long> directories = new Hashtable<File, Long>();
+
+    /**
+     * Set by poll if the content of any directory changed.
+     */
+    private boolean directoriesChanged;
+
+    FileWatcher() {
+    }
+
+    /**
+     * Starts watching a file, unless already watched.
+     *
+     * @param file file
+     */
+    void addFile(File file) {
+        if (!files.containsKey(file)) {
+            files.put(file, new long[]{file.lastModified(), file.length()});
+        }
+    }
+
+    /**
+     * Starts watching a directory for added or removed files,
+     * unless already watched.
+     *
+     * @param dir directory
+     */
+    void addDirectory(File dir) {
+        if (!directories.containsKey(dir)) {
+            directories.put(dir, dir.lastModified());
+        }
+    }
+
+    /**
+     * Indicates whether the last poll found a change in a directory.
+     *
+     * @return true if files were added or removed
+     */
+    boolean getDirectoriesChanged() {
+        return directoriesChanged;
+    }
+
+    /**
+     * Gets the number of watched files.
+     *
+     * @return number of files
+     */
+    int size() {
+        return files.size();
+    }
+
+    /**
+     * Gets the files that were modified, created or deleted since
+     * they were added or since the previous poll.
+     *
+     * @return changed files, empty if none
+     */
+    Vector<File> poll() {
+        Vector<File> changed = new Vector<File>();
+        for (Map.Entry<File, long[]> entry : files.entrySet()) {
+            File file = entry.getKey();
+            long[] stat = entry.getValue();
+            long lastModified = file.lastModified();
+            long length = file.length();
+            if (lastModified != stat[0] || length != stat[1]) {
+                stat[0] = lastModified;
+                stat[1] = length;
+                changed.addElement(file);
+            }
+        }
+        directoriesChanged = false;
+        for (Map.Entry<File, Long> entry : directories.entrySet()) {
+            long lastModified = entry.getKey().lastModified();
+            if (lastModified != entry.getValue()) {
+                entry.setValue(lastModified);
+                directoriesChanged = true;
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.types.EnumeratedAttribute;
+
+/**
+ * Enumeration of linkers selected by the GCC driver with -fuse-ld.
+ * <ul>
+ * <li>bfd - GNU ld</li>
+ * <li>gold - GNU gold</li>
+ * <li>lld - LLVM linker</li>
+ * <li>mold - mold linker</li>
+ * </ul>
+ */
+public final class FuseLdEnum extends EnumeratedAttribute {
+    /**
+     * Gets list of acceptable values.
+     *
+     * @return an array of String
+     * @see org.apache.tools.ant.types.EnumeratedAttribute#getValues()
+     */
+    public String[] getValues() {
+        return new String[]{"bfd", "gold", "lld", "mold"};
+    }
+}
@@ -19,6 +19,7 @@ package net.sf.antcontrib.cpptasks;
 import net.sf.antcontrib.cpptasks.compiler.CommandLineLinker;
 import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.compiler.Linker;
+import net.sf.antcontrib.cpptasks.compiler.LinkerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.Processor;
 import net.sf.antcontrib.cpptasks.gcc.GccLinker;
 import net.sf.antcontrib.cpptasks.types.FlexLong;
@@ -44,11 +45,18 @@ import java.util.Vector;
  */
 public class LinkerDef extends ProcessorDef {
     private long base;
+    private String buildId;
+    private Boolean dwp;
     private String entry;
     private Boolean fixed;
+    private FuseLdEnum fuseLd;
+    private Boolean gdbIndex;
     private Boolean incremental;
     private final Vector<LibrarySet> librarySets = new Vector<LibrarySet>();
     private Boolean map;
+    private int linkerThreads;
+    private int ltoCacheSize;
+    private int ltoJobs;
     private int stack;
     private final Vector<LibrarySet> sysLibrarySets = new Vector<LibrarySet>();
     /**
@@ -129,6 +137,31 @@ public class LinkerDef extends ProcessorDef {
         sysLibrarySets.addElement(libset);
     }
 
+    /**
+     * Creates a configuration for linking an output file.
+     *
+     * @param task           CCTask
+     * @param linkType       LinkType
+     * @param baseDef        reference to def from containing cc element, may be null
+     * @param targetPlatform TargetDef
+     * @param versionInfo    VersionInfo
+     * @param outputFile     output file, may be null
+     * @return configuration
+     */
+    public LinkerConfiguration createConfiguration(CCTask task, LinkType linkType,
+                                                   ProcessorDef baseDef,
+                                                   TargetDef targetPlatform,
+                                                   VersionInfo versionInfo,
+                                                   File outputFile) {
+        if (isReference()) {
+            return getRef().createConfiguration(task, linkType,
+                    baseDef, targetPlatform, versionInfo, outputFile);
+        }
+        Linker linker = (Linker) getProcessor(linkType);
+        return linker.createConfiguration(task, linkType,
+                getDefaultProviders(baseDef), this, targetPlatform, versionInfo, outputFile);
+    }
+
     public void execute() throws BuildException {
         throw new BuildException(CUtil.STANDARD_EXCUSE);
     }
@@ -243,6 +276,19 @@ public class LinkerDef extends ProcessorDef {
         return false;
     }
 
+    public boolean getDwp(LinkerDef[] defaultProviders, int index) {
+        if (isReference()) {
+            return getRef().getDwp(defaultProviders, index);
+        }
+        if (dwp != null) {
+            return dwp;
+        }
+        if (defaultProviders != null && index < defaultProviders.length) {
+            return defaultProviders[index].getDwp(defaultProviders, index + 1);
+        }
+        return false;
+    }
+
     public String getEntry(LinkerDef[] defaultProviders, int index) {
         if (isReference()) {
             return getRef().getEntry(defaultProviders, index);
@@ -256,6 +302,110 @@ public class LinkerDef extends ProcessorDef {
         return null;
     }
 
+    /**
+     * Gets the build ID style.
+     *
+     * @param defaultProviders an array of LinkerDef
+     * @param index            int
+     * @return style, null if not set
+     */
+    public String getBuildId(LinkerDef[] defaultProviders, int index) {
+        if (isReference()) {
+            return getRef().getBuildId(defaultProviders, index);
+        }
+        if (buildId != null) {
+            return buildId;
+        }
+        if (defaultProviders != null && index < defaultProviders.length) {
+            return defaultProviders[index].getBuildId(defaultProviders, index + 1);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the linker selected with -fuse-ld.
+     *
+     * @param defaultProviders an array of LinkerDef
+     * @param index            int
+     * @return linker name, null for the default linker
+     */
+    public String getFuseLd(LinkerDef[] defaultProviders, int index) {
+        if (isReference()) {
+            return getRef().getFuseLd(defaultProviders, index);
+        }
+        if (fuseLd != null) {
+            return fuseLd.getValue();
+        }
+        if (defaultProviders != null && index < defaultProviders.length) {
+            return defaultProviders[index].getFuseLd(defaultProviders, index + 1);
+        }
+        return null;
+    }
+
+    public boolean getGdbIndex(LinkerDef[] defaultProviders, int index) {
+        if (isReference()) {
+            return getRef().getGdbIndex(defaultProviders, index);
+        }
+        if (gdbIndex != null) {
+            return gdbIndex;
+        }
+        if (defaultProviders != null && index < defaultProviders.length) {
+            return defaultProviders[index].getGdbIndex(defaultProviders, index + 1);
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of threads used by the linker.
+     *
+     * @param defaultProviders an array of LinkerDef
+     * @param index            int
+     * @return thread count, 0 for the linker's default
+     */
+    public int getLinkerThreads(LinkerDef[] defaultProviders, int index) {
+        if (isReference()) {
+            return getRef().getLinkerThreads(defaultProviders, index);
+        }
+        if (linkerThreads <= 0 && defaultProviders != null && index < defaultProviders.length) {
+            return defaultProviders[index].getLinkerThreads(defaultProviders, index + 1);
+        }
+        return linkerThreads;
+    }
+
+    /**
+     * Gets the size limit of the link-time optimization cache.
+     *
+     * @param defaultProviders an array of LinkerDef
+     * @param index            int
+     * @return megabytes, 0 for the default
+     */
+    public int getLtoCacheSize(LinkerDef[] defaultProviders, int index) {
+        if (isReference()) {
+            return getRef().getLtoCacheSize(defaultProviders, index);
+        }
+        if (ltoCacheSize <= 0 && defaultProviders != null && index < defaultProviders.length) {
+            return defaultProviders[index].getLtoCacheSize(defaultProviders, index + 1);
+        }
+        return ltoCacheSize;
+    }
+
+    /**
+     * Gets the number of parallel link-time optimization jobs.
+     *
+     * @param defaultProviders an array of LinkerDef
+     * @param index            int
+     * @return job count, 0 to let the compiler decide
+     */
+    public int getLtoJobs(LinkerDef[] defaultProviders, int index) {
+        if (isReference()) {
+            return getRef().getLtoJobs(defaultProviders, index);
+        }
+        if (ltoJobs <= 0 && defaultProviders != null && index < defaultProviders.length) {
+            return defaultProviders[index].getLtoJobs(defaultProviders, index + 1);
+        }
+        return ltoJobs;
+    }
+
     public Processor getProcessor() {
         Linker linker = (Linker) super.getProcessor();
         if (linker == null) {
@@ -295,6 +445,34 @@ public class LinkerDef extends ProcessorDef {
         this.base = base.longValue();
     }
 
+    /**
+     * Sets the build ID written into the output by GNU-compatible linkers:
+     * "true" for the linker's default style or one of "fast", "md5",
+     * "sha1", "uuid", "none" or a hexadecimal string.
+     *
+     * @param buildId build ID style
+     */
+    public void setBuildId(String buildId) {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        this.buildId = buildId;
+    }
+
+    /**
+     * If true and debug information is split, the .dwo files of a linked
+     * program or library are packaged into a .dwp file next to it
+     * with the dwp tool.
+     *
+     * @param dwp boolean
+     */
+    public void setDwp(boolean dwp) {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        this.dwp = booleanValueOf(dwp);
+    }
+
     /**
      * Sets the starting address.
      *
@@ -319,6 +497,34 @@ public class LinkerDef extends ProcessorDef {
         this.fixed = booleanValueOf(fixed);
     }
 
+    /**
+     * Selects the linker used by the GCC driver: bfd, gold, lld or mold.
+     * Gold, lld and mold link in parallel and are considerably faster
+     * than the default linker for large programs.
+     *
+     * @param fuseLd linker name
+     */
+    public void setFuseLd(FuseLdEnum fuseLd) {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        this.fuseLd = fuseLd;
+    }
+
+    /**
+     * If true, the linker creates a .gdb_index section so that the
+     * debugger doesn't index the debug information on every start.
+     * Not supported by the bfd linker.
+     *
+     * @param gdbIndex boolean
+     */
+    public void setGdbIndex(boolean gdbIndex) {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        this.gdbIndex = booleanValueOf(gdbIndex);
+    }
+
     /**
      * If true, allows incremental linking.
      *
@@ -331,6 +537,53 @@ public class LinkerDef extends ProcessorDef {
         this.incremental = booleanValueOf(incremental);
     }
 
+    /**
+     * Sets the number of threads used by parallel linkers.
+     *
+     * @param linkerThreads thread count, 0 for the linker's default
+     */
+    public void setLinkerThreads(int linkerThreads) {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        if (linkerThreads < 0) {
+            throw new BuildException("linkerthreads must not be negative");
+        }
+        this.linkerThreads = linkerThreads;
+    }
+
+    /**
+     * Sets the size limit of the cache of thin link-time optimization,
+     * the least recently used results are removed after a link exceeds it.
+     *
+     * @param ltoCacheSize megabytes, 0 for the default of 1024
+     */
+    public void setLtoCacheSize(int ltoCacheSize) {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        if (ltoCacheSize < 0) {
+            throw new BuildException("ltocachesize must not be negative");
+        }
+        this.ltoCacheSize = ltoCacheSize;
+    }
+
+    /**
+     * Sets the number of parallel link-time optimization jobs.
+     *
+     * @param ltoJobs job count, 0 to use the make jobserver if available,
+     *                otherwise the number of processors
+     */
+    public void setLtoJobs(int ltoJobs) {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        if (ltoJobs < 0) {
+            throw new BuildException("ltojobs must not be negative");
+        }
+        this.ltoJobs = ltoJobs;
+    }
+
     /**
      * If set to true, a map file will be produced.
      *
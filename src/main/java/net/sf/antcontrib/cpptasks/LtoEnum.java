@@ -0,0 +1,40 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.types.EnumeratedAttribute;
+
+/**
+ * Enumeration of link-time optimization modes.
+ * <ul>
+ * <li>none - no link-time optimization</li>
+ * <li>full - whole program optimization when linking, in parallel</li>
+ * <li>thin - link-time optimization reusing cached results of
+ * unchanged partitions</li>
+ * </ul>
+ */
+public final class LtoEnum extends EnumeratedAttribute {
+    /**
+     * Gets list of acceptable values.
+     *
+     * @return an array of String
+     * @see org.apache.tools.ant.types.EnumeratedAttribute#getValues()
+     */
+    public String[] getValues() {
+        return new String[]{"none", "full", "thin"};
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import net.sf.antcontrib.cpptasks.compiler.CompilerConfiguration;
+import net.sf.antcontrib.cpptasks.parser.FortranParser;
+import org.apache.tools.ant.Project;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Orders the compilation of FORTRAN sources so that each source is
+ * compiled after the sources that define the modules it uses.
+ * <p>
+ * A target is at level zero if it uses no module defined by another
+ * target, otherwise its level is one more than the highest level of
+ * those targets.  Targets at the same level do not depend on each other.
+ * Modules not defined by any target, for example those of a library,
+ * are ignored.
+ * </p>
+ */
+final class ModuleGraph {
+    /**
+     * Level of each target that uses a module of another target.
+     */
+    private final Hashtable<TargetInfo, Integer> levels = new Hashtable<TargetInfo, Integer>();
+
+    private int maxLevel;
+
+    /**
+     * Targets defining the modules used by each target keyed by module name.
+     */
+    private final Hashtable<TargetInfo, Map<String, TargetInfo>> providers
+            = new Hashtable<TargetInfo, Map<String, TargetInfo>>();
+
+    /**
+     * Creates the graph for a set of targets, parsing FORTRAN sources
+     * with no current dependency information.
+     *
+     * @param task    task for diagnostic output
+     * @param table   dependency information of the object directory
+     * @param targets targets to be ordered
+     */
+    ModuleGraph(CCTask task, DependencyTable table, Collection<TargetInfo> targets) {
+        Hashtable<String, TargetInfo> definedBy = new Hashtable<String, TargetInfo>();
+        Hashtable<TargetInfo, String[]> uses = new Hashtable<TargetInfo, String[]>();
+        for (TargetInfo target : targets) {
+            if (!(target.getConfiguration() instanceof CompilerConfiguration)
+                    || !FortranParser.isFortranSource(target.getSources()[0].getName())) {
+                continue;
+            }
+            DependencyInfo dependInfo = table.getDependencyInfo(task,
+                    (CompilerConfiguration) target.getConfiguration(), target.getSources()[0]);
+            for (String module : dependInfo.getModules()) {
+                TargetInfo other = definedBy.put(module, target);
+                if (other != null && !other.getSources()[0].equals(target.getSources()[0])) {
+                    task.log("Module " + module + " is defined by both "
+                            + other.getSources()[0] + " and " + target.getSources()[0],
+                            Project.MSG_WARN);
+                }
+            }
+            if (dependInfo.getUses().length > 0) {
+                uses.put(target, dependInfo.getUses());
+            }
+        }
+        for (Map.Entry<TargetInfo, String[]> entry : uses.entrySet()) {
+            Map<String, TargetInfo> targetProviders = new LinkedHashMap<String, TargetInfo>();
+            for (String use : entry.getValue()) {
+                TargetInfo provider = definedBy.get(use);
+                if (provider != null && provider != entry.getKey()) {
+                    targetProviders.put(use, provider);
+                }
+            }
+            if (!targetProviders.isEmpty()) {
+                providers.put(entry.getKey(), targetProviders);
+            }
+        }
+        Set<TargetInfo> visiting = new HashSet<TargetInfo>();
+        for (TargetInfo target : providers.keySet()) {
+            maxLevel = Math.max(maxLevel, computeLevel(task, target, visiting));
+        }
+    }
+
+    private int computeLevel(CCTask task, TargetInfo target, Set<TargetInfo> visiting) {
+        Integer level = levels.get(target);
+        if (level != null) {
+            return level.intValue();
+        }
+        Map<String, TargetInfo> targetProviders = providers.get(target);
+        if (targetProviders == null) {
+            return 0;
+        }
+        if (!visiting.add(target)) {
+            //
+            //   the compiler will report the error,
+            //       just avoid looping
+            task.log("Circular module dependency involving " + target.getSources()[0],
+                    Project.MSG_WARN);
+            return 0;
+        }
+        int highest = -1;
+        for (TargetInfo provider : targetProviders.values()) {
+            highest = Math.max(highest, computeLevel(task, provider, visiting));
+        }
+        visiting.remove(target);
+        levels.put(target, highest + 1);
+        return highest + 1;
+    }
+
+    /**
+     * Gets the level of a target.
+     *
+     * @param target target
+     * @return level, zero for targets that use no module of another target
+     */
+    int getLevel(TargetInfo target) {
+        Integer level = levels.get(target);
+        if (level == null) {
+            return 0;
+        }
+        return level.intValue();
+    }
+
+    /**
+     * Gets the highest level of any target.
+     *
+     * @return highest level, zero if no target uses a module of another
+     */
+    int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * Gets the targets defining the modules used by a target.
+     *
+     * @param target target
+     * @return providing targets keyed by module name
+     */
+    Map<String, TargetInfo> getProviders(TargetInfo target) {
+        Map<String, TargetInfo> targetProviders = providers.get(target);
+        if (targetProviders == null) {
+            return Collections.emptyMap();
+        }
+        return targetProviders;
+    }
+}
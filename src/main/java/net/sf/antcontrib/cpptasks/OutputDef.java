@@ -0,0 +1,257 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import net.sf.antcontrib.cpptasks.compiler.LinkType;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.types.DataType;
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+
+import java.io.File;
+import java.util.Vector;
+
+/**
+ * <p>
+ * An additional artifact linked by a &lt;cc&gt; task from the objects it
+ * compiles, such as a static library, a shared library and a test
+ * executable built from the same sources.
+ * </p>
+ * <p>
+ * The objects are compiled once for the link type of the task, or as for
+ * a shared library if any output is one, and each output selects a subset
+ * of them by object file name.  Links that don't use each other's output
+ * run concurrently.
+ * </p>
+ * <pre>
+ * &lt;cc outtype="shared" objdir="obj" outfile="lib/foo"&gt;
+ *     &lt;fileset dir="src" includes="*.c"/&gt;
+ *     &lt;output outfile="lib/foo" outtype="static"/&gt;
+ *     &lt;output outfile="bin/test" outtype="executable" excludes="foo_init.o"&gt;
+ *         &lt;linker name="gcc"&gt;
+ *             &lt;libset dir="lib" libs="foo"/&gt;
+ *         &lt;/linker&gt;
+ *     &lt;/output&gt;
+ * &lt;/cc&gt;
+ * </pre>
+ */
+public final class OutputDef extends DataType {
+    /**
+     * Name of property that must be present or definition will be ignored.
+     * May be null.
+     */
+    private String ifProp;
+
+    /**
+     * Name of property that must be absent or definition will be ignored.
+     * May be null.
+     */
+    private String unlessProp;
+
+    private File outfile;
+    private OutputTypeEnum outputType;
+    private String outputFileProperty;
+    private String[] includes;
+    private String[] excludes;
+    private final Vector<LinkerDef> linkers = new Vector<LinkerDef>();
+
+    public OutputDef() {
+    }
+
+    /**
+     * Adds a linker definition used instead of the
+     * nested linker definitions of the task.
+     *
+     * @param linker linker definition
+     */
+    public void addConfiguredLinker(LinkerDef linker) {
+        if (linker == null) {
+            throw new NullPointerException("linker");
+        }
+        linker.setProject(getProject());
+        linkers.addElement(linker);
+    }
+
+    /**
+     * Gets the linker definitions of this output.
+     *
+     * @return linker definitions, empty to use those of the task
+     */
+    public Vector<LinkerDef> getLinkers() {
+        return new Vector<LinkerDef>(linkers);
+    }
+
+    /**
+     * Gets the link type of this output.
+     *
+     * @param base link type of the task
+     * @return link type with the output type of this output
+     */
+    public LinkType getLinkType(LinkType base) {
+        LinkType type = new LinkType();
+        if (outputType != null) {
+            type.setOutputType(outputType);
+        } else if (base.getOutputType() != null) {
+            OutputTypeEnum baseType = new OutputTypeEnum();
+            baseType.setValue(base.getOutputType());
+            type.setOutputType(baseType);
+        }
+        type.setStaticRuntime(base.isStaticRuntime());
+        if (base.getSubsystem() != null) {
+            SubsystemEnum subsystem = new SubsystemEnum();
+            subsystem.setValue(base.getSubsystem());
+            type.setSubsystem(subsystem);
+        }
+        return type;
+    }
+
+    /**
+     * Gets the output file name.
+     *
+     * @return output file name, may lack the prefix and extension
+     */
+    public File getOutfile() {
+        return outfile;
+    }
+
+    /**
+     * Gets the name of the property set to the linked file.
+     *
+     * @return property name, may be null
+     */
+    public String getOutputFileProperty() {
+        return outputFileProperty;
+    }
+
+    /**
+     * Determines if this output is active.
+     *
+     * @return true if active
+     * @throws BuildException if the output file is not specified
+     */
+    public boolean isActive() {
+        if (!CUtil.isActive(getProject(), ifProp, unlessProp)) {
+            return false;
+        }
+        if (outfile == null) {
+            throw new BuildException("outfile must be specified for output");
+        }
+        return true;
+    }
+
+    /**
+     * Determines if an object compiled by the task is linked into this output.
+     *
+     * @param objectName object file name
+     * @return true if the object matches the includes and not the excludes
+     */
+    public boolean isIncluded(String objectName) {
+        if (includes != null) {
+            boolean included = false;
+            for (String include : includes) {
+                if (SelectorUtils.match(include, objectName)) {
+                    included = true;
+                    break;
+                }
+            }
+            if (!included) {
+                return false;
+            }
+        }
+        if (excludes != null) {
+            for (String exclude : excludes) {
+                if (SelectorUtils.match(exclude, objectName)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the patterns of the object file names not linked into this output.
+     *
+     * @param excludes comma or space separated patterns
+     */
+    public void setExcludes(CUtil.StringArrayBuilder excludes) {
+        this.excludes = excludes.getValue();
+    }
+
+    /**
+     * Sets the property name for the 'if' condition.
+     * <p>
+     * The output will be ignored unless the property is defined.
+     * </p>
+     *
+     * @param propName name of property
+     */
+    public void setIf(String propName) {
+        ifProp = propName;
+    }
+
+    /**
+     * Sets the patterns of the object file names linked into this output,
+     * all objects compiled by the task if not specified.
+     *
+     * @param includes comma or space separated patterns
+     */
+    public void setIncludes(CUtil.StringArrayBuilder includes) {
+        this.includes = includes.getValue();
+    }
+
+    /**
+     * Sets the output file name.  If an extension is not specified, the
+     * linker may add a system appropriate extension and prefix.
+     *
+     * @param outfile output file name
+     */
+    public void setOutfile(File outfile) {
+        this.outfile = outfile;
+    }
+
+    /**
+     * Specifies the name of a property to set with the
+     * physical filename that is produced by the linker.
+     *
+     * @param outputFileProperty property name
+     */
+    public void setOutputFileProperty(String outputFileProperty) {
+        this.outputFileProperty = outputFileProperty;
+    }
+
+    /**
+     * Sets the output file type, the output type of the task if
+     * not specified.  Supported values "executable", "shared",
+     * "static" and "plugin".
+     *
+     * @param outputType output type
+     */
+    public void setOuttype(OutputTypeEnum outputType) {
+        this.outputType = outputType;
+    }
+
+    /**
+     * Sets the property name for the 'unless' condition.
+     * <p>
+     * If named property is set, the output will be ignored.
+     * </p>
+     *
+     * @param propName name of property
+     */
+    public void setUnless(String propName) {
+        unlessProp = propName;
+    }
+}
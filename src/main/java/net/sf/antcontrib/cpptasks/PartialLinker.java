@@ -0,0 +1,367 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import net.sf.antcontrib.cpptasks.compiler.CommandLineLinker;
+import net.sf.antcontrib.cpptasks.compiler.CommandLineLinkerConfiguration;
+import net.sf.antcontrib.cpptasks.compiler.LinkerConfiguration;
+import net.sf.antcontrib.cpptasks.compiler.ProcessorConfiguration;
+import net.sf.antcontrib.cpptasks.gcc.GccProcessor;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pre-links groups of object files into relocatable objects with the
+ * linker of the final link, for example gcc -r -nostdlib, so that the
+ * final link reads a few large objects instead of thousands of small
+ * ones.  Groups are relinked in parallel and only when their members
+ * change, their membership is kept in the history of the object
+ * directory.  Relocatable objects of groups that no longer exist are
+ * removed, so the object directory holds a single partial link.
+ */
+final class PartialLinker {
+    /**
+     * Prefix of the names of relocatable objects.
+     */
+    static final String PREFIX = "partial-";
+
+    /**
+     * Configuration of partial links, identifies them in the history.
+     */
+    private static final class Configuration implements ProcessorConfiguration {
+        private final String[] command;
+        private final String identifier;
+
+        private Configuration(String[] command) {
+            this.command = command;
+            StringBuilder buf = new StringBuilder();
+            for (String arg : command) {
+                if (buf.length() > 0) {
+                    buf.append(' ');
+                }
+                buf.append(arg);
+            }
+            identifier = buf.toString();
+        }
+
+        public int bid(String filename) {
+            return 0;
+        }
+
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        public String[] getOutputFileNames(String inputFile, VersionInfo versionInfo) {
+            return new String[0];
+        }
+
+        public ProcessorParam[] getParams() {
+            return new ProcessorParam[0];
+        }
+
+        public boolean getRebuild() {
+            return false;
+        }
+
+        public String toString() {
+            return getIdentifier();
+        }
+    }
+
+    private final CCTask task;
+    private final File objDir;
+    private final String grouping;
+    private final int threads;
+
+    /**
+     * Constructor.
+     *
+     * @param task     task used to run the linker and for logging
+     * @param objDir   object directory receiving the relocatable objects
+     * @param grouping "directory" to group objects by source directory,
+     *                 otherwise the number of objects per group
+     * @param threads  number of concurrent partial links
+     */
+    PartialLinker(CCTask task, File objDir, String grouping, int threads) {
+        this.task = task;
+        this.objDir = objDir;
+        this.grouping = grouping;
+        this.threads = threads;
+    }
+
+    /**
+     * Partitions object files into groups.  When grouping by number, each
+     * object is assigned to a group by the hash of its name, so adding or
+     * removing an object only changes its own group.  The number of groups
+     * is a power of two, so that groups average at most the requested
+     * size, and only changes when the number of objects doubles or halves.
+     *
+     * @param objects    object files in link order
+     * @param sourceDirs source directory of each object file compiled by
+     *                   the task, keyed by object file
+     * @param grouping   "directory" or the number of objects per group
+     * @return object files in link order keyed and ordered by group name
+     */
+    static TreeMap<String, Vector<File>> group(Vector<File> objects, Map<File, File> sourceDirs,
+                                               String grouping) {
+        TreeMap<String, Vector<File>> groups = new TreeMap<String, Vector<File>>();
+        int groupCount = 0;
+        if (!"directory".equals(grouping)) {
+            int size = Integer.parseInt(grouping);
+            groupCount = 1;
+            while (groupCount * (long) size < objects.size()) {
+                groupCount *= 2;
+            }
+        }
+        for (File object : objects) {
+            String key;
+            if (groupCount == 0) {
+                File dir = sourceDirs.get(object);
+                if (dir == null) {
+                    dir = object.getAbsoluteFile().getParentFile();
+                }
+                String path = dir.getPath();
+                String name = dir.getName().replaceAll("[^A-Za-z0-9_]", "_");
+                key = PREFIX + name + "-" + Integer.toHexString(path.hashCode());
+            } else {
+                int hash = object.getName().hashCode();
+                hash ^= hash >>> 16;
+                key = String.format("%s%05d", PREFIX, hash & (groupCount - 1));
+            }
+            Vector<File> members = groups.get(key);
+            if (members == null) {
+                members = new Vector<File>();
+                groups.put(key, members);
+            }
+            members.addElement(object);
+        }
+        return groups;
+    }
+
+    /**
+     * Relinks the out of date groups of a link target.
+     *
+     * @param history history of the object directory
+     * @param linkTarget link target
+     * @param targets compile targets keyed by output name
+     * @return link target consuming the relocatable objects
+     * @throws BuildException if the linker can't produce relocatable
+     *                        objects or a partial link fails
+     */
+    TargetInfo link(TargetHistoryTable history, TargetInfo linkTarget,
+                    Hashtable<String, TargetInfo> targets) throws BuildException {
+        String[] command = null;
+        LinkerConfiguration linkConfig = (LinkerConfiguration) linkTarget.getConfiguration();
+        if (linkConfig instanceof CommandLineLinkerConfiguration
+                && linkConfig.getLinker() instanceof CommandLineLinker) {
+            CommandLineLinkerConfiguration config = (CommandLineLinkerConfiguration) linkConfig;
+            command = ((CommandLineLinker) config.getLinker()).getPartialLinkCommand(config);
+        }
+        if (command == null) {
+            throw new BuildException("partiallink is not supported by "
+                    + linkConfig.getLinker().getIdentifier(), task.getLocation());
+        }
+        final Configuration configuration = new Configuration(command);
+        Hashtable<File, File> sourceDirs = new Hashtable<File, File>();
+        for (TargetInfo target : targets.values()) {
+            File[] sources = target.getSources();
+            if (sources.length > 0 && sources[0].getParentFile() != null) {
+                sourceDirs.put(target.getOutput(), sources[0].getParentFile());
+            }
+        }
+        Vector<File> objects = new Vector<File>();
+        Vector<File> others = new Vector<File>();
+        for (File source : linkTarget.getSources()) {
+            if (source.getName().endsWith(".o")) {
+                objects.addElement(source);
+            } else {
+                others.addElement(source);
+            }
+        }
+        Vector<File> linkSources = new Vector<File>();
+        Set<String> outputs = new HashSet<String>();
+        final Vector<TargetInfo> stale = new Vector<TargetInfo>();
+        for (Map.Entry<String, Vector<File>> entry : group(objects, sourceDirs, grouping).entrySet()) {
+            Vector<File> members = entry.getValue();
+            if (members.size() < 2) {
+                linkSources.addAll(members);
+                continue;
+            }
+            TargetInfo groupTarget = new TargetInfo(configuration, members.toArray(new File[0]),
+                    null, new File(objDir, entry.getKey() + ".o"), false);
+            history.markForRebuild(groupTarget);
+            if (groupTarget.getRebuild()) {
+                stale.addElement(groupTarget);
+            }
+            linkSources.addElement(groupTarget.getOutput());
+            outputs.add(groupTarget.getOutput().getName());
+        }
+        linkSources.addAll(others);
+        boolean removed = removeObsolete(history, outputs);
+        if (!stale.isEmpty()) {
+            task.log(stale.size() + " partial links to be rebuilt.");
+            final BuildException[] failure = new BuildException[1];
+            final AtomicInteger next = new AtomicInteger();
+            Runnable linker = new Runnable() {
+                public void run() {
+                    for (int i = next.getAndIncrement(); i < stale.size(); i = next.getAndIncrement()) {
+                        try {
+                            partialLink(configuration, stale.elementAt(i));
+                        } catch (BuildException ex) {
+                            synchronized (failure) {
+                                if (failure[0] == null) {
+                                    failure[0] = ex;
+                                }
+                            }
+                        }
+                    }
+                }
+            };
+            Thread[] workers = new Thread[Math.max(Math.min(threads, stale.size()) - 1, 0)];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Thread(linker, "cpptasks-partial-link-" + i);
+                workers[i].setDaemon(true);
+                workers[i].start();
+            }
+            linker.run();
+            try {
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new BuildException("Interrupted while linking", ex);
+            }
+            for (TargetInfo groupTarget : stale) {
+                history.update(groupTarget);
+            }
+            commit(history);
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        } else if (removed) {
+            commit(history);
+        }
+        TargetInfo partialTarget = new TargetInfo(linkTarget.getConfiguration(),
+                linkSources.toArray(new File[0]), linkTarget.getSysSources(),
+                linkTarget.getOutput(), linkTarget.getRebuild());
+        task.log(objects.size() + " objects are linked through "
+                + (linkSources.size() - others.size()) + " relocatable objects.", Project.MSG_VERBOSE);
+        return partialTarget;
+    }
+
+    /**
+     * Deletes the relocatable objects and history entries of groups left
+     * over from a previous grouping, a removed source directory or a
+     * group that shrank to a single object.
+     *
+     * @param history history of the object directory
+     * @param outputs names of the relocatable objects of the current groups
+     * @return true if the history changed
+     */
+    boolean removeObsolete(TargetHistoryTable history, Set<String> outputs) {
+        Set<String> obsolete = new HashSet<String>();
+        String[] names = objDir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(PREFIX) && name.endsWith(".o") && !outputs.contains(name)) {
+                    obsolete.add(name);
+                }
+            }
+        }
+        Enumeration<TargetHistory> entries = history.elements();
+        while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getOutput();
+            if (name.startsWith(PREFIX) && name.endsWith(".o") && !outputs.contains(name)) {
+                obsolete.add(name);
+            }
+        }
+        for (String name : obsolete) {
+            File output = new File(objDir, name);
+            if (output.exists() && !output.delete()) {
+                task.log("Unable to delete " + output, Project.MSG_WARN);
+            }
+            history.remove(name);
+        }
+        if (!obsolete.isEmpty()) {
+            task.log(obsolete.size() + " obsolete relocatable objects removed.", Project.MSG_VERBOSE);
+        }
+        return !obsolete.isEmpty();
+    }
+
+    private void commit(TargetHistoryTable history) {
+        try {
+            history.commit();
+        } catch (IOException ex) {
+            task.log("Error writing history.xml: " + ex.toString());
+        }
+    }
+
+    private void partialLink(Configuration configuration, TargetInfo groupTarget)
+            throws BuildException {
+        File output = groupTarget.getOutput();
+        File[] members = groupTarget.getSources();
+        String[] command = configuration.command;
+        String[] cmdline = new String[command.length + members.length + 2];
+        System.arraycopy(command, 0, cmdline, 0, command.length);
+        cmdline[command.length] = "-o";
+        cmdline[command.length + 1] = output.getName();
+        for (int i = 0; i < members.length; i++) {
+            cmdline[command.length + 2 + i] = members[i].getPath();
+        }
+        int commandLength = 0;
+        for (String arg : cmdline) {
+            commandLength += arg.length() + 1;
+        }
+        //
+        //   a failed link must not leave an output newer than its history
+        //
+        output.delete();
+        File commandFile = null;
+        int retval;
+        try {
+            if (commandLength >= GccProcessor.MAXIMUM_COMMAND_LENGTH) {
+                commandFile = new File(objDir, output.getName() + ".rsp");
+                cmdline = GccProcessor.prepareResponseFile(commandFile, cmdline, 1);
+            }
+            retval = CUtil.runCommand(task, objDir, cmdline, false, null);
+        } catch (IOException ex) {
+            throw new BuildException(ex);
+        } finally {
+            if (commandFile != null) {
+                commandFile.delete();
+            }
+        }
+        if (retval != 0) {
+            output.delete();
+            throw new BuildException(configuration.getIdentifier() + " failed with return code "
+                    + retval, task.getLocation());
+        }
+    }
+}
@@ -23,7 +23,6 @@ import net.sf.antcontrib.cpptasks.compiler.ProcessorConfiguration;
 import net.sf.antcontrib.cpptasks.types.CommandLineArgument;
 import net.sf.antcontrib.cpptasks.types.ConditionalFileSet;
 import org.apache.tools.ant.BuildException;
-import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.types.DataType;
 import org.apache.tools.ant.types.Environment;
@@ -77,6 +76,10 @@ public abstract class ProcessorDef extends DataType {
      */
     private boolean inherit;
     private Boolean libtool = null;
+    /**
+     * link-time optimization mode, null if not specified
+     */
+    private LtoEnum lto;
     protected boolean newEnvironment = false;
     /**
      * Processor.
@@ -94,6 +97,10 @@ public abstract class ProcessorDef extends DataType {
      * if true, all targets will be unconditionally rebuilt
      */
     private Boolean rebuild;
+    /**
+     * if true, debug information is kept out of the object files
+     */
+    private Boolean splitDwarf;
     /**
      * Collection of &lt;fileset&gt; contained by definition
      */
@@ -389,6 +396,47 @@ public abstract class ProcessorDef extends DataType {
         return false;
     }
 
+    /**
+     * Gets the link-time optimization mode.
+     *
+     * @param defaultProviders array of ProcessorDef's in descending priority
+     * @param index            index to first element in array that should be considered
+     * @return "full" or "thin", null if no link-time optimization
+     */
+    public String getLto(ProcessorDef[] defaultProviders, int index) {
+        if (isReference()) {
+            return getRef().getLto(defaultProviders, index);
+        }
+        if (lto != null) {
+            return "none".equals(lto.getValue()) ? null : lto.getValue();
+        }
+        if (defaultProviders != null && index < defaultProviders.length) {
+            return defaultProviders[index].getLto(defaultProviders, index + 1);
+        }
+        return null;
+    }
+
+    /**
+     * Gets boolean indicating that debug information is split into
+     * separate files.
+     *
+     * @param defaultProviders array of ProcessorDef's in descending priority
+     * @param index            index to first element in array that should be considered
+     * @return if true, debug information is written to .dwo files
+     */
+    public boolean getSplitDwarf(ProcessorDef[] defaultProviders, int index) {
+        if (isReference()) {
+            return getRef().getSplitDwarf(defaultProviders, index);
+        }
+        if (splitDwarf != null) {
+            return splitDwarf;
+        }
+        if (defaultProviders != null && index < defaultProviders.length) {
+            return defaultProviders[index].getSplitDwarf(defaultProviders, index + 1);
+        }
+        return false;
+    }
+
     /**
      * Returns true if the processor definition contains embedded file set
      * definitions
@@ -559,6 +607,20 @@ public abstract class ProcessorDef extends DataType {
         this.libtool = booleanValueOf(libtool);
     }
 
+    /**
+     * Sets the link-time optimization mode, must be set on both the
+     * compiler and the linker.  Thin optimization requires GCC 15.
+     *
+     * @param lto none, full or thin
+     * @throws BuildException if processor definition is a reference
+     */
+    public void setLto(LtoEnum lto) throws BuildException {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        this.lto = lto;
+    }
+
     /**
      * Do not propagate old environment when new environment variables are
      * specified.
@@ -603,6 +665,22 @@ public abstract class ProcessorDef extends DataType {
         this.rebuild = booleanValueOf(rebuild);
     }
 
+    /**
+     * If set true, debug builds write their debug information to .dwo
+     * files next to the object files instead of into the objects, so the
+     * linker doesn't need to read or copy it.  Supported by GCC-compatible
+     * compilers, ignored unless debug is set.
+     *
+     * @param splitDwarf true to split debug information
+     * @throws BuildException if processor definition is a reference
+     */
+    public void setSplitDwarf(boolean splitDwarf) throws BuildException {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        this.splitDwarf = booleanValueOf(splitDwarf);
+    }
+
     /**
      * Specifies that this element should behave as if the content of the
      * element with the matching id attribute was inserted at this location. If
@@ -660,11 +738,12 @@ public abstract class ProcessorDef extends DataType {
         for (int i = 0; i < srcSets.size(); i++) {
             ConditionalFileSet srcSet = srcSets.elementAt(i);
             if (srcSet.isActive()) {
-                // Find matching source files
-                DirectoryScanner scanner = srcSet.getDirectoryScanner(p);
+                // Find matching source files,
+                //    scanned only once per build
+                FileSnapshot.Scan scan = FileSnapshot.scan(srcSet, p);
                 // Check each source file - see if it needs compilation
-                File parentDir = scanner.getBasedir();
-                for (String currentFile : scanner.getIncludedFiles()) {
+                File parentDir = scan.getBaseDir();
+                for (String currentFile : scan.getIncludedFiles()) {
                     visitor.visit(parentDir, currentFile);
                 }
             }
@@ -0,0 +1,49 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.types.EnumeratedAttribute;
+
+/**
+ * Enumeration of output formats of &lt;ccreport&gt;.
+ * <ul>
+ * <li>text - aligned columns for reading (default)</li>
+ * <li>csv - comma separated values with a header line</li>
+ * <li>json - a single JSON object</li>
+ * </ul>
+ */
+public final class ReportFormatEnum extends EnumeratedAttribute {
+    /**
+     * Constructor.
+     * <p>
+     * Set by default to "text"
+     * </p>
+     */
+    public ReportFormatEnum() {
+        setValue("text");
+    }
+
+    /**
+     * Gets list of acceptable values.
+     *
+     * @return an array of String
+     * @see org.apache.tools.ant.types.EnumeratedAttribute#getValues()
+     */
+    public String[] getValues() {
+        return new String[]{"text", "csv", "json"};
+    }
+}
@@ -27,6 +27,7 @@ import java.io.IOException;
 public final class SourceHistory {
     private final long lastModified;
     private final String relativePath;
+    private final String abiStamp;
 
     /**
      * Constructor
@@ -35,16 +36,37 @@ public final class SourceHistory {
      * @param lastModified long
      */
     public SourceHistory(String relativePath, long lastModified) {
+        this(relativePath, lastModified, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param relativePath String
+     * @param lastModified long
+     * @param abiStamp     ABI stamp of a shared library, may be null
+     */
+    public SourceHistory(String relativePath, long lastModified, String abiStamp) {
         if (relativePath == null) {
             throw new NullPointerException("relativePath");
         }
         this.relativePath = relativePath;
         this.lastModified = lastModified;
+        this.abiStamp = abiStamp;
+    }
+
+    /**
+     * Gets the ABI stamp of a shared library source.
+     *
+     * @return stamp, null if not recorded
+     */
+    public String getAbiStamp() {
+        return abiStamp;
     }
 
     public String getAbsolutePath(File baseDir) {
         try {
-            return new File(baseDir, relativePath).getCanonicalPath();
+            return CUtil.getCanonicalPath(new File(baseDir, relativePath));
         } catch (IOException ex) {
         }
         return relativePath;
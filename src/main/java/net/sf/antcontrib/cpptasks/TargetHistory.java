@@ -20,10 +20,28 @@ package net.sf.antcontrib.cpptasks;
  * A description of a file built or to be built
  */
 public final class TargetHistory {
+    /**
+     * Milliseconds spent compiling the output, -1 if not recorded.
+     */
+    private final long compileTime;
     private final String config;
+    /**
+     * Digest of the inputs when the output was built, may be null.
+     */
+    private final String digest;
     private final String output;
+    /**
+     * Digest of the output, may be null.
+     */
+    private final String outputDigest;
     private final long outputLastModified;
     private final SourceHistory[] sources;
+    /**
+     * Modification time of the output when it was last built, later than
+     * outputLastModified if the output was unchanged and its previous
+     * modification time restored.
+     */
+    private final long verifiedLastModified;
 
     /**
      * Constructor from build step
@@ -35,6 +53,54 @@ public final class TargetHistory {
      */
     public TargetHistory(String config, String output, long outputLastModified,
                          SourceHistory[] sources) {
+        this(config, output, outputLastModified, sources, null);
+    }
+
+    /**
+     * Constructor from build step
+     *
+     * @param config String
+     * @param output String
+     * @param outputLastModified long
+     * @param sources array of SourceHistory
+     * @param digest digest of the inputs, may be null
+     */
+    public TargetHistory(String config, String output, long outputLastModified,
+                         SourceHistory[] sources, String digest) {
+        this(config, output, outputLastModified, sources, digest, -1);
+    }
+
+    /**
+     * Constructor from build step
+     *
+     * @param config String
+     * @param output String
+     * @param outputLastModified long
+     * @param sources array of SourceHistory
+     * @param digest digest of the inputs, may be null
+     * @param compileTime milliseconds spent building the output, -1 if unknown
+     */
+    public TargetHistory(String config, String output, long outputLastModified,
+                         SourceHistory[] sources, String digest, long compileTime) {
+        this(config, output, outputLastModified, sources, digest, compileTime, null,
+                outputLastModified);
+    }
+
+    /**
+     * Constructor from build step
+     *
+     * @param config String
+     * @param output String
+     * @param outputLastModified long
+     * @param sources array of SourceHistory
+     * @param digest digest of the inputs, may be null
+     * @param compileTime milliseconds spent building the output, -1 if unknown
+     * @param outputDigest digest of the output, may be null
+     * @param verifiedLastModified modification time of the output when it was last built
+     */
+    public TargetHistory(String config, String output, long outputLastModified,
+                         SourceHistory[] sources, String digest, long compileTime,
+                         String outputDigest, long verifiedLastModified) {
         if (config == null) {
             throw new NullPointerException("config");
         }
@@ -48,16 +114,61 @@ public final class TargetHistory {
         this.output = output;
         this.outputLastModified = outputLastModified;
         this.sources = sources.clone();
+        this.digest = digest;
+        this.compileTime = compileTime;
+        this.outputDigest = outputDigest;
+        this.verifiedLastModified = Math.max(outputLastModified, verifiedLastModified);
+    }
+
+    /**
+     * Gets the time spent compiling the output.  If several sources
+     * were compiled by one command, the time of the command is divided
+     * evenly between them.
+     *
+     * @return milliseconds, -1 if not recorded
+     */
+    public long getCompileTime() {
+        return compileTime;
+    }
+
+    /**
+     * Gets the digest of the source and its includes recorded
+     * when the output was built.
+     *
+     * @return digest, null if not recorded
+     */
+    public String getDigest() {
+        return digest;
     }
 
     public String getOutput() {
         return output;
     }
 
+    /**
+     * Gets the digest of the output recorded in restat mode.
+     *
+     * @return digest, null if not recorded
+     */
+    public String getOutputDigest() {
+        return outputDigest;
+    }
+
     public long getOutputLastModified() {
         return outputLastModified;
     }
 
+    /**
+     * Gets the modification time of the output when it was last built.
+     * If the rebuilt output was identical to the previous one, its
+     * previous modification time was restored and this time is later.
+     *
+     * @return modification time
+     */
+    public long getVerifiedLastModified() {
+        return verifiedLastModified;
+    }
+
     public String getProcessorConfiguration() {
         return config;
     }
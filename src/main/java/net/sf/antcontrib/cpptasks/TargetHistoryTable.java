@@ -18,6 +18,7 @@ package net.sf.antcontrib.cpptasks;
 
 import net.sf.antcontrib.cpptasks.compiler.ProcessorConfiguration;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
@@ -30,10 +31,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Map;
 import java.util.Vector;
 
+import static net.sf.antcontrib.cpptasks.CUtil.getCanonicalPath;
 import static net.sf.antcontrib.cpptasks.CUtil.getRelativePath;
 import static net.sf.antcontrib.cpptasks.CUtil.isSignificantlyAfter;
 import static net.sf.antcontrib.cpptasks.CUtil.isSignificantlyBefore;
@@ -52,11 +55,15 @@ public final class TargetHistoryTable {
      */
     private class TargetHistoryTableHandler extends DefaultHandler {
         private final File baseDir;
+        private long compileTime;
         private String config;
+        private String digest;
         private final Hashtable<String, TargetHistory> history;
         private String output;
+        private String outputDigest;
         private long outputLastModified;
         private final Vector<SourceHistory> sources = new Vector<SourceHistory>();
+        private long verifiedLastModified;
 
         /**
          * Constructor
@@ -86,18 +93,19 @@ public final class TargetHistoryTable {
                     //   if the corresponding files doesn't exist or has a
                     // different
                     //      modification time, then discard this record
-                    if (existingFile.exists()) {
+                    if (FileSnapshot.exists(existingFile)) {
                         //
                         //   would have expected exact time stamps
                         //      but have observed slight differences
                         //      in return value for multiple evaluations of
                         //      lastModified(). Check if times are within
                         //      a second
-                        long existingLastModified = existingFile.lastModified();
+                        long existingLastModified = FileSnapshot.lastModified(existingFile);
                         if (!isSignificantlyBefore(existingLastModified, outputLastModified)
                                 && !isSignificantlyAfter(existingLastModified, outputLastModified)) {
                             TargetHistory targetHistory = new TargetHistory(config, output,
-                                    outputLastModified, sources.toArray(new SourceHistory[0]));
+                                    outputLastModified, sources.toArray(new SourceHistory[0]), digest,
+                                    compileTime, outputDigest, verifiedLastModified);
                             history.put(output, targetHistory);
                         }
                     }
@@ -132,7 +140,8 @@ public final class TargetHistoryTable {
             if (qName.equals("source")) {
                 String sourceFile = atts.getValue("file");
                 long sourceLastModified = Long.parseLong(atts.getValue("lastModified"), 16);
-                sources.addElement(new SourceHistory(sourceFile, sourceLastModified));
+                sources.addElement(new SourceHistory(sourceFile, sourceLastModified,
+                        atts.getValue("abi")));
             } else {
                 //
                 //   if <target> element,
@@ -143,6 +152,24 @@ public final class TargetHistoryTable {
                     sources.setSize(0);
                     output = atts.getValue("file");
                     outputLastModified = Long.parseLong(atts.getValue("lastModified"), 16);
+                    digest = atts.getValue("digest");
+                    outputDigest = atts.getValue("outputDigest");
+                    verifiedLastModified = outputLastModified;
+                    String verified = atts.getValue("verified");
+                    if (verified != null) {
+                        try {
+                            verifiedLastModified = Long.parseLong(verified, 16);
+                        } catch (NumberFormatException ex) {
+                        }
+                    }
+                    String time = atts.getValue("compileTime");
+                    compileTime = -1;
+                    if (time != null) {
+                        try {
+                            compileTime = Long.parseLong(time);
+                        } catch (NumberFormatException ex) {
+                        }
+                    }
                 } else {
                     //
                     //   if <processor> element,
@@ -179,7 +206,7 @@ public final class TargetHistoryTable {
      * @param outputDir output directory for task
      * @throws BuildException if something goes wrong
      */
-    public TargetHistoryTable(CCTask task, File outputDir) throws BuildException {
+    public TargetHistoryTable(Task task, File outputDir) throws BuildException {
         if (outputDir == null) {
             throw new NullPointerException("outputDir");
         }
@@ -191,7 +218,7 @@ public final class TargetHistoryTable {
         }
         this.outputDir = outputDir;
         try {
-            outputDirPath = outputDir.getCanonicalPath();
+            outputDirPath = getCanonicalPath(outputDir);
         } catch (IOException ex) {
             outputDirPath = outputDir.toString();
         }
@@ -282,6 +309,23 @@ public final class TargetHistoryTable {
                         buf.append(xmlAttribEncode(targetHistory.getOutput()));
                         buf.append("\" lastModified=\"");
                         buf.append(Long.toHexString(targetHistory.getOutputLastModified()));
+                        if (targetHistory.getDigest() != null) {
+                            buf.append("\" digest=\"");
+                            buf.append(targetHistory.getDigest());
+                        }
+                        if (targetHistory.getCompileTime() >= 0) {
+                            buf.append("\" compileTime=\"");
+                            buf.append(targetHistory.getCompileTime());
+                        }
+                        if (targetHistory.getOutputDigest() != null) {
+                            buf.append("\" outputDigest=\"");
+                            buf.append(targetHistory.getOutputDigest());
+                        }
+                        if (targetHistory.getVerifiedLastModified()
+                                != targetHistory.getOutputLastModified()) {
+                            buf.append("\" verified=\"");
+                            buf.append(Long.toHexString(targetHistory.getVerifiedLastModified()));
+                        }
                         buf.append("\">\n");
                         writer.write(buf.toString());
                         for (SourceHistory sourceHistory : targetHistory.getSources()) {
@@ -290,6 +334,10 @@ public final class TargetHistoryTable {
                             buf.append(xmlAttribEncode(sourceHistory.getRelativePath()));
                             buf.append("\" lastModified=\"");
                             buf.append(Long.toHexString(sourceHistory.getLastModified()));
+                            if (sourceHistory.getAbiStamp() != null) {
+                                buf.append("\" abi=\"");
+                                buf.append(sourceHistory.getAbiStamp());
+                            }
                             buf.append("\"/>\n");
                             writer.write(buf.toString());
                         }
@@ -304,6 +352,47 @@ public final class TargetHistoryTable {
         }
     }
 
+    /**
+     * Returns an enumerator of the recorded TargetHistory's.
+     *
+     * @return an Enumeration of TargetHistory
+     */
+    public Enumeration<TargetHistory> elements() {
+        return history.elements();
+    }
+
+    /**
+     * Discards entries whose output file was deleted or modified since
+     * it was recorded.  Used when a loaded history is kept for a later
+     * build.
+     */
+    public void revalidate() {
+        Vector<String> stale = new Vector<String>();
+        for (Map.Entry<String, TargetHistory> entry : history.entrySet()) {
+            long existingLastModified = FileSnapshot.lastModified(new File(outputDir, entry.getKey()));
+            long outputLastModified = entry.getValue().getOutputLastModified();
+            if (existingLastModified == 0
+                    || isSignificantlyBefore(existingLastModified, outputLastModified)
+                    || isSignificantlyAfter(existingLastModified, outputLastModified)) {
+                stale.addElement(entry.getKey());
+            }
+        }
+        for (String output : stale) {
+            history.remove(output);
+        }
+    }
+
+    /**
+     * Discards the entry of an output file.
+     *
+     * @param outputName output file name
+     */
+    public void remove(String outputName) {
+        if (history.remove(outputName) != null) {
+            dirty = true;
+        }
+    }
+
     public TargetHistory get(String configId, String outputName) {
         TargetHistory targetHistory = history.get(outputName);
         if (targetHistory != null) {
@@ -314,6 +403,63 @@ public final class TargetHistoryTable {
         return targetHistory;
     }
 
+    /**
+     * Records the digest of the inputs of an existing history entry.
+     *
+     * @param configId   configuration identifier
+     * @param outputName output file name
+     * @param digest     digest of the inputs
+     */
+    public void setDigest(String configId, String outputName, String digest) {
+        TargetHistory targetHistory = get(configId, outputName);
+        if (targetHistory != null && !digest.equals(targetHistory.getDigest())) {
+            history.put(outputName, new TargetHistory(configId, outputName,
+                    targetHistory.getOutputLastModified(), targetHistory.getSources(), digest,
+                    targetHistory.getCompileTime(), targetHistory.getOutputDigest(),
+                    targetHistory.getVerifiedLastModified()));
+            dirty = true;
+        }
+    }
+
+    /**
+     * Records the time spent compiling an existing history entry.
+     *
+     * @param configId    configuration identifier
+     * @param outputName  output file name
+     * @param compileTime milliseconds
+     */
+    public void setCompileTime(String configId, String outputName, long compileTime) {
+        TargetHistory targetHistory = get(configId, outputName);
+        if (targetHistory != null && targetHistory.getCompileTime() != compileTime) {
+            history.put(outputName, new TargetHistory(configId, outputName,
+                    targetHistory.getOutputLastModified(), targetHistory.getSources(),
+                    targetHistory.getDigest(), compileTime, targetHistory.getOutputDigest(),
+                    targetHistory.getVerifiedLastModified()));
+            dirty = true;
+        }
+    }
+
+    /**
+     * Records the digest of the output of an existing history entry.
+     *
+     * @param configId             configuration identifier
+     * @param outputName           output file name
+     * @param outputDigest         digest of the output
+     * @param outputLastModified   modification time of the output
+     * @param verifiedLastModified modification time of the output when it
+     *                             was built, before any previous time was restored
+     */
+    public void setOutputDigest(String configId, String outputName, String outputDigest,
+                                long outputLastModified, long verifiedLastModified) {
+        TargetHistory targetHistory = get(configId, outputName);
+        if (targetHistory != null) {
+            history.put(outputName, new TargetHistory(configId, outputName,
+                    outputLastModified, targetHistory.getSources(), targetHistory.getDigest(),
+                    targetHistory.getCompileTime(), outputDigest, verifiedLastModified));
+            dirty = true;
+        }
+    }
+
     public void markForRebuild(Hashtable<String, TargetInfo> targetInfos) {
         for (Map.Entry<String, TargetInfo> entry : targetInfos.entrySet()) {
             markForRebuild(entry.getValue());
@@ -330,6 +476,7 @@ public final class TargetHistoryTable {
             if (history == null) {
                 targetInfo.mustRebuild();
             } else {
+                targetInfo.setVerifiedLastModified(history.getVerifiedLastModified());
                 SourceHistory[] sourceHistories = history.getSources();
                 File[] sources = targetInfo.getSources();
                 if (sourceHistories.length != sources.length) {
@@ -338,30 +485,46 @@ public final class TargetHistoryTable {
                     Hashtable<String, File> sourceMap = new Hashtable<String, File>();
                     for (File source : sources) {
                         try {
-                            sourceMap.put(source.getCanonicalPath(), source);
+                            sourceMap.put(getCanonicalPath(source), source);
                         } catch (IOException ex) {
                             sourceMap.put(source.getAbsolutePath(), source);
                         }
                     }
-                    for (SourceHistory sourceHistory : sourceHistories) {
+                    boolean refreshed = false;
+                    for (int i = 0; i < sourceHistories.length; i++) {
+                        SourceHistory sourceHistory = sourceHistories[i];
                         //
                         //   relative file name, must absolutize it on output
-                        // directory
+                        // directory, getAbsolutePath returns a canonical path
                         //
-                        String absPath = sourceHistory.getAbsolutePath(outputDir);
-                        File match = sourceMap.get(absPath);
-                        if (match != null) {
-                            try {
-                                match = sourceMap.get(new File(absPath).getCanonicalPath());
-                            } catch (IOException ex) {
+                        File match = sourceMap.get(sourceHistory.getAbsolutePath(outputDir));
+                        if (match == null) {
+                            targetInfo.mustRebuild();
+                            break;
+                        }
+                        long sourceLastModified = FileSnapshot.lastModified(match);
+                        if (sourceLastModified != sourceHistory.getLastModified()) {
+                            //
+                            //   a rebuilt shared library with the same ABI
+                            //      doesn't require a relink, remember its time
+                            //
+                            String abiStamp = sourceHistory.getAbiStamp();
+                            if (abiStamp == null || !abiStamp.equals(AbiStamp.get(match))) {
                                 targetInfo.mustRebuild();
                                 break;
                             }
+                            sourceHistories[i] = new SourceHistory(sourceHistory.getRelativePath(),
+                                    sourceLastModified, abiStamp);
+                            refreshed = true;
                         }
-                        if (match == null || match.lastModified() != sourceHistory.getLastModified()) {
-                            targetInfo.mustRebuild();
-                            break;
-                        }
+                    }
+                    if (refreshed && !targetInfo.getRebuild()) {
+                        this.history.put(targetInfo.getOutput().getName(), new TargetHistory(
+                                history.getProcessorConfiguration(), history.getOutput(),
+                                history.getOutputLastModified(), sourceHistories, history.getDigest(),
+                                history.getCompileTime(), history.getOutputDigest(),
+                                history.getVerifiedLastModified()));
+                        dirty = true;
                     }
                 }
             }
@@ -32,6 +32,10 @@ public final class TargetInfo {
     private boolean rebuild;
     private final File[] sources;
     private final File[] sysSources;
+    /**
+     * Modification time of the output when it was last built, 0 if unknown.
+     */
+    private long verifiedLastModified;
 
     public TargetInfo(ProcessorConfiguration config, File[] sources,
                       File[] sysSources, File output, boolean rebuild) {
@@ -56,7 +60,7 @@ public final class TargetInfo {
         //
         //   if the output doesn't exist, must rebuild it
         //
-        if (!output.exists()) {
+        if (!FileSnapshot.exists(output)) {
             rebuild = true;
         }
     }
@@ -93,6 +97,17 @@ public final class TargetInfo {
         return rebuild;
     }
 
+    /**
+     * Gets the modification time of the output when it was last built,
+     * which is later than the modification time of the output if an
+     * unchanged output had its previous time restored.
+     *
+     * @return modification time, 0 if unknown
+     */
+    public long getVerifiedLastModified() {
+        return verifiedLastModified;
+    }
+
     /**
      * Returns an array of SourceHistory objects (contains relative path and
      * last modified time) for the source[s] of this target.
@@ -105,7 +120,15 @@ public final class TargetInfo {
         for (int i = 0; i < sources.length; i++) {
             String relativeName = getRelativePath(basePath, sources[i]);
             long lastModified = sources[i].lastModified();
-            histories[i] = new SourceHistory(relativeName, lastModified);
+            //
+            //   a shared library remembers its ABI so that
+            //      dependents are only relinked when it changes
+            //
+            String abiStamp = null;
+            if (AbiStamp.isSharedLibraryName(sources[i].getName())) {
+                abiStamp = AbiStamp.get(sources[i]);
+            }
+            histories[i] = new SourceHistory(relativeName, lastModified, abiStamp);
         }
         return histories;
     }
@@ -137,4 +160,13 @@ public final class TargetInfo {
     public void mustRebuild() {
         this.rebuild = true;
     }
+
+    /**
+     * Sets the modification time of the output when it was last built.
+     *
+     * @param lastModified modification time
+     */
+    public void setVerifiedLastModified(long lastModified) {
+        verifiedLastModified = lastModified;
+    }
 }
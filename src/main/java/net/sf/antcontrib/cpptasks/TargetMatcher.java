@@ -16,12 +16,17 @@
  */
 package net.sf.antcontrib.cpptasks;
 
+import net.sf.antcontrib.cpptasks.compiler.AbstractProcessor;
+import net.sf.antcontrib.cpptasks.compiler.CommandLineCompilerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.LinkerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.ProcessorConfiguration;
 import org.apache.tools.ant.BuildException;
 
 import java.io.File;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 /**
@@ -34,6 +39,15 @@ public final class TargetMatcher implements FileVisitor {
     private final Vector<File> objectFiles;
     private final File outputDir;
     private final ProcessorConfiguration[] processors;
+    /**
+     * Processors that may bid on a file, keyed by lower case extension.
+     */
+    private final Hashtable<String, ProcessorConfiguration[]> bidders =
+            new Hashtable<String, ProcessorConfiguration[]>();
+    /**
+     * Processors that may bid on a file with any other extension.
+     */
+    private final ProcessorConfiguration[] otherBidders;
     private final File[] sourceFiles = new File[1];
     private final Hashtable<String, TargetInfo> targets;
     private final VersionInfo versionInfo;
@@ -50,6 +64,85 @@ public final class TargetMatcher implements FileVisitor {
         this.linker = linker;
         this.objectFiles = objectFiles;
         this.versionInfo = versionInfo;
+        //
+        //   a processor that only matches file name extensions
+        //      is asked to bid on files with those extensions,
+        //      any other processor is asked to bid on every file
+        //
+        Vector<ProcessorConfiguration> others = new Vector<ProcessorConfiguration>();
+        Hashtable<String, Vector<ProcessorConfiguration>> byExtension =
+                new Hashtable<String, Vector<ProcessorConfiguration>>();
+        if (processors != null) {
+            for (ProcessorConfiguration processor : processors) {
+                Set<String> extensions = getExtensions(processor);
+                if (extensions == null) {
+                    others.addElement(processor);
+                    for (Vector<ProcessorConfiguration> candidates : byExtension.values()) {
+                        candidates.addElement(processor);
+                    }
+                } else {
+                    for (String extension : extensions) {
+                        Vector<ProcessorConfiguration> candidates = byExtension.get(extension);
+                        if (candidates == null) {
+                            candidates = new Vector<ProcessorConfiguration>(others);
+                            byExtension.put(extension, candidates);
+                        }
+                        candidates.addElement(processor);
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, Vector<ProcessorConfiguration>> entry : byExtension.entrySet()) {
+            bidders.put(entry.getKey(), entry.getValue().toArray(new ProcessorConfiguration[0]));
+        }
+        otherBidders = others.toArray(new ProcessorConfiguration[0]);
+    }
+
+    /**
+     * Gets the last extension of a file name.
+     *
+     * @param filename file name
+     * @return lower case extension including the dot, empty if none
+     */
+    private static String getExtension(String filename) {
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0 || filename.indexOf('/', dot) >= 0 || filename.indexOf('\\', dot) >= 0) {
+            return "";
+        }
+        return filename.substring(dot).toLowerCase();
+    }
+
+    /**
+     * Gets the extensions a processor bids on.
+     *
+     * @param processor processor configuration
+     * @return lower case extensions or null if the processor
+     * may bid on other files
+     */
+    private static Set<String> getExtensions(ProcessorConfiguration processor) {
+        if (!(processor instanceof CommandLineCompilerConfiguration)) {
+            return null;
+        }
+        Object compiler = ((CommandLineCompilerConfiguration) processor).getCompiler();
+        if (!(compiler instanceof AbstractProcessor)) {
+            return null;
+        }
+        Set<String> extensions = new HashSet<String>();
+        for (String[] list : new String[][]{((AbstractProcessor) compiler).getSourceExtensions(),
+                ((AbstractProcessor) compiler).getHeaderExtensions()}) {
+            for (String extension : list) {
+                //
+                //   AbstractProcessor.bid matches the end of the name,
+                //      file names are grouped by their last extension
+                //
+                String last = getExtension(extension);
+                if (last.length() == 0) {
+                    return null;
+                }
+                extensions.add(last);
+            }
+        }
+        return extensions;
     }
 
     public void visit(File parentDir, String filename) throws BuildException {
@@ -59,13 +152,15 @@ public final class TargetMatcher implements FileVisitor {
         //       on this one
         ProcessorConfiguration selectedCompiler = null;
         int bid = 0;
-        if (processors != null) {
-            for (ProcessorConfiguration processor : processors) {
-                int newBid = processor.bid(fullPath.toString());
-                if (newBid > bid) {
-                    bid = newBid;
-                    selectedCompiler = processor;
-                }
+        ProcessorConfiguration[] candidates = bidders.get(getExtension(filename));
+        if (candidates == null) {
+            candidates = otherBidders;
+        }
+        for (ProcessorConfiguration processor : candidates) {
+            int newBid = processor.bid(fullPath.toString());
+            if (newBid > bid) {
+                bid = newBid;
+                selectedCompiler = processor;
             }
         }
         //
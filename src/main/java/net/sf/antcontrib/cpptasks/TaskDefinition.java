@@ -0,0 +1,201 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.RuntimeConfigurable;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.UnknownElement;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * Element name, attributes, text and nested elements of a task as
+ * written in the build file, with properties already expanded, so
+ * the task can be recreated in another project.
+ */
+final class TaskDefinition {
+    /**
+     * Longest string accepted from a stream, longer lengths
+     * indicate a corrupt or hostile stream.
+     */
+    static final int MAX_STRING_LENGTH = 0x1000000;
+
+    private final String name;
+    private final Map<String, String> attributes;
+    private final String text;
+    private final Vector<TaskDefinition> children;
+
+    private TaskDefinition(String name, Map<String, String> attributes, String text,
+                           Vector<TaskDefinition> children) {
+        this.name = name;
+        this.attributes = attributes;
+        this.text = text;
+        this.children = children;
+    }
+
+    /**
+     * Creates the definition of a configured element.
+     *
+     * @param project project used to expand properties
+     * @param wrapper configuration of the element
+     * @param name    element name to record
+     * @param exclude lower case names of attributes to leave out
+     * @return definition
+     */
+    static TaskDefinition fromWrapper(Project project, RuntimeConfigurable wrapper,
+                                      String name, String... exclude) {
+        Map<String, String> attributes = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, Object> entry : wrapper.getAttributeMap().entrySet()) {
+            if (!Arrays.asList(exclude).contains(entry.getKey().toLowerCase(Locale.US))) {
+                attributes.put(entry.getKey(),
+                        project.replaceProperties(String.valueOf(entry.getValue())));
+            }
+        }
+        Vector<TaskDefinition> children = new Vector<TaskDefinition>();
+        Enumeration<RuntimeConfigurable> childWrappers = wrapper.getChildren();
+        while (childWrappers.hasMoreElements()) {
+            RuntimeConfigurable child = childWrappers.nextElement();
+            //
+            //   namespace prefixes are not meaningful in the other project
+            //
+            String tag = child.getElementTag();
+            tag = tag.substring(tag.lastIndexOf(':') + 1);
+            children.addElement(fromWrapper(project, child, tag));
+        }
+        return new TaskDefinition(name, attributes,
+                project.replaceProperties(wrapper.getText().toString()), children);
+    }
+
+    /**
+     * Determines if this element or a nested element refers to an
+     * object defined elsewhere in the build file.
+     *
+     * @return true if a refid attribute is present
+     */
+    boolean hasReferences() {
+        for (String attribute : attributes.keySet()) {
+            if (attribute.equalsIgnoreCase("refid")) {
+                return true;
+            }
+        }
+        for (TaskDefinition child : children) {
+            if (child.hasReferences()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates an unconfigured element in a project.
+     *
+     * @param project project
+     * @param target  owning target
+     * @return element
+     */
+    UnknownElement toElement(Project project, Target target) {
+        UnknownElement element = new UnknownElement(name);
+        element.setProject(project);
+        element.setQName(name);
+        element.setTaskName(name);
+        element.setNamespace("");
+        element.setOwningTarget(target);
+        RuntimeConfigurable wrapper = new RuntimeConfigurable(element, name);
+        for (Map.Entry<String, String> entry : attributes.entrySet()) {
+            wrapper.setAttribute(entry.getKey(), entry.getValue());
+        }
+        if (text.length() > 0) {
+            wrapper.addText(text);
+        }
+        for (TaskDefinition child : children) {
+            UnknownElement childElement = child.toElement(project, target);
+            element.addChild(childElement);
+            wrapper.addChild(childElement.getWrapper());
+        }
+        return element;
+    }
+
+    void write(DataOutputStream output) throws IOException {
+        writeString(output, name);
+        output.writeInt(attributes.size());
+        for (Map.Entry<String, String> entry : attributes.entrySet()) {
+            writeString(output, entry.getKey());
+            writeString(output, entry.getValue());
+        }
+        writeString(output, text);
+        output.writeInt(children.size());
+        for (TaskDefinition child : children) {
+            child.write(output);
+        }
+    }
+
+    static TaskDefinition read(DataInputStream input) throws IOException {
+        String name = readString(input);
+        int attributeCount = input.readInt();
+        Map<String, String> attributes = new LinkedHashMap<String, String>();
+        for (int i = 0; i < attributeCount; i++) {
+            String key = readString(input);
+            attributes.put(key, readString(input));
+        }
+        String text = readString(input);
+        int childCount = input.readInt();
+        Vector<TaskDefinition> children = new Vector<TaskDefinition>();
+        for (int i = 0; i < childCount; i++) {
+            children.addElement(read(input));
+        }
+        return new TaskDefinition(name, attributes, text, children);
+    }
+
+    /**
+     * Writes a string of any length as UTF-8.
+     *
+     * @param output stream
+     * @param value  string
+     * @throws IOException if unable to write
+     */
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes("UTF-8");
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString.
+     *
+     * @param input stream
+     * @return string
+     * @throws IOException if unable to read or the length is invalid
+     */
+    static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.types.EnumeratedAttribute;
+
+/**
+ * Enumeration of methods used to decide whether an object file
+ * is up to date.
+ * <ul>
+ * <li>timestamp - compare modification times (default)</li>
+ * <li>hash - compare digests of the contents of the source and
+ * its includes recorded in the history</li>
+ * </ul>
+ */
+public final class UpToDateEnum extends EnumeratedAttribute {
+    /**
+     * Constructor.
+     * <p>
+     * Set by default to "timestamp"
+     * </p>
+     */
+    public UpToDateEnum() {
+        setValue("timestamp");
+    }
+
+    /**
+     * Gets list of acceptable values.
+     *
+     * @return an array of String
+     * @see org.apache.tools.ant.types.EnumeratedAttribute#getValues()
+     */
+    public String[] getValues() {
+        return new String[]{"timestamp", "hash"};
+    }
+
+    /**
+     * Determines if contents digests are compared.
+     *
+     * @return true if value is "hash"
+     */
+    public boolean isHash() {
+        return "hash".equals(getValue());
+    }
+}
@@ -22,16 +22,26 @@ import net.sf.antcontrib.cpptasks.DependencyInfo;
 import net.sf.antcontrib.cpptasks.ProcessorDef;
 import net.sf.antcontrib.cpptasks.TargetDef;
 import net.sf.antcontrib.cpptasks.VersionInfo;
+import net.sf.antcontrib.cpptasks.parser.CParser;
+import net.sf.antcontrib.cpptasks.parser.ConditionalCParser;
+import net.sf.antcontrib.cpptasks.parser.FortranParser;
+import net.sf.antcontrib.cpptasks.parser.HeaderScanCache;
 import net.sf.antcontrib.cpptasks.parser.Parser;
+import net.sf.antcontrib.cpptasks.types.UndefineArgument;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 import static net.sf.antcontrib.cpptasks.CUtil.FILETIME_EPSILON;
+import static net.sf.antcontrib.cpptasks.CUtil.getCanonicalPath;
 import static net.sf.antcontrib.cpptasks.CUtil.getRelativePath;
 
 /**
@@ -90,6 +100,22 @@ public abstract class AbstractCompiler extends AbstractProcessor implements Comp
 
     abstract protected Parser createParser(File sourceFile);
 
+    /**
+     * Gets the macros predefined by the compiler for the source file.
+     * <p>
+     * Default implementation returns null since the
+     * predefined macros are not known.
+     * </p>
+     *
+     * @param sourceFile source or header file
+     * @param args       command line arguments
+     * @return macro values keyed by name, a null value indicates
+     * a macro that may or may not be defined, null if not known
+     */
+    protected Map<String, String> getPredefinedMacros(File sourceFile, String[] args) {
+        return null;
+    }
+
     protected String getBaseOutputName(String inputFile) {
         int lastSlash = inputFile.lastIndexOf('/');
         int lastReverse = inputFile.lastIndexOf('\\');
@@ -136,6 +162,32 @@ public abstract class AbstractCompiler extends AbstractProcessor implements Comp
     public final DependencyInfo parseIncludes(CCTask task, File source, File[] includePath,
                                               File[] sysIncludePath, File[] envIncludePath,
                                               File baseDir, String includePathIdentifier) {
+        return parseIncludes(task, source, includePath, sysIncludePath, envIncludePath,
+                baseDir, includePathIdentifier, null, null);
+    }
+
+    /**
+     * Returns dependency info for the specified source file, ignoring
+     * includes in conditional blocks that are inactive for the defines.
+     *
+     * @param task                  task for any diagnostic output
+     * @param source                file to be parsed
+     * @param includePath           include path to be used to resolve included files
+     * @param sysIncludePath        system include path from build file, files resolved using
+     *                              system include path will not participate in dependency analysis
+     * @param envIncludePath        include path from environment variable, files resolved with
+     *                              envIncludePath will not participate in dependency analysis
+     * @param baseDir               used to produce relative paths in DependencyInfo
+     * @param includePathIdentifier used to distinguish DependencyInfo's from different include
+     *                              path settings, should reflect the defines
+     * @param defines               effective defines and undefines, may be null
+     * @param args                  command line arguments, may be null
+     * @return DependencyInfo
+     */
+    public final DependencyInfo parseIncludes(CCTask task, File source, File[] includePath,
+                                              File[] sysIncludePath, File[] envIncludePath,
+                                              File baseDir, String includePathIdentifier,
+                                              UndefineArgument[] defines, String[] args) {
         //
         //  if any of the include files can not be identified
         //      change the sourceLastModified to Long.MAX_VALUE to
@@ -145,21 +197,62 @@ public abstract class AbstractCompiler extends AbstractProcessor implements Comp
         sourcePath[0] = new File(source.getParent());
         String baseDirPath;
         try {
-            baseDirPath = baseDir.getCanonicalPath();
+            baseDirPath = getCanonicalPath(baseDir);
         } catch (IOException ex) {
             baseDirPath = baseDir.toString();
         }
         String relativeSource = getRelativePath(baseDirPath, source);
         String[] includes = emptyIncludeArray;
+        String[] modules = null;
+        String[] uses = null;
         if (canParse(source)) {
             Parser parser = createParser(source);
-            try {
-                Reader reader = new BufferedReader(new FileReader(source));
-                parser.parse(reader);
-                includes = parser.getIncludes();
-            } catch (IOException ex) {
-                task.log("Error parsing " + source.toString() + ":" + ex.toString());
-                includes = new String[0];
+            if (defines != null && parser instanceof CParser) {
+                Map<String, String> defined = new HashMap<String, String>();
+                Set<String> undefined = new HashSet<String>();
+                for (UndefineArgument define : defines) {
+                    if (define.isDefine()) {
+                        defined.put(define.getName(), define.getValue());
+                    } else {
+                        undefined.add(define.getName());
+                    }
+                }
+                parser = new ConditionalCParser(defined, undefined,
+                        getPredefinedMacros(source, args == null ? new String[0] : args));
+            }
+            //
+            //   the directives found do not depend on the include path,
+            //      reuse them from any earlier scan in this JVM
+            //
+            String scanner = parser.getClass().getName();
+            if (parser instanceof ConditionalCParser) {
+                scanner = ((ConditionalCParser) parser).getScannerKey();
+            }
+            HeaderScanCache.Result scan = HeaderScanCache.get(source, scanner);
+            if (scan == null) {
+                try {
+                    Reader reader = new BufferedReader(new FileReader(source));
+                    try {
+                        parser.parse(reader);
+                    } finally {
+                        reader.close();
+                    }
+                    if (parser instanceof FortranParser) {
+                        scan = new HeaderScanCache.Result(parser.getIncludes(),
+                                ((FortranParser) parser).getModules(),
+                                ((FortranParser) parser).getUses());
+                    } else {
+                        scan = new HeaderScanCache.Result(parser.getIncludes(), null, null);
+                    }
+                    HeaderScanCache.put(source, scanner, scan);
+                } catch (IOException ex) {
+                    task.log("Error parsing " + source.toString() + ":" + ex.toString());
+                }
+            }
+            if (scan != null) {
+                includes = scan.getIncludes();
+                modules = scan.getModules();
+                uses = scan.getUses();
             }
         }
 
@@ -196,7 +289,7 @@ public abstract class AbstractCompiler extends AbstractProcessor implements Comp
             onSysIncludePath.add(relativeInclude);
         }
         return new DependencyInfo(includePathIdentifier, relativeSource,
-                sourceLastModified, onIncludePath, onSysIncludePath);
+                sourceLastModified, onIncludePath, onSysIncludePath, false, modules, uses);
     }
 
     protected boolean resolveInclude(String includeName, File[] includePath,
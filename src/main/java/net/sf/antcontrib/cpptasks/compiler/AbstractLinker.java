@@ -71,10 +71,10 @@ public abstract class AbstractLinker extends AbstractProcessor implements Linker
         return this;
     }
 
-    abstract protected LinkerConfiguration createConfiguration(CCTask task,
-                                                               LinkType linkType, ProcessorDef[] baseConfigs,
-                                                               LinkerDef specificConfig, TargetDef targetPlatform,
-                                                               VersionInfo versionInfo);
+    abstract public LinkerConfiguration createConfiguration(CCTask task,
+                                                            LinkType linkType, ProcessorDef[] baseConfigs,
+                                                            LinkerDef specificConfig, TargetDef targetPlatform,
+                                                            VersionInfo versionInfo, File outputFile);
 
     public ProcessorConfiguration createConfiguration(CCTask task,
                                                       LinkType linkType, ProcessorDef[] baseConfigs,
@@ -85,7 +85,8 @@ public abstract class AbstractLinker extends AbstractProcessor implements Linker
             throw new NullPointerException("specificConfig");
         }
         return createConfiguration(task, linkType, baseConfigs,
-                (LinkerDef) specificConfig, targetPlatform, versionInfo);
+                (LinkerDef) specificConfig, targetPlatform, versionInfo,
+                task == null ? null : task.getOutfile());
     }
 
     public String getLibraryKey(File libfile) {
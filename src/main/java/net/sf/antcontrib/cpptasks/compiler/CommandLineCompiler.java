@@ -65,6 +65,25 @@ public abstract class CommandLineCompiler extends AbstractCompiler {
         this.env = env;
     }
 
+    /**
+     * Adds the arguments compiling for link-time optimization.
+     * Default implementation does nothing.
+     *
+     * @param lto  "full" or "thin"
+     * @param args arguments
+     */
+    protected void addLto(String lto, Vector<String> args) {
+    }
+
+    /**
+     * Adds the arguments writing debug information to separate files.
+     * Default implementation does nothing.
+     *
+     * @param args arguments
+     */
+    protected void addSplitDwarf(Vector<String> args) {
+    }
+
     abstract protected void addImpliedArgs(Vector<String> args, boolean debug,
                                            boolean multithreaded, boolean exceptions, LinkType linkType,
                                            Boolean rtti, OptimizationEnum optimization);
@@ -106,16 +125,7 @@ public abstract class CommandLineCompiler extends AbstractCompiler {
     abstract protected void addWarningSwitch(Vector<String> args, int warnings);
 
     protected void buildDefineArguments(CompilerDef[] defs, Vector<String> args) {
-        //
-        //   assume that we aren't inheriting defines from containing <cc>
-        //
-        UndefineArgument[] merged = defs[0].getActiveDefines();
-        for (int i = 1; i < defs.length; i++) {
-            //
-            //  if we are inheriting, merge the specific defines with the
-            //      containing defines
-            merged = UndefineArgument.merge(defs[i].getActiveDefines(), merged);
-        }
+        UndefineArgument[] merged = getActiveDefines(defs);
         StringBuilder buf = new StringBuilder();
         for (UndefineArgument current : merged) {
             buf.setLength(0);
@@ -128,6 +138,38 @@ public abstract class CommandLineCompiler extends AbstractCompiler {
         }
     }
 
+    /**
+     * Determines if the compiler can read its arguments from a response
+     * file, in which case the number of source files compiled by one
+     * process is not limited by the maximum command length.
+     * Default implementation returns false.
+     *
+     * @return true if prepareResponseFile is supported
+     */
+    protected boolean canUseResponseFile() {
+        return false;
+    }
+
+    /**
+     * Merges the defines and undefines of the compiler definitions.
+     *
+     * @param defs specific definition followed by inherited definitions
+     * @return effective defines and undefines
+     */
+    protected UndefineArgument[] getActiveDefines(CompilerDef[] defs) {
+        //
+        //   assume that we aren't inheriting defines from containing <cc>
+        //
+        UndefineArgument[] merged = defs[0].getActiveDefines();
+        for (int i = 1; i < defs.length; i++) {
+            //
+            //  if we are inheriting, merge the specific defines with the
+            //      containing defines
+            merged = UndefineArgument.merge(defs[i].getActiveDefines(), merged);
+        }
+        return merged;
+    }
+
     /**
      * Compiles a source file.
      *
@@ -160,7 +202,13 @@ public abstract class CommandLineCompiler extends AbstractCompiler {
         for (String endArg : endArgs) {
             baseLength += endArg.length();
         }
-        if (baseLength > getMaximumCommandLength()) {
+        //
+        //   a compiler that reads a response file is not limited
+        //      by the maximum command length
+        //
+        boolean responseFile = canUseResponseFile();
+        int maximumCommandLength = getMaximumCommandLength();
+        if (baseLength > maximumCommandLength && !responseFile) {
             throw new BuildException("Command line is over maximum length"
                     + " without specifying source file");
         }
@@ -176,7 +224,7 @@ public abstract class CommandLineCompiler extends AbstractCompiler {
                     && (firstFileNextExec - sourceIndex) < maxInputFilesPerCommand) {
                 cmdLength += getTotalArgumentLengthForInputFile(outputDir,
                         sourceFiles[firstFileNextExec]);
-                if (cmdLength >= getMaximumCommandLength()) {
+                if (cmdLength >= maximumCommandLength && !responseFile) {
                     break;
                 }
                 firstFileNextExec++;
@@ -206,7 +254,26 @@ public abstract class CommandLineCompiler extends AbstractCompiler {
             for (String endArg : endArgs) {
                 commandline[index++] = endArg;
             }
-            int retval = runCommand(task, outputDir, commandline);
+            File commandFile = null;
+            if (responseFile && cmdLength >= maximumCommandLength) {
+                try {
+                    commandFile = File.createTempFile("cpptasks", ".rsp", outputDir);
+                    commandline = prepareResponseFile(commandFile, commandline);
+                } catch (IOException ex) {
+                    if (commandFile != null) {
+                        commandFile.delete();
+                    }
+                    throw new BuildException(ex, task.getLocation());
+                }
+            }
+            int retval;
+            try {
+                retval = runCommand(task, outputDir, commandline);
+            } finally {
+                if (commandFile != null) {
+                    commandFile.delete();
+                }
+            }
             if (monitor != null) {
                 String[] fileNames = new String[firstFileNextExec - sourceIndex];
                 System.arraycopy(sourceFiles, sourceIndex, fileNames, 0, fileNames.length);
@@ -282,6 +349,13 @@ public abstract class CommandLineCompiler extends AbstractCompiler {
         Boolean rtti = specificDef.getRtti(defaultProviders, 1);
         OptimizationEnum optimization = specificDef.getOptimization(defaultProviders, 1);
         this.addImpliedArgs(args, debug, multithreaded, exceptions, linkType, rtti, optimization);
+        if (debug && specificDef.getSplitDwarf(baseDefs, 0)) {
+            addSplitDwarf(args);
+        }
+        String lto = specificDef.getLto(baseDefs, 0);
+        if (lto != null) {
+            addLto(lto, args);
+        }
         //
         //    add all appropriate defines and undefines
         //
@@ -316,7 +390,7 @@ public abstract class CommandLineCompiler extends AbstractCompiler {
         File baseDir = specificDef.getProject().getBaseDir();
         String baseDirPath;
         try {
-            baseDirPath = baseDir.getCanonicalPath();
+            baseDirPath = CUtil.getCanonicalPath(baseDir);
         } catch (IOException ex) {
             baseDirPath = baseDir.toString();
         }
@@ -340,6 +414,26 @@ public abstract class CommandLineCompiler extends AbstractCompiler {
         }
         addIncludes(baseDirPath, incPath, args, relativeArgs, includePathIdentifier);
         addIncludes(baseDirPath, sysIncPath, args, null, null);
+        //
+        //   parsed includes depend on the active defines
+        //      and any switches that change predefined macros
+        //
+        UndefineArgument[] defines = getActiveDefines(defaultProviders);
+        for (UndefineArgument define : defines) {
+            if (includePathIdentifier.length() > 0) {
+                includePathIdentifier.append(' ');
+            }
+            includePathIdentifier.append(define.isDefine() ? "/D" : "/U").append(define.getName());
+            if (define.isDefine() && define.getValue() != null && !define.getValue().isEmpty()) {
+                includePathIdentifier.append('=').append(define.getValue());
+            }
+        }
+        for (String arg : getPredefinedMacroArgs(relativeArgs.toArray(new String[0]))) {
+            if (includePathIdentifier.length() > 0) {
+                includePathIdentifier.append(' ');
+            }
+            includePathIdentifier.append(arg);
+        }
         StringBuilder buf = new StringBuilder(getIdentifier());
         for (int i = 0; i < relativeArgs.size(); i++) {
             buf.append(' ').append(relativeArgs.elementAt(i));
@@ -350,7 +444,37 @@ public abstract class CommandLineCompiler extends AbstractCompiler {
         return new CommandLineCompilerConfiguration(this, buf.toString(), incPath, sysIncPath,
                 getEnvironmentIncludePath(), includePathIdentifier.toString(),
                 args.toArray(new String[0]), paramArray, specificDef.getRebuild(baseDefs, 0),
-                endArgs);
+                endArgs, defines);
+    }
+
+    /**
+     * Gets the output file names of a configuration, including the files
+     * written because of its arguments.
+     * <p>
+     * Default implementation ignores the arguments.
+     * </p>
+     *
+     * @param inputFile   input file name
+     * @param versionInfo version info
+     * @param args        arguments of the configuration
+     * @return output file names
+     */
+    protected String[] getOutputFileNames(String inputFile, VersionInfo versionInfo, String[] args) {
+        return getOutputFileNames(inputFile, versionInfo);
+    }
+
+    /**
+     * Selects the command line arguments that change the macros
+     * predefined by the compiler.
+     * <p>
+     * Default implementation returns an empty array.
+     * </p>
+     *
+     * @param args command line arguments
+     * @return arguments that affect predefined macros
+     */
+    protected String[] getPredefinedMacroArgs(String[] args) {
+        return new String[0];
     }
 
     protected int getArgumentCountPerInputFile() {
@@ -422,6 +546,20 @@ public abstract class CommandLineCompiler extends AbstractCompiler {
 
     abstract protected void getUndefineSwitch(StringBuilder buffer, String define);
 
+    /**
+     * Prepares a command line that passes the arguments
+     * in a response file.
+     *
+     * @param commandFile response file, deleted after the command has run
+     * @param commandline command line
+     * @return command line that reads the response file
+     * @throws IOException if unable to write the response file
+     */
+    protected String[] prepareResponseFile(File commandFile, String[] commandline)
+            throws IOException {
+        throw new IllegalStateException(getCommand() + " does not support response files");
+    }
+
     /**
      * This method is exposed so test classes can overload and test the
      * arguments without actually spawning the compiler
@@ -21,6 +21,7 @@ import net.sf.antcontrib.cpptasks.CompilerParam;
 import net.sf.antcontrib.cpptasks.DependencyInfo;
 import net.sf.antcontrib.cpptasks.ProcessorParam;
 import net.sf.antcontrib.cpptasks.VersionInfo;
+import net.sf.antcontrib.cpptasks.types.UndefineArgument;
 import org.apache.tools.ant.BuildException;
 
 import java.io.File;
@@ -35,6 +36,11 @@ public final class CommandLineCompilerConfiguration
         CompilerConfiguration {
     private final String[] args;
     private final CommandLineCompiler compiler;
+    /**
+     * Effective defines and undefines, used to evaluate
+     * conditional includes.  May be null.
+     */
+    private final UndefineArgument[] defines;
     private final String[] endArgs;
     //
     //    include path from environment variable not
@@ -53,6 +59,15 @@ public final class CommandLineCompilerConfiguration
                                             String identifier, File[] includePath, File[] sysIncludePath,
                                             File[] envIncludePath, String includePathIdentifier, String[] args,
                                             ProcessorParam[] params, boolean rebuild, String[] endArgs) {
+        this(compiler, identifier, includePath, sysIncludePath, envIncludePath,
+                includePathIdentifier, args, params, rebuild, endArgs, null);
+    }
+
+    public CommandLineCompilerConfiguration(CommandLineCompiler compiler,
+                                            String identifier, File[] includePath, File[] sysIncludePath,
+                                            File[] envIncludePath, String includePathIdentifier, String[] args,
+                                            ProcessorParam[] params, boolean rebuild, String[] endArgs,
+                                            UndefineArgument[] defines) {
         if (compiler == null) {
             throw new NullPointerException("compiler");
         }
@@ -88,6 +103,11 @@ public final class CommandLineCompilerConfiguration
         this.identifier = identifier;
         this.includePathIdentifier = includePathIdentifier;
         this.endArgs = endArgs.clone();
+        if (defines == null) {
+            this.defines = null;
+        } else {
+            this.defines = defines.clone();
+        }
         exceptFiles = null;
         isPrecompiledHeaderGeneration = false;
     }
@@ -96,6 +116,7 @@ public final class CommandLineCompilerConfiguration
                                             String[] additionalArgs, String[] exceptFiles,
                                             boolean isPrecompileHeaderGeneration) {
         compiler = base.compiler;
+        defines = base.defines;
         identifier = base.identifier;
         rebuild = base.rebuild;
         includePath = base.includePath.clone();
@@ -188,7 +209,7 @@ public final class CommandLineCompilerConfiguration
     }
 
     public String[] getOutputFileNames(String inputFile, VersionInfo versionInfo) {
-        return compiler.getOutputFileNames(inputFile, versionInfo);
+        return compiler.getOutputFileNames(inputFile, versionInfo, args);
     }
 
     public CompilerParam getParam(String name) {
@@ -215,7 +236,7 @@ public final class CommandLineCompilerConfiguration
     public DependencyInfo parseIncludes(CCTask task, File baseDir, File source) {
         return compiler.parseIncludes(task, source, includePath,
                 sysIncludePath, envIncludePath, baseDir,
-                getIncludePathIdentifier());
+                getIncludePathIdentifier(), defines, args);
     }
 
     public String toString() {
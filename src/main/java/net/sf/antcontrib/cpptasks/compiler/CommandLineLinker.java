@@ -26,6 +26,7 @@ import net.sf.antcontrib.cpptasks.VersionInfo;
 import net.sf.antcontrib.cpptasks.types.CommandLineArgument;
 import net.sf.antcontrib.cpptasks.types.LibrarySet;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
 import org.apache.tools.ant.types.Environment;
 
 import java.io.File;
@@ -52,7 +53,10 @@ public abstract class CommandLineLinker extends AbstractLinker {
     private final CommandLineLinker libtoolLinker;
     private final boolean newEnvironment = false;
     private final String outputSuffix;
-
+    /**
+     * Default size limit of the link-time optimization cache in megabytes.
+     */
+    private static final int DEFAULT_LTO_CACHE_SIZE = 1024;
 
     /**
      * Creates a command line linker invocation
@@ -90,7 +94,7 @@ public abstract class CommandLineLinker extends AbstractLinker {
     //
     //  Windows processors handle these through file list
     //
-    protected String[] addLibrarySets(CCTask task, LibrarySet[] libsets, Vector<String> preargs,
+    protected String[] addLibrarySets(CCTask task, File outputFile, LibrarySet[] libsets, Vector<String> preargs,
                                       Vector<String> midargs, Vector<String> endargs) {
         return null;
     }
@@ -101,11 +105,66 @@ public abstract class CommandLineLinker extends AbstractLinker {
 
     protected abstract void addEntry(String entry, Vector<String> args);
 
-    protected LinkerConfiguration createConfiguration(CCTask task, LinkType linkType,
-                                                      ProcessorDef[] baseDefs,
-                                                      LinkerDef specificDef,
-                                                      TargetDef targetPlatform,
-                                                      VersionInfo versionInfo) {
+    /**
+     * Adds the arguments for link-time optimization.
+     * Default implementation does nothing.
+     *
+     * @param lto      "full" or "thin"
+     * @param jobs     parallel jobs, 0 to let the compiler decide
+     * @param cacheDir cache directory relative to the output directory,
+     *                 null if results are not cached
+     * @param args     arguments
+     * @return true if the cache directory is used
+     */
+    protected boolean addLto(String lto, int jobs, String cacheDir, Vector<String> args) {
+        return false;
+    }
+
+    /**
+     * Adds the arguments selecting and tuning the linker run by a
+     * compiler driver.  Linkers without such options ignore them.
+     *
+     * @param fuseLd        linker name, null for the default linker
+     * @param linkerThreads thread count, 0 for the linker's default
+     * @param gdbIndex      if true, create a .gdb_index section
+     * @param buildId       build ID style, null if not set
+     * @param args          arguments
+     */
+    protected void addLinkerSelection(String fuseLd, int linkerThreads, boolean gdbIndex,
+                                      String buildId, Vector<String> args) {
+    }
+
+    /**
+     * Determines if the linker accepts the options added by
+     * addLinkerSelection, a warning is logged if they are set
+     * for a linker that doesn't.  Default implementation returns false.
+     *
+     * @return true if fuseld, linkerthreads, gdbindex and buildid are supported
+     */
+    protected boolean isLinkerSelectionSupported() {
+        return false;
+    }
+
+    /**
+     * Gets the command that combines object files into a single
+     * relocatable object, used to pre-link groups of objects.  The
+     * output file switch and the object files are appended.
+     * Default implementation returns null.
+     *
+     * @param config configuration of the final link
+     * @return command and arguments, null if the linker can't
+     * produce relocatable objects
+     */
+    public String[] getPartialLinkCommand(CommandLineLinkerConfiguration config) {
+        return null;
+    }
+
+    public LinkerConfiguration createConfiguration(CCTask task, LinkType linkType,
+                                                   ProcessorDef[] baseDefs,
+                                                   LinkerDef specificDef,
+                                                   TargetDef targetPlatform,
+                                                   VersionInfo versionInfo,
+                                                   File outputFile) {
         Vector<String> preargs = new Vector<String>();
         Vector<String> midargs = new Vector<String>();
         Vector<String> endargs = new Vector<String>();
@@ -153,11 +212,47 @@ public abstract class CommandLineLinker extends AbstractLinker {
         addBase(specificDef.getBase(defaultProviders, 1), preargs);
         addStack(specificDef.getStack(defaultProviders, 1), preargs);
         addEntry(specificDef.getEntry(defaultProviders, 1), preargs);
+        String fuseLd = specificDef.getFuseLd(defaultProviders, 1);
+        int linkerThreads = specificDef.getLinkerThreads(defaultProviders, 1);
+        boolean gdbIndex = specificDef.getGdbIndex(defaultProviders, 1);
+        String buildId = specificDef.getBuildId(defaultProviders, 1);
+        if (isLinkerSelectionSupported()) {
+            addLinkerSelection(fuseLd, linkerThreads, gdbIndex, buildId, preargs);
+        } else if (task != null && (fuseLd != null || linkerThreads > 0 || gdbIndex
+                || (buildId != null && !"false".equals(buildId)))) {
+            task.log("fuseld, linkerthreads, gdbindex and buildid are ignored by "
+                    + getCommand(), Project.MSG_WARN);
+        }
+
+        //
+        //   thin link-time optimization caches results
+        //      in the object directory across links
+        //
+        String lto = specificDef.getLto(baseDefs, 0);
+        File ltoCache = null;
+        if (lto != null) {
+            String ltoCachePath = null;
+            if ("thin".equals(lto) && task != null && task.getObjdir() != null) {
+                ltoCache = new File(task.getObjdir(), "lto-cache");
+                ltoCachePath = ltoCache.getAbsolutePath();
+                if (outputFile != null && outputFile.getParentFile() != null) {
+                    ltoCachePath = CUtil.getRelativePath(
+                            outputFile.getParentFile().getAbsolutePath(), ltoCache);
+                }
+            }
+            if (!addLto(lto, specificDef.getLtoJobs(defaultProviders, 1), ltoCachePath, preargs)) {
+                ltoCache = null;
+            }
+        }
+        int ltoCacheSize = specificDef.getLtoCacheSize(defaultProviders, 1);
+        if (ltoCacheSize <= 0) {
+            ltoCacheSize = DEFAULT_LTO_CACHE_SIZE;
+        }
 
         String[] libnames = null;
         LibrarySet[] libsets = specificDef.getActiveLibrarySets(defaultProviders, 1);
         if (libsets.length > 0) {
-            libnames = addLibrarySets(task, libsets, preargs, midargs, endargs);
+            libnames = addLibrarySets(task, outputFile, libsets, preargs, midargs, endargs);
         }
 
         StringBuilder buf = new StringBuilder(getIdentifier());
@@ -183,8 +278,11 @@ public abstract class CommandLineLinker extends AbstractLinker {
         boolean map = specificDef.getMap(defaultProviders, 1);
 
         //task.log("libnames:"+libnames.length, Project.MSG_VERBOSE);
+        boolean dwp = debug && specificDef.getSplitDwarf(baseDefs, 0)
+                && specificDef.getDwp(defaultProviders, 1);
         return new CommandLineLinkerConfiguration(this, configId, options,
-                paramArray, rebuild, map, debug, libnames, startupObject);
+                paramArray, rebuild, map, debug, libnames, startupObject, dwp,
+                ltoCache, ltoCacheSize * 1024L * 1024L);
     }
 
     /**
@@ -227,6 +325,15 @@ public abstract class CommandLineLinker extends AbstractLinker {
         return this;
     }
 
+    /**
+     * Determines if the linker runs through libtool.
+     *
+     * @return true if libtool is used
+     */
+    protected final boolean isLibtool() {
+        return isLibtool;
+    }
+
     protected abstract int getMaximumCommandLength();
 
     public String[] getOutputFileNames(String baseName, VersionInfo versionInfo) {
@@ -259,7 +366,7 @@ public abstract class CommandLineLinker extends AbstractLinker {
         File parentDir = new File(outputFile.getParent());
         String parentPath;
         try {
-            parentPath = parentDir.getCanonicalPath();
+            parentPath = CUtil.getCanonicalPath(parentDir);
         } catch (IOException ex) {
             parentPath = parentDir.getAbsolutePath();
         }
@@ -274,15 +381,29 @@ public abstract class CommandLineLinker extends AbstractLinker {
         //   if command length exceeds maximum
         //       then create a temporary
         //       file containing everything but the command name
+        File commandFile = null;
         if (commandLength >= this.getMaximumCommandLength()) {
+            commandFile = getResponseFile(outputFile);
             try {
                 execArgs = prepareResponseFile(outputFile, execArgs);
             } catch (IOException ex) {
+                commandFile.delete();
                 throw new BuildException(ex);
             }
         }
 
-        int retval = runCommand(task, parentDir, execArgs);
+        File ltoCache = config.getLtoCache();
+        if (ltoCache != null) {
+            ltoCache.mkdirs();
+        }
+        int retval;
+        try {
+            retval = runCommand(task, parentDir, execArgs);
+        } finally {
+            if (commandFile != null) {
+                commandFile.delete();
+            }
+        }
         //
         //   if the process returned a failure code then
         //       throw an BuildException
@@ -293,7 +414,23 @@ public abstract class CommandLineLinker extends AbstractLinker {
             //
             throw new BuildException(this.getCommand() + " failed with return code " + retval, task.getLocation());
         }
+        if (config.getDwp()) {
+            packageSplitDwarf(task, outputFile);
+        }
+        if (ltoCache != null) {
+            LtoCache.prune(ltoCache, config.getLtoCacheSize());
+        }
+    }
 
+    /**
+     * Packages the split debug information of a linked file.
+     * Default implementation does nothing.
+     *
+     * @param task       compilation task
+     * @param outputFile linked file
+     * @throws BuildException if packaging fails
+     */
+    protected void packageSplitDwarf(CCTask task, File outputFile) throws BuildException {
     }
 
 
@@ -354,6 +491,17 @@ public abstract class CommandLineLinker extends AbstractLinker {
         return quoteFilename(buf, relativePath);
     }
 
+    /**
+     * Gets the response file written by prepareResponseFile,
+     * deleted after the link.
+     *
+     * @param outputFile linker output file
+     * @return response file next to the output file
+     */
+    protected File getResponseFile(File outputFile) {
+        return new File(outputFile.getParent(), outputFile.getName() + ".rsp");
+    }
+
     /**
      * Prepares argument list to execute the linker using a
      * response file.
@@ -364,8 +512,7 @@ public abstract class CommandLineLinker extends AbstractLinker {
      * @throws IOException if something goes wrong
      */
     protected String[] prepareResponseFile(File outputFile, String[] args) throws IOException {
-        String baseName = outputFile.getName();
-        File commandFile = new File(outputFile.getParent(), baseName + ".rsp");
+        File commandFile = getResponseFile(outputFile);
         FileWriter writer = new FileWriter(commandFile);
         int execArgCount = 1;
         if (isLibtool) {
@@ -23,6 +23,8 @@ import net.sf.antcontrib.cpptasks.TargetInfo;
 import net.sf.antcontrib.cpptasks.VersionInfo;
 import org.apache.tools.ant.BuildException;
 
+import java.io.File;
+
 /**
  * A configuration for a command line linker
  *
@@ -37,12 +39,23 @@ public final class CommandLineLinkerConfiguration implements LinkerConfiguration
     private final ProcessorParam[] params;
     private final boolean rebuild;
     private final boolean debug;
+    private final boolean dwp;
+    private final File ltoCache;
+    private final long ltoCacheSize;
     private final String startupObject;
 
     public CommandLineLinkerConfiguration(CommandLineLinker linker,
                                           String identifier, String[][] args, ProcessorParam[] params,
                                           boolean rebuild, boolean map, boolean debug, String[] libraryNames,
                                           String startupObject) {
+        this(linker, identifier, args, params, rebuild, map, debug, libraryNames,
+                startupObject, false, null, 0);
+    }
+
+    public CommandLineLinkerConfiguration(CommandLineLinker linker,
+                                          String identifier, String[][] args, ProcessorParam[] params,
+                                          boolean rebuild, boolean map, boolean debug, String[] libraryNames,
+                                          String startupObject, boolean dwp, File ltoCache, long ltoCacheSize) {
         if (linker == null) {
             throw new NullPointerException("linker");
         }
@@ -57,6 +70,9 @@ public final class CommandLineLinkerConfiguration implements LinkerConfiguration
         this.identifier = identifier;
         this.map = map;
         this.debug = debug;
+        this.dwp = dwp;
+        this.ltoCache = ltoCache;
+        this.ltoCacheSize = ltoCacheSize;
         if (libraryNames == null) {
             this.libraryNames = new String[0];
         } else {
@@ -86,6 +102,33 @@ public final class CommandLineLinkerConfiguration implements LinkerConfiguration
         return libraryNames.clone();
     }
 
+    /**
+     * Gets whether split debug information is packaged after linking.
+     *
+     * @return true if a .dwp file is created
+     */
+    public boolean getDwp() {
+        return dwp;
+    }
+
+    /**
+     * Gets the cache directory of link-time optimization.
+     *
+     * @return directory, null if not cached
+     */
+    public File getLtoCache() {
+        return ltoCache;
+    }
+
+    /**
+     * Gets the size limit of the link-time optimization cache.
+     *
+     * @return bytes
+     */
+    public long getLtoCacheSize() {
+        return ltoCacheSize;
+    }
+
     public boolean getMap() {
         return map;
     }
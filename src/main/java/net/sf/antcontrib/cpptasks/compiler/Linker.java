@@ -16,6 +16,10 @@
  */
 package net.sf.antcontrib.cpptasks.compiler;
 
+import net.sf.antcontrib.cpptasks.CCTask;
+import net.sf.antcontrib.cpptasks.LinkerDef;
+import net.sf.antcontrib.cpptasks.ProcessorDef;
+import net.sf.antcontrib.cpptasks.TargetDef;
 import net.sf.antcontrib.cpptasks.TargetMatcher;
 import net.sf.antcontrib.cpptasks.VersionInfo;
 import net.sf.antcontrib.cpptasks.types.LibraryTypeEnum;
@@ -29,6 +33,25 @@ import java.io.IOException;
  * @author Adam Murdoch
  */
 public interface Linker extends Processor {
+    /**
+     * Creates a configuration for linking a specific output file.
+     * Library paths and caches are made relative to the directory
+     * of the output file.
+     *
+     * @param task           CCTask
+     * @param linkType       link type
+     * @param baseConfigs    inherited definitions
+     * @param specificConfig linker definition
+     * @param targetPlatform target platform, may be null
+     * @param versionInfo    version info, may be null
+     * @param outputFile     output file, may be null
+     * @return configuration
+     */
+    LinkerConfiguration createConfiguration(CCTask task, LinkType linkType,
+                                            ProcessorDef[] baseConfigs, LinkerDef specificConfig,
+                                            TargetDef targetPlatform, VersionInfo versionInfo,
+                                            File outputFile);
+
     /**
      * Extracts the significant part of a library name to ensure there aren't
      * collisions
@@ -0,0 +1,89 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.compiler;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Vector;
+
+/**
+ * Keeps the cache of link-time optimization results within a size limit.
+ * The compiler only adds to the cache, the least recently written files
+ * are removed once the total size exceeds the limit.
+ */
+final class LtoCache {
+    private LtoCache() {
+    }
+
+    /**
+     * Removes the oldest files of a cache until it fits the size limit.
+     *
+     * @param directory cache directory
+     * @param maxSize   size limit in bytes
+     * @return number of bytes removed
+     */
+    static long prune(File directory, long maxSize) {
+        Vector<File> files = new Vector<File>();
+        collectFiles(directory, files);
+        final long[] lastModified = new long[files.size()];
+        long total = 0;
+        for (int i = 0; i < files.size(); i++) {
+            total += files.elementAt(i).length();
+        }
+        if (total <= maxSize) {
+            return 0;
+        }
+        //
+        //   sort once on time stamps read beforehand
+        //
+        Integer[] order = new Integer[files.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            lastModified[i] = files.elementAt(i).lastModified();
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                long t1 = lastModified[o1];
+                long t2 = lastModified[o2];
+                return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+            }
+        });
+        long removed = 0;
+        for (int i = 0; i < order.length && total - removed > maxSize; i++) {
+            File file = files.elementAt(order[i]);
+            long length = file.length();
+            if (file.delete()) {
+                removed += length;
+            }
+        }
+        return removed;
+    }
+
+    private static void collectFiles(File directory, Vector<File> files) {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    collectFiles(child, files);
+                } else {
+                    files.addElement(child);
+                }
+            }
+        }
+    }
+}
@@ -17,18 +17,28 @@
 package net.sf.antcontrib.cpptasks.gcc;
 
 import net.sf.antcontrib.cpptasks.CCTask;
+import net.sf.antcontrib.cpptasks.LinkerParam;
 import net.sf.antcontrib.cpptasks.VersionInfo;
 import net.sf.antcontrib.cpptasks.compiler.CommandLineLinker;
 import net.sf.antcontrib.cpptasks.compiler.CommandLineLinkerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.types.LibraryTypeEnum;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Vector;
 
 /**
  * Adapter for the "ar" tool
+ * <p>
+ * The "archiver" linker parameter selects how archives are written:
+ * "ar" (the default) runs the tool, "java" updates the archive without
+ * running it and "thin" writes a GNU thin archive referencing the object
+ * files.  Objects that can not be indexed without the tool, for example
+ * slim LTO objects, are archived with the tool.
+ * </p>
  *
  * @author Adam Murdoch
  * @author Curt Arnold
@@ -70,7 +80,7 @@ public abstract class AbstractArLibrarian extends CommandLineLinker {
     }
 
     public String getCommandFileSwitch(String commandFile) {
-        return null;
+        return "@" + commandFile;
     }
 
     public File[] getLibraryPath() {
@@ -81,8 +91,17 @@ public abstract class AbstractArLibrarian extends CommandLineLinker {
         return new String[0];
     }
 
+    /**
+     * Gets the length of a command line above which the arguments are
+     * passed in a response file, not supported by libtool.
+     *
+     * @return maximum command length
+     */
     public int getMaximumCommandLength() {
-        return Integer.MAX_VALUE;
+        if (isLibtool()) {
+            return Integer.MAX_VALUE;
+        }
+        return GccProcessor.MAXIMUM_COMMAND_LENGTH;
     }
 
     public String[] getOutputFileNames(String baseName, VersionInfo versionInfo) {
@@ -105,6 +124,16 @@ public abstract class AbstractArLibrarian extends CommandLineLinker {
 
     public void link(CCTask task, File outputFile, String[] sourceFiles,
                      CommandLineLinkerConfiguration config) throws BuildException {
+        LinkerParam archiver = config.getParam("archiver");
+        if (archiver != null && !isLibtool() && !"ar".equals(archiver.getValue())) {
+            if (!"java".equals(archiver.getValue()) && !"thin".equals(archiver.getValue())) {
+                throw new BuildException("Unknown archiver " + archiver.getValue()
+                        + ", expected ar, java or thin", task.getLocation());
+            }
+            if (updateArchive(task, outputFile, sourceFiles, "thin".equals(archiver.getValue()))) {
+                return;
+            }
+        }
         //
         //   if there is an existing library then
         //      we must delete it before executing "ar"
@@ -116,4 +145,50 @@ public abstract class AbstractArLibrarian extends CommandLineLinker {
         //
         super.link(task, outputFile, sourceFiles, config);
     }
+
+    /**
+     * Prepares argument list to execute the archiver using a
+     * response file with GCC quoting.
+     *
+     * @param outputFile archiver output file
+     * @param args       output of prepareArguments
+     * @return arguments for runTask
+     * @throws IOException if unable to write the response file
+     */
+    protected String[] prepareResponseFile(File outputFile, String[] args) throws IOException {
+        return GccProcessor.prepareResponseFile(getResponseFile(outputFile), args, 1);
+    }
+
+    /**
+     * Updates the archive without running "ar".
+     *
+     * @param task        task
+     * @param outputFile  archive
+     * @param sourceFiles object files
+     * @param thin        if true, write a thin archive
+     * @return false if the objects can not be indexed and "ar" must be run
+     * @throws BuildException if unable to write the archive
+     */
+    private static boolean updateArchive(CCTask task, File outputFile, String[] sourceFiles,
+                                         boolean thin) throws BuildException {
+        File[] objects = new File[sourceFiles.length];
+        for (int i = 0; i < sourceFiles.length; i++) {
+            objects[i] = task.getProject().resolveFile(sourceFiles[i]);
+        }
+        ArArchive archive = new ArArchive(outputFile, thin);
+        try {
+            if (!archive.update(objects)) {
+                task.log("Objects can not be indexed, running ar", Project.MSG_VERBOSE);
+                return false;
+            }
+            archive.write();
+        } catch (IOException ex) {
+            throw new BuildException("Unable to write " + outputFile + ": " + ex.getMessage(),
+                    ex, task.getLocation());
+        }
+        task.log(String.format("%s: %d added, %d replaced, %d removed, %d unchanged",
+                outputFile.getName(), archive.getAdded(), archive.getReplaced(),
+                archive.getRemoved(), objects.length - archive.getAdded() - archive.getReplaced()));
+        return true;
+    }
 }
@@ -23,8 +23,10 @@ import net.sf.antcontrib.cpptasks.compiler.CommandLineLinkerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.types.LibrarySet;
 import net.sf.antcontrib.cpptasks.types.LibraryTypeEnum;
+import org.apache.tools.ant.BuildException;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Vector;
 
 import static net.sf.antcontrib.cpptasks.CUtil.getPathFromEnvironment;
@@ -102,17 +104,16 @@ public abstract class AbstractLdLinker extends CommandLineLinker {
         return offset + libnames.length;
     }
 
-    public String[] addLibrarySets(CCTask task, LibrarySet[] libsets,
+    public String[] addLibrarySets(CCTask task, File outputFile, LibrarySet[] libsets,
                                    Vector<String> preargs, Vector<String> midargs, Vector<String> endargs) {
         Vector<String> libnames = new Vector<String>();
-        super.addLibrarySets(task, libsets, preargs, midargs, endargs);
+        super.addLibrarySets(task, outputFile, libsets, preargs, midargs, endargs);
         LibraryTypeEnum previousLibraryType = null;
         for (LibrarySet set : libsets) {
             File libdir = set.getDir(null);
             String[] libs = set.getLibs();
             if (libdir != null) {
                 String relPath = libdir.getAbsolutePath();
-                File outputFile = task.getOutfile();
                 if (outputFile != null && outputFile.getParentFile() != null) {
                     relPath = getRelativePath(outputFile.getParentFile().getAbsolutePath(),
                             libdir);
@@ -188,8 +189,94 @@ public abstract class AbstractLdLinker extends CommandLineLinker {
         }
     }
 
+    /**
+     * Adds -flto with the number of parallel jobs, "auto" uses the make
+     * jobserver when available.  Thin link-time optimization keeps the
+     * results of unchanged partitions in a cache, which requires GCC 15.
+     *
+     * @param lto      "full" or "thin"
+     * @param jobs     parallel jobs, 0 to let the compiler decide
+     * @param cacheDir cache directory relative to the output directory,
+     *                 null if results are not cached
+     * @param args     arguments
+     * @return true if the cache directory is used
+     * @throws BuildException if thin optimization is requested from an
+     *                        earlier GCC
+     */
+    protected boolean addLto(String lto, int jobs, String cacheDir, Vector<String> args) {
+        if ("thin".equals(lto) && !isIncrementalLtoSupported()) {
+            throw new BuildException("lto=\"thin\" requires GCC 15 or later, found gcc "
+                    + GccProcessor.getVersion() + ", use lto=\"full\" instead");
+        }
+        args.addElement(jobs > 0 ? "-flto=" + jobs : "-flto=auto");
+        if ("thin".equals(lto) && cacheDir != null) {
+            args.addElement("-flto-incremental=" + cacheDir);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Determines if the compiler driver supports -flto-incremental,
+     * added in GCC 15.
+     *
+     * @return true if the installed gcc is version 15 or later
+     */
+    protected boolean isIncrementalLtoSupported() {
+        return GccProcessor.getMajorVersion(GccProcessor.getVersion()) >= 15;
+    }
+
+    protected boolean isLinkerSelectionSupported() {
+        return true;
+    }
+
+    protected void addLinkerSelection(String fuseLd, int linkerThreads, boolean gdbIndex,
+                                      String buildId, Vector<String> args) {
+        if (fuseLd != null) {
+            args.addElement("-fuse-ld=" + fuseLd);
+        }
+        if (linkerThreads > 0) {
+            //
+            //   gold only runs in parallel when asked to
+            //
+            if ("gold".equals(fuseLd)) {
+                args.addElement("--threads");
+                args.addElement("--thread-count=" + linkerThreads);
+            } else {
+                args.addElement("--threads=" + linkerThreads);
+            }
+        }
+        if (gdbIndex) {
+            args.addElement("--gdb-index");
+        }
+        if (buildId != null) {
+            if ("true".equals(buildId)) {
+                args.addElement("--build-id");
+            } else if (!"false".equals(buildId)) {
+                args.addElement("--build-id=" + buildId);
+            }
+        }
+    }
+
+    /**
+     * Runs dwp to collect the .dwo files referenced by the linked file
+     * into a .dwp file next to it.
+     *
+     * @param task       compilation task
+     * @param outputFile linked file
+     * @throws BuildException if dwp fails
+     */
+    protected void packageSplitDwarf(CCTask task, File outputFile) throws BuildException {
+        String name = outputFile.getName();
+        String[] cmdline = new String[]{"dwp", "-e", name, "-o", name + ".dwp"};
+        int retval = runCommand(task, outputFile.getParentFile(), cmdline);
+        if (retval != 0) {
+            throw new BuildException("dwp failed with return code " + retval, task.getLocation());
+        }
+    }
+
     public String getCommandFileSwitch(String commandFile) {
-        throw new IllegalStateException("ld does not support command files");
+        return "@" + commandFile;
     }
 
     /**
@@ -252,8 +339,17 @@ public abstract class AbstractLdLinker extends CommandLineLinker {
         return patterns;
     }
 
+    /**
+     * Gets the length of a command line above which the arguments are
+     * passed in a response file, not supported by libtool.
+     *
+     * @return maximum command length
+     */
     public int getMaximumCommandLength() {
-        return Integer.MAX_VALUE;
+        if (isLibtool()) {
+            return Integer.MAX_VALUE;
+        }
+        return GccProcessor.MAXIMUM_COMMAND_LENGTH;
     }
 
     public String[] getOutputFileNames(String baseName, VersionInfo versionInfo) {
@@ -340,6 +436,53 @@ public abstract class AbstractLdLinker extends CommandLineLinker {
                 finalSources, config);
     }
 
+    /**
+     * Prepares argument list to execute the linker using a
+     * response file with GCC quoting.
+     *
+     * @param outputFile linker output file
+     * @param args       output of prepareArguments
+     * @return arguments for runTask
+     * @throws IOException if unable to write the response file
+     */
+    protected String[] prepareResponseFile(File outputFile, String[] args) throws IOException {
+        return GccProcessor.prepareResponseFile(getResponseFile(outputFile), args, 1);
+    }
+
+    /**
+     * Creates the command of a partial link.  The machine options of the
+     * final link are kept so that the relocatable object has the same
+     * format as the objects it combines.
+     *
+     * @param command linker or compiler driver
+     * @param driver  true if the command is a compiler driver, which
+     *                must not add its startup files and libraries
+     * @param config  configuration of the final link
+     * @return command and arguments
+     */
+    protected String[] createPartialLinkCommand(String command, boolean driver,
+                                                CommandLineLinkerConfiguration config) {
+        Vector<String> cmdline = new Vector<String>();
+        cmdline.addElement(command);
+        cmdline.addElement("-r");
+        if (driver) {
+            cmdline.addElement("-nostdlib");
+        }
+        String[] preargs = config.getPreArguments();
+        for (int i = 0; i < preargs.length; i++) {
+            if (preargs[i].startsWith("-m")) {
+                cmdline.addElement(preargs[i]);
+                //
+                //   ld takes the emulation as a separate argument
+                //
+                if (!driver && preargs[i].equals("-m") && i + 1 < preargs.length) {
+                    cmdline.addElement(preargs[++i]);
+                }
+            }
+        }
+        return cmdline.toArray(new String[cmdline.size()]);
+    }
+
     protected String getDynamicLibFlag() {
         return "-Bdynamic";
     }
@@ -0,0 +1,618 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.gcc;
+
+import net.sf.antcontrib.cpptasks.CUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * <p>
+ * Creates and updates GNU archives of ELF object files, including the
+ * symbol index written by "ar s", without running "ar".
+ * </p>
+ * <p>
+ * A member whose file has the size and modification time recorded in the
+ * existing archive is copied from it together with its symbols, only
+ * changed objects are read and indexed.  Members without a corresponding
+ * object are removed.  In a thin archive the members are references to
+ * the object files, relative to the archive, and their contents are
+ * never copied.
+ * </p>
+ */
+final class ArArchive {
+    private static final String MAGIC = "!<arch>\n";
+    private static final String THIN_MAGIC = "!<thin>\n";
+    private static final int HEADER_LENGTH = 60;
+    private static final int MAX_SHORT_NAME = 15;
+
+    /**
+     * Archive member.
+     */
+    private static final class Member {
+        private final String name;
+        private final long date;
+        private final long size;
+        /**
+         * Offset of the header in the existing archive.
+         */
+        private long headerOffset = -1;
+        /**
+         * Offset of the contents in the existing archive, -1 if
+         * taken from a file.
+         */
+        private long dataOffset = -1;
+        private File file;
+        private String[] symbols;
+
+        private Member(String name, long date, long size) {
+            this.name = name;
+            this.date = date;
+            this.size = size;
+        }
+    }
+
+    private final File archive;
+    private final boolean thin;
+    private final Vector<Member> members = new Vector<Member>();
+    private int added;
+    private int replaced;
+    private int removed;
+
+    /**
+     * Constructor.
+     *
+     * @param archive archive file
+     * @param thin    if true, write a thin archive
+     */
+    ArArchive(File archive, boolean thin) {
+        if (archive == null) {
+            throw new NullPointerException("archive");
+        }
+        this.archive = archive;
+        this.thin = thin;
+    }
+
+    /**
+     * Gets the number of members added by the last update.
+     *
+     * @return number of members
+     */
+    int getAdded() {
+        return added;
+    }
+
+    /**
+     * Gets the names of the members.
+     *
+     * @return member names
+     */
+    String[] getMemberNames() {
+        String[] names = new String[members.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = members.elementAt(i).name;
+        }
+        return names;
+    }
+
+    /**
+     * Gets the number of members removed by the last update.
+     *
+     * @return number of members
+     */
+    int getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Gets the number of members replaced by the last update.
+     *
+     * @return number of members
+     */
+    int getReplaced() {
+        return replaced;
+    }
+
+    /**
+     * Gets the symbols defined by a member.
+     *
+     * @param name member name
+     * @return symbols or null if there is no such member
+     */
+    String[] getSymbols(String name) {
+        for (Member member : members) {
+            if (member.name.equals(name)) {
+                return member.symbols.clone();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determines the members of the archive from the objects, keeping
+     * the unchanged members of the existing archive.
+     *
+     * @param objects object files in archive order
+     * @return false if an object is not an ELF relocatable object whose
+     * symbols can be indexed, for example a slim LTO object
+     * @throws IOException if unable to read the objects
+     */
+    boolean update(File[] objects) throws IOException {
+        Hashtable<String, Vector<Member>> existing = new Hashtable<String, Vector<Member>>();
+        for (Member member : readMembers()) {
+            Vector<Member> sameName = existing.get(member.name);
+            if (sameName == null) {
+                sameName = new Vector<Member>();
+                existing.put(member.name, sameName);
+            }
+            sameName.addElement(member);
+        }
+        members.clear();
+        added = 0;
+        replaced = 0;
+        String baseDir = CUtil.getCanonicalPath(archive.getAbsoluteFile().getParentFile());
+        for (File object : objects) {
+            long lastModified = object.lastModified();
+            if (lastModified == 0 && !object.exists()) {
+                throw new IOException(object + " does not exist");
+            }
+            String name = thin ? CUtil.getRelativePath(baseDir, object) : object.getName();
+            Member previous = null;
+            Vector<Member> sameName = existing.get(name);
+            if (sameName != null && !sameName.isEmpty()) {
+                previous = sameName.remove(0);
+            }
+            long date = lastModified / 1000;
+            long size = object.length();
+            if (previous != null && previous.date == date && previous.size == size) {
+                if (previous.symbols == null) {
+                    previous.symbols = readSymbols(object);
+                    if (previous.symbols == null) {
+                        return false;
+                    }
+                }
+                members.addElement(previous);
+            } else {
+                Member member = new Member(name, date, size);
+                member.file = object;
+                member.symbols = readSymbols(object);
+                if (member.symbols == null) {
+                    return false;
+                }
+                members.addElement(member);
+                if (previous == null) {
+                    added++;
+                } else {
+                    replaced++;
+                }
+            }
+        }
+        removed = 0;
+        for (Vector<Member> sameName : existing.values()) {
+            removed += sameName.size();
+        }
+        return true;
+    }
+
+    /**
+     * Reads the defined symbols of an object file.
+     *
+     * @param object object file
+     * @return symbols or null if the symbols can not be determined
+     * @throws IOException if unable to read the file
+     */
+    private static String[] readSymbols(File object) throws IOException {
+        long length = object.length();
+        if (length > Integer.MAX_VALUE) {
+            return null;
+        }
+        byte[] contents = new byte[(int) length];
+        RandomAccessFile file = new RandomAccessFile(object, "r");
+        try {
+            file.readFully(contents);
+        } finally {
+            file.close();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(contents);
+        if (!ElfFile.isElf(buffer)) {
+            return null;
+        }
+        try {
+            ElfFile elf = new ElfFile(buffer);
+            //
+            //   symbols of LTO objects are only known to the linker plugin
+            //
+            if (elf.getType() != ElfFile.ET_REL || elf.hasSection(".gnu.lto_")) {
+                return null;
+            }
+            return elf.getDefinedSymbols();
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static long parseNumber(byte[] header, int offset, int length, int radix)
+            throws IOException {
+        String value = new String(header, offset, length, "ISO-8859-1").trim();
+        if (value.length() == 0) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value, radix);
+        } catch (NumberFormatException ex) {
+            throw new IOException("Invalid archive header");
+        }
+    }
+
+    private static String getLongName(byte[] names, long offset) throws IOException {
+        if (names == null || offset < 0 || offset >= names.length) {
+            throw new IOException("Invalid archive member name");
+        }
+        int end = (int) offset;
+        while (end < names.length && names[end] != '\n') {
+            end++;
+        }
+        String name = new String(names, (int) offset, end - (int) offset, "UTF-8");
+        if (name.endsWith("/")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        return name;
+    }
+
+    /**
+     * Reads the symbol index of an archive.
+     *
+     * @param file   archive
+     * @param size   size of the index
+     * @param width  width of numbers, 4 or 8
+     * @param offset receives the symbols keyed by member header offset
+     * @throws IOException if the index is invalid
+     */
+    private static void readIndex(RandomAccessFile file, long size, int width,
+                                  Hashtable<Long, Vector<String>> offset) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Invalid archive index");
+        }
+        byte[] contents = new byte[(int) size];
+        file.readFully(contents);
+        ByteBuffer buffer = ByteBuffer.wrap(contents);
+        long count = width == 4 ? buffer.getInt() & 0xFFFFFFFFL : buffer.getLong();
+        if (count < 0 || count > size / width) {
+            throw new IOException("Invalid archive index");
+        }
+        long[] offsets = new long[(int) count];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = width == 4 ? buffer.getInt() & 0xFFFFFFFFL : buffer.getLong();
+        }
+        int start = buffer.position();
+        for (long memberOffset : offsets) {
+            int end = start;
+            while (end < contents.length && contents[end] != 0) {
+                end++;
+            }
+            if (end >= contents.length) {
+                throw new IOException("Invalid archive index");
+            }
+            Vector<String> symbols = offset.get(memberOffset);
+            if (symbols == null) {
+                symbols = new Vector<String>();
+                offset.put(memberOffset, symbols);
+            }
+            symbols.addElement(new String(contents, start, end - start, "ISO-8859-1"));
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Reads the members of the existing archive.  An archive of the
+     * other kind or in an unsupported format is replaced as a whole.
+     *
+     * @return members
+     * @throws IOException if unable to read the archive
+     */
+    private Vector<Member> readMembers() throws IOException {
+        Vector<Member> existing = new Vector<Member>();
+        if (!archive.exists()) {
+            return existing;
+        }
+        RandomAccessFile file = new RandomAccessFile(archive, "r");
+        try {
+            long length = file.length();
+            byte[] magic = new byte[MAGIC.length()];
+            if (length < magic.length) {
+                return existing;
+            }
+            file.readFully(magic);
+            String magicString = new String(magic, "ISO-8859-1");
+            if (!magicString.equals(thin ? THIN_MAGIC : MAGIC)) {
+                return existing;
+            }
+            Hashtable<Long, Vector<String>> index = null;
+            byte[] longNames = null;
+            byte[] header = new byte[HEADER_LENGTH];
+            long position = magic.length;
+            while (position + HEADER_LENGTH <= length) {
+                file.seek(position);
+                file.readFully(header);
+                if (header[58] != '`' || header[59] != '\n') {
+                    throw new IOException("Invalid archive header");
+                }
+                String name = new String(header, 0, 16, "UTF-8").trim();
+                long size = parseNumber(header, 48, 10, 10);
+                long data = position + HEADER_LENGTH;
+                boolean stored = true;
+                if (name.equals("/") || name.equals("/SYM64/")) {
+                    index = new Hashtable<Long, Vector<String>>();
+                    readIndex(file, size, name.equals("/") ? 4 : 8, index);
+                } else if (name.equals("//")) {
+                    if (size > Integer.MAX_VALUE) {
+                        throw new IOException("Invalid archive name table");
+                    }
+                    longNames = new byte[(int) size];
+                    file.readFully(longNames);
+                } else {
+                    String memberName;
+                    if (name.startsWith("/")) {
+                        memberName = getLongName(longNames, parseNumber(header, 1, 15, 10));
+                    } else if (name.endsWith("/")) {
+                        memberName = name.substring(0, name.length() - 1);
+                    } else {
+                        throw new IOException("Unsupported archive format");
+                    }
+                    Member member = new Member(memberName, parseNumber(header, 16, 12, 10), size);
+                    member.headerOffset = position;
+                    if (!thin) {
+                        member.dataOffset = data;
+                    }
+                    existing.addElement(member);
+                    stored = !thin;
+                }
+                position = data;
+                if (stored) {
+                    position += size + (size & 1);
+                }
+            }
+            if (index != null) {
+                for (Member member : existing) {
+                    Vector<String> symbols = index.get(member.headerOffset);
+                    if (symbols == null) {
+                        member.symbols = new String[0];
+                    } else {
+                        member.symbols = symbols.toArray(new String[0]);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            //
+            //   damaged or unsupported archives are written again
+            //
+            existing.clear();
+        } finally {
+            file.close();
+        }
+        return existing;
+    }
+
+    private static void writeField(StringBuilder header, String value, int width)
+            throws IOException {
+        if (value.length() > width) {
+            throw new IOException("Archive header field too long: " + value);
+        }
+        header.append(value);
+        for (int i = value.length(); i < width; i++) {
+            header.append(' ');
+        }
+    }
+
+    private static void writeHeader(OutputStream out, String name, String date, String owner,
+                                    String mode, long size) throws IOException {
+        StringBuilder header = new StringBuilder(HEADER_LENGTH);
+        writeField(header, name, 16);
+        writeField(header, date, 12);
+        writeField(header, owner, 6);
+        writeField(header, owner, 6);
+        writeField(header, mode, 8);
+        writeField(header, Long.toString(size), 10);
+        header.append("`\n");
+        out.write(header.toString().getBytes("UTF-8"));
+    }
+
+    private static long getPaddedSize(long size) {
+        return size + (size & 1);
+    }
+
+    private static void writeNumber(OutputStream out, long value, int width) throws IOException {
+        for (int shift = (width - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift) & 0xFF);
+        }
+    }
+
+    private static void copy(DataInput in, OutputStream out, long size, byte[] buffer)
+            throws IOException {
+        long remaining = size;
+        while (remaining > 0) {
+            int length = (int) Math.min(buffer.length, remaining);
+            in.readFully(buffer, 0, length);
+            out.write(buffer, 0, length);
+            remaining -= length;
+        }
+    }
+
+    /**
+     * Writes the archive, replacing the existing archive.
+     *
+     * @throws IOException if unable to write the archive
+     */
+    void write() throws IOException {
+        //
+        //   member names that do not fit in the header,
+        //      all names of a thin archive
+        //
+        ByteArrayOutputStream nameTable = new ByteArrayOutputStream();
+        String[] headerNames = new String[members.size()];
+        for (int i = 0; i < headerNames.length; i++) {
+            String name = members.elementAt(i).name;
+            byte[] bytes = name.getBytes("UTF-8");
+            if (thin || bytes.length > MAX_SHORT_NAME) {
+                headerNames[i] = "/" + nameTable.size();
+                nameTable.write(bytes);
+                nameTable.write('/');
+                nameTable.write('\n');
+            } else {
+                headerNames[i] = name + "/";
+            }
+        }
+        int symbolCount = 0;
+        long symbolBytes = 0;
+        for (Member member : members) {
+            symbolCount += member.symbols.length;
+            for (String symbol : member.symbols) {
+                symbolBytes += symbol.getBytes("ISO-8859-1").length + 1;
+            }
+        }
+        //
+        //   offsets of more than 4 GB need the 64 bit index
+        //
+        long[] offsets = new long[members.size()];
+        int width = 4;
+        long indexSize;
+        while (true) {
+            indexSize = symbolCount == 0 ? 0 : width + (long) symbolCount * width + symbolBytes;
+            long position = MAGIC.length();
+            if (indexSize > 0) {
+                position += HEADER_LENGTH + getPaddedSize(indexSize);
+            }
+            if (nameTable.size() > 0) {
+                position += HEADER_LENGTH + getPaddedSize(nameTable.size());
+            }
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = position;
+                position += HEADER_LENGTH;
+                if (!thin) {
+                    position += getPaddedSize(members.elementAt(i).size);
+                }
+            }
+            if (width == 8 || offsets.length == 0 || offsets[offsets.length - 1] <= 0xFFFFFFFFL) {
+                break;
+            }
+            width = 8;
+        }
+        File dir = archive.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(archive.getName(), ".tmp", dir);
+        boolean written = false;
+        try {
+            RandomAccessFile existing = null;
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(temp), 65536);
+            try {
+                out.write((thin ? THIN_MAGIC : MAGIC).getBytes("ISO-8859-1"));
+                if (indexSize > 0) {
+                    writeHeader(out, width == 4 ? "/" : "/SYM64/", "0", "0", "0", indexSize);
+                    writeNumber(out, symbolCount, width);
+                    for (int i = 0; i < offsets.length; i++) {
+                        for (int j = 0; j < members.elementAt(i).symbols.length; j++) {
+                            writeNumber(out, offsets[i], width);
+                        }
+                    }
+                    for (Member member : members) {
+                        for (String symbol : member.symbols) {
+                            out.write(symbol.getBytes("ISO-8859-1"));
+                            out.write(0);
+                        }
+                    }
+                    if ((indexSize & 1) != 0) {
+                        out.write('\n');
+                    }
+                }
+                if (nameTable.size() > 0) {
+                    writeHeader(out, "//", "", "", "", nameTable.size());
+                    nameTable.writeTo(out);
+                    if ((nameTable.size() & 1) != 0) {
+                        out.write('\n');
+                    }
+                }
+                byte[] buffer = new byte[65536];
+                for (int i = 0; i < offsets.length; i++) {
+                    Member member = members.elementAt(i);
+                    writeHeader(out, headerNames[i], Long.toString(member.date), "0", "100644",
+                            member.size);
+                    if (thin) {
+                        continue;
+                    }
+                    if (member.file != null) {
+                        DataInputStream in = new DataInputStream(
+                                new BufferedInputStream(new FileInputStream(member.file)));
+                        try {
+                            copy(in, out, member.size, buffer);
+                        } finally {
+                            in.close();
+                        }
+                    } else {
+                        //
+                        //   unchanged members are copied from the existing archive
+                        //
+                        if (existing == null) {
+                            existing = new RandomAccessFile(archive, "r");
+                        }
+                        existing.seek(member.dataOffset);
+                        copy(existing, out, member.size, buffer);
+                    }
+                    if ((member.size & 1) != 0) {
+                        out.write('\n');
+                    }
+                }
+            } finally {
+                out.close();
+                if (existing != null) {
+                    existing.close();
+                }
+            }
+            if (archive.exists() && !archive.delete()) {
+                throw new IOException("Unable to delete " + archive);
+            }
+            if (!temp.renameTo(archive)) {
+                throw new IOException("Unable to rename " + temp + " to " + archive);
+            }
+            written = true;
+        } finally {
+            if (!written && !temp.delete()) {
+                temp.deleteOnExit();
+            }
+        }
+        //
+        //   later updates copy from the new archive
+        //
+        for (int i = 0; i < offsets.length; i++) {
+            Member member = members.elementAt(i);
+            member.headerOffset = offsets[i];
+            member.dataOffset = thin ? -1 : offsets[i] + HEADER_LENGTH;
+            member.file = null;
+        }
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.gcc;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Vector;
+
+/**
+ * Reads the section and symbol tables of an ELF object file or
+ * shared library.
+ */
+public final class ElfFile {
+    /**
+     * Relocatable object file type.
+     */
+    public static final int ET_REL = 1;
+    /**
+     * Shared object file type.
+     */
+    public static final int ET_DYN = 3;
+
+    private static final int SHT_SYMTAB = 2;
+    private static final int SHT_DYNAMIC = 6;
+    private static final int SHT_DYNSYM = 11;
+    private static final int SHT_GNU_VERDEF = 0x6ffffffd;
+    private static final int SHT_GNU_VERSYM = 0x6fffffff;
+    private static final int STT_OBJECT = 1;
+    private static final int STT_TLS = 6;
+    private static final long DT_NULL = 0;
+    private static final long DT_SONAME = 14;
+    private static final int SHN_UNDEF = 0;
+    private static final int SHN_XINDEX = 0xffff;
+    private static final int STB_GLOBAL = 1;
+    private static final int STB_WEAK = 2;
+    private static final int STB_GNU_UNIQUE = 10;
+
+    /**
+     * Section header.
+     */
+    private static final class Section {
+        private int name;
+        private int type;
+        private long offset;
+        private long size;
+        private int link;
+        private long entrySize;
+    }
+
+    private final ByteBuffer buffer;
+    private final boolean is64;
+    private final int type;
+    private final Section[] sections;
+    private final String[] sectionNames;
+
+    /**
+     * Constructor.
+     *
+     * @param buffer contents of the file, the position and byte order
+     *               of the buffer are changed
+     * @throws IOException if the contents are not an ELF file
+     */
+    public ElfFile(ByteBuffer buffer) throws IOException {
+        if (!isElf(buffer)) {
+            throw new IOException("Not an ELF file");
+        }
+        this.buffer = buffer;
+        int elfClass = buffer.get(4);
+        int data = buffer.get(5);
+        if ((elfClass != 1 && elfClass != 2) || (data != 1 && data != 2)) {
+            throw new IOException("Unsupported ELF class or encoding");
+        }
+        is64 = elfClass == 2;
+        buffer.order(data == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        try {
+            type = getUnsignedShort(16);
+            long sectionOffset;
+            int entrySize;
+            int count;
+            int namesIndex;
+            if (is64) {
+                sectionOffset = buffer.getLong(0x28);
+                entrySize = getUnsignedShort(0x3A);
+                count = getUnsignedShort(0x3C);
+                namesIndex = getUnsignedShort(0x3E);
+            } else {
+                sectionOffset = getUnsignedInt(0x20);
+                entrySize = getUnsignedShort(0x2E);
+                count = getUnsignedShort(0x30);
+                namesIndex = getUnsignedShort(0x32);
+            }
+            if (sectionOffset == 0) {
+                sections = new Section[0];
+            } else {
+                //
+                //   large section counts are stored in the first section header
+                //
+                Section first = readSection(sectionOffset);
+                if (count == 0) {
+                    count = checkIndex(first.size);
+                }
+                if (namesIndex == SHN_XINDEX) {
+                    namesIndex = first.link;
+                }
+                sections = new Section[count];
+                for (int i = 0; i < count; i++) {
+                    sections[i] = readSection(sectionOffset + (long) i * entrySize);
+                }
+            }
+            sectionNames = new String[sections.length];
+            if (namesIndex > 0 && namesIndex < sections.length) {
+                Section names = sections[namesIndex];
+                for (int i = 0; i < sections.length; i++) {
+                    sectionNames[i] = getString(names, sections[i].name);
+                }
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            throw new IOException("Truncated ELF file");
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("Truncated ELF file");
+        }
+    }
+
+    /**
+     * Determines if the buffer starts with the ELF magic number.
+     *
+     * @param buffer buffer
+     * @return true if an ELF file
+     */
+    public static boolean isElf(ByteBuffer buffer) {
+        return buffer.limit() >= 52 && buffer.get(0) == 0x7F && buffer.get(1) == 'E'
+                && buffer.get(2) == 'L' && buffer.get(3) == 'F';
+    }
+
+    private static int checkIndex(long value) throws IOException {
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Invalid ELF offset");
+        }
+        return (int) value;
+    }
+
+    private int getUnsignedShort(long offset) throws IOException {
+        return buffer.getShort(checkIndex(offset)) & 0xFFFF;
+    }
+
+    private long getUnsignedInt(long offset) throws IOException {
+        return buffer.getInt(checkIndex(offset)) & 0xFFFFFFFFL;
+    }
+
+    private long getAddress(long offset) throws IOException {
+        if (is64) {
+            return buffer.getLong(checkIndex(offset));
+        }
+        return getUnsignedInt(offset);
+    }
+
+    private Section readSection(long offset) throws IOException {
+        Section section = new Section();
+        section.name = (int) getUnsignedInt(offset);
+        section.type = (int) getUnsignedInt(offset + 4);
+        if (is64) {
+            section.offset = getAddress(offset + 24);
+            section.size = getAddress(offset + 32);
+            section.link = (int) getUnsignedInt(offset + 40);
+            section.entrySize = getAddress(offset + 56);
+        } else {
+            section.offset = getAddress(offset + 16);
+            section.size = getAddress(offset + 20);
+            section.link = (int) getUnsignedInt(offset + 24);
+            section.entrySize = getAddress(offset + 36);
+        }
+        return section;
+    }
+
+    /**
+     * Reads a NUL-terminated string from a string table.
+     *
+     * @param table  string table section
+     * @param offset offset within the section
+     * @return string
+     * @throws IOException if the offset is outside of the table
+     */
+    private String getString(Section table, long offset) throws IOException {
+        if (offset < 0 || offset >= table.size) {
+            throw new IOException("Invalid ELF string offset");
+        }
+        int start = checkIndex(table.offset + offset);
+        int end = start;
+        int limit = checkIndex(Math.min(table.offset + table.size, buffer.limit()));
+        while (end < limit && buffer.get(end) != 0) {
+            end++;
+        }
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, "ISO-8859-1");
+    }
+
+    /**
+     * Gets the object file type, for example ET_REL or ET_DYN.
+     *
+     * @return type
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Determines if any section name starts with a prefix.
+     *
+     * @param prefix prefix
+     * @return true if a section was found
+     */
+    public boolean hasSection(String prefix) {
+        for (String name : sectionNames) {
+            if (name != null && name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the global and weak symbols defined in the symbol table,
+     * these are the symbols listed in the index of an archive.
+     *
+     * @return symbol names
+     * @throws IOException if the symbol table is invalid
+     */
+    public String[] getDefinedSymbols() throws IOException {
+        Vector<String> names = new Vector<String>();
+        for (Section table : sections) {
+            if (table.type == SHT_SYMTAB) {
+                for (Symbol symbol : readSymbols(table)) {
+                    if (symbol.isDefinedGlobal()) {
+                        names.addElement(symbol.name);
+                    }
+                }
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the symbols exported by a shared library with their version,
+     * type and, for data, their size: everything a program linked against
+     * the library depends on.  Each symbol is described as
+     * "name[@[@]version] type [size]".
+     *
+     * @return descriptions of the exported symbols in symbol table order
+     * @throws IOException if the dynamic symbol table is invalid
+     */
+    public String[] getExportedSymbols() throws IOException {
+        Vector<String> exported = new Vector<String>();
+        String[] versionNames = readVersionNames();
+        Section versions = findSection(SHT_GNU_VERSYM);
+        for (Section table : sections) {
+            if (table.type != SHT_DYNSYM) {
+                continue;
+            }
+            Symbol[] symbols = readSymbols(table);
+            for (int i = 0; i < symbols.length; i++) {
+                Symbol symbol = symbols[i];
+                if (!symbol.isDefinedGlobal()) {
+                    continue;
+                }
+                StringBuilder buf = new StringBuilder(symbol.name);
+                //
+                //   version indexes follow the symbols, skipping the reserved entry
+                //
+                if (versions != null && 2L * (i + 1) + 2 <= versions.size) {
+                    int version = getUnsignedShort(versions.offset + 2L * (i + 1));
+                    int index = version & 0x7FFF;
+                    if (index > 1 && index < versionNames.length && versionNames[index] != null) {
+                        buf.append((version & 0x8000) != 0 ? "@" : "@@");
+                        buf.append(versionNames[index]);
+                    }
+                }
+                int type = symbol.info & 0xF;
+                buf.append(' ');
+                buf.append(type);
+                if (type == STT_OBJECT || type == STT_TLS) {
+                    buf.append(' ');
+                    buf.append(symbol.size);
+                }
+                exported.addElement(buf.toString());
+            }
+        }
+        return exported.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the shared object name recorded in the dynamic section.
+     *
+     * @return SONAME, null if none
+     * @throws IOException if the dynamic section is invalid
+     */
+    public String getSoname() throws IOException {
+        Section dynamic = findSection(SHT_DYNAMIC);
+        if (dynamic == null) {
+            return null;
+        }
+        Section strings = getLinkedSection(dynamic);
+        long entrySize = is64 ? 16 : 8;
+        for (long offset = 0; offset + entrySize <= dynamic.size; offset += entrySize) {
+            long tag = getAddress(dynamic.offset + offset);
+            if (tag == DT_NULL) {
+                break;
+            }
+            if (tag == DT_SONAME) {
+                return getString(strings, getAddress(dynamic.offset + offset + entrySize / 2));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the names of the versions defined by a shared library.
+     *
+     * @return version names in definition order
+     * @throws IOException if the version definitions are invalid
+     */
+    public String[] getVersionDefinitions() throws IOException {
+        Vector<String> names = new Vector<String>();
+        for (String name : readVersionNames()) {
+            if (name != null) {
+                names.addElement(name);
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * Symbol table entry.
+     */
+    private static final class Symbol {
+        private String name;
+        private int info;
+        private int index;
+        private long size;
+
+        private boolean isDefinedGlobal() {
+            int binding = info >> 4;
+            return (binding == STB_GLOBAL || binding == STB_WEAK || binding == STB_GNU_UNIQUE)
+                    && index != SHN_UNDEF && name.length() > 0;
+        }
+    }
+
+    private Section findSection(int sectionType) {
+        for (Section section : sections) {
+            if (section.type == sectionType) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    private Section getLinkedSection(Section section) throws IOException {
+        if (section.link <= 0 || section.link >= sections.length) {
+            throw new IOException("Invalid ELF section link");
+        }
+        return sections[section.link];
+    }
+
+    /**
+     * Reads the entries of a symbol table, except the reserved first entry.
+     *
+     * @param table symbol table section
+     * @return symbols
+     * @throws IOException if the table is invalid
+     */
+    private Symbol[] readSymbols(Section table) throws IOException {
+        Section strings = getLinkedSection(table);
+        long entrySize = table.entrySize != 0 ? table.entrySize : (is64 ? 24 : 16);
+        Vector<Symbol> symbols = new Vector<Symbol>();
+        try {
+            for (long offset = entrySize; offset + entrySize <= table.size; offset += entrySize) {
+                long entry = table.offset + offset;
+                Symbol symbol = new Symbol();
+                symbol.name = getString(strings, getUnsignedInt(entry));
+                if (is64) {
+                    symbol.info = buffer.get(checkIndex(entry + 4)) & 0xFF;
+                    symbol.index = getUnsignedShort(entry + 6);
+                    symbol.size = buffer.getLong(checkIndex(entry + 16));
+                } else {
+                    symbol.size = getUnsignedInt(entry + 8);
+                    symbol.info = buffer.get(checkIndex(entry + 12)) & 0xFF;
+                    symbol.index = getUnsignedShort(entry + 14);
+                }
+                symbols.addElement(symbol);
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            throw new IOException("Truncated ELF symbol table");
+        }
+        return symbols.toArray(new Symbol[0]);
+    }
+
+    /**
+     * Reads the version definitions.
+     *
+     * @return version names indexed by version index, empty if none
+     * @throws IOException if the definitions are invalid
+     */
+    private String[] readVersionNames() throws IOException {
+        Section definitions = findSection(SHT_GNU_VERDEF);
+        if (definitions == null) {
+            return new String[0];
+        }
+        Section strings = getLinkedSection(definitions);
+        Vector<String> names = new Vector<String>();
+        long offset = 0;
+        try {
+            while (offset + 20 <= definitions.size) {
+                long entry = definitions.offset + offset;
+                int index = getUnsignedShort(entry + 4);
+                int count = getUnsignedShort(entry + 6);
+                long aux = getUnsignedInt(entry + 12);
+                long next = getUnsignedInt(entry + 16);
+                if (count > 0) {
+                    if (names.size() <= index) {
+                        names.setSize(index + 1);
+                    }
+                    names.setElementAt(getString(strings, getUnsignedInt(entry + aux)), index);
+                }
+                if (next == 0) {
+                    break;
+                }
+                offset += next;
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            throw new IOException("Truncated ELF version definitions");
+        }
+        return names.toArray(new String[0]);
+    }
+}
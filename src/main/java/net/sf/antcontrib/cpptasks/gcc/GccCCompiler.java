@@ -17,6 +17,7 @@
 package net.sf.antcontrib.cpptasks.gcc;
 
 import net.sf.antcontrib.cpptasks.OptimizationEnum;
+import net.sf.antcontrib.cpptasks.compiler.CaptureStreamHandler;
 import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.compiler.Linker;
 import net.sf.antcontrib.cpptasks.compiler.Processor;
@@ -27,6 +28,10 @@ import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.types.Environment;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
 import java.util.Vector;
 
 import static net.sf.antcontrib.cpptasks.CUtil.checkDirectoryArray;
@@ -63,6 +68,15 @@ public final class GccCCompiler extends GccCompatibleCCompiler {
             sourceExtensions, headerExtensions, false,
             new GccCCompiler("g++", sourceExtensions, headerExtensions, true,
                     null, false, null), false, null);
+    /**
+     * Predefined macros keyed by command line used to obtain them.
+     */
+    private static final Hashtable<String, Map<String, String>> predefinedMacros
+            = new Hashtable<String, Map<String, String>>();
+    /**
+     * Marks a failed attempt to obtain predefined macros.
+     */
+    private static final Map<String, String> noPredefinedMacros = new HashMap<String, String>();
     private static final GccCCompiler instance = new GccCCompiler("gcc",
             sourceExtensions, headerExtensions, false,
             new GccCCompiler("gcc", sourceExtensions, headerExtensions, true,
@@ -142,6 +156,21 @@ public final class GccCCompiler extends GccCompatibleCCompiler {
         }
     }
 
+    /**
+     * Adds -flto, GCC writes its intermediate representation to the
+     * object files for both modes.
+     *
+     * @param lto  "full" or "thin"
+     * @param args arguments
+     */
+    protected void addLto(String lto, Vector<String> args) {
+        args.addElement("-flto");
+    }
+
+    protected void addSplitDwarf(Vector<String> args) {
+        args.addElement("-gsplit-dwarf");
+    }
+
     public Processor changeEnvironment(boolean newEnvironment, Environment env) {
         if (newEnvironment || env != null) {
             return new GccCCompiler(getCommand(), this.getSourceExtensions(),
@@ -177,6 +206,135 @@ public final class GccCCompiler extends GccCompatibleCCompiler {
         return new CParser();
     }
 
+    /**
+     * Requests a dependency file for each object omitting headers
+     * from system directories, which are also excluded from the
+     * parsed dependencies.
+     *
+     * @return "-MMD"
+     */
+    protected String getDependencyFileSwitch() {
+        return "-MMD";
+    }
+
+    /**
+     * Selects switches that change the predefined macros
+     * such as -m32, -std=c99, -fPIC or -O2.
+     *
+     * @param args command line arguments
+     * @return arguments that affect predefined macros
+     */
+    protected String[] getPredefinedMacroArgs(String[] args) {
+        Vector<String> selected = new Vector<String>();
+        for (String arg : args) {
+            if (arg.startsWith("-m") || arg.startsWith("-std=") || arg.startsWith("-f")
+                    || arg.startsWith("-O") || arg.equals("-ansi") || arg.equals("-pthread")
+                    || arg.equals("-undef")) {
+                selected.addElement(arg);
+            }
+        }
+        return selected.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the predefined macros by running the compiler with -dM -E.
+     * <p>
+     * Headers may be included from both C and C++ sources
+     * when using gcc, macros that differ between the languages
+     * are reported as unknown.
+     * </p>
+     *
+     * @param sourceFile source or header file
+     * @param args       command line arguments
+     * @return predefined macros or null if not available
+     */
+    protected Map<String, String> getPredefinedMacros(File sourceFile, String[] args) {
+        String command = getCommand();
+        if (command.equals("g77")) {
+            return null;
+        }
+        String name = sourceFile.getName();
+        String extension = name.substring(name.lastIndexOf('.') + 1);
+        if (extension.equals("m")) {
+            return getPredefinedMacros(args, "objective-c");
+        }
+        if (extension.equals("mm")) {
+            return getPredefinedMacros(args, "objective-c++");
+        }
+        if (!command.equals("gcc") || extension.equals("cc") || extension.equals("cpp")
+                || extension.equals("cxx") || extension.equals("c++") || extension.equals("C")
+                || extension.equals("ii")) {
+            return getPredefinedMacros(args, "c++");
+        }
+        Map<String, String> c = getPredefinedMacros(args, "c");
+        if (extension.equals("c") || extension.equals("i") || c == null) {
+            return c;
+        }
+        Map<String, String> cpp = getPredefinedMacros(args, "c++");
+        if (cpp == null) {
+            return null;
+        }
+        Map<String, String> merged = new HashMap<String, String>(c);
+        for (Map.Entry<String, String> entry : cpp.entrySet()) {
+            String value = merged.get(entry.getKey());
+            if (value == null || !value.equals(entry.getValue())) {
+                merged.put(entry.getKey(), null);
+            }
+        }
+        for (Map.Entry<String, String> entry : c.entrySet()) {
+            if (!cpp.containsKey(entry.getKey())) {
+                merged.put(entry.getKey(), null);
+            }
+        }
+        return merged;
+    }
+
+    private Map<String, String> getPredefinedMacros(String[] args, String language) {
+        Vector<String> cmd = new Vector<String>();
+        cmd.addElement(getCommand());
+        for (String arg : getPredefinedMacroArgs(args)) {
+            cmd.addElement(arg);
+        }
+        cmd.addElement("-x");
+        cmd.addElement(language);
+        cmd.addElement("-dM");
+        cmd.addElement("-E");
+        String key = cmd.toString();
+        Map<String, String> macros = predefinedMacros.get(key);
+        if (macros == null) {
+            macros = noPredefinedMacros;
+            try {
+                File empty = File.createTempFile("cpptasks", ".tmp");
+                try {
+                    cmd.addElement(empty.getAbsolutePath());
+                    String[] output = CaptureStreamHandler.run(cmd.toArray(new String[0]));
+                    Map<String, String> parsed = new HashMap<String, String>();
+                    for (String line : output) {
+                        if (line.startsWith("#define ")) {
+                            int space = line.indexOf(' ', 8);
+                            if (space < 0) {
+                                parsed.put(line.substring(8), "");
+                            } else {
+                                parsed.put(line.substring(8, space), line.substring(space + 1));
+                            }
+                        }
+                    }
+                    if (!parsed.isEmpty()) {
+                        macros = parsed;
+                    }
+                } finally {
+                    empty.delete();
+                }
+            } catch (IOException ex) {
+            }
+            predefinedMacros.put(key, macros);
+        }
+        if (macros == noPredefinedMacros) {
+            return null;
+        }
+        return macros;
+    }
+
     public File[] getEnvironmentIncludePath() {
         if (includePath == null) {
             //
@@ -258,11 +416,11 @@ public final class GccCCompiler extends GccCompatibleCCompiler {
         /*
          * Window-specific compilers use a limit of 2048 to prevent over
          * running the available command line length, while the Unix compilers
-         * assume that they have an unlimited command line.
+         * pass longer command lines in a response file.
          */
         if (System.getProperty("os.name").contains("Windows")) {
             return 2048;
         }
-        return Integer.MAX_VALUE;
+        return super.getMaximumCommandLength();
     }
 }
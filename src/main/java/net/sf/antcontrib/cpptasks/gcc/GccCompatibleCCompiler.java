@@ -16,12 +16,19 @@
  */
 package net.sf.antcontrib.cpptasks.gcc;
 
+import net.sf.antcontrib.cpptasks.CCTask;
 import net.sf.antcontrib.cpptasks.OptimizationEnum;
+import net.sf.antcontrib.cpptasks.VersionInfo;
 import net.sf.antcontrib.cpptasks.compiler.CommandLineCCompiler;
+import net.sf.antcontrib.cpptasks.compiler.CommandLineCompilerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.LinkType;
+import net.sf.antcontrib.cpptasks.compiler.ProgressMonitor;
+import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.types.Environment;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Vector;
 
 import static net.sf.antcontrib.cpptasks.CUtil.getPathFromEnvironment;
@@ -120,6 +127,30 @@ public abstract class GccCompatibleCCompiler extends CommandLineCCompiler {
 
     }
 
+    /**
+     * Gets the output file names, with -gsplit-dwarf GCC writes the
+     * debug information of each object file to a .dwo file.
+     *
+     * @param inputFile   input file name
+     * @param versionInfo version info
+     * @param args        arguments of the configuration
+     * @return output file names
+     */
+    protected String[] getOutputFileNames(String inputFile, VersionInfo versionInfo, String[] args) {
+        String[] outputs = getOutputFileNames(inputFile, versionInfo);
+        if (outputs.length == 0 || !Arrays.asList(args).contains("-gsplit-dwarf")) {
+            return outputs;
+        }
+        Vector<String> names = new Vector<String>();
+        for (String output : outputs) {
+            names.addElement(output);
+            if (output.endsWith(".o")) {
+                names.addElement(output.substring(0, output.length() - 2) + ".dwo");
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
     /**
      * Adds an include path to the command.
      *
@@ -130,6 +161,38 @@ public abstract class GccCompatibleCCompiler extends CommandLineCCompiler {
         cmd.addElement("-I" + path);
     }
 
+    /**
+     * Determines if the compiler can read its arguments from a
+     * response file with the @file switch, not supported by libtool.
+     *
+     * @return true unless compiling through libtool
+     */
+    protected boolean canUseResponseFile() {
+        return !getLibtool();
+    }
+
+    /**
+     * Compiles the source files, requesting a dependency file
+     * for each object if supported by the compiler.
+     * <p>
+     * The switch is not part of the configuration identifier
+     * since it has no effect on the object files.
+     * </p>
+     */
+    public void compile(CCTask task, File outputDir, String[] sourceFiles,
+                        String[] args, String[] endArgs, boolean relentless,
+                        CommandLineCompilerConfiguration config,
+                        ProgressMonitor monitor) throws BuildException {
+        String dependencySwitch = getDependencyFileSwitch();
+        if (dependencySwitch != null) {
+            String[] newArgs = new String[args.length + 1];
+            System.arraycopy(args, 0, newArgs, 0, args.length);
+            newArgs[args.length] = dependencySwitch;
+            args = newArgs;
+        }
+        super.compile(task, outputDir, sourceFiles, args, endArgs, relentless, config, monitor);
+    }
+
     public void addWarningSwitch(Vector<String> args, int level) {
         switch (level) {
             case 0:
@@ -156,6 +219,20 @@ public abstract class GccCompatibleCCompiler extends CommandLineCCompiler {
         }
     }
 
+    /**
+     * Gets the switch that causes the compiler to write a make-style
+     * dependency file for each object into the current directory.
+     * <p>
+     * Default implementation returns null for compilers that
+     * only emulate GCC command line syntax.
+     * </p>
+     *
+     * @return switch or null if not supported
+     */
+    protected String getDependencyFileSwitch() {
+        return null;
+    }
+
     protected File[] getEnvironmentIncludePath() {
         return getPathFromEnvironment("INCLUDE", ":");
     }
@@ -164,8 +241,23 @@ public abstract class GccCompatibleCCompiler extends CommandLineCCompiler {
         return "-I" + includeDir;
     }
 
+    /**
+     * Gets the length of a command line above which
+     * the arguments are passed in a response file.
+     *
+     * @return maximum command length
+     */
+    public int getMaximumCommandLength() {
+        return GccProcessor.MAXIMUM_COMMAND_LENGTH;
+    }
+
     public void getUndefineSwitch(StringBuilder buffer, String define) {
         buffer.append("-U");
         buffer.append(define);
     }
+
+    protected String[] prepareResponseFile(File commandFile, String[] commandline)
+            throws IOException {
+        return GccProcessor.prepareResponseFile(commandFile, commandline, 1);
+    }
 }
@@ -21,6 +21,7 @@ import net.sf.antcontrib.cpptasks.compiler.CaptureStreamHandler;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -32,6 +33,13 @@ import static net.sf.antcontrib.cpptasks.CUtil.getExecutableLocation;
  * A add-in class for Gcc processors
  */
 public class GccProcessor {
+    /**
+     * Length above which gcc, ld and ar read their arguments from a
+     * response file, within the limit of CreateProcess on Windows and
+     * far below ARG_MAX on Unix.
+     */
+    public static final int MAXIMUM_COMMAND_LENGTH = 32767;
+
     //   the results from gcc -dumpmachine
     private static String machine;
     private static String[] specs;
@@ -114,6 +122,59 @@ public class GccProcessor {
         return new String[]{letter, buf.toString()};
     }
 
+    /**
+     * Prepares argument list to execute gcc, ld or ar using a response
+     * file read with the @file switch.
+     *
+     * @param commandFile  response file
+     * @param args         command line
+     * @param commandCount number of leading arguments naming the command,
+     *                     kept on the command line
+     * @return arguments for runTask
+     * @throws IOException if unable to write the response file
+     */
+    public static String[] prepareResponseFile(File commandFile, String[] args,
+                                               int commandCount) throws IOException {
+        FileWriter writer = new FileWriter(commandFile);
+        try {
+            StringBuilder buf = new StringBuilder();
+            for (int i = commandCount; i < args.length; i++) {
+                writer.write(quoteResponseFileArgument(buf, args[i]));
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        String[] execArgs = new String[commandCount + 1];
+        System.arraycopy(args, 0, execArgs, 0, commandCount);
+        execArgs[commandCount] = "@" + commandFile;
+        return execArgs;
+    }
+
+    /**
+     * Quotes an argument for a response file.  The file is split at
+     * whitespace, quotes group words and a backslash escapes any
+     * character, so these are escaped to pass the argument unchanged.
+     *
+     * @param buf buffer that may be used and abused
+     * @param arg argument
+     * @return quoted argument
+     */
+    static String quoteResponseFileArgument(StringBuilder buf, String arg) {
+        if (arg.length() == 0) {
+            return "\"\"";
+        }
+        buf.setLength(0);
+        for (int i = 0; i < arg.length(); i++) {
+            char c = arg.charAt(i);
+            if (Character.isWhitespace(c) || c == '\\' || c == '\"' || c == '\'') {
+                buf.append('\\');
+            }
+            buf.append(c);
+        }
+        return buf.toString();
+    }
+
     /**
      * <p>
      * Returns the contents of the gcc specs file.
@@ -176,6 +237,24 @@ public class GccProcessor {
         return version;
     }
 
+    /**
+     * Gets the major version from the output of gcc -dumpversion,
+     * for example 12 for "12" or 4 for "4.8.5".
+     *
+     * @param version version string
+     * @return major version, 0 if not a version number
+     */
+    public static int getMajorVersion(String version) {
+        int end = 0;
+        while (end < version.length() && Character.isDigit(version.charAt(end))) {
+            end++;
+        }
+        if (end == 0) {
+            return 0;
+        }
+        return Integer.parseInt(version.substring(0, end));
+    }
+
     public static boolean isCaseSensitive() {
         return true;
     }
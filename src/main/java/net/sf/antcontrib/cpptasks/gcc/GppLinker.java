@@ -18,6 +18,7 @@ package net.sf.antcontrib.cpptasks.gcc;
 
 import net.sf.antcontrib.cpptasks.CCTask;
 import net.sf.antcontrib.cpptasks.compiler.CaptureStreamHandler;
+import net.sf.antcontrib.cpptasks.compiler.CommandLineLinkerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.compiler.Linker;
 import net.sf.antcontrib.cpptasks.types.LibrarySet;
@@ -33,7 +34,7 @@ import static net.sf.antcontrib.cpptasks.CUtil.checkDirectoryArray;
  * @author Stephen M. Webb {@literal <stephen.webb@bregmasoft.com>}
  */
 public class GppLinker extends AbstractLdLinker {
-    protected static final String[] discardFiles = new String[0];
+    protected static final String[] discardFiles = new String[]{".dwo"};
     protected static final String[] objFiles = new String[]{".o", ".a", ".lib", ".dll", ".so", ".sl"};
     private static final GppLinker dllLinker = new GppLinker("gcc", objFiles, discardFiles,
             "lib", ".so", false,
@@ -85,9 +86,9 @@ public class GppLinker extends AbstractLdLinker {
         }
     }
 
-    public String[] addLibrarySets(CCTask task, LibrarySet[] libsets,
+    public String[] addLibrarySets(CCTask task, File outputFile, LibrarySet[] libsets,
                                    Vector<String> preargs, Vector<String> midargs, Vector<String> endargs) {
-        String[] rs = super.addLibrarySets(task, libsets, preargs, midargs, endargs);
+        String[] rs = super.addLibrarySets(task, outputFile, libsets, preargs, midargs, endargs);
         if (runtimeLibrary != null) {
             endargs.addElement(runtimeLibrary);
         }
@@ -182,6 +183,10 @@ public class GppLinker extends AbstractLdLinker {
         return libDirs;
     }
 
+    public String[] getPartialLinkCommand(CommandLineLinkerConfiguration config) {
+        return createPartialLinkCommand(getCommand(), true, config);
+    }
+
     public Linker getLinker(LinkType type) {
         if (type.isStaticLibrary()) {
             return GccLibrarian.getInstance();
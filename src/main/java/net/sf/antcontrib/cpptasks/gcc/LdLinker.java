@@ -16,10 +16,12 @@
  */
 package net.sf.antcontrib.cpptasks.gcc;
 
+import net.sf.antcontrib.cpptasks.compiler.CommandLineLinkerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.compiler.Linker;
 
 import java.io.File;
+import java.util.Vector;
 
 /**
  * Adapter for the 'ld' linker
@@ -27,7 +29,7 @@ import java.io.File;
  * @author Curt Arnold
  */
 public final class LdLinker extends AbstractLdLinker {
-    private static final String[] discardFiles = new String[0];
+    private static final String[] discardFiles = new String[]{".dwo"};
     private static final String[] objFiles = new String[]{".o", ".a", ".lib", ".dll", ".so", ".sl"};
     private static final LdLinker dllLinker = new LdLinker("ld", objFiles,
             discardFiles, "lib", ".so", false,
@@ -48,6 +50,25 @@ public final class LdLinker extends AbstractLdLinker {
                 outputSuffix, isLibtool, libtoolLinker);
     }
 
+    /**
+     * Link-time optimization is run by the compiler driver.
+     */
+    protected boolean addLto(String lto, int jobs, String cacheDir, Vector<String> args) {
+        return false;
+    }
+
+    /**
+     * ld is the linker, -fuse-ld only applies to compiler drivers.
+     */
+    protected void addLinkerSelection(String fuseLd, int linkerThreads, boolean gdbIndex,
+                                      String buildId, Vector<String> args) {
+        super.addLinkerSelection(null, linkerThreads, gdbIndex, buildId, args);
+    }
+
+    public String[] getPartialLinkCommand(CommandLineLinkerConfiguration config) {
+        return createPartialLinkCommand(getCommand(), false, config);
+    }
+
     public Linker getLinker(LinkType type) {
         if (type.isStaticLibrary()) {
             return GccLibrarian.getInstance();
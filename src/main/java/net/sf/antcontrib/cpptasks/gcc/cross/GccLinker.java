@@ -35,7 +35,7 @@ import static net.sf.antcontrib.cpptasks.CUtil.checkDirectoryArray;
  * @author Adam Murdoch
  */
 public class GccLinker extends AbstractLdLinker {
-    private static final String[] discardFiles = new String[0];
+    private static final String[] discardFiles = new String[]{".dwo"};
     private static final String[] objFiles = new String[]{".o", ".a", ".lib",
             ".dll", ".so", ".sl"};
     private static final GccLinker dllLinker = new GccLinker("gcc", objFiles,
@@ -198,6 +198,15 @@ public class GccLinker extends AbstractLdLinker {
         return libDirs;
     }
 
+    public String[] getPartialLinkCommand(CommandLineLinkerConfiguration config) {
+        String command = getCommand();
+        LinkerParam param = config.getParam("target");
+        if (param != null) {
+            command = param.getValue() + "-" + command;
+        }
+        return createPartialLinkCommand(command, true, config);
+    }
+
     public Linker getLinker(LinkType type) {
         if (type.isStaticLibrary()) {
             return GccLibrarian.getInstance();
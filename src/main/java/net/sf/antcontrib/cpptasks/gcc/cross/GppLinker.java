@@ -37,7 +37,7 @@ import static net.sf.antcontrib.cpptasks.CUtil.checkDirectoryArray;
  * @author Stephen M. Webb {@literal <stephen.webb@bregmasoft.com>}
  */
 public class GppLinker extends AbstractLdLinker {
-    protected static final String[] discardFiles = new String[0];
+    protected static final String[] discardFiles = new String[]{".dwo"};
     protected static final String[] objFiles = new String[]{".o", ".a", ".lib",
             ".dll", ".so", ".sl"};
     private static final GppLinker dllLinker = new GppLinker("gcc", objFiles,
@@ -93,9 +93,9 @@ public class GppLinker extends AbstractLdLinker {
         }
     }
 
-    public String[] addLibrarySets(CCTask task, LibrarySet[] libsets,
+    public String[] addLibrarySets(CCTask task, File outputFile, LibrarySet[] libsets,
                                    Vector<String> preargs, Vector<String> midargs, Vector<String> endargs) {
-        String[] rs = super.addLibrarySets(task, libsets, preargs, midargs,
+        String[] rs = super.addLibrarySets(task, outputFile, libsets, preargs, midargs,
                 endargs);
         if (runtimeLibrary != null) {
             endargs.addElement(runtimeLibrary);
@@ -195,6 +195,15 @@ public class GppLinker extends AbstractLdLinker {
         return libDirs;
     }
 
+    public String[] getPartialLinkCommand(CommandLineLinkerConfiguration config) {
+        String command = getCommand();
+        LinkerParam param = config.getParam("target");
+        if (param != null) {
+            command = param.getValue() + "-" + command;
+        }
+        return createPartialLinkCommand(command, true, config);
+    }
+
     public Linker getLinker(LinkType type) {
         if (type.isStaticLibrary()) {
             return GccLibrarian.getInstance();
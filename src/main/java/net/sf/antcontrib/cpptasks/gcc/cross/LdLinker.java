@@ -25,6 +25,7 @@ import net.sf.antcontrib.cpptasks.gcc.AbstractLdLinker;
 import org.apache.tools.ant.BuildException;
 
 import java.io.File;
+import java.util.Vector;
 
 /**
  * Adapter for the 'ld' linker
@@ -36,7 +37,7 @@ public final class LdLinker extends AbstractLdLinker {
             ".so", ".sl"};
     private static final String[] objFiles = new String[]{".o", ".a", ".lib", ".dll", ".so",
             ".sl"};
-    private static final String[] discardFiles = new String[0];
+    private static final String[] discardFiles = new String[]{".dwo"};
     private static final LdLinker dllLinker = new LdLinker("ld", objFiles,
             discardFiles, "lib", ".so", false,
             new LdLinker("ld", objFiles, discardFiles, "lib", ".so", true, null));
@@ -60,6 +61,30 @@ public final class LdLinker extends AbstractLdLinker {
         return (LdLinker) super.clone();
     }
 
+    /**
+     * Link-time optimization is run by the compiler driver.
+     */
+    protected boolean addLto(String lto, int jobs, String cacheDir, Vector<String> args) {
+        return false;
+    }
+
+    /**
+     * ld is the linker, -fuse-ld only applies to compiler drivers.
+     */
+    protected void addLinkerSelection(String fuseLd, int linkerThreads, boolean gdbIndex,
+                                      String buildId, Vector<String> args) {
+        super.addLinkerSelection(null, linkerThreads, gdbIndex, buildId, args);
+    }
+
+    public String[] getPartialLinkCommand(CommandLineLinkerConfiguration config) {
+        String command = getCommand();
+        LinkerParam param = config.getParam("target");
+        if (param != null) {
+            command = param.getValue() + "-" + command;
+        }
+        return createPartialLinkCommand(command, false, config);
+    }
+
     public Linker getLinker(LinkType type) {
         if (type.isStaticLibrary()) {
             return GccLibrarian.getInstance();
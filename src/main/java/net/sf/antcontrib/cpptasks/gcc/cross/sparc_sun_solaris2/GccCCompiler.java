@@ -144,6 +144,21 @@ public final class GccCCompiler extends GccCompatibleCCompiler {
         }
     }
 
+    /**
+     * Adds -flto, GCC writes its intermediate representation to the
+     * object files for both modes.
+     *
+     * @param lto  "full" or "thin"
+     * @param args arguments
+     */
+    protected void addLto(String lto, Vector<String> args) {
+        args.addElement("-flto");
+    }
+
+    protected void addSplitDwarf(Vector<String> args) {
+        args.addElement("-gsplit-dwarf");
+    }
+
     public Processor changeEnvironment(boolean newEnvironment, Environment env) {
         if (newEnvironment || env != null) {
             return new GccCCompiler(getCommand(), this.getSourceExtensions(),
@@ -177,6 +192,17 @@ public final class GccCCompiler extends GccCompatibleCCompiler {
         return new CParser();
     }
 
+    /**
+     * Requests a dependency file for each object omitting headers
+     * from system directories, which are also excluded from the
+     * parsed dependencies.
+     *
+     * @return "-MMD"
+     */
+    protected String getDependencyFileSwitch() {
+        return "-MMD";
+    }
+
     public File[] getEnvironmentIncludePath() {
         if (includePath == null) {
             //
@@ -253,8 +279,4 @@ public final class GccCCompiler extends GccCompatibleCCompiler {
     public Linker getLinker(LinkType linkType) {
         return GccLinker.getInstance().getLinker(linkType);
     }
-
-    public int getMaximumCommandLength() {
-        return Integer.MAX_VALUE;
-    }
 }
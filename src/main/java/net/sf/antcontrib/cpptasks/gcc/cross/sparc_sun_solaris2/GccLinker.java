@@ -16,6 +16,7 @@
  */
 package net.sf.antcontrib.cpptasks.gcc.cross.sparc_sun_solaris2;
 
+import net.sf.antcontrib.cpptasks.compiler.CommandLineLinkerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.compiler.Linker;
 import net.sf.antcontrib.cpptasks.gcc.AbstractLdLinker;
@@ -31,7 +32,7 @@ import static net.sf.antcontrib.cpptasks.CUtil.checkDirectoryArray;
  * @author Adam Murdoch
  */
 public class GccLinker extends AbstractLdLinker {
-    private static final String[] discardFiles = new String[0];
+    private static final String[] discardFiles = new String[]{".dwo"};
     private static final String[] objFiles = new String[]{".o", ".a", ".lib", ".dll", ".so", ".sl"};
     private static final String[] libtoolObjFiles = new String[]{".fo", ".a", ".lib", ".dll", ".so", ".sl"};
     private static final String[] linkerOptions = new String[]{"-bundle", "-dynamiclib",
@@ -186,6 +187,10 @@ public class GccLinker extends AbstractLdLinker {
         return libDirs;
     }
 
+    public String[] getPartialLinkCommand(CommandLineLinkerConfiguration config) {
+        return createPartialLinkCommand(getCommand(), true, config);
+    }
+
     public Linker getLinker(LinkType type) {
         if (type.isStaticLibrary()) {
             return GccLibrarian.getInstance();
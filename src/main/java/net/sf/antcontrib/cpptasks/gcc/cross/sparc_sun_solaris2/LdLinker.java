@@ -16,11 +16,13 @@
  */
 package net.sf.antcontrib.cpptasks.gcc.cross.sparc_sun_solaris2;
 
+import net.sf.antcontrib.cpptasks.compiler.CommandLineLinkerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.compiler.Linker;
 import net.sf.antcontrib.cpptasks.gcc.AbstractLdLinker;
 
 import java.io.File;
+import java.util.Vector;
 
 /**
  * Adapter for the 'ld' linker
@@ -28,7 +30,7 @@ import java.io.File;
  * @author Curt Arnold
  */
 public final class LdLinker extends AbstractLdLinker {
-    private static final String[] discardFiles = new String[0];
+    private static final String[] discardFiles = new String[]{".dwo"};
     private static final String[] libtoolObjFiles = new String[]{".fo", ".a", ".lib", ".dll", ".so", ".sl"};
     private static final String[] objFiles = new String[]{".o", ".a", ".lib", ".dll", ".so", ".sl"};
     private static final LdLinker dllLinker = new LdLinker(GccCCompiler.CMD_PREFIX + "ld",
@@ -51,6 +53,25 @@ public final class LdLinker extends AbstractLdLinker {
                 outputSuffix, isLibtool, libtoolLinker);
     }
 
+    /**
+     * Link-time optimization is run by the compiler driver.
+     */
+    protected boolean addLto(String lto, int jobs, String cacheDir, Vector<String> args) {
+        return false;
+    }
+
+    /**
+     * ld is the linker, -fuse-ld only applies to compiler drivers.
+     */
+    protected void addLinkerSelection(String fuseLd, int linkerThreads, boolean gdbIndex,
+                                      String buildId, Vector<String> args) {
+        super.addLinkerSelection(null, linkerThreads, gdbIndex, buildId, args);
+    }
+
+    public String[] getPartialLinkCommand(CommandLineLinkerConfiguration config) {
+        return createPartialLinkCommand(getCommand(), false, config);
+    }
+
     public Linker getLinker(LinkType type) {
         if (type.isStaticLibrary()) {
             return GccLibrarian.getInstance();
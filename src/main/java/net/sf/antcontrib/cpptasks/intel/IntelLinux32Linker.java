@@ -21,6 +21,8 @@ import net.sf.antcontrib.cpptasks.compiler.Linker;
 import net.sf.antcontrib.cpptasks.gcc.AbstractLdLinker;
 import net.sf.antcontrib.cpptasks.gcc.GccLibrarian;
 
+import java.util.Vector;
+
 /**
  * Adapter for the Intel (r) Linker for Linux (r) for IA-32
  *
@@ -55,4 +57,15 @@ public final class IntelLinux32Linker extends AbstractLdLinker {
         }
         return instance;
     }
+
+    protected boolean addLto(String lto, int jobs, String cacheDir, Vector<String> args) {
+        //
+        //   icc uses -ipo instead of -flto
+        //
+        return false;
+    }
+
+    protected boolean isLinkerSelectionSupported() {
+        return false;
+    }
 }
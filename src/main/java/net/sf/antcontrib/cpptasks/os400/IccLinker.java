@@ -90,7 +90,7 @@ public final class IccLinker extends CommandLineLinker {
      * @see CommandLineLinker#addLibrarySets(LibrarySet[], Vector, Vector,
      *      Vector)
      */
-    protected String[] addLibrarySets(CCTask task, LibrarySet[] libsets,
+    protected String[] addLibrarySets(CCTask task, File outputFile, LibrarySet[] libsets,
                                       Vector<String> preargs, Vector<String> midargs, Vector<String> endargs) {
         // If yo want to link against a library sitting in a dataset and
         // not in the HFS, you can just use the //'dataset' notation
@@ -114,7 +114,7 @@ public final class IccLinker extends CommandLineLinker {
                 }
             }
         }
-        return super.addLibrarySets(task, libsets, preargs, midargs, endargs);
+        return super.addLibrarySets(task, outputFile, libsets, preargs, midargs, endargs);
     }
 
     protected void addMap(boolean map, Vector<String> args) {
@@ -0,0 +1,887 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+
+/**
+ * <p>
+ * A parser that extracts #include, #include_next and #import statements
+ * from a Reader, skipping those in conditional blocks that can be shown
+ * to be inactive for the given macro definitions.
+ * </p>
+ * <p>
+ * Comments, string and character literals and line continuations are
+ * handled as by the preprocessor.  Macros defined or undefined within
+ * the file are tracked.  Macros that may have been defined by other
+ * headers are unknown and any condition depending on them takes both
+ * branches.  This includes names reserved for the implementation that
+ * are not predefined by the compiler, since system and configuration
+ * headers commonly define them.
+ * </p>
+ */
+public final class ConditionalCParser implements Parser {
+    private static final int FALSE = 0;
+    private static final int TRUE = 1;
+    private static final int UNKNOWN = 2;
+
+    /**
+     * Token that stands for a value that can not be determined.
+     */
+    private static final String UNKNOWN_TOKEN = "?";
+
+    /**
+     * Maximum nesting of macro expansion within a condition.
+     */
+    private static final int MAX_EXPANSION_DEPTH = 32;
+
+    private static final String[] PUNCTUATORS = new String[]{"<<", ">>", "<=", ">=",
+            "==", "!=", "&&", "||"};
+
+    /**
+     * Binary operators from lowest to highest precedence.
+     */
+    private static final String[][] BINARY_OPERATORS = new String[][]{
+            {"||"}, {"&&"}, {"|"}, {"^"}, {"&"}, {"==", "!="},
+            {"<", ">", "<=", ">="}, {"<<", ">>"}, {"+", "-"}, {"*", "/", "%"}};
+
+    /**
+     * Thrown when a condition can not be parsed.
+     */
+    private static final class ConditionException extends Exception {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private final Map<String, String> initialDefines = new HashMap<String, String>();
+    private final Set<String> initialFunctions = new HashSet<String>();
+    private final Set<String> initialUndefines = new HashSet<String>();
+    private final Set<String> initialUnknowns = new HashSet<String>();
+
+    private final Map<String, String> defines = new HashMap<String, String>();
+    private final Set<String> functions = new HashSet<String>();
+    private final Set<String> undefines = new HashSet<String>();
+    private final Set<String> unknowns = new HashSet<String>();
+    private final Vector<String> includes = new Vector<String>();
+
+    /**
+     * Constructor.
+     *
+     * @param defined    macros defined on the command line keyed by name,
+     *                   function-like macros include the parameter list in
+     *                   the name, an empty or null value stands for 1
+     * @param undefined  macros undefined on the command line
+     * @param predefined macros predefined by the compiler, a null value
+     *                   indicates a macro that may or may not be defined,
+     *                   null if the predefined macros are not known
+     */
+    public ConditionalCParser(Map<String, String> defined, Set<String> undefined,
+                              Map<String, String> predefined) {
+        if (predefined != null) {
+            for (Map.Entry<String, String> entry : predefined.entrySet()) {
+                if (entry.getValue() == null) {
+                    initialUnknowns.add(entry.getKey());
+                } else {
+                    addInitialDefine(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        if (defined != null) {
+            for (Map.Entry<String, String> entry : defined.entrySet()) {
+                String value = entry.getValue();
+                if (value == null || value.isEmpty()) {
+                    value = "1";
+                }
+                addInitialDefine(entry.getKey(), value);
+            }
+        }
+        if (undefined != null) {
+            for (String name : undefined) {
+                initialDefines.remove(name);
+                initialFunctions.remove(name);
+                initialUnknowns.remove(name);
+                initialUndefines.add(name);
+            }
+        }
+    }
+
+    private void addInitialDefine(String name, String value) {
+        int paren = name.indexOf('(');
+        if (paren >= 0) {
+            name = name.substring(0, paren);
+            initialFunctions.add(name);
+            initialDefines.remove(name);
+        } else {
+            initialDefines.put(name, value);
+            initialFunctions.remove(name);
+        }
+        initialUndefines.remove(name);
+        initialUnknowns.remove(name);
+    }
+
+    /**
+     * Gets a description of the initial macro state.  Parsers with
+     * equal keys find the same includes in the same content.
+     *
+     * @return scanner key
+     */
+    public String getScannerKey() {
+        StringBuilder buf = new StringBuilder(getClass().getName());
+        buf.append(new TreeMap<String, String>(initialDefines));
+        buf.append(new TreeSet<String>(initialFunctions));
+        buf.append(new TreeSet<String>(initialUndefines));
+        buf.append(new TreeSet<String>(initialUnknowns));
+        return buf.toString();
+    }
+
+    /**
+     * Gets the included file names found in potentially active regions.
+     *
+     * @return include file names
+     */
+    public String[] getIncludes() {
+        return includes.toArray(new String[0]);
+    }
+
+    /**
+     * Collects the included files from the content of the reader.
+     *
+     * @param reader character reader containing a C or C++ source
+     * @throws IOException throw if I/O error during parse
+     */
+    public void parse(final Reader reader) throws IOException {
+        includes.setSize(0);
+        defines.clear();
+        defines.putAll(initialDefines);
+        functions.clear();
+        functions.addAll(initialFunctions);
+        undefines.clear();
+        undefines.addAll(initialUndefines);
+        unknowns.clear();
+        unknowns.addAll(initialUnknowns);
+
+        StringBuilder content = new StringBuilder();
+        char[] buf = new char[4096];
+        int count;
+        while ((count = reader.read(buf)) > 0) {
+            content.append(buf, 0, count);
+        }
+        //
+        //   each entry is {current, anyTaken} for a nested conditional
+        //
+        List<int[]> conditionals = new ArrayList<int[]>();
+        int active = TRUE;
+        StringBuilder line = new StringBuilder();
+        int[] position = new int[]{0};
+        while (nextLine(content, position, line)) {
+            int start = skipWhitespace(line, 0);
+            if (start >= line.length() || line.charAt(start) != '#') {
+                continue;
+            }
+            int nameStart = skipWhitespace(line, start + 1);
+            int nameEnd = identifierEnd(line, nameStart);
+            String directive = line.substring(nameStart, nameEnd);
+            String rest = line.substring(nameEnd).trim();
+            if (directive.equals("if") || directive.equals("ifdef") || directive.equals("ifndef")) {
+                int condition = FALSE;
+                if (active != FALSE) {
+                    if (directive.equals("if")) {
+                        condition = evaluate(rest);
+                    } else {
+                        condition = lookup(rest.substring(0, identifierEnd(rest, 0)));
+                        if (directive.equals("ifndef")) {
+                            condition = not(condition);
+                        }
+                    }
+                }
+                conditionals.add(new int[]{condition, condition});
+            } else if (directive.equals("elif")) {
+                if (!conditionals.isEmpty()) {
+                    int[] frame = conditionals.get(conditionals.size() - 1);
+                    if (frame[1] == TRUE) {
+                        frame[0] = FALSE;
+                    } else {
+                        int condition = active(conditionals, 1) == FALSE ? FALSE : evaluate(rest);
+                        frame[0] = frame[1] == FALSE ? condition : and(UNKNOWN, condition);
+                        frame[1] = or(frame[1], condition);
+                    }
+                }
+            } else if (directive.equals("else")) {
+                if (!conditionals.isEmpty()) {
+                    int[] frame = conditionals.get(conditionals.size() - 1);
+                    frame[0] = not(frame[1]);
+                    frame[1] = TRUE;
+                }
+            } else if (directive.equals("endif")) {
+                if (!conditionals.isEmpty()) {
+                    conditionals.remove(conditionals.size() - 1);
+                }
+            } else if (active != FALSE) {
+                if (directive.equals("include") || directive.equals("include_next")
+                        || directive.equals("import")) {
+                    String include = includeName(rest, 0);
+                    if (include != null) {
+                        includes.addElement(include);
+                    }
+                } else if (directive.equals("define")) {
+                    int end = identifierEnd(rest, 0);
+                    if (end > 0) {
+                        String name = rest.substring(0, end);
+                        if (active == UNKNOWN) {
+                            setUnknown(name);
+                        } else if (end < rest.length() && rest.charAt(end) == '(') {
+                            defines.remove(name);
+                            undefines.remove(name);
+                            unknowns.remove(name);
+                            functions.add(name);
+                        } else {
+                            functions.remove(name);
+                            undefines.remove(name);
+                            unknowns.remove(name);
+                            defines.put(name, rest.substring(end).trim());
+                        }
+                    }
+                } else if (directive.equals("undef")) {
+                    int end = identifierEnd(rest, 0);
+                    if (end > 0) {
+                        String name = rest.substring(0, end);
+                        if (active == UNKNOWN) {
+                            setUnknown(name);
+                        } else {
+                            defines.remove(name);
+                            functions.remove(name);
+                            unknowns.remove(name);
+                            undefines.add(name);
+                        }
+                    }
+                }
+            }
+            active = active(conditionals, 0);
+        }
+    }
+
+    private void setUnknown(String name) {
+        defines.remove(name);
+        functions.remove(name);
+        undefines.remove(name);
+        unknowns.add(name);
+    }
+
+    /**
+     * Determines whether the region is active considering all
+     * but the innermost skipped conditionals.
+     */
+    private static int active(List<int[]> conditionals, int skipped) {
+        int active = TRUE;
+        for (int i = 0; i < conditionals.size() - skipped; i++) {
+            active = and(active, conditionals.get(i)[0]);
+        }
+        return active;
+    }
+
+    private static int and(int a, int b) {
+        if (a == FALSE || b == FALSE) {
+            return FALSE;
+        }
+        if (a == TRUE && b == TRUE) {
+            return TRUE;
+        }
+        return UNKNOWN;
+    }
+
+    private static int or(int a, int b) {
+        if (a == TRUE || b == TRUE) {
+            return TRUE;
+        }
+        if (a == FALSE && b == FALSE) {
+            return FALSE;
+        }
+        return UNKNOWN;
+    }
+
+    private static int not(int a) {
+        if (a == UNKNOWN) {
+            return UNKNOWN;
+        }
+        return a == TRUE ? FALSE : TRUE;
+    }
+
+    /**
+     * Determines whether a macro is defined.
+     */
+    private int lookup(String name) {
+        if (name.isEmpty()) {
+            return UNKNOWN;
+        }
+        if (defines.containsKey(name) || functions.contains(name)) {
+            return TRUE;
+        }
+        if (undefines.contains(name)) {
+            return FALSE;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Extracts the file name from the remainder of an #include directive.
+     */
+    private String includeName(String rest, int depth) {
+        if (rest.startsWith("\"")) {
+            int end = rest.indexOf('"', 1);
+            return end > 1 ? rest.substring(1, end) : null;
+        }
+        if (rest.startsWith("<")) {
+            int end = rest.indexOf('>', 1);
+            return end > 1 ? rest.substring(1, end) : null;
+        }
+        //
+        //   #include MACRO
+        //
+        int end = identifierEnd(rest, 0);
+        if (end > 0 && depth < MAX_EXPANSION_DEPTH) {
+            String value = defines.get(rest.substring(0, end));
+            if (value != null) {
+                return includeName(value.trim(), depth + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the next logical line, removing comments and
+     * joining continued lines.
+     *
+     * @return false if at end of content
+     */
+    private static boolean nextLine(CharSequence content, int[] position, StringBuilder line) {
+        int length = content.length();
+        int i = position[0];
+        if (i >= length) {
+            return false;
+        }
+        line.setLength(0);
+        char quote = 0;
+        boolean blockComment = false;
+        boolean lineComment = false;
+        String rawEnd = null;
+        while (i < length) {
+            char c = content.charAt(i);
+            //
+            //   line continuation
+            //
+            if (c == '\\' && rawEnd == null) {
+                int next = i + 1;
+                if (next < length && content.charAt(next) == '\r') {
+                    next++;
+                }
+                if (next < length && content.charAt(next) == '\n') {
+                    i = next + 1;
+                    continue;
+                }
+            }
+            if (rawEnd != null) {
+                line.append(c == '\n' ? ' ' : c);
+                i++;
+                if (c == '"' && endsWith(line, rawEnd)) {
+                    rawEnd = null;
+                }
+            } else if (blockComment) {
+                if (c == '*' && i + 1 < length && content.charAt(i + 1) == '/') {
+                    blockComment = false;
+                    i += 2;
+                } else {
+                    i++;
+                }
+            } else if (lineComment) {
+                i++;
+                if (c == '\n') {
+                    break;
+                }
+            } else if (quote != 0) {
+                i++;
+                if (c == '\n') {
+                    break;
+                }
+                line.append(c);
+                if (c == '\\' && i < length && content.charAt(i) != '\n') {
+                    line.append(content.charAt(i));
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else {
+                i++;
+                if (c == '\n') {
+                    break;
+                }
+                if (c == '/' && i < length && content.charAt(i) == '*') {
+                    blockComment = true;
+                    line.append(' ');
+                    i++;
+                } else if (c == '/' && i < length && content.charAt(i) == '/') {
+                    lineComment = true;
+                    i++;
+                } else if (c == '"') {
+                    if (isRawStringPrefix(line)) {
+                        //
+                        //   R"delimiter( ... )delimiter"
+                        //
+                        int open = i;
+                        while (open < length && open - i < 16 && content.charAt(open) != '('
+                                && content.charAt(open) != '\n') {
+                            open++;
+                        }
+                        if (open < length && content.charAt(open) == '(') {
+                            rawEnd = ")" + content.subSequence(i, open) + "\"";
+                        } else {
+                            quote = c;
+                        }
+                    } else {
+                        quote = c;
+                    }
+                    line.append(c);
+                } else if (c == '\'') {
+                    //
+                    //   C++14 digit separators are not character literals
+                    //
+                    if (!isInNumber(line)) {
+                        quote = c;
+                    }
+                    line.append(c);
+                } else if (c != '\r') {
+                    line.append(c);
+                }
+            }
+        }
+        position[0] = i;
+        return true;
+    }
+
+    private static boolean endsWith(StringBuilder line, String suffix) {
+        int start = line.length() - suffix.length();
+        return start >= 0 && line.indexOf(suffix, start) == start;
+    }
+
+    private static boolean isRawStringPrefix(StringBuilder line) {
+        int end = line.length();
+        if (end == 0 || line.charAt(end - 1) != 'R') {
+            return false;
+        }
+        int start = end - 1;
+        while (start > 0 && isIdentifierChar(line.charAt(start - 1))) {
+            start--;
+        }
+        String prefix = line.substring(start, end);
+        return prefix.equals("R") || prefix.equals("LR") || prefix.equals("uR")
+                || prefix.equals("UR") || prefix.equals("u8R");
+    }
+
+    private static boolean isInNumber(StringBuilder line) {
+        int start = line.length();
+        while (start > 0 && isIdentifierChar(line.charAt(start - 1))) {
+            start--;
+        }
+        return start < line.length() && Character.isDigit(line.charAt(start));
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static int skipWhitespace(CharSequence text, int index) {
+        while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int identifierEnd(CharSequence text, int index) {
+        if (index < text.length() && !Character.isDigit(text.charAt(index))) {
+            while (index < text.length() && isIdentifierChar(text.charAt(index))) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Evaluates the condition of an #if or #elif directive.
+     *
+     * @param expression condition
+     * @return TRUE, FALSE or UNKNOWN
+     */
+    private int evaluate(String expression) {
+        try {
+            List<String> tokens = expand(tokenize(expression), 0);
+            int[] index = new int[]{0};
+            Long value = parseComma(tokens, index);
+            if (index[0] != tokens.size()) {
+                return UNKNOWN;
+            }
+            if (value == null) {
+                return UNKNOWN;
+            }
+            return value != 0 ? TRUE : FALSE;
+        } catch (ConditionException ex) {
+            return UNKNOWN;
+        }
+    }
+
+    private static List<String> tokenize(String expression) throws ConditionException {
+        List<String> tokens = new ArrayList<String>();
+        int length = expression.length();
+        int i = 0;
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < length
+                    && Character.isDigit(expression.charAt(i + 1)))) {
+                int start = i;
+                while (i < length) {
+                    char n = expression.charAt(i);
+                    if ((n == '+' || n == '-') && "eEpP".indexOf(expression.charAt(i - 1)) >= 0) {
+                        i++;
+                    } else if (isIdentifierChar(n) || n == '.' || n == '\'') {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                tokens.add(expression.substring(start, i));
+            } else if (isIdentifierChar(c)) {
+                int end = identifierEnd(expression, i);
+                tokens.add(expression.substring(i, end));
+                i = end;
+            } else if (c == '\'' || c == '"') {
+                int start = i++;
+                while (i < length && expression.charAt(i) != c) {
+                    if (expression.charAt(i) == '\\') {
+                        i++;
+                    }
+                    i++;
+                }
+                if (i >= length) {
+                    throw new ConditionException();
+                }
+                i++;
+                tokens.add(expression.substring(start, i));
+            } else {
+                String token = String.valueOf(c);
+                for (String punctuator : PUNCTUATORS) {
+                    if (expression.startsWith(punctuator, i)) {
+                        token = punctuator;
+                        break;
+                    }
+                }
+                tokens.add(token);
+                i += token.length();
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Replaces macros by their values.  Invocations of function-like
+     * macros are replaced by a token representing an unknown value.
+     */
+    private List<String> expand(List<String> tokens, int depth) throws ConditionException {
+        if (depth > MAX_EXPANSION_DEPTH) {
+            throw new ConditionException();
+        }
+        List<String> expanded = new ArrayList<String>(tokens.size());
+        int size = tokens.size();
+        for (int i = 0; i < size; i++) {
+            String token = tokens.get(i);
+            if (token.equals("defined")) {
+                expanded.add(token);
+                if (i + 1 < size && tokens.get(i + 1).equals("(")) {
+                    if (i + 3 >= size || !tokens.get(i + 3).equals(")")) {
+                        throw new ConditionException();
+                    }
+                    expanded.add(tokens.get(i + 2));
+                    i += 3;
+                } else if (i + 1 < size) {
+                    expanded.add(tokens.get(++i));
+                }
+            } else if (identifierEnd(token, 0) == token.length() && token.length() > 0) {
+                boolean call = i + 1 < size && tokens.get(i + 1).equals("(");
+                if (functions.contains(token) || (call && !defines.containsKey(token))) {
+                    //
+                    //   skip arguments of function-like macro
+                    //
+                    if (call) {
+                        int nesting = 0;
+                        i++;
+                        for (; i < size; i++) {
+                            if (tokens.get(i).equals("(")) {
+                                nesting++;
+                            } else if (tokens.get(i).equals(")") && --nesting == 0) {
+                                break;
+                            }
+                        }
+                        if (i >= size) {
+                            throw new ConditionException();
+                        }
+                    }
+                    expanded.add(UNKNOWN_TOKEN);
+                } else {
+                    String value = defines.get(token);
+                    if (value != null) {
+                        expanded.addAll(expand(tokenize(value), depth + 1));
+                    } else {
+                        expanded.add(token);
+                    }
+                }
+            } else {
+                expanded.add(token);
+            }
+        }
+        return expanded;
+    }
+
+    private static String peek(List<String> tokens, int[] index) {
+        return index[0] < tokens.size() ? tokens.get(index[0]) : null;
+    }
+
+    private static void expect(List<String> tokens, int[] index, String token)
+            throws ConditionException {
+        if (!token.equals(peek(tokens, index))) {
+            throw new ConditionException();
+        }
+        index[0]++;
+    }
+
+    private Long parseComma(List<String> tokens, int[] index) throws ConditionException {
+        Long value = parseConditional(tokens, index);
+        while (",".equals(peek(tokens, index))) {
+            index[0]++;
+            value = parseConditional(tokens, index);
+        }
+        return value;
+    }
+
+    private Long parseConditional(List<String> tokens, int[] index) throws ConditionException {
+        Long condition = parseBinary(tokens, index, 0);
+        if (!"?".equals(peek(tokens, index))) {
+            return condition;
+        }
+        index[0]++;
+        Long whenTrue = parseComma(tokens, index);
+        expect(tokens, index, ":");
+        Long whenFalse = parseConditional(tokens, index);
+        if (condition != null) {
+            return condition != 0 ? whenTrue : whenFalse;
+        }
+        if (whenTrue != null && whenTrue.equals(whenFalse)) {
+            return whenTrue;
+        }
+        return null;
+    }
+
+    private Long parseBinary(List<String> tokens, int[] index, int level)
+            throws ConditionException {
+        if (level >= BINARY_OPERATORS.length) {
+            return parseUnary(tokens, index);
+        }
+        Long left = parseBinary(tokens, index, level + 1);
+        for (;;) {
+            String operator = peek(tokens, index);
+            boolean found = false;
+            for (String candidate : BINARY_OPERATORS[level]) {
+                if (candidate.equals(operator)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return left;
+            }
+            index[0]++;
+            Long right = parseBinary(tokens, index, level + 1);
+            left = apply(operator, left, right);
+        }
+    }
+
+    private static Long apply(String operator, Long left, Long right) {
+        if (operator.equals("||")) {
+            if ((left != null && left != 0) || (right != null && right != 0)) {
+                return 1L;
+            }
+            return left != null && right != null ? 0L : null;
+        }
+        if (operator.equals("&&")) {
+            if ((left != null && left == 0) || (right != null && right == 0)) {
+                return 0L;
+            }
+            return left != null && right != null ? 1L : null;
+        }
+        if (left == null || right == null) {
+            return null;
+        }
+        long a = left;
+        long b = right;
+        if (operator.equals("|")) {
+            return a | b;
+        } else if (operator.equals("^")) {
+            return a ^ b;
+        } else if (operator.equals("&")) {
+            return a & b;
+        } else if (operator.equals("==")) {
+            return a == b ? 1L : 0L;
+        } else if (operator.equals("!=")) {
+            return a != b ? 1L : 0L;
+        } else if (operator.equals("<")) {
+            return a < b ? 1L : 0L;
+        } else if (operator.equals(">")) {
+            return a > b ? 1L : 0L;
+        } else if (operator.equals("<=")) {
+            return a <= b ? 1L : 0L;
+        } else if (operator.equals(">=")) {
+            return a >= b ? 1L : 0L;
+        } else if (operator.equals("<<")) {
+            return a << b;
+        } else if (operator.equals(">>")) {
+            return a >> b;
+        } else if (operator.equals("+")) {
+            return a + b;
+        } else if (operator.equals("-")) {
+            return a - b;
+        } else if (operator.equals("*")) {
+            return a * b;
+        } else if (b == 0) {
+            return null;
+        } else if (operator.equals("/")) {
+            return a / b;
+        }
+        return a % b;
+    }
+
+    private Long parseUnary(List<String> tokens, int[] index) throws ConditionException {
+        String token = peek(tokens, index);
+        if (token == null) {
+            throw new ConditionException();
+        }
+        if (token.equals("!") || token.equals("~") || token.equals("-") || token.equals("+")) {
+            index[0]++;
+            Long value = parseUnary(tokens, index);
+            if (value == null) {
+                return null;
+            }
+            if (token.equals("!")) {
+                return value == 0 ? 1L : 0L;
+            } else if (token.equals("~")) {
+                return ~value;
+            } else if (token.equals("-")) {
+                return -value;
+            }
+            return value;
+        }
+        index[0]++;
+        if (token.equals("(")) {
+            Long value = parseComma(tokens, index);
+            expect(tokens, index, ")");
+            return value;
+        }
+        if (token.equals(UNKNOWN_TOKEN)) {
+            return null;
+        }
+        if (token.equals("defined")) {
+            String name = peek(tokens, index);
+            if (name == null) {
+                throw new ConditionException();
+            }
+            index[0]++;
+            int defined = lookup(name);
+            if (defined == UNKNOWN) {
+                return null;
+            }
+            return defined == TRUE ? 1L : 0L;
+        }
+        char first = token.charAt(0);
+        if (Character.isDigit(first)) {
+            return parseNumber(token);
+        }
+        if (first == '\'') {
+            return parseCharacter(token);
+        }
+        if (identifierEnd(token, 0) == token.length()) {
+            //
+            //   identifiers that are not macros evaluate to zero
+            //
+            return lookup(token) == FALSE ? Long.valueOf(0) : null;
+        }
+        throw new ConditionException();
+    }
+
+    private static Long parseNumber(String token) {
+        String digits = token.replace("'", "");
+        int end = digits.length();
+        while (end > 0 && "uUlL".indexOf(digits.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        digits = digits.substring(0, end);
+        try {
+            if (digits.startsWith("0x") || digits.startsWith("0X")) {
+                return Long.parseLong(digits.substring(2), 16);
+            }
+            if (digits.startsWith("0b") || digits.startsWith("0B")) {
+                return Long.parseLong(digits.substring(2), 2);
+            }
+            if (digits.length() > 1 && digits.charAt(0) == '0') {
+                return Long.parseLong(digits.substring(1), 8);
+            }
+            return Long.parseLong(digits);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static Long parseCharacter(String token) {
+        if (token.length() == 3) {
+            return (long) token.charAt(1);
+        }
+        if (token.length() == 4 && token.charAt(1) == '\\') {
+            switch (token.charAt(2)) {
+                case 'n':
+                    return (long) '\n';
+                case 't':
+                    return (long) '\t';
+                case 'r':
+                    return (long) '\r';
+                case '0':
+                    return 0L;
+                case '\\':
+                case '\'':
+                case '"':
+                    return (long) token.charAt(2);
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+}
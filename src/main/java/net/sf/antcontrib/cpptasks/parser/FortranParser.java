@@ -16,12 +16,21 @@
  */
 package net.sf.antcontrib.cpptasks.parser;
 
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Locale;
 import java.util.Vector;
 
 /**
  * A parser that extracts INCLUDE statements from a Reader.
+ * <p>
+ * MODULE, SUBMODULE and USE statements are also recorded so that a
+ * source can be compiled after the sources defining the modules it uses.
+ * Module names are reported in lower case, a submodule is reported as
+ * ancestor@name, matching the module file names written by gfortran.
+ * </p>
  *
  * @author Curt Arnold
  */
@@ -31,11 +40,21 @@ public final class FortranParser extends AbstractParser implements Parser {
      */
     private final Vector<String> includes = new Vector<String>();
 
+    /**
+     * Modules and submodules defined by the source.
+     */
+    private final Vector<String> modules = new Vector<String>();
+
     /**
      * State that starts consuming content at the beginning of a line.
      */
     private final AbstractParserState newLineState;
 
+    /**
+     * Modules used by the source, including submodule parents.
+     */
+    private final Vector<String> uses = new Vector<String>();
+
     /**
      * Default constructor.
      */
@@ -70,6 +89,60 @@ public final class FortranParser extends AbstractParser implements Parser {
         return includes.toArray(new String[0]);
     }
 
+    /**
+     * Gets the modules and submodules defined in the parsed source.
+     *
+     * @return lower case module names
+     */
+    public String[] getModules() {
+        return modules.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the modules used by the parsed source that it does not
+     * define itself.  Intrinsic modules are not reported.
+     *
+     * @return lower case module names
+     */
+    public String[] getUses() {
+        Vector<String> external = new Vector<String>();
+        for (String use : uses) {
+            if (!modules.contains(use)) {
+                external.addElement(use);
+            }
+        }
+        return external.toArray(new String[0]);
+    }
+
+    /**
+     * Determines if a file would be parsed as FORTRAN,
+     * that is if its extension starts with 'f' or 'F'.
+     *
+     * @param fileName file name
+     * @return true if a FORTRAN source
+     */
+    public static boolean isFortranSource(final String fileName) {
+        int lastDot = fileName.lastIndexOf('.');
+        if (lastDot >= 0 && lastDot + 1 < fileName.length()) {
+            char afterDot = fileName.charAt(lastDot + 1);
+            return afterDot == 'f' || afterDot == 'F';
+        }
+        return false;
+    }
+
+    /**
+     * Gets the name of the file written by the compiler for a module.
+     *
+     * @param module module name as returned by getModules or getUses
+     * @return name.mod for modules, ancestor@name.smod for submodules
+     */
+    public static String getModuleFileName(final String module) {
+        if (module.indexOf('@') >= 0) {
+            return module + ".smod";
+        }
+        return module + ".mod";
+    }
+
     /**
      * Get the state for the beginning of a new line.
      *
@@ -87,6 +160,109 @@ public final class FortranParser extends AbstractParser implements Parser {
      */
     public void parse(final Reader reader) throws IOException {
         includes.setSize(0);
-        super.parse(reader);
+        modules.setSize(0);
+        uses.setSize(0);
+        CharArrayWriter content = new CharArrayWriter();
+        char[] buf = new char[4096];
+        int charsRead;
+        while ((charsRead = reader.read(buf, 0, buf.length)) >= 0) {
+            content.write(buf, 0, charsRead);
+        }
+        char[] chars = content.toCharArray();
+        int start = 0;
+        for (int i = 0; i <= chars.length; i++) {
+            if (i == chars.length || chars[i] == '\n' || chars[i] == ';') {
+                parseStatement(new String(chars, start, i - start));
+                start = i + 1;
+            }
+        }
+        super.parse(new CharArrayReader(chars));
+    }
+
+    /**
+     * Records a MODULE, SUBMODULE or USE statement.
+     *
+     * @param line one statement or the start of a continued statement
+     */
+    private void parseStatement(final String line) {
+        String statement = line;
+        int comment = statement.indexOf('!');
+        if (comment >= 0) {
+            statement = statement.substring(0, comment);
+        }
+        statement = statement.trim().toLowerCase(Locale.US);
+        if (startsWithKeyword(statement, "module")) {
+            //
+            //   "module procedure" and module function prefixes
+            //       are followed by more than the name
+            String name = statement.substring(6).trim();
+            if (isName(name) && !name.equals("procedure")) {
+                modules.addElement(name);
+            }
+        } else if (startsWithKeyword(statement, "submodule")) {
+            String rest = statement.substring(9).trim();
+            int close = rest.indexOf(')');
+            if (rest.startsWith("(") && close > 0) {
+                String parent = rest.substring(1, close).replace(" ", "");
+                String name = rest.substring(close + 1).trim();
+                int colon = parent.indexOf(':');
+                String ancestor = parent;
+                if (colon >= 0) {
+                    ancestor = parent.substring(0, colon);
+                    parent = ancestor + '@' + parent.substring(colon + 1);
+                }
+                if (isName(ancestor) && isName(name)) {
+                    uses.addElement(parent);
+                    modules.addElement(ancestor + '@' + name);
+                }
+            }
+        } else if (startsWithKeyword(statement, "use")) {
+            String rest = statement.substring(3).trim();
+            if (rest.startsWith(",")) {
+                int separator = rest.indexOf("::");
+                if (separator < 0
+                        || !rest.substring(1, separator).trim().equals("non_intrinsic")) {
+                    return;
+                }
+                rest = rest.substring(separator + 2).trim();
+            } else if (rest.startsWith("::")) {
+                rest = rest.substring(2).trim();
+            }
+            int end = 0;
+            while (end < rest.length() && isNameChar(rest.charAt(end))) {
+                end++;
+            }
+            String name = rest.substring(0, end);
+            if (isName(name) && !uses.contains(name)) {
+                uses.addElement(name);
+            }
+        }
+    }
+
+    private static boolean startsWithKeyword(final String statement, final String keyword) {
+        if (!statement.startsWith(keyword)) {
+            return false;
+        }
+        if (statement.length() == keyword.length()) {
+            return false;
+        }
+        char next = statement.charAt(keyword.length());
+        return next == ' ' || next == '\t' || next == ',' || next == ':' || next == '(';
+    }
+
+    private static boolean isNameChar(final char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9') || ch == '_';
+    }
+
+    private static boolean isName(final String name) {
+        if (name.length() == 0 || name.charAt(0) < 'a' || name.charAt(0) > 'z') {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!isNameChar(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 }
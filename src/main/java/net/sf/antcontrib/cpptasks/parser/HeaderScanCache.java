@@ -0,0 +1,188 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.parser;
+
+import net.sf.antcontrib.cpptasks.CUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Results of scanning files for include directives, shared by every
+ * task in the JVM so that a header used by many modules of a build is
+ * scanned once.
+ * </p>
+ * <p>
+ * Only the names as written in the directives are kept, resolving them
+ * against an include path is left to the caller.  Entries are keyed by
+ * canonical path and the kind of scanner, including the macro state for
+ * conditional scanning, and are used only while the size and
+ * modification time of the file are unchanged.  Files modified within
+ * the last two seconds are not cached, since a later change might not
+ * alter the time stamp.  The least recently used entries are dropped
+ * once the cache is full.
+ * </p>
+ */
+public final class HeaderScanCache {
+    /**
+     * Names found by scanning a file.
+     */
+    public static final class Result {
+        private final String[] includes;
+        private final String[] modules;
+        private final String[] uses;
+
+        /**
+         * Constructor.
+         *
+         * @param includes included file names
+         * @param modules  FORTRAN modules defined, may be null
+         * @param uses     FORTRAN modules used, may be null
+         */
+        public Result(String[] includes, String[] modules, String[] uses) {
+            if (includes == null) {
+                throw new NullPointerException("includes");
+            }
+            this.includes = includes.clone();
+            this.modules = modules == null ? null : modules.clone();
+            this.uses = uses == null ? null : uses.clone();
+        }
+
+        public String[] getIncludes() {
+            return includes.clone();
+        }
+
+        /**
+         * Gets the FORTRAN modules defined by the file.
+         *
+         * @return module names, null if not scanned for modules
+         */
+        public String[] getModules() {
+            return modules == null ? null : modules.clone();
+        }
+
+        /**
+         * Gets the FORTRAN modules used by the file.
+         *
+         * @return module names, null if not scanned for modules
+         */
+        public String[] getUses() {
+            return uses == null ? null : uses.clone();
+        }
+    }
+
+    private static final class Entry {
+        private final long length;
+        private final long lastModified;
+        private final Result result;
+
+        private Entry(long length, long lastModified, Result result) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Maximum number of cached files.
+     */
+    private static final int MAX_ENTRIES = 50000;
+
+    /**
+     * Files modified more recently are not cached.
+     */
+    private static final long RACY_INTERVAL = 2000;
+
+    private static final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(1024, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Scanner keys, which may be long, replaced by a short identifier
+     * in the entry keys.
+     */
+    private static final Hashtable<String, Integer> scanners = new Hashtable<String, Integer>();
+
+    private HeaderScanCache() {
+    }
+
+    private static String getKey(File file, String scanner) {
+        Integer id = scanners.get(scanner);
+        if (id == null) {
+            id = scanners.size();
+            scanners.put(scanner, id);
+        }
+        String path;
+        try {
+            path = CUtil.getCanonicalPath(file);
+        } catch (IOException ex) {
+            path = file.getAbsolutePath();
+        }
+        return id + ":" + path;
+    }
+
+    /**
+     * Gets the cached result of scanning a file.
+     *
+     * @param file    scanned file
+     * @param scanner kind of scanner, results of different scanners
+     *                are cached separately
+     * @return result or null if not cached or the file changed
+     */
+    public static synchronized Result get(File file, String scanner) {
+        String key = getKey(file, scanner);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.length != file.length() || entry.lastModified != file.lastModified()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.result;
+    }
+
+    /**
+     * Caches the result of scanning a file.
+     *
+     * @param file    scanned file
+     * @param scanner kind of scanner
+     * @param result  names found
+     */
+    public static synchronized void put(File file, String scanner, Result result) {
+        long lastModified = file.lastModified();
+        if (lastModified != 0 && lastModified < System.currentTimeMillis() - RACY_INTERVAL) {
+            entries.put(getKey(file, scanner), new Entry(file.length(), lastModified, result));
+        }
+    }
+
+    /**
+     * Discards all cached results.
+     */
+    public static synchronized void clear() {
+        entries.clear();
+        scanners.clear();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.parser;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.Vector;
+
+/**
+ * A parser that extracts the prerequisites of the first rule of a
+ * make-style dependency file, such as the .d files written
+ * by gcc -MD or -MMD.
+ * <p>
+ * Line continuations, escaped spaces and "$$" are recognized.  The
+ * first prerequisite is the compiled source, it is not returned by
+ * getIncludes().
+ * </p>
+ */
+public final class MakeDependParser implements Parser {
+    /**
+     * Prerequisites of the first rule.
+     */
+    private final Vector<String> prerequisites = new Vector<String>();
+
+    /**
+     * Default constructor.
+     */
+    public MakeDependParser() {
+    }
+
+    /**
+     * Gets the prerequisites following the compiled source.
+     *
+     * @return included file names
+     */
+    public String[] getIncludes() {
+        if (prerequisites.size() <= 1) {
+            return new String[0];
+        }
+        return prerequisites.subList(1, prerequisites.size()).toArray(new String[0]);
+    }
+
+    /**
+     * Gets all prerequisites of the first rule.
+     *
+     * @return prerequisite file names
+     */
+    public String[] getPrerequisites() {
+        return prerequisites.toArray(new String[0]);
+    }
+
+    /**
+     * Collects the prerequisites of the first rule from the reader.
+     *
+     * @param reader character reader containing a dependency file
+     * @throws IOException throw if I/O error during parse
+     */
+    public void parse(final Reader reader) throws IOException {
+        prerequisites.setSize(0);
+        StringBuilder token = new StringBuilder();
+        boolean inTargets = true;
+        PushbackReader in = new PushbackReader(reader);
+        int ch = in.read();
+        while (ch != -1) {
+            int next = in.read();
+            if (ch == '\\' && (next == '\n' || next == '\r')) {
+                //
+                //   line continuation
+                //
+                if (next == '\r') {
+                    next = in.read();
+                    if (next == '\n') {
+                        next = in.read();
+                    }
+                } else {
+                    next = in.read();
+                }
+                //
+                //   the continuation separates tokens, the character
+                //      following the line break is read again
+                //
+                if (next != -1) {
+                    in.unread(next);
+                }
+                ch = ' ';
+                continue;
+            }
+            if (ch == '\\' && (next == ' ' || next == '#' || next == '\\')) {
+                token.append((char) next);
+                ch = in.read();
+                continue;
+            }
+            if (ch == '$' && next == '$') {
+                token.append('$');
+                ch = in.read();
+                continue;
+            }
+            if (ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r') {
+                if (token.length() > 0) {
+                    if (inTargets) {
+                        if (token.charAt(token.length() - 1) == ':') {
+                            inTargets = false;
+                        }
+                    } else {
+                        prerequisites.addElement(token.toString());
+                    }
+                    token.setLength(0);
+                }
+                //
+                //   only the first rule is of interest
+                //
+                if ((ch == '\n' || ch == '\r') && !inTargets) {
+                    return;
+                }
+            } else {
+                token.append((char) ch);
+            }
+            ch = next;
+        }
+        if (token.length() > 0 && !inTargets) {
+            prerequisites.addElement(token.toString());
+        }
+    }
+}
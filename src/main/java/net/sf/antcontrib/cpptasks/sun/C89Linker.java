@@ -65,9 +65,9 @@ public final class C89Linker extends CommandLineLinker {
     protected void addIncremental(boolean incremental, Vector<String> args) {
     }
 
-    public String[] addLibrarySets(CCTask task, LibrarySet[] libsets,
+    public String[] addLibrarySets(CCTask task, File outputFile, LibrarySet[] libsets,
                                    Vector<String> preargs, Vector<String> midargs, Vector<String> endargs) {
-        super.addLibrarySets(task, libsets, preargs, midargs, endargs);
+        super.addLibrarySets(task, outputFile, libsets, preargs, midargs, endargs);
         StringBuilder buf = new StringBuilder("-l");
         for (LibrarySet set : libsets) {
             File libdir = set.getDir(null);
@@ -104,4 +104,22 @@ public final class ForteCCLinker extends AbstractLdLinker {
         }
         return instance;
     }
+
+    public int getMaximumCommandLength() {
+        //
+        //   the linker doesn't read response files
+        //
+        return Integer.MAX_VALUE;
+    }
+
+    protected boolean addLto(String lto, int jobs, String cacheDir, Vector<String> args) {
+        //
+        //   the compiler has no -flto
+        //
+        return false;
+    }
+
+    protected boolean isLinkerSelectionSupported() {
+        return false;
+    }
 }
@@ -0,0 +1,189 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.types;
+
+import net.sf.antcontrib.cpptasks.CUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * <p>
+ * Shared index of the file names in library directories.
+ * </p>
+ * <p>
+ * Each directory is listed once and library patterns are then resolved
+ * by hash lookup instead of a directory scan per library name.  A listing
+ * is reused by every library set and task until the modification time of
+ * the directory changes.  Directories modified within the timestamp
+ * resolution of the time they were listed are not cached since a later
+ * change could go unnoticed.
+ * </p>
+ */
+final class LibraryIndex {
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * Modification times closer than this to the time of listing
+     * are not trusted.
+     */
+    private static final long RACY_INTERVAL = 2000;
+
+    private static final Map<String, LibraryIndex> cache = new LinkedHashMap<String, LibraryIndex>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        protected boolean removeEldestEntry(Map.Entry<String, LibraryIndex> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final long lastModified;
+    private final Hashtable<String, String> names = new Hashtable<String, String>();
+    private final Hashtable<String, Vector<String>> foldedNames = new Hashtable<String, Vector<String>>();
+
+    private LibraryIndex(long lastModified, String[] files) {
+        this.lastModified = lastModified;
+        for (String file : files) {
+            names.put(file, file);
+            String folded = fold(file);
+            Vector<String> matches = foldedNames.get(folded);
+            if (matches == null) {
+                matches = new Vector<String>(1);
+                foldedNames.put(folded, matches);
+            }
+            matches.addElement(file);
+        }
+    }
+
+    /**
+     * Finds the files in a directory that match library patterns.
+     *
+     * @param dir           library directory
+     * @param patterns      patterns as returned by Linker.getLibraryPatterns
+     * @param caseSensitive if patterns are matched case sensitively
+     * @return names of the matching files in the order of the patterns,
+     * null if the index can't resolve the patterns or the directory is
+     * not available and the caller should scan the directory
+     */
+    static String[] findFiles(File dir, String[] patterns, boolean caseSensitive) {
+        for (String pattern : patterns) {
+            if (!isPlainName(pattern)) {
+                return null;
+            }
+        }
+        LibraryIndex index = get(dir);
+        if (index == null) {
+            return null;
+        }
+        Vector<String> files = new Vector<String>();
+        for (String pattern : patterns) {
+            if (caseSensitive) {
+                String file = index.names.get(pattern);
+                if (file != null) {
+                    addFile(dir, file, files);
+                }
+            } else {
+                Vector<String> matches = index.foldedNames.get(fold(pattern));
+                if (matches != null) {
+                    for (String file : matches) {
+                        addFile(dir, file, files);
+                    }
+                }
+            }
+        }
+        return files.toArray(new String[files.size()]);
+    }
+
+    private static void addFile(File dir, String file, Vector<String> files) {
+        //
+        //   a directory scan only reports files,
+        //      so check the few names that matched
+        //
+        if (!files.contains(file) && new File(dir, file).isFile()) {
+            files.addElement(file);
+        }
+    }
+
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.US);
+    }
+
+    /**
+     * Gets the index of a directory, listing it if it is not cached or
+     * has been modified since it was listed.
+     *
+     * @param dir directory
+     * @return index, null if not a readable directory
+     */
+    private static LibraryIndex get(File dir) {
+        String path;
+        try {
+            path = CUtil.getCanonicalPath(dir);
+        } catch (IOException ex) {
+            path = dir.getAbsolutePath();
+        }
+        long lastModified = dir.lastModified();
+        if (lastModified == 0) {
+            return null;
+        }
+        synchronized (cache) {
+            LibraryIndex index = cache.get(path);
+            if (index != null && index.lastModified == lastModified) {
+                return index;
+            }
+        }
+        long now = System.currentTimeMillis();
+        String[] files = dir.list();
+        if (files == null) {
+            return null;
+        }
+        LibraryIndex index = new LibraryIndex(lastModified, files);
+        synchronized (cache) {
+            if (lastModified < now - RACY_INTERVAL) {
+                cache.put(path, index);
+            } else {
+                cache.remove(path);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Determines if a pattern names a file in the directory itself
+     * without any wildcards.
+     *
+     * @param pattern pattern
+     * @return true if the pattern can be resolved by lookup
+     */
+    private static boolean isPlainName(String pattern) {
+        if (pattern.length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '/' || c == '\\') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -46,6 +46,7 @@ import java.io.File;
  */
 public class LibrarySet extends DataType {
     private String dataset;
+    private boolean caseSensitive;
     private boolean explicitCaseSensitive;
     private String ifCond;
     private String[] libnames;
@@ -160,6 +161,7 @@ public class LibrarySet extends DataType {
             throw tooManyAttributes();
         }
         explicitCaseSensitive = true;
+        caseSensitive = isCaseSensitive;
         set.setCaseSensitive(isCaseSensitive);
     }
 
@@ -276,53 +278,32 @@ public class LibrarySet extends DataType {
             for (String libname : libnames) {
                 String[] patterns = linker.getLibraryPatterns(new String[]{libname}, libraryType);
                 if (patterns.length > 0) {
-                    FileSet localSet = (FileSet) set.clone();
                     //
                     //   unless explicitly set
                     //      will default to the linker case sensitivity
                     //
+                    boolean isCaseSensitive = caseSensitive;
                     if (!explicitCaseSensitive) {
-                        boolean linkerCaseSensitive = linker.isCaseSensitive();
-                        localSet.setCaseSensitive(linkerCaseSensitive);
-                    }
-                    //
-                    //   add all the patterns for this libname
-                    //
-                    for (String pattern : patterns) {
-                        PatternSet.NameEntry entry = localSet.createInclude();
-                        entry.setName(pattern);
+                        isCaseSensitive = linker.isCaseSensitive();
                     }
                     int matches = 0;
                     //
                     //  if there was no specified directory then
                     //     run through the libpath backwards
                     //
-                    if (localSet.getDir(project) == null) {
+                    File dir = set.getDir(project);
+                    if (dir == null) {
                         //
                         //  scan libpath in reverse order
                         //     to give earlier entries priority
                         //
                         int j = libpath.length - 1;
                         while (j >= 0) {
-                            FileSet clone = (FileSet) localSet.clone();
-                            clone.setDir(libpath[j]);
-                            DirectoryScanner scanner = clone.getDirectoryScanner(project);
-                            File basedir = scanner.getBasedir();
-                            String[] files = scanner.getIncludedFiles();
-                            matches += files.length;
-                            for (String file : files) {
-                                visitor.visit(basedir, file);
-                            }
+                            matches += visitDirectory(project, libpath[j], patterns, isCaseSensitive, visitor);
                             j--;
                         }
                     } else {
-                        DirectoryScanner scanner = localSet.getDirectoryScanner(project);
-                        File basedir = scanner.getBasedir();
-                        String[] files = scanner.getIncludedFiles();
-                        matches += files.length;
-                        for (String file : files) {
-                            visitor.visit(basedir, file);
-                        }
+                        matches += visitDirectory(project, dir, patterns, isCaseSensitive, visitor);
                     }
                     //
                     //  TODO: following section works well for Windows
@@ -354,6 +335,43 @@ public class LibrarySet extends DataType {
         }
     }
 
+    /**
+     * Visits the files in a directory that match library patterns.
+     * Plain file names are looked up in the shared library index,
+     * anything else falls back to a directory scan.
+     *
+     * @param project       project
+     * @param dir           library directory
+     * @param patterns      library patterns
+     * @param caseSensitive if patterns are matched case sensitively
+     * @param visitor       visitor
+     * @return number of files visited
+     */
+    private int visitDirectory(final Project project, final File dir, final String[] patterns,
+                               final boolean caseSensitive, final FileVisitor visitor) {
+        String[] files = LibraryIndex.findFiles(dir, patterns, caseSensitive);
+        File basedir = dir;
+        if (files == null) {
+            FileSet localSet = (FileSet) set.clone();
+            localSet.setDir(dir);
+            localSet.setCaseSensitive(caseSensitive);
+            //
+            //   add all the patterns for this libname
+            //
+            for (String pattern : patterns) {
+                PatternSet.NameEntry entry = localSet.createInclude();
+                entry.setName(pattern);
+            }
+            DirectoryScanner scanner = localSet.getDirectoryScanner(project);
+            basedir = scanner.getBasedir();
+            files = scanner.getIncludedFiles();
+        }
+        for (String file : files) {
+            visitor.visit(basedir, file);
+        }
+        return files.length;
+    }
+
     private LibrarySet getRef() {
         return getCheckedRef(LibrarySet.class, "LibrarySet");
     }
@@ -0,0 +1,145 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import net.sf.antcontrib.cpptasks.gcc.ElfFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests for AbiStamp over shared libraries built by gcc,
+ * skipped if gcc is not available.
+ */
+public class TestAbiStamp {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    static final String IMPLEMENTATION = "int table[4];\nint foo(void) { return 1; }\n";
+    static final String CHANGED_IMPLEMENTATION = "int table[4];\nint foo(void) { return table[0] + 2; }\n";
+    static final String CHANGED_DATA = "int table[8];\nint foo(void) { return 1; }\n";
+
+    /**
+     * Builds libfoo.so with a SONAME and a version script
+     * exporting table and foo.
+     *
+     * @param dir    directory of the source and library
+     * @param source C source of the library
+     * @return library
+     * @throws IOException if unable to build the library
+     */
+    static File buildLibrary(File dir, String source) throws IOException {
+        assumeTrue(isGccAvailable());
+        File sourceFile = new File(dir, "foo.c");
+        FileWriter writer = new FileWriter(sourceFile);
+        writer.write(source);
+        writer.close();
+        File versionScript = new File(dir, "foo.map");
+        writer = new FileWriter(versionScript);
+        writer.write("FOO_1 { global: table; foo; local: *; };\n");
+        writer.close();
+        File library = new File(dir, "libfoo.so");
+        int rc = run(dir, "gcc", "-shared", "-fPIC", "-Wl,-soname,libfoo.so.1",
+                "-Wl,--version-script=" + versionScript.getName(), "-o", library.getName(),
+                sourceFile.getName());
+        assertEquals(0, rc);
+        return library;
+    }
+
+    private static boolean isGccAvailable() {
+        try {
+            return run(null, "gcc", "--version") == 0;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static int run(File dir, String... command) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.directory(dir);
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        InputStream output = process.getInputStream();
+        byte[] buf = new byte[4096];
+        //
+        //   drain the output so the process can't block
+        //
+        while (output.read(buf) > 0) {
+            continue;
+        }
+        output.close();
+        try {
+            return process.waitFor();
+        } catch (InterruptedException ex) {
+            throw new IOException("Interrupted while running " + command[0]);
+        }
+    }
+
+    /**
+     * Checks the SONAME, version definitions and exported
+     * symbols read from a shared library.
+     *
+     * @throws IOException if unable to build or read the library
+     */
+    @Test
+    public void testElfFile() throws IOException {
+        File library = buildLibrary(temporaryFolder.getRoot(), IMPLEMENTATION);
+        RandomAccessFile file = new RandomAccessFile(library, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ElfFile elf = new ElfFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            assertEquals(ElfFile.ET_DYN, elf.getType());
+            assertEquals("libfoo.so.1", elf.getSoname());
+            assertTrue(Arrays.asList(elf.getVersionDefinitions()).contains("FOO_1"));
+            List<String> symbols = Arrays.asList(elf.getExportedSymbols());
+            assertTrue(symbols.toString(), symbols.contains("foo@@FOO_1 2"));
+            assertTrue(symbols.toString(), symbols.contains("table@@FOO_1 1 16"));
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Checks that a change to the implementation keeps the stamp
+     * and a change to the size of exported data does not.
+     *
+     * @throws IOException if unable to build or read the libraries
+     */
+    @Test
+    public void testStamp() throws IOException {
+        File root = temporaryFolder.getRoot();
+        String stamp = AbiStamp.compute(buildLibrary(root, IMPLEMENTATION));
+        assertNotNull(stamp);
+        assertEquals(stamp, AbiStamp.compute(buildLibrary(root, CHANGED_IMPLEMENTATION)));
+        assertFalse(stamp.equals(AbiStamp.compute(buildLibrary(root, CHANGED_DATA))));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.Project;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for CCReportTask.
+ */
+public final class TestCCReportTask {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File writeFile(String name, int size) throws IOException {
+        File file = temporaryFolder.newFile(name);
+        FileWriter writer = new FileWriter(file);
+        for (int i = 0; i < size; i++) {
+            writer.write('x');
+        }
+        writer.close();
+        return file;
+    }
+
+    private static String source(File file, String includes) {
+        return "<source file=\"" + file.getName() + "\" lastModified=\""
+                + Long.toHexString(file.lastModified()) + "\">" + includes + "</source>\n";
+    }
+
+    /**
+     * Checks fan-in and bytes of nested headers without a history.
+     *
+     * @throws IOException if unable to write or read files
+     */
+    @Test
+    public void testCsv() throws IOException {
+        File root = temporaryFolder.getRoot();
+        File a = writeFile("a.c", 100);
+        File b = writeFile("b.c", 100);
+        File x = writeFile("x.h", 30);
+        File y = writeFile("y.h", 20);
+        FileWriter writer = new FileWriter(new File(root, "dependencies.xml"));
+        writer.write("<?xml version='1.0' encoding='UTF-8'?>\n<dependencies>\n"
+                + "<includePath signature=\"/I.\">\n"
+                + source(a, "<include file=\"x.h\"/>")
+                + source(b, "<include file=\"x.h\"/><include file=\"y.h\"/>")
+                + source(x, "<include file=\"y.h\"/>")
+                + source(y, "")
+                + "</includePath>\n</dependencies>\n");
+        writer.close();
+
+        CCReportTask task = new CCReportTask();
+        task.setProject(new Project());
+        task.setObjdir(root);
+        ReportFormatEnum format = new ReportFormatEnum();
+        format.setValue("csv");
+        task.setFormat(format);
+        File report = new File(root, "report.csv");
+        task.setOutfile(report);
+        task.execute();
+
+        Vector<String> lines = new Vector<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(report));
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lines.addElement(line);
+        }
+        reader.close();
+        assertEquals(3, lines.size());
+        assertEquals("header,fanin,bytes,totalbytes,time", lines.elementAt(0));
+        assertEquals("x.h,2,50,100,", lines.elementAt(1));
+        assertEquals("y.h,2,20,40,", lines.elementAt(2));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.RuntimeConfigurable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests for CCServerTask.
+ */
+public final class TestCCServerTask {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static int getFreePort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static DataOutputStream connect(Socket socket, int port) throws IOException {
+        socket.connect(new InetSocketAddress("127.0.0.1", port), 5000);
+        socket.setSoTimeout(30000);
+        DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+        output.writeInt(CCServerTask.MAGIC);
+        output.writeInt(CCServerTask.VERSION);
+        return output;
+    }
+
+    private static int readResponse(Socket socket) throws IOException {
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(socket.getInputStream()));
+        while (true) {
+            int type = input.readByte();
+            if (type == CCServerTask.LOG) {
+                input.readInt();
+                TaskDefinition.readString(input);
+            } else if (type == CCServerTask.PROPERTY) {
+                TaskDefinition.readString(input);
+                TaskDefinition.readString(input);
+            } else {
+                if (type == CCServerTask.FAILURE) {
+                    TaskDefinition.readString(input);
+                }
+                return type;
+            }
+        }
+    }
+
+    /**
+     * Checks that an idle client, an invalid token and an oversized
+     * string neither block nor stop the server, and a later valid
+     * request is still served.
+     *
+     * @throws Exception if the test fails
+     */
+    @Test
+    public void testHostileRequests() throws Exception {
+        final File tokenFile = new File(temporaryFolder.getRoot(), "server.token");
+        final int port = getFreePort();
+        final CCServerTask server = new CCServerTask();
+        server.setProject(new Project());
+        server.setPort(port);
+        server.setTokenfile(tokenFile);
+        server.setTimeout(500);
+        server.setMaxbuilds(1);
+        Thread thread = new Thread() {
+            public void run() {
+                server.execute();
+            }
+        };
+        thread.start();
+        for (int i = 0; i < 100 && !tokenFile.exists(); i++) {
+            Thread.sleep(100);
+        }
+        String token = CCServerTask.readToken(tokenFile);
+        assertEquals(CCServerTask.TOKEN_LENGTH, token.length());
+
+        Socket idle = new Socket();
+        connect(idle, port);
+
+        Socket invalid = new Socket();
+        DataOutputStream output = connect(invalid, port);
+        output.write(new byte[CCServerTask.TOKEN_LENGTH]);
+        TaskDefinition.writeString(output, token);
+        output.flush();
+
+        Socket oversized = new Socket();
+        output = connect(oversized, port);
+        output.write(token.getBytes("US-ASCII"));
+        output.writeInt(0x7fffffff);
+        output.flush();
+
+        Socket valid = new Socket();
+        output = connect(valid, port);
+        output.write(token.getBytes("US-ASCII"));
+        TaskDefinition.writeString(output, temporaryFolder.getRoot().getAbsolutePath());
+        output.writeInt(0);
+        RuntimeConfigurable echo = new RuntimeConfigurable(new Object(), "echo");
+        echo.setAttribute("message", "hello");
+        TaskDefinition.fromWrapper(new Project(), echo, "echo").write(output);
+        output.flush();
+
+        try {
+            assertEquals(CCServerTask.FAILURE, readResponse(invalid));
+            assertEquals(CCServerTask.SUCCESS, readResponse(valid));
+            thread.join(30000);
+            assertFalse(thread.isAlive());
+        } finally {
+            idle.close();
+            invalid.close();
+            oversized.close();
+            valid.close();
+        }
+    }
+}
@@ -18,8 +18,10 @@ package net.sf.antcontrib.cpptasks;
 
 import net.sf.antcontrib.cpptasks.compiler.CommandLineCompilerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.CompilerConfiguration;
+import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.compiler.ProcessorConfiguration;
 import net.sf.antcontrib.cpptasks.gcc.GccCCompiler;
+import org.apache.tools.ant.Project;
 import org.junit.Test;
 
 import java.io.File;
@@ -86,6 +88,28 @@ public final class TestCCTask {
         assertEquals(0, targetsByConfig.size());
     }
 
+    /**
+     * Test that targets already marked for rebuild are compiled
+     * early by the pipeline, except FORTRAN sources.
+     */
+    @Test
+    public void testGetPipelineTargets() {
+        CompilerConfiguration config1 =
+                new CommandLineCompilerConfiguration(GccCCompiler.getInstance(),
+                        "dummy", new File[0], new File[0], new File[0], "",
+                        new String[0], new ProcessorParam[0], true, new String[0]);
+        TargetInfo target1 = new TargetInfo(config1, new File[]{new File("src/foo.c")},
+                null, new File("foo.o"), true);
+        TargetInfo target2 = new TargetInfo(config1, new File[]{new File("src/bar.f90")},
+                null, new File("bar.o"), true);
+        Hashtable<String, TargetInfo> targets = new Hashtable<String, TargetInfo>();
+        targets.put(target1.getOutput().getName(), target1);
+        targets.put(target2.getOutput().getName(), target2);
+        Hashtable<String, TargetInfo> early = CCTask.getPipelineTargets(targets);
+        assertEquals(1, early.size());
+        assertSame(target1, early.get("foo.o"));
+    }
+
     /**
      * Tests that the default value of failonerror is true.
      */
@@ -110,6 +134,43 @@ public final class TestCCTask {
         assertTrue(failOnError);
     }
 
+    /**
+     * Tests that objects are compiled as for a shared library
+     * when an executable task has a shared nested output.
+     */
+    @Test
+    public void testCompileLinkType() {
+        CCTask task = new CCTask();
+        task.setProject(new Project());
+        OutputTypeEnum executable = new OutputTypeEnum();
+        executable.setValue("executable");
+        task.setOuttype(executable);
+        OutputDef staticOutput = new OutputDef();
+        staticOutput.setOutfile(new File("lib/foo"));
+        OutputTypeEnum staticType = new OutputTypeEnum();
+        staticType.setValue("static");
+        staticOutput.setOuttype(staticType);
+        task.addConfiguredOutput(staticOutput);
+        assertTrue(task.getCompileLinkType().isExecutable());
+        OutputDef sharedOutput = new OutputDef();
+        sharedOutput.setOutfile(new File("lib/foo"));
+        OutputTypeEnum sharedType = new OutputTypeEnum();
+        sharedType.setValue("shared");
+        sharedOutput.setOuttype(sharedType);
+        task.addConfiguredOutput(sharedOutput);
+        LinkType compileLinkType = task.getCompileLinkType();
+        assertTrue(compileLinkType.isSharedLibrary());
+        Vector<String> args = new Vector<String>();
+        GccCCompiler.getInstance().addImpliedArgs(args, false, false, false,
+                compileLinkType, null, null);
+        assertEquals(!System.getProperty("os.name").contains("Windows"), args.contains("-fPIC"));
+        //
+        //   inactive outputs are ignored
+        //
+        sharedOutput.setIf("shared.enabled");
+        assertTrue(task.getCompileLinkType().isExecutable());
+    }
+
     /**
      * Test checks for the presence of antlib.xml.
      *
@@ -21,6 +21,7 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 
+import static net.sf.antcontrib.cpptasks.CUtil.getCanonicalPath;
 import static net.sf.antcontrib.cpptasks.CUtil.getPathFromEnvironment;
 import static net.sf.antcontrib.cpptasks.CUtil.getRelativePath;
 import static net.sf.antcontrib.cpptasks.CUtil.parsePath;
@@ -179,4 +180,19 @@ public class TestCUtil {
     public void testXmlEncode() {
         assertEquals("&lt;&quot;boo&quot;&gt;", xmlAttribEncode("<\"boo\">"));
     }
+
+    /**
+     * Checks that cached canonical paths match File.getCanonicalPath.
+     *
+     * @throws IOException if the canonical path can not be determined
+     */
+    @Test
+    public void testGetCanonicalPath() throws IOException {
+        File file = new File(new File(System.getProperty("java.home"), "lib"), "../bin");
+        String expected = file.getCanonicalPath();
+        assertEquals(expected, getCanonicalPath(file));
+        assertEquals(expected, getCanonicalPath(file));
+        CUtil.clearCanonicalPaths();
+        assertEquals(expected, getCanonicalPath(file));
+    }
 }
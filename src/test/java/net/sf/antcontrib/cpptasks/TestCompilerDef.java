@@ -34,6 +34,8 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -289,6 +291,29 @@ public final class TestCompilerDef extends TestProcessorDef {
         compiler.setName(compilerName);
     }
 
+    /**
+     * Tests that link-time optimization and split debug information are
+     * only requested from GCC.
+     */
+    @Test
+    public void testLtoAndSplitDwarf() {
+        String[] names = new String[]{"gcc", "aCC", "hp", "xlC", "xlc_r", "CC", "icc", "ecc"};
+        for (String name : names) {
+            CompilerDef compiler = new CompilerDef();
+            compiler.setProject(new Project());
+            setCompilerName(compiler, name);
+            compiler.setDebug(true);
+            compiler.setSplitDwarf(true);
+            LtoEnum lto = new LtoEnum();
+            lto.setValue("full");
+            compiler.setLto(lto);
+            List<String> preArgs = Arrays.asList(getPreArguments(compiler));
+            boolean gcc = "gcc".equals(name);
+            assertEquals(name, gcc, preArgs.contains("-flto"));
+            assertEquals(name, gcc, preArgs.contains("-gsplit-dwarf"));
+        }
+    }
+
     /**
      * Tests that the extend attribute of the base compiler definition is
      * effective.
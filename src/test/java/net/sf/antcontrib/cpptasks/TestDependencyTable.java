@@ -16,6 +16,8 @@
  */
 package net.sf.antcontrib.cpptasks;
 
+import net.sf.antcontrib.cpptasks.compiler.CommandLineCompilerConfiguration;
+import net.sf.antcontrib.cpptasks.gcc.GccCCompiler;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -24,8 +26,17 @@ import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * DependencyTable tests
@@ -72,4 +83,370 @@ public class TestDependencyTable extends TestXMLConsumer {
         DependencyTable dependencies = new DependencyTable(temporaryFolder.getRoot());
         dependencies.load();
     }
+
+    /**
+     * Imports dependencies.xml, commits the binary store and
+     * checks that a new table reads the same information.
+     *
+     * @throws IOException if something goes wrong
+     * @throws ParserConfigurationException if parser configuration is wrong
+     * @throws SAXException if parser input is incorrect
+     */
+    @Test
+    public void testBinaryRoundTrip() throws IOException, ParserConfigurationException, SAXException {
+        File root = temporaryFolder.getRoot();
+        File source = temporaryFolder.newFile("hello.c");
+        File header = temporaryFolder.newFile("hello.h");
+        FileWriter writer = new FileWriter(dependencyFile);
+        writer.write("<?xml version='1.0' encoding='UTF-8'?>\n<dependencies>\n"
+                + "<includePath signature=\"/Iinclude\">\n"
+                + "<source file=\"hello.c\" lastModified=\""
+                + Long.toHexString(source.lastModified()) + "\">\n"
+                + "<include file=\"hello.h\"/>\n<sysinclude file=\"stdio.h\"/>\n</source>\n"
+                + "<source file=\"hello.h\" lastModified=\""
+                + Long.toHexString(header.lastModified() - 10000) + "\"/>\n"
+                + "<source file=\"missing.c\" lastModified=\"0\"/>\n"
+                + "</includePath>\n</dependencies>\n");
+        writer.close();
+
+        DependencyTable dependencies = new DependencyTable(root);
+        dependencies.load();
+        dependencies.commit(new CCTask());
+        assertTrue(new File(root, "dependencies.bin").exists());
+
+        DependencyTable reloaded = new DependencyTable(root);
+        reloaded.load();
+        DependencyInfo dependInfo = reloaded.getDependencyInfo("hello.c", "/Iinclude");
+        assertNotNull(dependInfo);
+        assertEquals(source.lastModified(), dependInfo.getSourceLastModified());
+        assertEquals(1, dependInfo.getIncludes().length);
+        assertEquals("hello.h", dependInfo.getIncludes()[0]);
+        assertEquals("stdio.h", dependInfo.getSysIncludes()[0]);
+        assertNull(reloaded.getDependencyInfo("hello.c", "/Iother"));
+        //
+        //   stale and missing sources were dropped on import
+        assertNull(reloaded.getDependencyInfo("hello.h", "/Iinclude"));
+        assertNull(reloaded.getDependencyInfo("missing.c", "/Iinclude"));
+
+        //
+        //   modified sources are ignored on lookup
+        assertTrue(source.setLastModified(source.lastModified() - 10000));
+        DependencyTable modified = new DependencyTable(root);
+        modified.load();
+        assertNull(modified.getDependencyInfo("hello.c", "/Iinclude"));
+        assertFalse(modified.elements().hasMoreElements());
+    }
+
+    /**
+     * Checks that FORTRAN modules survive the binary store and XML export.
+     *
+     * @throws IOException if something goes wrong
+     * @throws ParserConfigurationException if parser configuration is wrong
+     * @throws SAXException if parser input is incorrect
+     */
+    @Test
+    public void testModules() throws IOException, ParserConfigurationException, SAXException {
+        File root = temporaryFolder.getRoot();
+        File source = temporaryFolder.newFile("solver.f90");
+        FileWriter writer = new FileWriter(dependencyFile);
+        writer.write("<?xml version='1.0' encoding='UTF-8'?>\n<dependencies>\n"
+                + "<includePath signature=\"/Iinclude\">\n"
+                + "<source file=\"solver.f90\" lastModified=\""
+                + Long.toHexString(source.lastModified()) + "\">\n"
+                + "<module name=\"solver\"/>\n<use name=\"grid\"/>\n<use name=\"io\"/>\n"
+                + "</source>\n</includePath>\n</dependencies>\n");
+        writer.close();
+
+        DependencyTable dependencies = new DependencyTable(root);
+        dependencies.load();
+        dependencies.commit(new CCTask());
+        assertTrue(dependencyFile.delete());
+
+        DependencyTable reloaded = new DependencyTable(root);
+        reloaded.load();
+        DependencyInfo dependInfo = reloaded.getDependencyInfo("solver.f90", "/Iinclude");
+        assertNotNull(dependInfo);
+        assertEquals(Arrays.asList("solver"), Arrays.asList(dependInfo.getModules()));
+        assertEquals(Arrays.asList("grid", "io"), Arrays.asList(dependInfo.getUses()));
+
+        reloaded.exportXml(dependencyFile);
+        DependencyTable imported = new DependencyTable(root);
+        imported.importXml(dependencyFile);
+        dependInfo = imported.getDependencyInfo("solver.f90", "/Iinclude");
+        assertEquals(Arrays.asList("solver"), Arrays.asList(dependInfo.getModules()));
+        assertEquals(Arrays.asList("grid", "io"), Arrays.asList(dependInfo.getUses()));
+    }
+
+    /**
+     * Checks that changes after the initial commit are appended
+     * to dependencies.log and replayed on load.
+     *
+     * @throws IOException if something goes wrong
+     * @throws ParserConfigurationException if parser configuration is wrong
+     * @throws SAXException if parser input is incorrect
+     */
+    @Test
+    public void testIncrementalCommit() throws IOException, ParserConfigurationException, SAXException {
+        File root = temporaryFolder.getRoot();
+        File first = temporaryFolder.newFile("first.c");
+        File second = temporaryFolder.newFile("second.c");
+        writeDependencies(dependencyFile, first, "first.h");
+        DependencyTable dependencies = new DependencyTable(root);
+        dependencies.load();
+        dependencies.commit(new CCTask());
+        File binFile = new File(root, "dependencies.bin");
+        File logFile = new File(root, "dependencies.log");
+        long binLength = binFile.length();
+        assertFalse(logFile.exists());
+
+        DependencyTable updated = new DependencyTable(root);
+        updated.load();
+        File more = new File(root, "more.xml");
+        writeDependencies(more, second, "second.h");
+        updated.importXml(more);
+        updated.commit(new CCTask());
+        assertTrue(logFile.exists());
+        assertEquals(binLength, binFile.length());
+
+        DependencyTable reloaded = new DependencyTable(root);
+        reloaded.load();
+        assertEquals("first.h", reloaded.getDependencyInfo("first.c", "/Iinclude").getIncludes()[0]);
+        assertEquals("second.h", reloaded.getDependencyInfo("second.c", "/Iinclude").getIncludes()[0]);
+
+        File exported = new File(root, "exported.xml");
+        reloaded.exportXml(exported);
+        DependencyTable imported = new DependencyTable(root);
+        imported.importXml(exported);
+        assertNotNull(imported.getDependencyInfo("first.c", "/Iinclude"));
+        assertNotNull(imported.getDependencyInfo("second.c", "/Iinclude"));
+    }
+
+    /**
+     * Checks that a store that could not be renamed by an earlier
+     * commit replaces dependencies.bin and the log on load.
+     *
+     * @throws IOException if something goes wrong
+     * @throws ParserConfigurationException if parser configuration is wrong
+     * @throws SAXException if parser input is incorrect
+     */
+    @Test
+    public void testPendingCommit() throws IOException, ParserConfigurationException, SAXException {
+        File root = temporaryFolder.getRoot();
+        File first = temporaryFolder.newFile("first.c");
+        File second = temporaryFolder.newFile("second.c");
+        writeDependencies(dependencyFile, first, "first.h");
+        DependencyTable dependencies = new DependencyTable(root);
+        dependencies.load();
+        dependencies.commit(new CCTask());
+        File logFile = new File(root, "dependencies.log");
+        assertTrue(logFile.createNewFile());
+        //
+        //   leave a newer store as a failed rename would
+        //
+        File more = new File(root, "more.xml");
+        writeDependencies(more, second, "second.h");
+        DependencyTable imported = new DependencyTable(root);
+        imported.importXml(more);
+        File pendingFile = new File(root, "dependencies.bin.tmp");
+        DependencyStore.write(pendingFile,
+                Arrays.asList(imported.getDependencyInfo("second.c", "/Iinclude")));
+
+        DependencyTable reloaded = new DependencyTable(root);
+        reloaded.load();
+        assertFalse(pendingFile.exists());
+        assertFalse(logFile.exists());
+        assertNull(reloaded.getDependencyInfo("first.c", "/Iinclude"));
+        assertEquals("second.h", reloaded.getDependencyInfo("second.c", "/Iinclude").getIncludes()[0]);
+    }
+
+    private static void writeDependencies(File xmlFile, File source, String include) throws IOException {
+        FileWriter writer = new FileWriter(xmlFile);
+        writer.write("<?xml version='1.0' encoding='UTF-8'?>\n<dependencies>\n"
+                + "<includePath signature=\"/Iinclude\">\n"
+                + "<source file=\"" + source.getName() + "\" lastModified=\""
+                + Long.toHexString(source.lastModified()) + "\">\n"
+                + "<include file=\"" + include + "\"/>\n</source>\n"
+                + "</includePath>\n</dependencies>\n");
+        writer.close();
+    }
+
+    /**
+     * Checks that dependencies reported by the compiler are
+     * checked by time stamp without parsing the source.
+     *
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testIngestDependencyFile() throws IOException {
+        File root = temporaryFolder.getRoot();
+        File source = temporaryFolder.newFile("foo.c");
+        File header = temporaryFolder.newFile("foo.h");
+        File object = temporaryFolder.newFile("foo.o");
+        File dependFile = new File(root, "foo.d");
+        FileWriter writer = new FileWriter(dependFile);
+        writer.write("foo.o: " + source.getAbsolutePath() + " \\\n " + header.getAbsolutePath() + "\n");
+        writer.close();
+        long now = System.currentTimeMillis();
+        assertTrue(source.setLastModified(now - 20000));
+        assertTrue(header.setLastModified(now - 20000));
+        assertTrue(object.setLastModified(now - 10000));
+
+        CommandLineCompilerConfiguration config = new CommandLineCompilerConfiguration(
+                GccCCompiler.getInstance(), "gcc", new File[0], new File[0], new File[0],
+                "/Iinclude", new String[0], new ProcessorParam[0], false, new String[0]);
+        DependencyTable dependencies = new DependencyTable(root);
+        assertTrue(dependencies.ingestDependencyFile(config, source, dependFile));
+        DependencyInfo dependInfo = dependencies.getDependencyInfo("foo.c", "/Iinclude");
+        assertTrue(dependInfo.isCompilerGenerated());
+        assertEquals("foo.h", dependInfo.getIncludes()[0]);
+
+        TargetInfo target = new TargetInfo(config, new File[]{source}, null, object, false);
+        assertFalse(dependencies.needsRebuild(new CCTask(), target, -1));
+        assertTrue(header.setLastModified(now));
+        assertTrue(dependencies.needsRebuild(new CCTask(), target, -1));
+        assertTrue(header.delete());
+        assertTrue(dependencies.needsRebuild(new CCTask(), target, -1));
+    }
+
+    /**
+     * Checks that affected sources are found through
+     * nested includes, before and after a commit.
+     *
+     * @throws IOException if unable to write files
+     * @throws ParserConfigurationException if unable to create parser
+     * @throws SAXException if unable to parse
+     */
+    @Test
+    public void testAffectedSources() throws IOException, ParserConfigurationException, SAXException {
+        File root = temporaryFolder.getRoot();
+        File a = temporaryFolder.newFile("a.c");
+        File b = temporaryFolder.newFile("b.h");
+        File c = temporaryFolder.newFile("c.h");
+        File d = temporaryFolder.newFile("d.c");
+        File e = temporaryFolder.newFile("e.h");
+        CommandLineCompilerConfiguration config = new CommandLineCompilerConfiguration(
+                GccCCompiler.getInstance(), "gcc", new File[0], new File[0], new File[0],
+                "/Iinclude", new String[0], new ProcessorParam[0], false, new String[0]);
+        DependencyTable dependencies = new DependencyTable(root);
+        File dependFile = new File(root, "deps.d");
+        FileWriter writer = new FileWriter(dependFile);
+        writer.write("a.o: " + a.getAbsolutePath() + " " + b.getAbsolutePath() + "\n");
+        writer.close();
+        assertTrue(dependencies.ingestDependencyFile(config, a, dependFile));
+        writer = new FileWriter(dependFile);
+        writer.write("b.h: " + b.getAbsolutePath() + " " + c.getAbsolutePath() + "\n");
+        writer.close();
+        assertTrue(dependencies.ingestDependencyFile(config, b, dependFile));
+        writer = new FileWriter(dependFile);
+        writer.write("d.o: " + d.getAbsolutePath() + " " + e.getAbsolutePath() + "\n");
+        writer.close();
+        assertTrue(dependencies.ingestDependencyFile(config, d, dependFile));
+
+        assertEquals(Arrays.asList("b.h"), Arrays.asList(dependencies.getDependents("c.h")));
+        assertEquals(Arrays.asList("c.h", "b.h", "a.c"),
+                Arrays.asList(dependencies.getAffectedSources(new File[]{c})));
+        dependencies.commit(new CCTask());
+
+        DependencyTable reloaded = new DependencyTable(root);
+        reloaded.load();
+        assertEquals(Arrays.asList("e.h", "d.c"),
+                Arrays.asList(reloaded.getAffectedSources(new File[]{e})));
+        assertEquals(0, reloaded.getDependents("a.c").length);
+
+        //
+        //   a change appended to the log replaces the
+        //      entry of the store in the reverse index
+        //
+        writer = new FileWriter(dependFile);
+        writer.write("d.o: " + d.getAbsolutePath() + " " + c.getAbsolutePath() + "\n");
+        writer.close();
+        assertTrue(reloaded.ingestDependencyFile(config, d, dependFile));
+        reloaded.commit(new CCTask());
+        assertTrue(new File(root, "dependencies.log").exists());
+        DependencyTable logged = new DependencyTable(root);
+        logged.load();
+        assertEquals(0, logged.getDependents("e.h").length);
+        assertEquals(Arrays.asList("b.h", "d.c"), Arrays.asList(logged.getDependents("c.h")));
+        assertEquals(new HashSet<String>(Arrays.asList("b.h", "c.h")),
+                new HashSet<String>(Arrays.asList(logged.getIncludedFiles())));
+    }
+
+    private File writeSource(String name, String content, long lastModified) throws IOException {
+        File file = new File(temporaryFolder.getRoot(), name);
+        FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    /**
+     * Checks composite times through include cycles and include
+     * chains deeper than the old 50 entry stack.
+     *
+     * @throws IOException if unable to write files
+     */
+    @Test
+    public void testCompositeLastModified() throws IOException {
+        File root = temporaryFolder.getRoot();
+        long now = System.currentTimeMillis();
+        long old = now - 60000;
+        for (int i = 0; i < 60; i++) {
+            writeSource("chain" + i + ".h", "#include \"chain" + (i + 1) + ".h\"\n", old);
+        }
+        writeSource("chain60.h", "#include \"a.h\"\n", old);
+        writeSource("a.h", "#include \"b.h\"\n", old);
+        File b = writeSource("b.h", "#include \"a.h\"\n", old);
+        File source = writeSource("foo.c", "#include \"chain0.h\"\n", old);
+        File other = writeSource("bar.c", "#include \"b.h\"\n", old);
+        File object = writeSource("foo.o", "", now - 30000);
+        File otherObject = writeSource("bar.o", "", now - 30000);
+
+        CommandLineCompilerConfiguration config = new CommandLineCompilerConfiguration(
+                GccCCompiler.getInstance(), "gcc", new File[]{root}, new File[0], new File[0],
+                "/I" + root, new String[0], new ProcessorParam[0], false, new String[0]);
+        TargetInfo target = new TargetInfo(config, new File[]{source}, null, object, false);
+        TargetInfo otherTarget = new TargetInfo(config, new File[]{other}, null, otherObject, false);
+        DependencyTable dependencies = new DependencyTable(root);
+        assertFalse(dependencies.needsRebuild(new CCTask(), target, -1));
+        assertFalse(dependencies.needsRebuild(new CCTask(), otherTarget, -1));
+
+        assertTrue(b.setLastModified(now));
+        dependencies = new DependencyTable(root);
+        assertTrue(dependencies.needsRebuild(new CCTask(), target, -1));
+        assertTrue(dependencies.needsRebuild(new CCTask(), otherTarget, -1));
+    }
+
+    /**
+     * Checks that the input digest covers include chains
+     * deeper than the old 50 entry stack.
+     *
+     * @throws IOException if unable to write files
+     */
+    @Test
+    public void testInputDigestDeepIncludes() throws IOException {
+        File root = temporaryFolder.getRoot();
+        long old = System.currentTimeMillis() - 60000;
+        for (int i = 0; i < 60; i++) {
+            writeSource("chain" + i + ".h", "#include \"chain" + (i + 1) + ".h\"\n", old);
+        }
+        writeSource("chain60.h", "#include \"chain0.h\"\n", old);
+        File source = writeSource("foo.c", "#include \"chain0.h\"\n", old);
+        File object = writeSource("foo.o", "", old);
+
+        CommandLineCompilerConfiguration config = new CommandLineCompilerConfiguration(
+                GccCCompiler.getInstance(), "gcc", new File[]{root}, new File[0], new File[0],
+                "/I" + root, new String[0], new ProcessorParam[0], false, new String[0]);
+        TargetInfo target = new TargetInfo(config, new File[]{source}, null, object, false);
+        DependencyTable dependencies = new DependencyTable(root);
+        String digest = dependencies.getInputDigest(new CCTask(), target,
+                new FileDigestCache(new File(root, "first.digests")));
+        assertNotNull(digest);
+
+        writeSource("chain60.h", "#include \"chain0.h\"\nint deep;\n", old);
+        String changed = dependencies.getInputDigest(new CCTask(), target,
+                new FileDigestCache(new File(root, "second.digests")));
+        assertNotNull(changed);
+        assertFalse(digest.equals(changed));
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for FileDigestCache.
+ */
+public final class TestFileDigestCache {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static void write(File file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+    }
+
+    /**
+     * Checks that a file is only hashed again when
+     * its size or modification time changes.
+     *
+     * @throws IOException if unable to write files
+     */
+    @Test
+    public void testStatKeyed() throws IOException {
+        File file = temporaryFolder.newFile("foo.h");
+        write(file, "int foo;\n");
+        long lastModified = System.currentTimeMillis() - 20000;
+        assertTrue(file.setLastModified(lastModified));
+        FileDigestCache cache = new FileDigestCache(temporaryFolder.newFile("digests.bin"));
+        String digest = cache.getDigest(file);
+        assertEquals(32, digest.length());
+
+        //
+        //   same size and time, cached digest is used
+        //
+        write(file, "int bar;\n");
+        assertTrue(file.setLastModified(lastModified));
+        assertEquals(digest, cache.getDigest(file));
+
+        //
+        //   touched, content is hashed again
+        //
+        assertTrue(file.setLastModified(lastModified + 10000));
+        String changed = cache.getDigest(file);
+        assertFalse(digest.equals(changed));
+
+        //
+        //   touched back with original content
+        //
+        write(file, "int foo;\n");
+        assertTrue(file.setLastModified(lastModified - 10000));
+        assertEquals(digest, cache.getDigest(file));
+
+        assertNull(cache.getDigest(new File(temporaryFolder.getRoot(), "missing.h")));
+    }
+
+    /**
+     * Checks that digests survive commit and load.
+     *
+     * @throws IOException if unable to write files
+     */
+    @Test
+    public void testCommit() throws IOException {
+        File file = temporaryFolder.newFile("foo.h");
+        write(file, "int foo;\n");
+        long lastModified = System.currentTimeMillis() - 20000;
+        assertTrue(file.setLastModified(lastModified));
+        File cacheFile = new File(temporaryFolder.getRoot(), "digests.bin");
+        FileDigestCache cache = new FileDigestCache(cacheFile);
+        cache.load();
+        String digest = cache.getDigest(file);
+        cache.commit();
+        assertTrue(cacheFile.exists());
+
+        write(file, "int bar;\n");
+        assertTrue(file.setLastModified(lastModified));
+        FileDigestCache reloaded = new FileDigestCache(cacheFile);
+        reloaded.load();
+        assertEquals(digest, reloaded.getDigest(file));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for FileSnapshot.
+ */
+public final class TestFileSnapshot {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        FileSnapshot.end();
+    }
+
+    /**
+     * Checks that time stamps are read once while a snapshot is active.
+     *
+     * @throws IOException if unable to create files
+     */
+    @Test
+    public void testLastModified() throws IOException {
+        File foo = temporaryFolder.newFile("foo.c");
+        File bar = new File(temporaryFolder.getRoot(), "bar.c");
+        long lastModified = System.currentTimeMillis() - 20000;
+        assertTrue(foo.setLastModified(lastModified));
+
+        FileSnapshot.begin(1);
+        assertTrue(FileSnapshot.isActive());
+        assertEquals(lastModified / 1000, FileSnapshot.lastModified(foo) / 1000);
+        assertFalse(FileSnapshot.exists(bar));
+        assertTrue(foo.setLastModified(lastModified + 10000));
+        assertTrue(bar.createNewFile());
+        assertEquals(lastModified / 1000, FileSnapshot.lastModified(foo) / 1000);
+        assertFalse(FileSnapshot.exists(bar));
+
+        FileSnapshot.end();
+        assertFalse(FileSnapshot.isActive());
+        assertEquals((lastModified + 10000) / 1000, FileSnapshot.lastModified(foo) / 1000);
+        assertTrue(FileSnapshot.exists(bar));
+    }
+
+    /**
+     * Checks that a fileset is scanned once while a snapshot is active
+     * and that the time stamps of its files are read in parallel.
+     *
+     * @throws IOException if unable to create files
+     */
+    @Test
+    public void testScan() throws IOException {
+        File dir = temporaryFolder.newFolder("src");
+        File foo = new File(dir, "foo.c");
+        assertTrue(foo.createNewFile());
+        long lastModified = System.currentTimeMillis() - 20000;
+        assertTrue(foo.setLastModified(lastModified));
+        Project project = new Project();
+        project.init();
+        FileSet fileSet = new FileSet();
+        fileSet.setProject(project);
+        fileSet.setDir(dir);
+        fileSet.setIncludes("*.c");
+
+        FileSnapshot.begin(4);
+        FileSnapshot.Scan scan = FileSnapshot.scan(fileSet, project);
+        assertEquals(dir, scan.getBaseDir());
+        assertEquals(Arrays.asList("foo.c"), Arrays.asList(scan.getIncludedFiles()));
+        assertTrue(new File(dir, "bar.c").createNewFile());
+        assertTrue(foo.setLastModified(lastModified + 10000));
+        assertEquals(1, FileSnapshot.scan(fileSet, project).getIncludedFiles().length);
+        assertEquals(lastModified / 1000, FileSnapshot.lastModified(foo) / 1000);
+
+        FileSnapshot.end();
+        assertEquals(2, FileSnapshot.scan(fileSet, project).getIncludedFiles().length);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for FileWatcher.
+ */
+public final class TestFileWatcher {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Checks that modified and deleted files are reported once.
+     *
+     * @throws IOException if unable to create files
+     */
+    @Test
+    public void testPoll() throws IOException {
+        File foo = temporaryFolder.newFile("foo.h");
+        File bar = temporaryFolder.newFile("bar.h");
+        long lastModified = System.currentTimeMillis() - 20000;
+        assertTrue(foo.setLastModified(lastModified));
+        assertTrue(bar.setLastModified(lastModified));
+        FileWatcher watcher = new FileWatcher();
+        watcher.addFile(foo);
+        watcher.addFile(bar);
+        assertEquals(2, watcher.size());
+        assertTrue(watcher.poll().isEmpty());
+
+        assertTrue(foo.setLastModified(lastModified + 10000));
+        assertEquals(Arrays.asList(foo), watcher.poll());
+        assertTrue(watcher.poll().isEmpty());
+
+        assertTrue(bar.delete());
+        assertEquals(Arrays.asList(bar), watcher.poll());
+        assertTrue(watcher.poll().isEmpty());
+    }
+
+    /**
+     * Checks that added files are detected through the directory.
+     *
+     * @throws IOException if unable to create files
+     */
+    @Test
+    public void testDirectory() throws IOException {
+        File dir = temporaryFolder.newFolder("src");
+        assertTrue(dir.setLastModified(System.currentTimeMillis() - 20000));
+        FileWatcher watcher = new FileWatcher();
+        watcher.addDirectory(dir);
+        assertTrue(watcher.poll().isEmpty());
+        assertFalse(watcher.getDirectoriesChanged());
+
+        assertTrue(new File(dir, "new.c").createNewFile());
+        assertTrue(watcher.poll().isEmpty());
+        assertTrue(watcher.getDirectoriesChanged());
+        watcher.poll();
+        assertFalse(watcher.getDirectoriesChanged());
+    }
+}
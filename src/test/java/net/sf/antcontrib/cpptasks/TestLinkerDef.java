@@ -17,6 +17,7 @@
 package net.sf.antcontrib.cpptasks;
 
 import net.sf.antcontrib.cpptasks.compiler.CommandLineLinkerConfiguration;
+import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.compiler.Linker;
 import net.sf.antcontrib.cpptasks.devstudio.DevStudioLinker;
 import net.sf.antcontrib.cpptasks.gcc.GccLinker;
@@ -24,6 +25,7 @@ import net.sf.antcontrib.cpptasks.types.FlexLong;
 import net.sf.antcontrib.cpptasks.types.LibrarySet;
 import net.sf.antcontrib.cpptasks.types.LinkerArgument;
 import net.sf.antcontrib.cpptasks.types.SystemLibrarySet;
+import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.types.FlexInteger;
@@ -34,6 +36,7 @@ import org.junit.rules.ExpectedException;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
@@ -128,6 +131,45 @@ public final class TestLinkerDef extends TestProcessorDef {
         linker.setName(linkerName);
     }
 
+    /**
+     * Tests that the options of GNU drivers and linkers are only passed
+     * to GCC and a warning is logged for linkers that ignore them.
+     */
+    @Test
+    public void testLinkerSelection() {
+        String[] names = new String[]{"gcc", "aCC", "hp", "xlC", "xlc_r", "CC", "icc", "ecc"};
+        for (String name : names) {
+            Project project = new Project();
+            MockBuildListener listener = new MockBuildListener();
+            project.addBuildListener(listener);
+            LinkerDef linker = new LinkerDef();
+            linker.setProject(project);
+            setLinkerName(linker, name);
+            FuseLdEnum fuseLd = new FuseLdEnum();
+            fuseLd.setValue("gold");
+            linker.setFuseLd(fuseLd);
+            linker.setLinkerThreads(4);
+            linker.setGdbIndex(true);
+            linker.setBuildId("sha1");
+            CCTask task = new CCTask();
+            task.setProject(project);
+            String[] preArgs = ((CommandLineLinkerConfiguration) linker.createConfiguration(task,
+                    new LinkType(), null, null, null)).getPreArguments();
+            boolean gcc = "gcc".equals(name);
+            assertEquals(name, gcc, Arrays.asList(preArgs).contains("-fuse-ld=gold"));
+            assertEquals(name, gcc, Arrays.asList(preArgs).contains("--gdb-index"));
+            assertEquals(name, gcc, Arrays.asList(preArgs).contains("--build-id=sha1"));
+            boolean warned = false;
+            for (BuildEvent event : listener.getMessageLoggedEvents()) {
+                if (event.getPriority() == Project.MSG_WARN
+                        && event.getMessage().contains("linkerthreads")) {
+                    warned = true;
+                }
+            }
+            assertEquals(name, !gcc, warned);
+        }
+    }
+
     /**
      * Tests that linkerarg's that appear in the base linker are effective when
      * creating the command line for a linker that extends it.
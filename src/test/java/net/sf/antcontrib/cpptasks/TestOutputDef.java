@@ -0,0 +1,87 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import net.sf.antcontrib.cpptasks.compiler.LinkType;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for OutputDef.
+ */
+public final class TestOutputDef {
+    private static OutputDef create() {
+        OutputDef output = new OutputDef();
+        output.setProject(new Project());
+        output.setOutfile(new File("lib/foo"));
+        return output;
+    }
+
+    /**
+     * Tests selecting objects by name.
+     */
+    @Test
+    public void testIsIncluded() {
+        OutputDef output = create();
+        assertTrue(output.isIncluded("main.o"));
+        output.setExcludes(new CUtil.StringArrayBuilder("main.o, test_*.o"));
+        assertFalse(output.isIncluded("main.o"));
+        assertFalse(output.isIncluded("test_foo.o"));
+        assertTrue(output.isIncluded("foo.o"));
+        output.setIncludes(new CUtil.StringArrayBuilder("f*.o"));
+        assertTrue(output.isIncluded("foo.o"));
+        assertFalse(output.isIncluded("bar.o"));
+    }
+
+    /**
+     * Tests that the output type of the task is used unless overridden.
+     */
+    @Test
+    public void testGetLinkType() {
+        LinkType base = new LinkType();
+        OutputTypeEnum shared = new OutputTypeEnum();
+        shared.setValue("shared");
+        base.setOutputType(shared);
+        base.setStaticRuntime(true);
+        OutputDef output = create();
+        LinkType linkType = output.getLinkType(base);
+        assertTrue(linkType.isSharedLibrary());
+        assertTrue(linkType.isStaticRuntime());
+        OutputTypeEnum executable = new OutputTypeEnum();
+        executable.setValue("executable");
+        output.setOuttype(executable);
+        assertTrue(output.getLinkType(base).isExecutable());
+        assertEquals("shared", base.getOutputType());
+    }
+
+    /**
+     * Tests that an active output must specify the output file.
+     */
+    @Test(expected = BuildException.class)
+    public void testMissingOutfile() {
+        OutputDef output = create();
+        output.setOutfile(null);
+        output.isActive();
+    }
+}
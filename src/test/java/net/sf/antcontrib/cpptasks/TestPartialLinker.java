@@ -0,0 +1,141 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.Project;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for PartialLinker.
+ */
+public final class TestPartialLinker {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static Vector<File> objects(String... names) {
+        Vector<File> objects = new Vector<File>();
+        for (String name : names) {
+            objects.addElement(new File("obj", name));
+        }
+        return objects;
+    }
+
+    /**
+     * Tests grouping by source directory.
+     */
+    @Test
+    public void testGroupByDirectory() {
+        Vector<File> objects = objects("a1.o", "b1.o", "a2.o");
+        Hashtable<File, File> sourceDirs = new Hashtable<File, File>();
+        sourceDirs.put(objects.elementAt(0), new File("src/a"));
+        sourceDirs.put(objects.elementAt(1), new File("src/b"));
+        sourceDirs.put(objects.elementAt(2), new File("src/a"));
+        TreeMap<String, Vector<File>> groups = PartialLinker.group(objects, sourceDirs, "directory");
+        assertEquals(2, groups.size());
+        String first = groups.firstKey();
+        assertTrue(first.startsWith(PartialLinker.PREFIX + "a-"));
+        assertEquals(2, groups.get(first).size());
+        assertEquals(objects.elementAt(0), groups.get(first).elementAt(0));
+        assertEquals(objects.elementAt(2), groups.get(first).elementAt(1));
+        assertEquals(1, groups.get(groups.lastKey()).size());
+    }
+
+    /**
+     * Tests grouping by a number of objects.
+     */
+    @Test
+    public void testGroupByCount() {
+        Vector<File> objects = objects("a.o", "b.o", "c.o", "d.o", "e.o", "f.o", "g.o");
+        TreeMap<String, Vector<File>> groups = PartialLinker.group(objects,
+                new Hashtable<File, File>(), "2");
+        assertTrue(groups.size() <= 4);
+        int count = 0;
+        for (Map.Entry<String, Vector<File>> entry : groups.entrySet()) {
+            assertTrue(entry.getKey().compareTo(PartialLinker.PREFIX + "00004") < 0);
+            count += entry.getValue().size();
+        }
+        assertEquals(objects.size(), count);
+    }
+
+    /**
+     * Tests that adding an object only changes the group it is added to.
+     */
+    @Test
+    public void testGroupByCountIsStable() {
+        Vector<File> objects = objects("a.o", "b.o", "c.o", "d.o", "e.o", "f.o", "g.o");
+        TreeMap<String, Vector<File>> groups = PartialLinker.group(objects,
+                new Hashtable<File, File>(), "2");
+        objects.insertElementAt(new File("obj", "added.o"), 3);
+        TreeMap<String, Vector<File>> changed = PartialLinker.group(objects,
+                new Hashtable<File, File>(), "2");
+        int differences = 0;
+        for (Map.Entry<String, Vector<File>> entry : changed.entrySet()) {
+            if (!entry.getValue().equals(groups.get(entry.getKey()))) {
+                assertTrue(entry.getValue().contains(new File("obj", "added.o")));
+                differences++;
+            }
+        }
+        assertEquals(1, differences);
+    }
+
+    /**
+     * Tests that relocatable objects and history entries of groups
+     * that no longer exist are removed.
+     *
+     * @throws IOException if unable to create the objects
+     */
+    @Test
+    public void testRemoveObsolete() throws IOException {
+        File objDir = temporaryFolder.getRoot();
+        String[] names = {"partial-00000.o", "partial-00001.o", "partial-00002.o", "main.o"};
+        for (String name : names) {
+            temporaryFolder.newFile(name);
+        }
+        CCTask task = new CCTask();
+        task.setProject(new Project());
+        TargetHistoryTable history = new TargetHistoryTable(task, objDir);
+        String configId = "Mock Configuration";
+        history.update(new TestTargetHistoryTable.MockProcessorConfiguration(), names, null);
+        new File(objDir, "partial-00002.o").delete();
+        PartialLinker partialLinker = new PartialLinker(task, objDir, "2", 1);
+        assertTrue(partialLinker.removeObsolete(history, Collections.singleton("partial-00000.o")));
+        assertTrue(new File(objDir, "partial-00000.o").exists());
+        assertFalse(new File(objDir, "partial-00001.o").exists());
+        assertTrue(new File(objDir, "main.o").exists());
+        assertNotNull(history.get(configId, "partial-00000.o"));
+        assertNull(history.get(configId, "partial-00001.o"));
+        assertNull(history.get(configId, "partial-00002.o"));
+        assertNotNull(history.get(configId, "main.o"));
+        assertFalse(partialLinker.removeObsolete(history, Collections.singleton("partial-00000.o")));
+    }
+}
@@ -27,6 +27,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -61,6 +64,10 @@ public class TestTargetHistoryTable extends TestXMLConsumer {
         public boolean getRebuild() {
             return false;
         }
+
+        public String toString() {
+            return getIdentifier();
+        }
     }
 
     private File historyFile;
@@ -131,4 +138,130 @@ public class TestTargetHistoryTable extends TestXMLConsumer {
         assertTrue("History file was not created", historyFile.exists());
         assertTrue("History file was empty", historyFile.length() > 10);
     }
+
+    /**
+     * Tests that an input digest is written and read back.
+     *
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testDigest() throws IOException {
+        historyFile.delete();
+        TargetHistoryTable table = new TargetHistoryTable(null, temporaryFolder.getRoot());
+        File compiledFile = temporaryFolder.newFile("dummy.o");
+        table.update(new MockProcessorConfiguration(), new String[]{"dummy.o"}, null);
+        table.setDigest("Mock Configuration", "dummy.o", "0123456789abcdef");
+        table.commit();
+
+        TargetHistoryTable reloaded = new TargetHistoryTable(null, temporaryFolder.getRoot());
+        TargetHistory history = reloaded.get("Mock Configuration", compiledFile.getName());
+        assertNotNull(history);
+        assertEquals("0123456789abcdef", history.getDigest());
+    }
+
+    /**
+     * Tests that an output digest and a restored modification
+     * time are written and read back.
+     *
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testOutputDigest() throws IOException {
+        historyFile.delete();
+        TargetHistoryTable table = new TargetHistoryTable(null, temporaryFolder.getRoot());
+        File compiledFile = temporaryFolder.newFile("dummy.o");
+        table.update(new MockProcessorConfiguration(), new String[]{"dummy.o"}, null);
+        long built = compiledFile.lastModified();
+        long restored = built - 60000;
+        assertTrue(compiledFile.setLastModified(restored));
+        table.setOutputDigest("Mock Configuration", "dummy.o", "fedcba9876543210",
+                compiledFile.lastModified(), built);
+        table.commit();
+
+        TargetHistoryTable reloaded = new TargetHistoryTable(null, temporaryFolder.getRoot());
+        TargetHistory history = reloaded.get("Mock Configuration", compiledFile.getName());
+        assertNotNull(history);
+        assertEquals("fedcba9876543210", history.getOutputDigest());
+        assertEquals(compiledFile.lastModified(), history.getOutputLastModified());
+        assertEquals(built, history.getVerifiedLastModified());
+    }
+
+    /**
+     * Tests that the ABI stamp of a shared library is read back and
+     * that a changed library without a matching stamp causes a relink.
+     *
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testAbiStamp() throws IOException {
+        File library = temporaryFolder.newFile("libfoo.so");
+        File program = temporaryFolder.newFile("app");
+        long lastModified = library.lastModified();
+        FileOutputStream history = new FileOutputStream(historyFile);
+        history.write(("<?xml version='1.0' encoding='UTF-8'?>\n<history>\n"
+                + "   <processor signature=\"Mock Configuration\">\n"
+                + "      <target file=\"app\" lastModified=\"" + Long.toHexString(program.lastModified()) + "\">\n"
+                + "         <source file=\"libfoo.so\" lastModified=\"" + Long.toHexString(lastModified)
+                + "\" abi=\"00112233445566778899aabbccddeeff\"/>\n"
+                + "      </target>\n   </processor>\n</history>\n").getBytes("UTF-8"));
+        history.close();
+
+        TargetHistoryTable table = new TargetHistoryTable(null, temporaryFolder.getRoot());
+        TargetHistory targetHistory = table.get("Mock Configuration", "app");
+        assertNotNull(targetHistory);
+        assertEquals("00112233445566778899aabbccddeeff", targetHistory.getSources()[0].getAbiStamp());
+
+        TargetInfo unchanged = new TargetInfo(new MockProcessorConfiguration(),
+                new File[]{library}, null, program, false);
+        table.markForRebuild(unchanged);
+        assertFalse(unchanged.getRebuild());
+        //
+        //   not a shared library, so its stamp can't match
+        //
+        assertTrue(library.setLastModified(lastModified - 60000));
+        TargetInfo changed = new TargetInfo(new MockProcessorConfiguration(),
+                new File[]{library}, null, program, false);
+        table.markForRebuild(changed);
+        assertTrue(changed.getRebuild());
+    }
+
+    /**
+     * Tests that a shared library rebuilt with the same ABI doesn't
+     * cause a relink while a change to exported data does.  Skipped
+     * if gcc is not available.
+     *
+     * @throws IOException if something goes wrong
+     */
+    @Test
+    public void testAbiStampOfRebuiltLibrary() throws IOException {
+        File root = temporaryFolder.getRoot();
+        File library = TestAbiStamp.buildLibrary(root, TestAbiStamp.IMPLEMENTATION);
+        File program = temporaryFolder.newFile("app");
+        long lastModified = program.lastModified() - 60000;
+        assertTrue(library.setLastModified(lastModified));
+        FileOutputStream history = new FileOutputStream(historyFile);
+        history.write(("<?xml version='1.0' encoding='UTF-8'?>\n<history>\n"
+                + "   <processor signature=\"Mock Configuration\">\n"
+                + "      <target file=\"app\" lastModified=\"" + Long.toHexString(program.lastModified()) + "\">\n"
+                + "         <source file=\"libfoo.so\" lastModified=\"" + Long.toHexString(lastModified)
+                + "\" abi=\"" + AbiStamp.get(library) + "\"/>\n"
+                + "      </target>\n   </processor>\n</history>\n").getBytes("UTF-8"));
+        history.close();
+
+        TestAbiStamp.buildLibrary(root, TestAbiStamp.CHANGED_IMPLEMENTATION);
+        assertTrue(library.setLastModified(lastModified + 10000));
+        TargetHistoryTable table = new TargetHistoryTable(null, root);
+        TargetInfo unchanged = new TargetInfo(new MockProcessorConfiguration(),
+                new File[]{library}, null, program, false);
+        table.markForRebuild(unchanged);
+        assertFalse(unchanged.getRebuild());
+
+        TestAbiStamp.buildLibrary(root, TestAbiStamp.CHANGED_DATA);
+        assertTrue(library.setLastModified(lastModified + 20000));
+        table = new TargetHistoryTable(null, root);
+        TargetInfo changed = new TargetInfo(new MockProcessorConfiguration(),
+                new File[]{library}, null, program, false);
+        table.markForRebuild(changed);
+        assertTrue(changed.getRebuild());
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.RuntimeConfigurable;
+import org.apache.tools.ant.Target;
+import org.apache.tools.ant.UnknownElement;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Enumeration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for TaskDefinition.
+ */
+public final class TestTaskDefinition {
+    private static TaskDefinition roundTrip(TaskDefinition definition) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        definition.write(output);
+        output.close();
+        return TaskDefinition.read(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    /**
+     * Checks that properties are expanded, excluded attributes and
+     * namespace prefixes are dropped and the definition survives
+     * serialization.
+     *
+     * @throws IOException if unable to serialize
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        Project project = new Project();
+        project.setProperty("obj.dir", "build/obj");
+        RuntimeConfigurable cc = new RuntimeConfigurable(new Object(), "cpp:cc");
+        cc.setAttribute("objdir", "${obj.dir}");
+        cc.setAttribute("server", "7483");
+        RuntimeConfigurable fileset = new RuntimeConfigurable(new Object(), "cpp:fileset");
+        fileset.setAttribute("dir", "src");
+        cc.addChild(fileset);
+        RuntimeConfigurable arg = new RuntimeConfigurable(new Object(), "compilerarg");
+        arg.addText("-O2");
+        cc.addChild(arg);
+
+        TaskDefinition definition = roundTrip(
+                TaskDefinition.fromWrapper(project, cc, "cc", "server"));
+        assertFalse(definition.hasReferences());
+
+        Project other = new Project();
+        UnknownElement element = definition.toElement(other, new Target());
+        assertEquals("cc", element.getTag());
+        RuntimeConfigurable wrapper = element.getWrapper();
+        assertEquals("build/obj", wrapper.getAttributeMap().get("objdir"));
+        assertNull(wrapper.getAttributeMap().get("server"));
+        Enumeration<RuntimeConfigurable> children = wrapper.getChildren();
+        RuntimeConfigurable child = children.nextElement();
+        assertEquals("fileset", child.getElementTag());
+        assertEquals("src", child.getAttributeMap().get("dir"));
+        child = children.nextElement();
+        assertEquals("compilerarg", child.getElementTag());
+        assertEquals("-O2", child.getText().toString());
+        assertFalse(children.hasMoreElements());
+    }
+
+    /**
+     * Checks that nested references are detected.
+     */
+    @Test
+    public void testHasReferences() {
+        RuntimeConfigurable cc = new RuntimeConfigurable(new Object(), "cc");
+        RuntimeConfigurable includePath = new RuntimeConfigurable(new Object(), "includepath");
+        includePath.setAttribute("refid", "inc");
+        cc.addChild(includePath);
+        assertTrue(TaskDefinition.fromWrapper(new Project(), cc, "cc").hasReferences());
+    }
+}
@@ -44,7 +44,8 @@ public class TestAbstractLinker extends TestAbstractProcessor {
                                                        final ProcessorDef[] def1,
                                                        final LinkerDef def2,
                                                        final TargetDef targetPlatform,
-                                                       final VersionInfo versionInfo) {
+                                                       final VersionInfo versionInfo,
+                                                       final File outputFile) {
             return null;
         }
 
@@ -0,0 +1,70 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.compiler;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for LtoCache.
+ */
+public final class TestLtoCache {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File writeFile(File dir, String name, int length, long lastModified) throws IOException {
+        File file = new File(dir, name);
+        FileOutputStream stream = new FileOutputStream(file);
+        stream.write(new byte[length]);
+        stream.close();
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    /**
+     * Tests that the oldest files are removed until the cache fits.
+     *
+     * @throws IOException if unable to create files
+     */
+    @Test
+    public void testPrune() throws IOException {
+        File cache = temporaryFolder.newFolder("lto-cache");
+        File sub = new File(cache, "sub");
+        assertTrue(sub.mkdir());
+        long now = System.currentTimeMillis();
+        File oldest = writeFile(sub, "a", 100, now - 30000);
+        File older = writeFile(cache, "b", 100, now - 20000);
+        File newest = writeFile(cache, "c", 100, now - 10000);
+
+        assertEquals(0, LtoCache.prune(cache, 300));
+        assertTrue(oldest.exists());
+
+        assertEquals(200, LtoCache.prune(cache, 150));
+        assertFalse(oldest.exists());
+        assertFalse(older.exists());
+        assertTrue(newest.exists());
+    }
+}
@@ -19,17 +19,29 @@ package net.sf.antcontrib.cpptasks.gcc;
 import net.sf.antcontrib.cpptasks.CCTask;
 import net.sf.antcontrib.cpptasks.CUtil;
 import net.sf.antcontrib.cpptasks.OutputTypeEnum;
+import net.sf.antcontrib.cpptasks.ProcessorParam;
+import net.sf.antcontrib.cpptasks.compiler.CommandLineLinkerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.types.LibrarySet;
 import net.sf.antcontrib.cpptasks.types.LibraryTypeEnum;
+import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.Vector;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Test ld linker adapter abstract base class
@@ -38,6 +50,9 @@ import static org.junit.Assert.assertNotEquals;
  * </p>
  */
 public class TestAbstractLdLinker {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private final String realOSName = System.getProperty("os.name");
 
     protected AbstractLdLinker getLinker() {
@@ -141,7 +156,7 @@ public class TestAbstractLdLinker {
         Vector<String> preargs = new Vector<String>();
         Vector<String> midargs = new Vector<String>();
         Vector<String> endargs = new Vector<String>();
-        String[] rc = linker.addLibrarySets(task, sets, preargs, midargs, endargs);
+        String[] rc = linker.addLibrarySets(task, null, sets, preargs, midargs, endargs);
         String libdirSwitch = endargs.elementAt(0);
         assertEquals(libdirSwitch.substring(0, 2), "-L");
         //
@@ -151,6 +166,27 @@ public class TestAbstractLdLinker {
         assertEquals(libdirSwitch.substring(libdirSwitch.length() - 3), "foo");
     }
 
+    /**
+     * Library directories are relative to the directory of the
+     * output file passed in, not to the task's outfile.
+     */
+    @Test
+    public void testAddLibrarySetRelativeToOutputFile() {
+        AbstractLdLinker linker = getLinker();
+        CCTask task = new CCTask();
+        task.setOutfile(new File("/build/bin/main"));
+        LibrarySet[] sets = new LibrarySet[]{new LibrarySet()};
+        sets[0].setProject(new Project());
+        sets[0].setDir(new File("/build/lib"));
+        sets[0].setLibs(new CUtil.StringArrayBuilder("bart"));
+        Vector<String> preargs = new Vector<String>();
+        Vector<String> midargs = new Vector<String>();
+        Vector<String> endargs = new Vector<String>();
+        linker.addLibrarySets(task, new File("/build/out/plugin/libfoo.so"), sets,
+                preargs, midargs, endargs);
+        assertEquals("-L" + new File("../../lib").getPath(), endargs.elementAt(0));
+    }
+
     @Test
     public void testAddLibrarySetLibSwitch() {
         AbstractLdLinker linker = getLinker();
@@ -163,7 +199,7 @@ public class TestAbstractLdLinker {
         Vector<String> preargs = new Vector<String>();
         Vector<String> midargs = new Vector<String>();
         Vector<String> endargs = new Vector<String>();
-        String[] rc = linker.addLibrarySets(task, sets, preargs, midargs,
+        String[] rc = linker.addLibrarySets(task, null, sets, preargs, midargs,
                 endargs);
         assertEquals("-lbart", endargs.elementAt(1));
         assertEquals("-lcart", endargs.elementAt(2));
@@ -187,7 +223,7 @@ public class TestAbstractLdLinker {
         Vector<String> preargs = new Vector<String>();
         Vector<String> midargs = new Vector<String>();
         Vector<String> endargs = new Vector<String>();
-        String[] rc = linker.addLibrarySets(task, sets, preargs, midargs, endargs);
+        String[] rc = linker.addLibrarySets(task, null, sets, preargs, midargs, endargs);
         assertEquals("-L", (endargs.elementAt(0)).substring(0, 2));
         assertEquals("-Bdynamic", endargs.elementAt(1));
         assertEquals("-lbart", endargs.elementAt(2));
@@ -212,7 +248,7 @@ public class TestAbstractLdLinker {
         Vector<String> preargs = new Vector<String>();
         Vector<String> midargs = new Vector<String>();
         Vector<String> endargs = new Vector<String>();
-        String[] rc = linker.addLibrarySets(task, sets, preargs, midargs, endargs);
+        String[] rc = linker.addLibrarySets(task, null, sets, preargs, midargs, endargs);
         assertEquals("-F", (endargs.elementAt(0)).substring(0, 2));
         assertEquals("-framework bart", endargs.elementAt(1));
         assertEquals("-framework cart", endargs.elementAt(2));
@@ -241,7 +277,7 @@ public class TestAbstractLdLinker {
         Vector<String> preargs = new Vector<String>();
         Vector<String> midargs = new Vector<String>();
         Vector<String> endargs = new Vector<String>();
-        String[] rc = linker.addLibrarySets(task, sets, preargs, midargs, endargs);
+        String[] rc = linker.addLibrarySets(task, null, sets, preargs, midargs, endargs);
         assertEquals("-lbart", endargs.elementAt(0));
         assertEquals("-Bstatic", endargs.elementAt(1));
         assertEquals("-lcart", endargs.elementAt(2));
@@ -262,10 +298,133 @@ public class TestAbstractLdLinker {
         Vector<String> preargs = new Vector<String>();
         Vector<String> midargs = new Vector<String>();
         Vector<String> endargs = new Vector<String>();
-        String[] rc = linker.addLibrarySets(task, sets, preargs, midargs, endargs);
+        String[] rc = linker.addLibrarySets(task, null, sets, preargs, midargs, endargs);
         assertEquals(3, rc.length);
         assertEquals("bart", rc[0]);
         assertEquals("cart", rc[1]);
         assertEquals("dart", rc[2]);
     }
+
+    /**
+     * Checks the arguments selecting a parallel linker
+     */
+    @Test
+    public void testAddLinkerSelection() {
+        AbstractLdLinker linker = getLinker();
+        Vector<String> args = new Vector<String>();
+        linker.addLinkerSelection("lld", 8, true, "sha1", args);
+        assertEquals(4, args.size());
+        assertEquals("-fuse-ld=lld", args.elementAt(0));
+        assertEquals("--threads=8", args.elementAt(1));
+        assertEquals("--gdb-index", args.elementAt(2));
+        assertEquals("--build-id=sha1", args.elementAt(3));
+        args.setSize(0);
+        linker.addLinkerSelection("gold", 4, false, "true", args);
+        assertEquals(4, args.size());
+        assertEquals("--threads", args.elementAt(1));
+        assertEquals("--thread-count=4", args.elementAt(2));
+        assertEquals("--build-id", args.elementAt(3));
+        args.setSize(0);
+        linker.addLinkerSelection(null, 0, false, null, args);
+        assertEquals(0, args.size());
+    }
+
+    /**
+     * Checks the arguments for link-time optimization
+     */
+    @Test
+    public void testAddLto() {
+        AbstractLdLinker linker = getLinker();
+        Vector<String> args = new Vector<String>();
+        assertFalse(linker.addLto("full", 0, "lto-cache", args));
+        assertEquals(1, args.size());
+        assertEquals("-flto=auto", args.elementAt(0));
+        args.setSize(0);
+        if (linker.isIncrementalLtoSupported()) {
+            assertTrue(linker.addLto("thin", 4, "lto-cache", args));
+            assertEquals(2, args.size());
+            assertEquals("-flto=4", args.elementAt(0));
+            assertEquals("-flto-incremental=lto-cache", args.elementAt(1));
+        } else {
+            try {
+                linker.addLto("thin", 4, "lto-cache", args);
+                fail("thin optimization accepted by gcc " + GccProcessor.getVersion());
+            } catch (BuildException ex) {
+                assertTrue(ex.getMessage().contains("GCC 15"));
+            }
+            assertEquals(0, args.size());
+        }
+    }
+
+    /**
+     * Checks parsing the output of gcc -dumpversion.
+     */
+    @Test
+    public void testGetMajorVersion() {
+        assertEquals(12, GccProcessor.getMajorVersion("12"));
+        assertEquals(4, GccProcessor.getMajorVersion("4.8.5"));
+        assertEquals(15, GccProcessor.getMajorVersion("15.1.0"));
+        assertEquals(0, GccProcessor.getMajorVersion("noversion"));
+    }
+
+    /**
+     * Tests that the response file is removed after
+     * a failed link.
+     */
+    @Test
+    public void testLinkDeletesResponseFile() {
+        final File outputFile = new File(temporaryFolder.getRoot(), "app");
+        final File commandFile = new File(temporaryFolder.getRoot(), "app.rsp");
+        GccLinker linker = new GccLinker("gcc", new String[]{".o"}, new String[0], "", "", false, null) {
+            public int getMaximumCommandLength() {
+                return 0;
+            }
+
+            protected int runCommand(CCTask task, File workingDir, String[] cmdline) {
+                assertTrue(commandFile.exists());
+                assertEquals("@" + commandFile, cmdline[1]);
+                return 1;
+            }
+        };
+        CommandLineLinkerConfiguration config = new CommandLineLinkerConfiguration(linker, "gcc",
+                new String[][]{new String[0], new String[0]}, new ProcessorParam[0],
+                false, false, false, null, null);
+        CCTask task = new CCTask();
+        task.setProject(new Project());
+        try {
+            linker.link(task, outputFile, new String[]{"main.o"}, config);
+            fail("link should have failed");
+        } catch (BuildException ex) {
+            assertFalse(commandFile.exists());
+        }
+    }
+
+    /**
+     * Tests that a response file passes arguments
+     * unchanged when read with GCC quoting.
+     *
+     * @throws IOException if unable to write the response file
+     */
+    @Test
+    public void testPrepareResponseFile() throws IOException {
+        File outputFile = new File(temporaryFolder.getRoot(), "app");
+        String[] args = new String[]{"gcc", "-o", "my app", "C:\\obj\\a.o", "it's", "\"q\"", ""};
+        String[] execArgs = getLinker().prepareResponseFile(outputFile, args);
+        File commandFile = new File(temporaryFolder.getRoot(), "app.rsp");
+        assertEquals(2, execArgs.length);
+        assertEquals("gcc", execArgs[0]);
+        assertEquals("@" + commandFile, execArgs[1]);
+        BufferedReader reader = new BufferedReader(new FileReader(commandFile));
+        try {
+            assertEquals("-o", reader.readLine());
+            assertEquals("my\\ app", reader.readLine());
+            assertEquals("C:\\\\obj\\\\a.o", reader.readLine());
+            assertEquals("it\\'s", reader.readLine());
+            assertEquals("\\\"q\\\"", reader.readLine());
+            assertEquals("\"\"", reader.readLine());
+            assertNull(reader.readLine());
+        } finally {
+            reader.close();
+        }
+    }
 }
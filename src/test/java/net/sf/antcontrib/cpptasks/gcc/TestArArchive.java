@@ -0,0 +1,209 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.gcc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for ArArchive.
+ */
+public final class TestArArchive {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Writes a minimal 64 bit little endian ELF relocatable object
+     * defining the specified global symbols.
+     *
+     * @param file    object file
+     * @param symbols symbol names
+     * @throws IOException if unable to write the file
+     */
+    static void writeObject(File file, String... symbols) throws IOException {
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        strings.write(0);
+        int[] names = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            names[i] = strings.size();
+            strings.write(symbols[i].getBytes("US-ASCII"));
+            strings.write(0);
+        }
+        byte[] sectionNames = "\0.symtab\0.strtab\0.shstrtab\0".getBytes("US-ASCII");
+        int stringsOffset = 64;
+        int sectionNamesOffset = stringsOffset + strings.size();
+        int symbolsOffset = (sectionNamesOffset + sectionNames.length + 7) & ~7;
+        int symbolsSize = 24 * (symbols.length + 1);
+        int sectionsOffset = symbolsOffset + symbolsSize;
+        ByteBuffer buffer = ByteBuffer.allocate(sectionsOffset + 4 * 64);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(new byte[]{0x7F, 'E', 'L', 'F', 2, 1, 1});
+        buffer.putShort(16, (short) ElfFile.ET_REL);
+        buffer.putShort(18, (short) 62);
+        buffer.putInt(20, 1);
+        buffer.putLong(0x28, sectionsOffset);
+        buffer.putShort(0x34, (short) 64);
+        buffer.putShort(0x3A, (short) 64);
+        buffer.putShort(0x3C, (short) 4);
+        buffer.putShort(0x3E, (short) 3);
+        buffer.position(stringsOffset);
+        buffer.put(strings.toByteArray());
+        buffer.put(sectionNames);
+        for (int i = 0; i < symbols.length; i++) {
+            int entry = symbolsOffset + 24 * (i + 1);
+            buffer.putInt(entry, names[i]);
+            buffer.put(entry + 4, (byte) 0x12);
+            buffer.putShort(entry + 6, (short) 1);
+        }
+        putSection(buffer, sectionsOffset + 64, 1, 2, symbolsOffset, symbolsSize, 2, 24);
+        putSection(buffer, sectionsOffset + 128, 9, 3, stringsOffset, strings.size(), 0, 0);
+        putSection(buffer, sectionsOffset + 192, 17, 3, sectionNamesOffset,
+                sectionNames.length, 0, 0);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(buffer.array());
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void putSection(ByteBuffer buffer, int offset, int name, int type,
+                                   long dataOffset, long size, int link, long entrySize) {
+        buffer.putInt(offset, name);
+        buffer.putInt(offset + 4, type);
+        buffer.putLong(offset + 24, dataOffset);
+        buffer.putLong(offset + 32, size);
+        buffer.putInt(offset + 40, link);
+        buffer.putLong(offset + 56, entrySize);
+    }
+
+    private static String readMagic(File file) throws IOException {
+        byte[] magic = new byte[8];
+        InputStream in = new FileInputStream(file);
+        try {
+            assertEquals(8, in.read(magic));
+        } finally {
+            in.close();
+        }
+        return new String(magic, "US-ASCII");
+    }
+
+    /**
+     * Checks that unchanged members are kept and that changed and
+     * vanished members are replaced and removed.
+     *
+     * @throws IOException if unable to write files
+     */
+    @Test
+    public void testUpdate() throws IOException {
+        File foo = temporaryFolder.newFile("foo.o");
+        File bar = temporaryFolder.newFile("bar_with_a_long_name.o");
+        writeObject(foo, "foo", "foo_data");
+        writeObject(bar, "bar");
+        long lastModified = System.currentTimeMillis() - 20000;
+        assertTrue(foo.setLastModified(lastModified));
+        assertTrue(bar.setLastModified(lastModified));
+        File lib = new File(temporaryFolder.getRoot(), "libfoo.a");
+
+        ArArchive archive = new ArArchive(lib, false);
+        assertTrue(archive.update(new File[]{foo, bar}));
+        assertEquals(2, archive.getAdded());
+        archive.write();
+        assertEquals("!<arch>\n", readMagic(lib));
+
+        archive = new ArArchive(lib, false);
+        assertTrue(archive.update(new File[]{foo, bar}));
+        assertEquals(0, archive.getAdded());
+        assertEquals(0, archive.getReplaced());
+        assertArrayEquals(new String[]{"foo", "foo_data"}, archive.getSymbols("foo.o"));
+        assertArrayEquals(new String[]{"bar"}, archive.getSymbols("bar_with_a_long_name.o"));
+
+        writeObject(foo, "foo2");
+        assertTrue(foo.setLastModified(lastModified + 10000));
+        archive = new ArArchive(lib, false);
+        assertTrue(archive.update(new File[]{foo}));
+        assertEquals(1, archive.getReplaced());
+        assertEquals(1, archive.getRemoved());
+        archive.write();
+
+        archive = new ArArchive(lib, false);
+        assertTrue(archive.update(new File[]{foo}));
+        assertEquals(0, archive.getReplaced());
+        assertEquals(Arrays.asList("foo.o"), Arrays.asList(archive.getMemberNames()));
+        assertArrayEquals(new String[]{"foo2"}, archive.getSymbols("foo.o"));
+    }
+
+    /**
+     * Checks that a thin archive references the objects
+     * relative to the archive.
+     *
+     * @throws IOException if unable to write files
+     */
+    @Test
+    public void testThin() throws IOException {
+        File dir = temporaryFolder.newFolder("obj");
+        File foo = new File(dir, "foo.o");
+        writeObject(foo, "foo");
+        File lib = new File(temporaryFolder.getRoot(), "libfoo.a");
+        ArArchive archive = new ArArchive(lib, true);
+        assertTrue(archive.update(new File[]{foo}));
+        archive.write();
+        assertEquals("!<thin>\n", readMagic(lib));
+        assertTrue(lib.length() < foo.length());
+
+        archive = new ArArchive(lib, true);
+        assertTrue(archive.update(new File[]{foo}));
+        assertEquals(0, archive.getAdded());
+        assertEquals(Arrays.asList("obj/foo.o"), Arrays.asList(archive.getMemberNames()));
+        assertArrayEquals(new String[]{"foo"}, archive.getSymbols("obj/foo.o"));
+    }
+
+    /**
+     * Checks that files that are not ELF objects are left to ar.
+     *
+     * @throws IOException if unable to write files
+     */
+    @Test
+    public void testNotElf() throws IOException {
+        File foo = temporaryFolder.newFile("foo.o");
+        OutputStream out = new FileOutputStream(foo);
+        try {
+            out.write("not an object file, not an object file, not an object file".getBytes("US-ASCII"));
+        } finally {
+            out.close();
+        }
+        ArArchive archive = new ArArchive(new File(temporaryFolder.getRoot(), "libfoo.a"), false);
+        assertFalse(archive.update(new File[]{foo}));
+    }
+}
@@ -24,6 +24,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.Vector;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -93,4 +94,32 @@ public class TestGccCCompiler extends TestGccCompatibleCCompiler {
         Parser parser = compiler.createParser(new File("foo.FoR"));
         assertTrue(parser instanceof FortranParser);
     }
+
+    /**
+     * Tests that split debug information is reported as an output
+     */
+    @Test
+    public void testSplitDwarfOutputs() {
+        Vector<String> args = new Vector<String>();
+        compiler.addSplitDwarf(args);
+        assertEquals(1, args.size());
+        assertEquals("-gsplit-dwarf", args.elementAt(0));
+        String[] outputs = compiler.getOutputFileNames("foo.c", null, new String[]{"-c", "-gsplit-dwarf"});
+        assertEquals(2, outputs.length);
+        assertEquals("foo.o", outputs[0]);
+        assertEquals("foo.dwo", outputs[1]);
+        assertEquals(1, compiler.getOutputFileNames("foo.c", null, new String[]{"-c", "-g"}).length);
+        assertEquals(0, compiler.getOutputFileNames("foo.h", null, new String[]{"-gsplit-dwarf"}).length);
+    }
+
+    /**
+     * Tests the switch for link-time optimization
+     */
+    @Test
+    public void testLto() {
+        Vector<String> args = new Vector<String>();
+        compiler.addLto("thin", args);
+        assertEquals(1, args.size());
+        assertEquals("-flto", args.elementAt(0));
+    }
 }
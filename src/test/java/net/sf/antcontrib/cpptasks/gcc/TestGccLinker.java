@@ -17,12 +17,15 @@
 package net.sf.antcontrib.cpptasks.gcc;
 
 import net.sf.antcontrib.cpptasks.OutputTypeEnum;
+import net.sf.antcontrib.cpptasks.ProcessorParam;
+import net.sf.antcontrib.cpptasks.compiler.CommandLineLinkerConfiguration;
 import net.sf.antcontrib.cpptasks.compiler.LinkType;
 import net.sf.antcontrib.cpptasks.compiler.Linker;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -81,4 +84,23 @@ public class TestGccLinker {
         Linker sharedLinker = linker.getLinker(linkType);
         assertEquals("libfoo.so", sharedLinker.getOutputFileNames("foo", null)[0]);
     }
+
+    /**
+     * Partial links run through the driver with the machine options
+     * of the final link, ld takes the emulation separately.
+     */
+    @Test
+    public void testGetPartialLinkCommand() {
+        CommandLineLinkerConfiguration config = new CommandLineLinkerConfiguration(linker, "gcc",
+                new String[][]{{"-m32", "-shared", "-Wl,-soname,libfoo.so", "-march=i686"}, {}},
+                new ProcessorParam[0], false, false, false, null, null);
+        assertArrayEquals(new String[]{"gcc", "-r", "-nostdlib", "-m32", "-march=i686"},
+                linker.getPartialLinkCommand(config));
+        LdLinker ldLinker = LdLinker.getInstance();
+        config = new CommandLineLinkerConfiguration(ldLinker, "ld",
+                new String[][]{{"-m", "elf_i386", "-shared"}, {}},
+                new ProcessorParam[0], false, false, false, null, null);
+        assertArrayEquals(new String[]{"ld", "-r", "-m", "elf_i386"},
+                ldLinker.getPartialLinkCommand(config));
+    }
 }
@@ -0,0 +1,169 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.parser;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the ConditionalCParser class.
+ */
+public final class TestConditionalCParser {
+
+    private static String[] parse(String source, Map<String, String> defined,
+                                  Set<String> undefined, Map<String, String> predefined)
+            throws IOException {
+        ConditionalCParser parser = new ConditionalCParser(defined, undefined, predefined);
+        parser.parse(new StringReader(source));
+        return parser.getIncludes();
+    }
+
+    private static String[] parse(String source) throws IOException {
+        return parse(source, null, null, null);
+    }
+
+    /**
+     * Checks that #if 0 blocks are skipped and #else taken.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testIfZero() throws IOException {
+        String[] includes = parse("#if 0\n#include \"a.h\"\n#else\n#include <b.h>\n#endif\n");
+        assertEquals(Arrays.asList("b.h"), Arrays.asList(includes));
+    }
+
+    /**
+     * Checks that unknown macros take both branches.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testUnknownTakesBothBranches() throws IOException {
+        String[] includes = parse("#ifdef WIN32\n#include \"a.h\"\n#elif HAVE_B\n"
+                + "#include \"b.h\"\n#else\n#include \"c.h\"\n#endif\n");
+        assertEquals(Arrays.asList("a.h", "b.h", "c.h"), Arrays.asList(includes));
+    }
+
+    /**
+     * Checks evaluation against command line defines and undefines.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testDefines() throws IOException {
+        Map<String, String> defined = new HashMap<String, String>();
+        defined.put("LEVEL", "3");
+        defined.put("DEBUG", null);
+        String source = "#if LEVEL > 2 && defined(DEBUG)\n#include \"a.h\"\n#endif\n"
+                + "#if LEVEL == 2 || defined NDEBUG\n#include \"b.h\"\n#endif\n"
+                + "#ifndef NDEBUG\n#include \"c.h\"\n#endif\n";
+        String[] includes = parse(source, defined, Collections.singleton("NDEBUG"), null);
+        assertEquals(Arrays.asList("a.h", "c.h"), Arrays.asList(includes));
+    }
+
+    /**
+     * Checks that conditions on predefined macros are decided.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testPredefined() throws IOException {
+        String source = "#if defined(__GNUC__) && __GNUC__ >= 4\n#include \"gnu.h\"\n#else\n"
+                + "#include \"old.h\"\n#endif\n"
+                + "#ifndef __linux__\n#include <windows.h>\n#endif\n";
+        assertEquals(Arrays.asList("gnu.h", "old.h", "windows.h"), Arrays.asList(parse(source)));
+        Map<String, String> predefined = new HashMap<String, String>();
+        predefined.put("__GNUC__", "9");
+        predefined.put("__linux__", "1");
+        assertEquals(Arrays.asList("gnu.h"),
+                Arrays.asList(parse(source, null, null, predefined)));
+    }
+
+    /**
+     * Checks that reserved names that are not predefined take both
+     * branches, since an included header may define them.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testReservedDefinedByHeader() throws IOException {
+        String source = "#include <features.h>\n#include \"config.h\"\n"
+                + "#ifdef __GLIBC__\n#include <gnu/libc-version.h>\n#endif\n"
+                + "#if _HAVE_FOO\n#include \"foo.h\"\n#endif\n";
+        Map<String, String> predefined = new HashMap<String, String>();
+        predefined.put("__GNUC__", "9");
+        assertEquals(Arrays.asList("features.h", "config.h", "gnu/libc-version.h", "foo.h"),
+                Arrays.asList(parse(source, null, null, predefined)));
+    }
+
+    /**
+     * Checks that local defines and undefines are tracked.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testLocalDefine() throws IOException {
+        String source = "#define USE_A 1\n#if USE_A\n#include \"a.h\"\n#else\n#include \"b.h\"\n#endif\n"
+                + "#undef USE_A\n#ifdef USE_A\n#include \"c.h\"\n#endif\n"
+                + "#define HEADER \"d.h\"\n#include HEADER\n";
+        assertEquals(Arrays.asList("a.h", "d.h"), Arrays.asList(parse(source)));
+    }
+
+    /**
+     * Checks that comments, strings and continuations are handled.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testCommentsAndStrings() throws IOException {
+        String source = "/* #include \"a.h\"\n#include \"b.h\" */\n"
+                + "// #include \"c.h\"\n"
+                + "const char* s = \"\\\n#include \\\"d.h\\\"\";\n"
+                + "#if 0 /* comment */ \\\n  || 0\n#include \"e.h\"\n#endif\n"
+                + "#  include /* comment */ \"f.h\" // trailing\n"
+                + "#include_next <g.h>\n"
+                + "const char* r = R\"x(\n#include \"h.h\"\n)x\";\n"
+                + "int n = 1'000;\n#include \"i.h\"\n";
+        assertEquals(Arrays.asList("f.h", "g.h", "i.h"), Arrays.asList(parse(source)));
+    }
+
+    /**
+     * Checks nested conditionals within an inactive block
+     * and function-like macros in conditions.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testNested() throws IOException {
+        String source = "#if 0\n#if 1\n#include \"a.h\"\n#else\n#include \"b.h\"\n#endif\n#endif\n"
+                + "#if __has_include(<c.h>)\n#include <c.h>\n#endif\n"
+                + "#if 1 ? 0 : 1\n#include \"d.h\"\n#elif (2 * 3) % 4 == 2\n#include \"e.h\"\n"
+                + "#else\n#include \"f.h\"\n#endif\n";
+        Map<String, String> predefined = new HashMap<String, String>();
+        assertEquals(Arrays.asList("c.h", "e.h"), Arrays.asList(parse(source, null, null, predefined)));
+    }
+}
@@ -21,6 +21,7 @@ import org.junit.Test;
 
 import java.io.CharArrayReader;
 import java.io.IOException;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
 
@@ -80,4 +81,45 @@ public final class TestFortranParser {
         assertEquals("foo.inc", includes[0]);
         assertEquals("bar.inc", includes[1]);
     }
+
+    /**
+     * Checks that defined and used modules are recorded and that
+     * module procedures, intrinsic and self uses are ignored.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testModules() throws IOException {
+        CharArrayReader reader = new CharArrayReader(("MODULE Solver ! solves\n"
+                + "  use grid, only: nx\n"
+                + "  USE :: io\n"
+                + "  use, intrinsic :: iso_c_binding\n"
+                + "  use, non_intrinsic :: mesh; use grid\n"
+                + "  module procedure solve\n"
+                + "end module solver\n"
+                + "module helpers\n"
+                + "use solver\n"
+                + "! use commented\n"
+                + "end module\n").toCharArray());
+        parser.parse(reader);
+        assertEquals(Arrays.asList("solver", "helpers"), Arrays.asList(parser.getModules()));
+        assertEquals(Arrays.asList("grid", "io", "mesh"), Arrays.asList(parser.getUses()));
+    }
+
+    /**
+     * Checks that a submodule depends on its parent.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testSubmodule() throws IOException {
+        CharArrayReader reader = new CharArrayReader(
+                "submodule (solver : impl) fast\ninclude 'consts.inc'\n".toCharArray());
+        parser.parse(reader);
+        assertEquals(Arrays.asList("solver@fast"), Arrays.asList(parser.getModules()));
+        assertEquals(Arrays.asList("solver@impl"), Arrays.asList(parser.getUses()));
+        assertEquals("consts.inc", parser.getIncludes()[0]);
+        assertEquals("solver@fast.smod", FortranParser.getModuleFileName("solver@fast"));
+        assertEquals("solver.mod", FortranParser.getModuleFileName("solver"));
+    }
 }
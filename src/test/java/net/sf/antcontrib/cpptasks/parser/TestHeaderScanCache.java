@@ -0,0 +1,83 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.parser;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for HeaderScanCache.
+ */
+public final class TestHeaderScanCache {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        HeaderScanCache.clear();
+    }
+
+    /**
+     * Checks that results are kept per scanner and dropped
+     * when the file changes.
+     *
+     * @throws IOException if unable to create files
+     */
+    @Test
+    public void testGet() throws IOException {
+        File header = temporaryFolder.newFile("foo.h");
+        long lastModified = System.currentTimeMillis() - 20000;
+        assertTrue(header.setLastModified(lastModified));
+        HeaderScanCache.put(header, "c", new HeaderScanCache.Result(new String[]{"bar.h"},
+                null, null));
+        HeaderScanCache.Result result = HeaderScanCache.get(
+                new File(header.getParentFile(), "./foo.h"), "c");
+        assertNotNull(result);
+        assertEquals("bar.h", result.getIncludes()[0]);
+        assertNull(result.getModules());
+        assertNull(HeaderScanCache.get(header, "fortran"));
+
+        FileWriter writer = new FileWriter(header);
+        writer.write("#include <stdio.h>\n");
+        writer.close();
+        assertTrue(header.setLastModified(lastModified));
+        assertNull(HeaderScanCache.get(header, "c"));
+    }
+
+    /**
+     * Checks that recently modified files are not cached.
+     *
+     * @throws IOException if unable to create files
+     */
+    @Test
+    public void testRecentlyModified() throws IOException {
+        File header = temporaryFolder.newFile("foo.h");
+        HeaderScanCache.put(header, "c", new HeaderScanCache.Result(new String[0], null, null));
+        assertNull(HeaderScanCache.get(header, "c"));
+    }
+}
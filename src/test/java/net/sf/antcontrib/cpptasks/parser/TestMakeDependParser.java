@@ -0,0 +1,103 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.parser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the MakeDependParser class.
+ */
+public final class TestMakeDependParser {
+
+    private MakeDependParser parser;
+
+    @Before
+    public void setUp() throws Exception {
+        parser = new MakeDependParser();
+    }
+
+    /**
+     * Checks parsing of a rule with continuation lines.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testContinuation() throws IOException {
+        CharArrayReader reader = new CharArrayReader(
+                "foo.o: /src/foo.c /src/foo.h \\\n /usr/include/stdio.h\r\n".toCharArray());
+        parser.parse(reader);
+        String[] includes = parser.getIncludes();
+        assertEquals(2, includes.length);
+        assertEquals("/src/foo.h", includes[0]);
+        assertEquals("/usr/include/stdio.h", includes[1]);
+        assertEquals("/src/foo.c", parser.getPrerequisites()[0]);
+    }
+
+    /**
+     * Checks a continuation without leading white space on the next line.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testContinuationWithoutIndent() throws IOException {
+        CharArrayReader reader = new CharArrayReader(
+                "foo.o: foo.c \\\nbar.h \\\r\nbaz.h\n".toCharArray());
+        parser.parse(reader);
+        String[] prerequisites = parser.getPrerequisites();
+        assertEquals(3, prerequisites.length);
+        assertEquals("foo.c", prerequisites[0]);
+        assertEquals("bar.h", prerequisites[1]);
+        assertEquals("baz.h", prerequisites[2]);
+    }
+
+    /**
+     * Checks escaped spaces, dollar signs and Windows drive letters.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testEscapes() throws IOException {
+        CharArrayReader reader = new CharArrayReader(
+                "C:/obj/foo.o: C:/my\\ src/foo.c C:/my\\ src/$$x.h".toCharArray());
+        parser.parse(reader);
+        String[] prerequisites = parser.getPrerequisites();
+        assertEquals(2, prerequisites.length);
+        assertEquals("C:/my src/foo.c", prerequisites[0]);
+        assertEquals("C:/my src/$x.h", prerequisites[1]);
+    }
+
+    /**
+     * Checks that only the first rule is returned.
+     *
+     * @throws IOException test fails on IOException
+     */
+    @Test
+    public void testFirstRuleOnly() throws IOException {
+        CharArrayReader reader = new CharArrayReader(
+                "foo.o: foo.c foo.h\n\nfoo.h:\n".toCharArray());
+        parser.parse(reader);
+        String[] includes = parser.getIncludes();
+        assertEquals(1, includes.length);
+        assertEquals("foo.h", includes[0]);
+    }
+}
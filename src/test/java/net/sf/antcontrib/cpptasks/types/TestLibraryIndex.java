@@ -0,0 +1,97 @@
+/*
+ *
+ * Copyright 2026 The Ant-Contrib project
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.sf.antcontrib.cpptasks.types;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for LibraryIndex.
+ */
+public class TestLibraryIndex {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Matches are returned in the order of the patterns
+     * and only files are reported.
+     *
+     * @throws IOException if unable to create files
+     */
+    @Test
+    public void testFindFiles() throws IOException {
+        File dir = temporaryFolder.getRoot();
+        temporaryFolder.newFile("libfoo.a");
+        temporaryFolder.newFile("libfoo.so");
+        temporaryFolder.newFolder("libbar.so");
+        String[] files = LibraryIndex.findFiles(dir,
+                new String[]{"libfoo.so", "libfoo.a", "libbar.so", "libbaz.a"}, true);
+        assertArrayEquals(new String[]{"libfoo.so", "libfoo.a"}, files);
+    }
+
+    /**
+     * Case insensitive lookup reports the name of the file.
+     *
+     * @throws IOException if unable to create files
+     */
+    @Test
+    public void testCaseInsensitive() throws IOException {
+        File dir = temporaryFolder.getRoot();
+        temporaryFolder.newFile("Kernel32.lib");
+        assertEquals(0, LibraryIndex.findFiles(dir, new String[]{"kernel32.lib"}, true).length);
+        assertArrayEquals(new String[]{"Kernel32.lib"},
+                LibraryIndex.findFiles(dir, new String[]{"kernel32.lib", "KERNEL32.LIB"}, false));
+    }
+
+    /**
+     * Patterns with wildcards or paths and missing directories
+     * are left to a directory scan.
+     */
+    @Test
+    public void testUnresolved() {
+        File dir = temporaryFolder.getRoot();
+        assertNull(LibraryIndex.findFiles(dir, new String[]{"libfoo.a", "libfoo*.so"}, true));
+        assertNull(LibraryIndex.findFiles(dir, new String[]{"Foo.framework/Foo"}, true));
+        assertNull(LibraryIndex.findFiles(new File(dir, "missing"), new String[]{"libfoo.a"}, true));
+    }
+
+    /**
+     * A cached listing is replaced when the directory changes.
+     *
+     * @throws IOException if unable to create files
+     */
+    @Test
+    public void testDirectoryChanged() throws IOException {
+        File dir = temporaryFolder.newFolder("lib");
+        long lastModified = System.currentTimeMillis() - 60000;
+        assertTrue(dir.setLastModified(lastModified));
+        assertEquals(0, LibraryIndex.findFiles(dir, new String[]{"libfoo.a"}, true).length);
+        assertTrue(new File(dir, "libfoo.a").createNewFile());
+        assertTrue(dir.setLastModified(lastModified + 1000));
+        assertArrayEquals(new String[]{"libfoo.a"},
+                LibraryIndex.findFiles(dir, new String[]{"libfoo.a"}, true));
+    }
+}